@@ -70,12 +70,19 @@ public class CeQueueImpl implements CeQueue {
   private final DbClient dbClient;
   private final UuidFactory uuidFactory;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final CeTaskSubmitListener[] submitListeners;
 
   public CeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, DefaultOrganizationProvider defaultOrganizationProvider) {
+    this(system2, dbClient, uuidFactory, defaultOrganizationProvider, new CeTaskSubmitListener[0]);
+  }
+
+  public CeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, DefaultOrganizationProvider defaultOrganizationProvider,
+    CeTaskSubmitListener[] submitListeners) {
     this.system2 = system2;
     this.dbClient = dbClient;
     this.uuidFactory = uuidFactory;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.submitListeners = submitListeners;
   }
 
   @Override
@@ -103,6 +110,7 @@ public class CeQueueImpl implements CeQueue {
       }
       CeQueueDto taskDto = addToQueueInDb(dbSession, submission);
       dbSession.commit();
+      notifySubmitListeners();
 
       Map<String, ComponentDto> componentsByUuid = loadComponentDtos(dbSession, taskDto);
       if (componentsByUuid.isEmpty()) {
@@ -141,10 +149,23 @@ public class CeQueueImpl implements CeQueue {
         .collect(Collectors.toList());
       List<CeTask> tasks = loadTasks(dbSession, taskDtos);
       dbSession.commit();
+      if (!tasks.isEmpty()) {
+        notifySubmitListeners();
+      }
       return tasks;
     }
   }
 
+  private void notifySubmitListeners() {
+    for (CeTaskSubmitListener submitListener : submitListeners) {
+      try {
+        submitListener.onTasksSubmitted();
+      } catch (RuntimeException e) {
+        Loggers.get(CeQueueImpl.class).debug("Failed to notify {} of submitted tasks", submitListener.getClass().getSimpleName(), e);
+      }
+    }
+  }
+
   private Predicate<CeTaskSubmit> filterBySubmitOptions(SubmitOption[] options, Collection<CeTaskSubmit> submissions, DbSession dbSession) {
     EnumSet<SubmitOption> submitOptions = toSet(options);
 
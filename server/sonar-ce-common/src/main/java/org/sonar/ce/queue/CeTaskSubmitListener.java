@@ -0,0 +1,34 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+/**
+ * Notified by {@link CeQueueImpl} when tasks have been added to the queue, so that idle workers of the Compute Engine
+ * can pick them up without waiting for their next polling of the queue.
+ * <p>
+ * Implementations must not fail nor take long to execute, as they are called by the thread submitting tasks.
+ */
+public interface CeTaskSubmitListener {
+
+  /**
+   * Called once tasks have been committed into the queue.
+   */
+  void onTasksSubmitted();
+}
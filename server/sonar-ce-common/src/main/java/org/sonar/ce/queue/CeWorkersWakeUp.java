@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+
+/**
+ * Wakes up the idle workers of the Compute Engine running in the current process, either because tasks have been
+ * submitted by this process or because another process asked for it.
+ */
+@ComputeEngineSide
+public class CeWorkersWakeUp implements CeTaskSubmitListener, Startable {
+
+  @CheckForNull
+  private static CeWorkersWakeUp instance;
+
+  private final List<Runnable> wakeUpCallbacks = new CopyOnWriteArrayList<>();
+
+  /**
+   * Registers a callback to be run each time workers must be woken up.
+   */
+  public void register(Runnable wakeUpCallback) {
+    wakeUpCallbacks.add(wakeUpCallback);
+  }
+
+  public void wakeUp() {
+    wakeUpCallbacks.forEach(Runnable::run);
+  }
+
+  @Override
+  public void onTasksSubmitted() {
+    wakeUp();
+  }
+
+  @Override
+  public void start() {
+    instance = this;
+  }
+
+  @Override
+  public void stop() {
+    instance = null;
+  }
+
+  /**
+   * Wakes up the workers of the current process, if it is a started Compute Engine.
+   */
+  public static void wakeUpFromHazelcastDistributedQuery() {
+    CeWorkersWakeUp wakeUp = instance;
+    if (wakeUp != null) {
+      wakeUp.wakeUp();
+    }
+  }
+}
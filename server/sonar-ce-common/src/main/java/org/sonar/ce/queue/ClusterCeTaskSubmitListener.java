@@ -0,0 +1,64 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.util.concurrent.RejectedExecutionException;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.ProcessId;
+import org.sonar.process.cluster.hz.DistributedCall;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.sonar.process.cluster.hz.HazelcastMemberSelectors.selectorForProcessIds;
+
+/**
+ * Wakes up the idle workers of all the Compute Engines of the cluster when tasks are submitted.
+ */
+@ServerSide
+@ComputeEngineSide
+public class ClusterCeTaskSubmitListener implements CeTaskSubmitListener {
+  private static final Logger LOGGER = Loggers.get(ClusterCeTaskSubmitListener.class);
+
+  private final HazelcastMember hazelcastMember;
+
+  public ClusterCeTaskSubmitListener(HazelcastMember hazelcastMember) {
+    this.hazelcastMember = hazelcastMember;
+  }
+
+  @Override
+  public void onTasksSubmitted() {
+    try {
+      hazelcastMember.callAsync(wakeUpWorkers(), selectorForProcessIds(ProcessId.COMPUTE_ENGINE), response -> {
+        // nothing to do, workers which are not woken up will poll the queue anyway
+      });
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("No Compute Engine to wake up in the cluster", e);
+    }
+  }
+
+  private static DistributedCall<Object> wakeUpWorkers() {
+    return () -> {
+      CeWorkersWakeUp.wakeUpFromHazelcastDistributedQuery();
+      return null;
+    };
+  }
+}
@@ -56,6 +56,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.ce.queue.CeQueue.SubmitOption.UNIQUE_QUEUE_PER_MAIN_COMPONENT;
 
 public class CeQueueImplTest {
@@ -75,7 +80,10 @@ public class CeQueueImplTest {
   private UuidFactory uuidFactory = new SequenceUuidFactory();
   private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
 
-  private CeQueue underTest = new CeQueueImpl(system2, db.getDbClient(), uuidFactory, defaultOrganizationProvider);
+  private CeTaskSubmitListener submitListener = mock(CeTaskSubmitListener.class);
+
+  private CeQueue underTest = new CeQueueImpl(system2, db.getDbClient(), uuidFactory, defaultOrganizationProvider,
+    new CeTaskSubmitListener[] {submitListener});
 
   @Test
   public void submit_returns_task_populated_from_CeTaskSubmit_and_creates_CeQueue_row() {
@@ -209,6 +217,50 @@ public class CeQueueImplTest {
       .contains(task.getUuid());
   }
 
+  @Test
+  public void submit_notifies_submit_listeners() {
+    underTest.submit(createTaskSubmit("some type"));
+
+    verify(submitListener).onTasksSubmitted();
+  }
+
+  @Test
+  public void submit_does_not_notify_submit_listeners_if_no_task_is_created() {
+    String mainComponentUuid = randomAlphabetic(5);
+    insertPendingInQueue(newComponent(mainComponentUuid));
+
+    underTest.submit(createTaskSubmit("with_component", newComponent(mainComponentUuid), null), UNIQUE_QUEUE_PER_MAIN_COMPONENT);
+
+    verifyZeroInteractions(submitListener);
+  }
+
+  @Test
+  public void submit_does_not_fail_if_submit_listener_fails() {
+    doThrow(new IllegalStateException("faking listener failure")).when(submitListener).onTasksSubmitted();
+    CeTaskSubmit taskSubmit = createTaskSubmit("some type");
+
+    CeTask task = underTest.submit(taskSubmit);
+
+    assertThat(task.getUuid()).isEqualTo(taskSubmit.getUuid());
+  }
+
+  @Test
+  public void massSubmit_notifies_submit_listeners_once() {
+    underTest.massSubmit(asList(createTaskSubmit("type 1"), createTaskSubmit("type 2")));
+
+    verify(submitListener, times(1)).onTasksSubmitted();
+  }
+
+  @Test
+  public void massSubmit_does_not_notify_submit_listeners_if_no_task_is_created() {
+    String mainComponentUuid = randomAlphabetic(5);
+    insertPendingInQueue(newComponent(mainComponentUuid));
+
+    underTest.massSubmit(of(createTaskSubmit("with_component", newComponent(mainComponentUuid), null)), UNIQUE_QUEUE_PER_MAIN_COMPONENT);
+
+    verifyZeroInteractions(submitListener);
+  }
+
   @Test
   public void massSubmit_returns_tasks_for_each_CeTaskSubmit_populated_from_CeTaskSubmit_and_creates_CeQueue_row_for_each() {
     String mainComponentUuid = randomAlphabetic(10);
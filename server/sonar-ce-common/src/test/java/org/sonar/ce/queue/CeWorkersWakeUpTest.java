@@ -0,0 +1,71 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CeWorkersWakeUpTest {
+  private final AtomicInteger wakeUpCount = new AtomicInteger();
+  private CeWorkersWakeUp underTest = new CeWorkersWakeUp();
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void wakeUp_runs_registered_callbacks() {
+    underTest.register(wakeUpCount::incrementAndGet);
+    underTest.register(wakeUpCount::incrementAndGet);
+
+    underTest.wakeUp();
+
+    assertThat(wakeUpCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void onTasksSubmitted_wakes_up_workers() {
+    underTest.register(wakeUpCount::incrementAndGet);
+
+    underTest.onTasksSubmitted();
+
+    assertThat(wakeUpCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void wakeUpFromHazelcastDistributedQuery_wakes_up_workers_only_when_started() {
+    underTest.register(wakeUpCount::incrementAndGet);
+
+    CeWorkersWakeUp.wakeUpFromHazelcastDistributedQuery();
+    assertThat(wakeUpCount.get()).isZero();
+
+    underTest.start();
+    CeWorkersWakeUp.wakeUpFromHazelcastDistributedQuery();
+    assertThat(wakeUpCount.get()).isEqualTo(1);
+
+    underTest.stop();
+    CeWorkersWakeUp.wakeUpFromHazelcastDistributedQuery();
+    assertThat(wakeUpCount.get()).isEqualTo(1);
+  }
+}
@@ -21,24 +21,33 @@ package org.sonar.ce.task.projectanalysis.batch;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import javax.annotation.CheckForNull;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
+import org.picocontainer.Startable;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.LineSgnificantCode;
+import org.sonar.scanner.protocol.output.ScannerReportContainer;
+import org.sonar.scanner.protocol.output.ScannerReportContainerReader;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-public class BatchReportReaderImpl implements BatchReportReader {
+/**
+ * Reads the report from the directory of {@link BatchReportDirectoryHolder}, which contains either the extracted files
+ * of a zipped report or a single {@link ScannerReportContainer#FILENAME container} which is read in place.
+ */
+public class BatchReportReaderImpl implements BatchReportReader, Startable {
 
   private final BatchReportDirectoryHolder batchReportDirectoryHolder;
   private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
+  @CheckForNull
+  private ScannerReportContainerReader container;
   // caching of metadata which are read often
   private ScannerReport.Metadata metadata;
 
@@ -46,9 +55,26 @@ public class BatchReportReaderImpl implements BatchReportReader {
     this.batchReportDirectoryHolder = batchReportDirectoryHolder;
   }
 
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public void stop() {
+    IOUtils.closeQuietly(container);
+  }
+
   private void ensureInitialized() {
     if (this.delegate == null) {
-      this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(batchReportDirectoryHolder.getDirectory());
+      File directory = batchReportDirectoryHolder.getDirectory();
+      File containerFile = new File(directory, ScannerReportContainer.FILENAME);
+      if (containerFile.isFile()) {
+        this.container = ScannerReportContainerReader.open(containerFile);
+        this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(container);
+      } else {
+        this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(directory);
+      }
     }
   }
 
@@ -64,16 +90,11 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public CloseableIterator<String> readScannerLogs() {
     ensureInitialized();
-    File file = delegate.getFileStructure().analysisLog();
-    if (!file.exists()) {
+    InputStream input = delegate.openAnalysisLog();
+    if (input == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
-    try {
-      InputStreamReader reader = new InputStreamReader(FileUtils.openInputStream(file), UTF_8);
-      return new LineReaderIterator(reader);
-    } catch (IOException e) {
-      throw new IllegalStateException("Fail to open file " + file, e);
-    }
+    return new LineReaderIterator(new InputStreamReader(input, UTF_8));
   }
 
   @Override
@@ -152,16 +173,12 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public Optional<CloseableIterator<String>> readFileSource(int fileRef) {
     ensureInitialized();
-    File file = delegate.readFileSource(fileRef);
-    if (file == null) {
+    InputStream input = delegate.openFileSource(fileRef);
+    if (input == null) {
       return Optional.empty();
     }
 
-    try {
-      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(FileUtils.openInputStream(file), UTF_8)));
-    } catch (IOException e) {
-      throw new IllegalStateException("Fail to traverse file: " + file, e);
-    }
+    return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(input, UTF_8)));
   }
 
   private static class CloseableLineIterator extends CloseableIterator<String> {
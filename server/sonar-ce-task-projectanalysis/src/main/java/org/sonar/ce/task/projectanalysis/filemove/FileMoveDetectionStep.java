@@ -26,6 +26,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -63,6 +64,11 @@ import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order
 
 public class FileMoveDetectionStep implements ComputationStep {
   static final int MIN_REQUIRED_SCORE = 85;
+  /**
+   * Above this number of removed and added file pairs, scores are computed only for the pairs found by a {@link MinHashIndex}
+   * rather than for all of them.
+   */
+  static final int MIN_PAIRS_FOR_CANDIDATE_INDEX = 10_000;
   private static final Logger LOG = Loggers.get(FileMoveDetectionStep.class);
   private static final Comparator<ScoreMatrix.ScoreFile> SCORE_FILE_COMPARATOR = (o1, o2) -> -1 * Integer.compare(o1.getLineCount(), o2.getLineCount());
   private static final double LOWER_BOUND_RATIO = 0.84;
@@ -263,8 +269,15 @@ public class FileMoveDetectionStep implements ComputationStep {
       removedFilesIndexesByUuid.put(removedFile.getFileUuid(), removeFileIndex);
     }
 
+    MinHashIndex candidateIndex = null;
+    if ((long) removedFilesIndexesByUuid.size() * addedFiles.length >= MIN_PAIRS_FOR_CANDIDATE_INDEX) {
+      candidateIndex = new MinHashIndex(Arrays.stream(addedFiles)
+        .map(addedFile -> addedFileHashesByUuid.get(addedFile.getFileUuid()).getLineHashes())
+        .collect(Collectors.toList()));
+    }
+
     LineHashesWithKeyDtoResultHandler rowHandler = new LineHashesWithKeyDtoResultHandler(removedFilesIndexesByUuid, removedFiles,
-      addedFiles, addedFileHashesByUuid, scoreMatrix);
+      addedFiles, addedFileHashesByUuid, scoreMatrix, candidateIndex);
     try (DbSession dbSession = dbClient.openSession(false)) {
       dbClient.fileSourceDao().scrollLineHashes(dbSession, removedFilesIndexesByUuid.keySet(), rowHandler);
     }
@@ -278,16 +291,19 @@ public class FileMoveDetectionStep implements ComputationStep {
     private final ScoreMatrix.ScoreFile[] newFiles;
     private final Map<String, File> newFilesByUuid;
     private final int[][] scoreMatrix;
+    @Nullable
+    private final MinHashIndex candidateIndex;
     private int maxScore;
 
     private LineHashesWithKeyDtoResultHandler(Map<String, Integer> removedFileIndexesByUuid, ScoreMatrix.ScoreFile[] removedFiles,
       ScoreMatrix.ScoreFile[] newFiles, Map<String, File> newFilesByUuid,
-      int[][] scoreMatrix) {
+      int[][] scoreMatrix, @Nullable MinHashIndex candidateIndex) {
       this.removedFileIndexesByUuid = removedFileIndexesByUuid;
       this.removedFiles = removedFiles;
       this.newFiles = newFiles;
       this.newFilesByUuid = newFilesByUuid;
       this.scoreMatrix = scoreMatrix;
+      this.candidateIndex = candidateIndex;
     }
 
     @Override
@@ -300,23 +316,36 @@ public class FileMoveDetectionStep implements ComputationStep {
       ScoreMatrix.ScoreFile removedFile = removedFiles[removedFileIndex];
       int lowerBound = (int) Math.floor(removedFile.getLineCount() * LOWER_BOUND_RATIO);
       int upperBound = (int) Math.ceil(removedFile.getLineCount() * UPPER_BOUND_RATIO);
-
-      for (int newFileIndex = 0; newFileIndex < newFiles.length; newFileIndex++) {
-        ScoreMatrix.ScoreFile newFile = newFiles[newFileIndex];
-        if (newFile.getLineCount() >= upperBound) {
-          continue;
+      File fileHashesInDb = new FileImpl(lineHashesDto.getLineHashes());
+
+      if (candidateIndex == null) {
+        for (int newFileIndex = 0; newFileIndex < newFiles.length; newFileIndex++) {
+          ScoreMatrix.ScoreFile newFile = newFiles[newFileIndex];
+          if (newFile.getLineCount() >= upperBound) {
+            continue;
+          }
+          if (newFile.getLineCount() <= lowerBound) {
+            break;
+          }
+          computeScore(fileHashesInDb, removedFileIndex, newFileIndex);
         }
-        if (newFile.getLineCount() <= lowerBound) {
-          break;
+      } else {
+        BitSet candidates = candidateIndex.candidates(fileHashesInDb.getLineHashes());
+        for (int newFileIndex = candidates.nextSetBit(0); newFileIndex >= 0; newFileIndex = candidates.nextSetBit(newFileIndex + 1)) {
+          int newFileLineCount = newFiles[newFileIndex].getLineCount();
+          if (newFileLineCount < upperBound && newFileLineCount > lowerBound) {
+            computeScore(fileHashesInDb, removedFileIndex, newFileIndex);
+          }
         }
+      }
+    }
 
-        File fileHashesInDb = new FileImpl(lineHashesDto.getLineHashes());
-        File unmatchedFile = newFilesByUuid.get(newFile.getFileUuid());
-        int score = fileSimilarity.score(fileHashesInDb, unmatchedFile);
-        scoreMatrix[removedFileIndex][newFileIndex] = score;
-        if (score > maxScore) {
-          maxScore = score;
-        }
+    private void computeScore(File fileHashesInDb, int removedFileIndex, int newFileIndex) {
+      File unmatchedFile = newFilesByUuid.get(newFiles[newFileIndex].getFileUuid());
+      int score = fileSimilarity.score(fileHashesInDb, unmatchedFile);
+      scoreMatrix[removedFileIndex][newFileIndex] = score;
+      if (score > maxScore) {
+        maxScore = score;
       }
     }
 
@@ -0,0 +1,117 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Locality-sensitive index of files on their line hashes, which finds the files likely to be similar to a given file
+ * without comparing it to every indexed file.
+ * <p>
+ * Each file is represented by the MinHash signature of the set of its lines, where a line is the pair of its hash and of
+ * its number of occurrences in the previous lines of the file, so that repeated lines (blank lines, closing braces...)
+ * weigh as much as in the score of files. The signature is split into {@link #BANDS} bands of {@link #ROWS} values, and
+ * two files are candidates as soon as one of their bands is equal. With these values, two files whose sets of lines
+ * have a Jaccard similarity of 0.7 are candidates with a probability higher than 0.99999, while files sharing less than
+ * a third of their lines are mostly not.
+ */
+final class MinHashIndex {
+  static final int BANDS = 32;
+  static final int ROWS = 3;
+  private static final int SIGNATURE_SIZE = BANDS * ROWS;
+  // fixed seed so that candidates do not change from an analysis to another
+  private static final long[] SEEDS = new Random(42L).longs(SIGNATURE_SIZE).toArray();
+
+  private final List<Map<Long, List<Integer>>> filesByBand = new ArrayList<>(BANDS);
+  private final int fileCount;
+
+  MinHashIndex(List<List<String>> lineHashesByFile) {
+    for (int band = 0; band < BANDS; band++) {
+      filesByBand.add(new HashMap<>());
+    }
+    this.fileCount = lineHashesByFile.size();
+    for (int fileIndex = 0; fileIndex < fileCount; fileIndex++) {
+      long[] signature = signature(lineHashesByFile.get(fileIndex));
+      for (int band = 0; band < BANDS; band++) {
+        filesByBand.get(band).computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>(1)).add(fileIndex);
+      }
+    }
+  }
+
+  /**
+   * Indexes, in the list given to the constructor, of the files which are candidates to be similar to the file with the
+   * specified line hashes.
+   */
+  BitSet candidates(List<String> lineHashes) {
+    long[] signature = signature(lineHashes);
+    BitSet candidates = new BitSet(fileCount);
+    for (int band = 0; band < BANDS; band++) {
+      List<Integer> files = filesByBand.get(band).get(bandKey(signature, band));
+      if (files != null) {
+        files.forEach(candidates::set);
+      }
+    }
+    return candidates;
+  }
+
+  static long[] signature(List<String> lineHashes) {
+    long[] signature = new long[SIGNATURE_SIZE];
+    Arrays.fill(signature, Long.MAX_VALUE);
+    Map<String, Integer> occurrences = new HashMap<>(lineHashes.size());
+    for (String lineHash : lineHashes) {
+      int occurrence = occurrences.merge(lineHash, 1, Integer::sum);
+      long hash = ((long) lineHash.hashCode() << 32) | occurrence;
+      for (int i = 0; i < SIGNATURE_SIZE; i++) {
+        long value = mix(hash ^ SEEDS[i]);
+        if (value < signature[i]) {
+          signature[i] = value;
+        }
+      }
+    }
+    return signature;
+  }
+
+  private static long bandKey(long[] signature, int band) {
+    long key = 1;
+    for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+      key = 31 * key + signature[row];
+    }
+    return key;
+  }
+
+  /**
+   * Finalization step of MurmurHash3, which spreads the bits of {@code value} over the whole long.
+   */
+  private static long mix(long value) {
+    long h = value;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -19,13 +19,30 @@
  */
 package org.sonar.ce.task.projectanalysis.filemove;
 
+import java.util.Arrays;
 import java.util.List;
+import org.sonar.ce.task.projectanalysis.source.LineIds;
 
 import static java.lang.Math.max;
-import static java.lang.Math.min;
 
+/**
+ * Score based on the Levenshtein distance between the lines of the two files, computed with the bit-parallel algorithm
+ * of Myers ("A fast bit-vector algorithm for approximate string matching based on dynamic programming") on int ids of
+ * lines. Each line of {@code right} is compared to 64 lines of {@code left} at once.
+ * <p>
+ * Arrays are reused from a pair of files to the other, so instances are not thread-safe.
+ */
 public class SourceSimilarityImpl implements SourceSimilarity {
 
+  private final LineIds lineIds = new LineIds();
+  // lines of left grouped by id: positions of id i are in positions[positionStarts[i]] to positions[positionStarts[i + 1] - 1]
+  private int[] positionStarts = new int[0];
+  private int[] positions = new int[0];
+  // vertical positive and negative deltas of the distance matrix, and lines of left equal to the current line of right
+  private long[] positiveDeltas = new long[0];
+  private long[] negativeDeltas = new long[0];
+  private long[] equalLines = new long[0];
+
   @Override
   public <T> int score(List<T> left, List<T> right) {
     if (left.isEmpty() && right.isEmpty()) {
@@ -35,47 +52,103 @@ public class SourceSimilarityImpl implements SourceSimilarity {
     return (int) (100 * (1.0 - ((double) distance) / (max(left.size(), right.size()))));
   }
 
-  private static <T> int levenshteinDistance(List<T> left, List<T> right) {
-    int len0 = left.size() + 1;
-    int len1 = right.size() + 1;
-
-    // the array of distances
-    int[] cost = new int[len0];
-    int[] newcost = new int[len0];
-
-    // initial cost of skipping prefix in String s0
-    for (int i = 0; i < len0; i++) {
-      cost[i] = i;
+  private int levenshteinDistance(List<?> left, List<?> right) {
+    int leftLength = left.size();
+    int rightLength = right.size();
+    if (leftLength == 0 || rightLength == 0) {
+      return max(leftLength, rightLength);
     }
+    lineIds.intern(left, right);
+    int[] leftIds = lineIds.left();
+    int[] rightIds = lineIds.right();
+    indexPositions(leftIds, leftLength, lineIds.idCount());
 
-    // dynamically computing the array of distances
-
-    // transformation cost for each letter in s1
-    for (int j = 1; j < len1; j++) {
-      // initial cost of skipping prefix in String s1
-      newcost[0] = j;
+    int blocks = (leftLength + 63) >>> 6;
+    if (positiveDeltas.length < blocks) {
+      positiveDeltas = new long[blocks];
+      negativeDeltas = new long[blocks];
+      equalLines = new long[blocks];
+    }
+    Arrays.fill(positiveDeltas, 0, blocks, -1L);
+    Arrays.fill(negativeDeltas, 0, blocks, 0L);
+    long lastLineBit = 1L << ((leftLength - 1) & 63);
 
-      // transformation cost for each letter in s0
-      for (int i = 1; i < len0; i++) {
-        // matching current letters in both strings
-        int match = left.get(i - 1).equals(right.get(j - 1)) ? 0 : 1;
+    int distance = leftLength;
+    for (int j = 0; j < rightLength; j++) {
+      int id = rightIds[j];
+      setEqualLines(id, true);
+      // the distance of the first row increases by one at each column
+      int horizontalDelta = 1;
+      for (int block = 0; block < blocks; block++) {
+        long highBit = block == blocks - 1 ? lastLineBit : Long.MIN_VALUE;
+        horizontalDelta = advanceBlock(block, horizontalDelta, highBit);
+      }
+      distance += horizontalDelta;
+      setEqualLines(id, false);
+    }
+    return distance;
+  }
 
-        // computing cost for each transformation
-        int costReplace = cost[i - 1] + match;
-        int costInsert = cost[i] + 1;
-        int costDelete = newcost[i - 1] + 1;
+  /**
+   * Computes the deltas of one column for 64 lines of left, given the horizontal delta of the line above them.
+   *
+   * @return the horizontal delta of the line at {@code highBit}
+   */
+  private int advanceBlock(int block, int horizontalDeltaIn, long highBit) {
+    long pv = positiveDeltas[block];
+    long mv = negativeDeltas[block];
+    long eq = equalLines[block];
+    long xv = eq | mv;
+    if (horizontalDeltaIn < 0) {
+      eq |= 1L;
+    }
+    long xh = (((eq & pv) + pv) ^ pv) | eq;
+    long ph = mv | ~(xh | pv);
+    long mh = pv & xh;
+    int horizontalDeltaOut = 0;
+    if ((ph & highBit) != 0) {
+      horizontalDeltaOut = 1;
+    } else if ((mh & highBit) != 0) {
+      horizontalDeltaOut = -1;
+    }
+    ph <<= 1;
+    mh <<= 1;
+    if (horizontalDeltaIn < 0) {
+      mh |= 1L;
+    } else if (horizontalDeltaIn > 0) {
+      ph |= 1L;
+    }
+    positiveDeltas[block] = mh | ~(xv | ph);
+    negativeDeltas[block] = ph & xv;
+    return horizontalDeltaOut;
+  }
 
-        // keep minimum cost
-        newcost[i] = min(min(costInsert, costDelete), costReplace);
+  private void setEqualLines(int id, boolean equal) {
+    for (int p = positionStarts[id]; p < positionStarts[id + 1]; p++) {
+      int position = positions[p];
+      if (equal) {
+        equalLines[position >>> 6] |= 1L << position;
+      } else {
+        equalLines[position >>> 6] &= ~(1L << position);
       }
-
-      // swap cost/newcost arrays
-      int[] swap = cost;
-      cost = newcost;
-      newcost = swap;
     }
+  }
 
-    // the distance is the cost for transforming all letters in both strings
-    return cost[len0 - 1];
+  private void indexPositions(int[] leftIds, int leftLength, int idCount) {
+    positionStarts = LineIds.ensureCapacity(positionStarts, idCount + 1);
+    positions = LineIds.ensureCapacity(positions, leftLength);
+    Arrays.fill(positionStarts, 0, idCount + 1, 0);
+    for (int i = 0; i < leftLength; i++) {
+      positionStarts[leftIds[i]]++;
+    }
+    // position starts temporarily hold the end of each group, which is moved back to its start while positions are written
+    for (int id = 1; id <= idCount; id++) {
+      positionStarts[id] += positionStarts[id - 1];
+    }
+    for (int i = leftLength - 1; i >= 0; i--) {
+      int id = leftIds[i];
+      positionStarts[id]--;
+      positions[positionStarts[id]] = i;
+    }
   }
 }
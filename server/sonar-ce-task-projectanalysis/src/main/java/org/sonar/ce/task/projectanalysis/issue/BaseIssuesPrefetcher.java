@@ -0,0 +1,181 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Configuration;
+import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.ce.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.ce.task.projectanalysis.filemove.MovedFilesRepository;
+import org.sonar.db.issue.IssueDto;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
+
+/**
+ * Selects from DB the open issues of the files which are about to be visited by {@link IntegrateIssuesVisitor}, so
+ * that loading the base issues of a file in {@link TrackerBaseInputFactory} does not wait for the DB.
+ * <p>
+ * Issues are selected by a pool of {@link #PARALLELISM_PROPERTY} threads, in the order files are visited and at most
+ * {@link #FILES_AHEAD_PER_THREAD} files per thread ahead of the visitor. Only the {@link IssueDto} are selected in the
+ * pool: they are converted by the thread of the visitor with {@link ComponentIssuesLoader#toOpenIssues(List)}, so
+ * issues are tracked and stored in {@link ProtoIssueCache} in the same order as without prefetch.
+ * <p>
+ * Tracking itself is not parallelized: {@link IssueVisitors} are notified of the issues of one component at a time,
+ * between {@link IssueVisitors#beforeComponent(Component)} and {@link IssueVisitors#afterComponent(Component)}, and
+ * most visitors (counters of issues, effort aggregators, ...) keep the state of the current component in fields.
+ * Loading base issues is the part of tracking that waits for the DB, so it's the part which is done concurrently.
+ * <p>
+ * Prefetch is disabled when the property is lower than 2, which is the default, and on the first analysis as there
+ * is no base issue.
+ */
+public class BaseIssuesPrefetcher implements Startable {
+  public static final String PARALLELISM_PROPERTY = "sonar.ce.task.issueTrackingParallelism";
+  private static final int FILES_AHEAD_PER_THREAD = 4;
+
+  private final TreeRootHolder treeRootHolder;
+  private final MovedFilesRepository movedFilesRepository;
+  private final ComponentIssuesLoader issuesLoader;
+  private final AnalysisMetadataHolder analysisMetadataHolder;
+  private final int parallelism;
+  private final Map<String, Future<List<IssueDto>>> prefetchedIssuesByUuid = new HashMap<>();
+
+  @CheckForNull
+  private List<String> fileUuids;
+  @CheckForNull
+  private ExecutorService executorService;
+  private int visitedFileCount = 0;
+  private int prefetchedFileCount = 0;
+
+  public BaseIssuesPrefetcher(TreeRootHolder treeRootHolder, MovedFilesRepository movedFilesRepository, ComponentIssuesLoader issuesLoader,
+    AnalysisMetadataHolder analysisMetadataHolder, Configuration configuration) {
+    this.treeRootHolder = treeRootHolder;
+    this.movedFilesRepository = movedFilesRepository;
+    this.issuesLoader = issuesLoader;
+    this.analysisMetadataHolder = analysisMetadataHolder;
+    this.parallelism = configuration.getInt(PARALLELISM_PROPERTY).orElse(1);
+    checkArgument(parallelism >= 1, "Property %s must be >= 1, got %s", PARALLELISM_PROPERTY, parallelism);
+  }
+
+  @Override
+  public void start() {
+    // nothing to do, prefetch starts with the first visited file
+  }
+
+  /**
+   * Must be called by {@link IntegrateIssuesVisitor} before the issues of each file are tracked.
+   */
+  void beforeFile() {
+    if (parallelism < 2 || analysisMetadataHolder.isFirstAnalysis()) {
+      return;
+    }
+    List<String> uuids = getFileUuids();
+    if (visitedFileCount > 0) {
+      // issues of the previous file are not prefetched anymore if they have not been used
+      cancel(uuids.get(visitedFileCount - 1));
+    }
+    visitedFileCount++;
+
+    int prefetchLimit = Math.min(uuids.size(), visitedFileCount - 1 + parallelism * FILES_AHEAD_PER_THREAD);
+    while (prefetchedFileCount < prefetchLimit) {
+      String uuid = uuids.get(prefetchedFileCount);
+      prefetchedIssuesByUuid.put(uuid, getExecutorService().submit(() -> issuesLoader.selectOpenIssues(uuid)));
+      prefetchedFileCount++;
+    }
+  }
+
+  /**
+   * @return the open issues of the specified file if they have been prefetched, otherwise {@link Optional#empty()}
+   */
+  Optional<List<IssueDto>> takeOpenIssues(String fileUuid) {
+    Future<List<IssueDto>> future = prefetchedIssuesByUuid.remove(fileUuid);
+    if (future == null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(future.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(String.format("Interrupted while loading issues of component '%s'", fileUuid), e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(String.format("Fail to load issues of component '%s'", fileUuid), e.getCause());
+    }
+  }
+
+  @Override
+  public void stop() {
+    prefetchedIssuesByUuid.values().forEach(future -> future.cancel(true));
+    prefetchedIssuesByUuid.clear();
+    if (executorService != null) {
+      executorService.shutdownNow();
+      executorService = null;
+    }
+  }
+
+  private void cancel(String fileUuid) {
+    Future<List<IssueDto>> future = prefetchedIssuesByUuid.remove(fileUuid);
+    if (future != null) {
+      future.cancel(false);
+    }
+  }
+
+  /**
+   * Uuids of the files in the order they are visited by {@link IntegrateIssuesVisitor}. The uuid of the original file
+   * is used for moved files, as in {@link TrackerBaseInputFactory}.
+   */
+  private List<String> getFileUuids() {
+    if (fileUuids == null) {
+      List<String> uuids = new ArrayList<>();
+      new DepthTraversalTypeAwareCrawler(new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, POST_ORDER) {
+        @Override
+        public void visitFile(Component file) {
+          uuids.add(movedFilesRepository.getOriginalFile(file).map(MovedFilesRepository.OriginalFile::getUuid).orElse(file.getUuid()));
+        }
+      }).visit(treeRootHolder.getRoot());
+      fileUuids = uuids;
+    }
+    return fileUuids;
+  }
+
+  private ExecutorService getExecutorService() {
+    if (executorService == null) {
+      executorService = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+        .setNameFormat("CE_issues_prefetch-%d")
+        .setDaemon(true)
+        .build());
+    }
+    return executorService;
+  }
+}
@@ -35,6 +35,7 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.RuleStatus;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.ce.task.projectanalysis.qualityprofile.ActiveRulesHolder;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.FieldDiffs;
@@ -56,14 +57,16 @@ public class ComponentIssuesLoader {
   private static final String PROPERTY_CLOSED_ISSUE_MAX_AGE = "sonar.issuetracking.closedissues.maxage";
 
   private final DbClient dbClient;
+  private final TaskDbSessions taskDbSessions;
   private final RuleRepository ruleRepository;
   private final ActiveRulesHolder activeRulesHolder;
   private final System2 system2;
   private final int closedIssueMaxAge;
 
-  public ComponentIssuesLoader(DbClient dbClient, RuleRepository ruleRepository, ActiveRulesHolder activeRulesHolder,
-    Configuration configuration, System2 system2) {
+  public ComponentIssuesLoader(DbClient dbClient, TaskDbSessions taskDbSessions, RuleRepository ruleRepository,
+    ActiveRulesHolder activeRulesHolder, Configuration configuration, System2 system2) {
     this.dbClient = dbClient;
+    this.taskDbSessions = taskDbSessions;
     this.activeRulesHolder = activeRulesHolder;
     this.ruleRepository = ruleRepository;
     this.system2 = system2;
@@ -84,13 +87,13 @@ public class ComponentIssuesLoader {
   }
 
   public List<DefaultIssue> loadOpenIssues(String componentUuid) {
-    try (DbSession dbSession = dbClient.openSession(false)) {
+    try (DbSession dbSession = taskDbSessions.openReadOnlySession()) {
       return loadOpenIssues(componentUuid, dbSession);
     }
   }
 
   public List<DefaultIssue> loadOpenIssuesWithChanges(String componentUuid) {
-    try (DbSession dbSession = dbClient.openSession(false)) {
+    try (DbSession dbSession = taskDbSessions.openReadOnlySession()) {
       List<DefaultIssue> result = loadOpenIssues(componentUuid, dbSession);
 
       return loadChanges(dbSession, result);
@@ -118,7 +121,7 @@ public class ComponentIssuesLoader {
       return;
     }
 
-    try (DbSession dbSession = dbClient.openSession(false)) {
+    try (DbSession dbSession = taskDbSessions.openReadOnlySession()) {
       loadLatestDiffChangesForReopeningOfClosedIssues(dbSession, issues);
     }
   }
@@ -165,23 +168,50 @@ public class ComponentIssuesLoader {
 
   private List<DefaultIssue> loadOpenIssues(String componentUuid, DbSession dbSession) {
     List<DefaultIssue> result = new ArrayList<>();
-    dbSession.getMapper(IssueMapper.class).scrollNonClosedByComponentUuid(componentUuid, resultContext -> {
-      DefaultIssue issue = (resultContext.getResultObject()).toDefaultIssue();
-      Rule rule = ruleRepository.getByKey(issue.ruleKey());
-
-      // TODO this field should be set outside this class
-      if ((!rule.isExternal() && !isActive(issue.ruleKey())) || rule.getStatus() == RuleStatus.REMOVED) {
-        issue.setOnDisabledRule(true);
-        // TODO to be improved, why setOnDisabledRule(true) is not enough ?
-        issue.setBeingClosed(true);
-      }
-      // FIXME
-      issue.setSelectedAt(System.currentTimeMillis());
-      result.add(issue);
-    });
+    dbSession.getMapper(IssueMapper.class).scrollNonClosedByComponentUuid(componentUuid, resultContext -> result.add(toOpenIssue(resultContext.getResultObject())));
     return Collections.unmodifiableList(result);
   }
 
+  /**
+   * Selects the open issues of the specified component from DB, without converting them to {@link DefaultIssue}.
+   * <p>
+   * Unlike {@link #loadOpenIssues(String)}, this method does not access the rules and can be called concurrently. As
+   * it is called by short-lived threads, it uses its own DB session rather than one of {@link TaskDbSessions}.
+   *
+   * @see #toOpenIssues(List)
+   */
+  List<IssueDto> selectOpenIssues(String componentUuid) {
+    List<IssueDto> result = new ArrayList<>();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbSession.getMapper(IssueMapper.class).scrollNonClosedByComponentUuid(componentUuid, resultContext -> result.add(resultContext.getResultObject()));
+    }
+    return result;
+  }
+
+  /**
+   * Converts the issues returned by {@link #selectOpenIssues(String)} the same way {@link #loadOpenIssues(String)} does.
+   */
+  List<DefaultIssue> toOpenIssues(List<IssueDto> issueDtos) {
+    List<DefaultIssue> result = new ArrayList<>(issueDtos.size());
+    issueDtos.forEach(issueDto -> result.add(toOpenIssue(issueDto)));
+    return Collections.unmodifiableList(result);
+  }
+
+  private DefaultIssue toOpenIssue(IssueDto issueDto) {
+    DefaultIssue issue = issueDto.toDefaultIssue();
+    Rule rule = ruleRepository.getByKey(issue.ruleKey());
+
+    // TODO this field should be set outside this class
+    if ((!rule.isExternal() && !isActive(issue.ruleKey())) || rule.getStatus() == RuleStatus.REMOVED) {
+      issue.setOnDisabledRule(true);
+      // TODO to be improved, why setOnDisabledRule(true) is not enough ?
+      issue.setBeingClosed(true);
+    }
+    // FIXME
+    issue.setSelectedAt(System.currentTimeMillis());
+    return issue;
+  }
+
   private static void setChanges(Map<String, List<IssueChangeDto>> changeDtoByIssueKey, DefaultIssue i) {
     changeDtoByIssueKey.computeIfAbsent(i.key(), k -> emptyList())
       .forEach(c -> addChangeOrComment(i, c));
@@ -225,7 +255,7 @@ public class ComponentIssuesLoader {
       .minus(closedIssueMaxAge, ChronoUnit.DAYS)
       .truncatedTo(ChronoUnit.DAYS)
       .toEpochMilli();
-    try (DbSession dbSession = dbClient.openSession(false)) {
+    try (DbSession dbSession = taskDbSessions.openReadOnlySession()) {
       return loadClosedIssues(dbSession, componentUuid, closeDateAfter);
     }
   }
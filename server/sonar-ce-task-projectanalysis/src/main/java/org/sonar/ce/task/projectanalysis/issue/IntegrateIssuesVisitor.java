@@ -40,9 +40,10 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
   private final IssueTrackingDelegator issueTracking;
   private final SiblingsIssueMerger issueStatusCopier;
   private final ReferenceBranchComponentUuids referenceBranchComponentUuids;
+  private final BaseIssuesPrefetcher baseIssuesPrefetcher;
 
   public IntegrateIssuesVisitor(ProtoIssueCache protoIssueCache, IssueLifecycle issueLifecycle, IssueVisitors issueVisitors, IssueTrackingDelegator issueTracking,
-    SiblingsIssueMerger issueStatusCopier, ReferenceBranchComponentUuids referenceBranchComponentUuids) {
+    SiblingsIssueMerger issueStatusCopier, ReferenceBranchComponentUuids referenceBranchComponentUuids, BaseIssuesPrefetcher baseIssuesPrefetcher) {
     super(CrawlerDepthLimit.FILE, POST_ORDER);
     this.protoIssueCache = protoIssueCache;
     this.issueLifecycle = issueLifecycle;
@@ -50,10 +51,14 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     this.issueTracking = issueTracking;
     this.issueStatusCopier = issueStatusCopier;
     this.referenceBranchComponentUuids = referenceBranchComponentUuids;
+    this.baseIssuesPrefetcher = baseIssuesPrefetcher;
   }
 
   @Override
   public void visitAny(Component component) {
+    if (component.getType() == Component.Type.FILE) {
+      baseIssuesPrefetcher.beforeFile();
+    }
     try (CacheAppender<DefaultIssue> cacheAppender = protoIssueCache.newAppender()) {
       issueVisitors.beforeComponent(component);
       TrackingResult tracking = issueTracking.track(component);
@@ -44,9 +44,11 @@ public class TrackerBaseInputFactory extends BaseInputFactory {
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final IssueFieldsSetter issueUpdater;
   private final ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues;
+  private final BaseIssuesPrefetcher baseIssuesPrefetcher;
 
   public TrackerBaseInputFactory(ComponentIssuesLoader issuesLoader, DbClient dbClient, MovedFilesRepository movedFilesRepository, ReportModulesPath reportModulesPath,
-    AnalysisMetadataHolder analysisMetadataHolder, IssueFieldsSetter issueUpdater, ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues) {
+    AnalysisMetadataHolder analysisMetadataHolder, IssueFieldsSetter issueUpdater, ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues,
+    BaseIssuesPrefetcher baseIssuesPrefetcher) {
     this.issuesLoader = issuesLoader;
     this.dbClient = dbClient;
     this.movedFilesRepository = movedFilesRepository;
@@ -54,6 +56,7 @@ public class TrackerBaseInputFactory extends BaseInputFactory {
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.issueUpdater = issueUpdater;
     this.componentsWithUnprocessedIssues = componentsWithUnprocessedIssues;
+    this.baseIssuesPrefetcher = baseIssuesPrefetcher;
   }
 
   public Input<DefaultIssue> create(Component component) {
@@ -74,7 +77,9 @@ public class TrackerBaseInputFactory extends BaseInputFactory {
 
     @Override
     protected List<DefaultIssue> loadIssues() {
-      return issuesLoader.loadOpenIssues(effectiveUuid);
+      return baseIssuesPrefetcher.takeOpenIssues(effectiveUuid)
+        .map(issuesLoader::toOpenIssues)
+        .orElseGet(() -> issuesLoader.loadOpenIssues(effectiveUuid));
     }
 
   }
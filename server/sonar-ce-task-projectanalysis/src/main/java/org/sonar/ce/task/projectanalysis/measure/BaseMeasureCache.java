@@ -0,0 +1,111 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.measure;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.sonar.ce.task.db.TaskDbSessions;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.metric.Metric;
+import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.measure.MeasureDto;
+
+/**
+ * Caches the measures of the last analysis (aka. base measures) so that they are read from DB with a few
+ * queries instead of one query per component and metric.
+ * <p>
+ * The first time a base measure of a component is requested, the base measures of all the metrics of this component and
+ * of the components of its subtree which have measures persisted (see
+ * {@link org.sonar.ce.task.projectanalysis.step.PersistMeasuresStep}) are loaded at once.
+ */
+final class BaseMeasureCache {
+  static final String HITS_STATISTIC = "baseMeasureHits";
+  static final String MISSES_STATISTIC = "baseMeasureMisses";
+
+  private static final Set<Component.Type> PERSISTED_TYPES = EnumSet.of(Component.Type.PROJECT, Component.Type.VIEW, Component.Type.SUBVIEW);
+
+  private final DbClient dbClient;
+  private final TaskDbSessions taskDbSessions;
+  private final Set<String> loadedComponentUuids = new HashSet<>();
+  // component uuid -> metric uuid -> measure
+  private final Map<String, Map<String, MeasureDto>> measuresByComponentUuid = new HashMap<>();
+  private long hits = 0;
+  private long misses = 0;
+
+  BaseMeasureCache(DbClient dbClient, TaskDbSessions taskDbSessions) {
+    this.dbClient = dbClient;
+    this.taskDbSessions = taskDbSessions;
+  }
+
+  synchronized Optional<MeasureDto> get(Component component, Metric metric) {
+    if (loadedComponentUuids.contains(component.getUuid())) {
+      hits++;
+    } else {
+      misses++;
+      load(component);
+    }
+    Map<String, MeasureDto> measuresByMetricUuid = measuresByComponentUuid.get(component.getUuid());
+    if (measuresByMetricUuid == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(measuresByMetricUuid.get(metric.getUuid()));
+  }
+
+  private void load(Component component) {
+    List<String> componentUuids = new ArrayList<>();
+    componentUuids.add(component.getUuid());
+    collectPersistedDescendants(component, componentUuids);
+
+    try (DbSession dbSession = taskDbSessions.openReadOnlySession()) {
+      dbClient.measureDao().scrollLastMeasures(dbSession, componentUuids, context -> {
+        MeasureDto dto = context.getResultObject();
+        measuresByComponentUuid.computeIfAbsent(dto.getComponentUuid(), k -> new HashMap<>()).put(dto.getMetricUuid(), dto);
+      });
+    }
+    loadedComponentUuids.addAll(componentUuids);
+  }
+
+  private void collectPersistedDescendants(Component component, List<String> componentUuids) {
+    for (Component child : component.getChildren()) {
+      if (PERSISTED_TYPES.contains(child.getType()) && !loadedComponentUuids.contains(child.getUuid())) {
+        componentUuids.add(child.getUuid());
+        collectPersistedDescendants(child, componentUuids);
+      }
+    }
+  }
+
+  /**
+   * Adds the number of cache hits and misses since the last call of this method to the specified statistics.
+   */
+  synchronized void addStatistics(ComputationStep.Statistics statistics) {
+    statistics.add(HITS_STATISTIC, hits);
+    statistics.add(MISSES_STATISTIC, misses);
+    hits = 0;
+    misses = 0;
+  }
+}
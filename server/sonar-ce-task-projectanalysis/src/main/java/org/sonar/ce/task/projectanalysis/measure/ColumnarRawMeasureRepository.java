@@ -0,0 +1,358 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.measure;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.metric.Metric;
+import org.sonar.ce.task.step.ComputationStep;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Columnar implementation of MeasureRepository which supports only raw measures.
+ * Intended to be used as a delegate of other MeasureRepository implementations (hence the final keyword).
+ * <p>
+ * Measures are not kept as objects: they are keyed by (component index, metric index) in a primitive open-addressing
+ * index and their content is stored in primitive columns (see {@link MeasureColumns}). Strings and data are stored once
+ * in a dictionary. Measures are rebuilt when read, hence returned instances are equal to, but not the same as, the
+ * added ones.
+ * <p>
+ * Entries of the dictionary are never released: a string which is not referenced anymore, because its measure has
+ * been updated, is kept until the repository is discarded at the end of the task. Updates of data are rare compared
+ * to the number of distinct strings, so the dictionary is not compacted.
+ */
+public final class ColumnarRawMeasureRepository<T> implements MeasureRepository, AutoCloseable {
+  private static final long EMPTY_KEY = -1L;
+  private static final int NO_SLOT = -1;
+  private static final int NO_DATA = -1;
+  private static final int VALUE_TYPE_MASK = 0x07;
+  private static final int HAS_VARIATION = 0x08;
+  private static final int HAS_QUALITY_GATE_STATUS = 0x10;
+  private static final Measure.ValueType[] VALUE_TYPES = Measure.ValueType.values();
+  private static final Measure.Level[] LEVELS = Measure.Level.values();
+  private static final int INITIAL_INDEX_CAPACITY = 1 << 10;
+
+  private final Function<Component, T> componentToKey;
+  private final MeasureColumns columns;
+  private final Map<T, Integer> componentIndexes = new HashMap<>();
+  private int[] firstSlotByComponent = new int[INITIAL_INDEX_CAPACITY];
+  private final Map<String, Integer> metricIndexes = new HashMap<>();
+  private final List<String> metricKeys = new ArrayList<>();
+  private final Map<String, Integer> dictionaryIndexes = new HashMap<>();
+  private final List<String> dictionary = new ArrayList<>();
+  private final Map<Integer, QualityGateStatus> qualityGateStatusBySlot = new HashMap<>();
+  private long[] indexKeys = newIndexKeys(INITIAL_INDEX_CAPACITY);
+  private int[] indexSlots = new int[INITIAL_INDEX_CAPACITY];
+
+  /**
+   * Keeps all measures on heap.
+   */
+  public ColumnarRawMeasureRepository(Function<Component, T> componentToKey) {
+    this(componentToKey, Long.MAX_VALUE, () -> {
+      throw new IllegalStateException("Measures can't be stored on disk");
+    });
+  }
+
+  /**
+   * @param heapBudget number of bytes of measure columns kept on heap, following columns are memory-mapped from files
+   *                   provided by {@code spillFileSupplier}
+   */
+  public ColumnarRawMeasureRepository(Function<Component, T> componentToKey, long heapBudget, Supplier<Path> spillFileSupplier) {
+    this.componentToKey = requireNonNull(componentToKey);
+    this.columns = new MeasureColumns(heapBudget, spillFileSupplier);
+    Arrays.fill(firstSlotByComponent, NO_SLOT);
+  }
+
+  /**
+   * @throws UnsupportedOperationException all the time, not supported
+   */
+  @Override
+  public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+    throw new UnsupportedOperationException("This implementation of MeasureRepository supports only raw measures");
+  }
+
+  @Override
+  public void addBaseMeasureStatistics(ComputationStep.Statistics statistics) {
+    // base measures are not supported
+  }
+
+  @Override
+  public Optional<Measure> getRawMeasure(final Component component, final Metric metric) {
+    // fail fast
+    requireNonNull(component);
+    requireNonNull(metric);
+
+    int slot = findSlot(component, metric);
+    return slot == NO_SLOT ? Optional.empty() : Optional.of(read(slot));
+  }
+
+  @Override
+  public void add(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    if (findSlot(component, metric) != NO_SLOT) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be set only once for a specific Component (key=%s), Metric (key=%s). Use update method",
+          component.getDbKey(),
+          metric.getKey()));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  @Override
+  public void update(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    if (findSlot(component, metric) == NO_SLOT) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be updated only if one already exists for a specific Component (key=%s), Metric (key=%s). Use add method",
+          component.getDbKey(),
+          metric.getKey()));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  private static void checkValueTypeConsistency(Metric metric, Measure measure) {
+    checkArgument(
+      measure.getValueType() == Measure.ValueType.NO_VALUE || measure.getValueType() == metric.getType().getValueType(),
+      "Measure's ValueType (%s) is not consistent with the Metric's ValueType (%s)",
+      measure.getValueType(), metric.getType().getValueType());
+  }
+
+  @Override
+  public Map<String, Measure> getRawMeasures(Component component) {
+    Integer componentIndex = componentIndexes.get(componentToKey.apply(component));
+    if (componentIndex == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, Measure> res = new HashMap<>();
+    for (int slot = firstSlotByComponent[componentIndex]; slot != NO_SLOT; slot = columns.getNext(slot)) {
+      res.put(metricKeys.get(columns.getMetric(slot)), read(slot));
+    }
+    return res;
+  }
+
+  public void add(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
+    requireNonNull(component);
+    requireNonNull(measure);
+    requireNonNull(overridePolicy);
+
+    int componentIndex = componentIndexes.computeIfAbsent(componentToKey.apply(component), k -> newComponentIndex());
+    int metricIndex = metricIndexes.computeIfAbsent(metric.getKey(), this::newMetricIndex);
+    long key = keyOf(componentIndex, metricIndex);
+    int position = probe(key);
+    int slot = indexSlots[position];
+    if (indexKeys[position] == key) {
+      if (overridePolicy == OverridePolicy.DO_NOT_OVERRIDE) {
+        return;
+      }
+    } else {
+      slot = columns.newRecord();
+      columns.setMetric(slot, metricIndex);
+      columns.setNext(slot, firstSlotByComponent[componentIndex]);
+      firstSlotByComponent[componentIndex] = slot;
+      indexKeys[position] = key;
+      indexSlots[position] = slot;
+      if (columns.size() * 2 > indexKeys.length) {
+        growIndex();
+      }
+    }
+    write(slot, measure);
+  }
+
+  /**
+   * Number of measures stored.
+   */
+  public int size() {
+    return columns.size();
+  }
+
+  @Override
+  public void close() {
+    columns.close();
+  }
+
+  private int findSlot(Component component, Metric metric) {
+    Integer componentIndex = componentIndexes.get(componentToKey.apply(component));
+    Integer metricIndex = metricIndexes.get(metric.getKey());
+    if (componentIndex == null || metricIndex == null) {
+      return NO_SLOT;
+    }
+    long key = keyOf(componentIndex, metricIndex);
+    int position = probe(key);
+    return indexKeys[position] == key ? indexSlots[position] : NO_SLOT;
+  }
+
+  private void write(int slot, Measure measure) {
+    Measure.ValueType valueType = measure.getValueType();
+    int flags = valueType.ordinal();
+    if (valueType == Measure.ValueType.LONG) {
+      // a double can not hold all the long values
+      columns.setLongValue(slot, measure.getLongValue());
+    } else {
+      columns.setValue(slot, valueOf(measure));
+    }
+    if (measure.hasVariation()) {
+      flags |= HAS_VARIATION;
+      columns.setVariation(slot, measure.getVariation());
+    }
+    if (measure.hasQualityGateStatus()) {
+      flags |= HAS_QUALITY_GATE_STATUS;
+      qualityGateStatusBySlot.put(slot, measure.getQualityGateStatus());
+    } else {
+      qualityGateStatusBySlot.remove(slot);
+    }
+    String data = measure.getData();
+    columns.setData(slot, data == null ? NO_DATA : dictionaryIndexes.computeIfAbsent(data, this::newDictionaryEntry));
+    columns.setFlags(slot, (byte) flags);
+  }
+
+  private static double valueOf(Measure measure) {
+    switch (measure.getValueType()) {
+      case BOOLEAN:
+        return measure.getBooleanValue() ? 1.0D : 0.0D;
+      case INT:
+        return measure.getIntValue();
+      case DOUBLE:
+        return measure.getDoubleValue();
+      case LEVEL:
+        return measure.getLevelValue().ordinal();
+      case LONG:
+        // stored in the same column by MeasureColumns#setLongValue
+      case STRING:
+      case NO_VALUE:
+      default:
+        return 0.0D;
+    }
+  }
+
+  private Measure read(int slot) {
+    int flags = columns.getFlags(slot);
+    Measure.NewMeasureBuilder builder = Measure.newMeasureBuilder();
+    if ((flags & HAS_VARIATION) != 0) {
+      builder.setVariation(columns.getVariation(slot));
+    }
+    if ((flags & HAS_QUALITY_GATE_STATUS) != 0) {
+      builder.setQualityGateStatus(qualityGateStatusBySlot.get(slot));
+    }
+    int dataIndex = columns.getData(slot);
+    String data = dataIndex == NO_DATA ? null : dictionary.get(dataIndex);
+    double value = columns.getValue(slot);
+    switch (VALUE_TYPES[flags & VALUE_TYPE_MASK]) {
+      case BOOLEAN:
+        return builder.create(value == 1.0D, data);
+      case INT:
+        return builder.create((int) value, data);
+      case LONG:
+        return builder.create(columns.getLongValue(slot), data);
+      case DOUBLE:
+        return builder.createScaled(value, data);
+      case STRING:
+        return builder.create(requireNonNull(data));
+      case LEVEL:
+        return builder.create(LEVELS[(int) value]);
+      case NO_VALUE:
+      default:
+        return builder.createNoValue();
+    }
+  }
+
+  private int newComponentIndex() {
+    int index = componentIndexes.size();
+    if (index == firstSlotByComponent.length) {
+      int oldLength = firstSlotByComponent.length;
+      firstSlotByComponent = Arrays.copyOf(firstSlotByComponent, oldLength * 2);
+      Arrays.fill(firstSlotByComponent, oldLength, firstSlotByComponent.length, NO_SLOT);
+    }
+    return index;
+  }
+
+  private int newMetricIndex(String metricKey) {
+    metricKeys.add(metricKey);
+    return metricKeys.size() - 1;
+  }
+
+  private int newDictionaryEntry(String value) {
+    dictionary.add(value);
+    return dictionary.size() - 1;
+  }
+
+  private static long keyOf(int componentIndex, int metricIndex) {
+    return ((long) componentIndex << 32) | metricIndex;
+  }
+
+  /**
+   * @return position of the specified key in the index or, if absent, of the empty position where it should be added
+   */
+  private int probe(long key) {
+    int mask = indexKeys.length - 1;
+    int position = hash(key) & mask;
+    while (indexKeys[position] != EMPTY_KEY && indexKeys[position] != key) {
+      position = (position + 1) & mask;
+    }
+    return position;
+  }
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private void growIndex() {
+    long[] oldKeys = indexKeys;
+    int[] oldSlots = indexSlots;
+    indexKeys = newIndexKeys(oldKeys.length * 2);
+    indexSlots = new int[oldKeys.length * 2];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY_KEY) {
+        int position = probe(oldKeys[i]);
+        indexKeys[position] = oldKeys[i];
+        indexSlots[position] = oldSlots[i];
+      }
+    }
+  }
+
+  private static long[] newIndexKeys(int capacity) {
+    long[] res = new long[capacity];
+    Arrays.fill(res, EMPTY_KEY);
+    return res;
+  }
+
+  public enum OverridePolicy {
+    OVERRIDE, DO_NOT_OVERRIDE
+  }
+}
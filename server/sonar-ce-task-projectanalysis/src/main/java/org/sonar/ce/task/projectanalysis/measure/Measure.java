@@ -263,6 +263,16 @@ public interface Measure {
       }
     }
 
+    @Override
+    public boolean equals(@Nullable Object o) {
+      return MeasureEquality.areEqual(this, o);
+    }
+
+    @Override
+    public int hashCode() {
+      return MeasureEquality.hashCodeOf(this);
+    }
+
     @Override
     public String toString() {
       return com.google.common.base.MoreObjects.toStringHelper(this)
@@ -351,6 +361,16 @@ public interface Measure {
 
     }
 
+    @Override
+    public boolean equals(@Nullable Object o) {
+      return MeasureEquality.areEqual(this, o);
+    }
+
+    @Override
+    public int hashCode() {
+      return MeasureEquality.hashCodeOf(this);
+    }
+
     @Override
     public String toString() {
       return com.google.common.base.MoreObjects.toStringHelper(this)
@@ -430,6 +450,16 @@ public interface Measure {
       return variation;
     }
 
+    @Override
+    public boolean equals(@Nullable Object o) {
+      return MeasureEquality.areEqual(this, o);
+    }
+
+    @Override
+    public int hashCode() {
+      return MeasureEquality.hashCodeOf(this);
+    }
+
     @Override
     public String toString() {
       return com.google.common.base.MoreObjects.toStringHelper(this)
@@ -483,6 +513,13 @@ public interface Measure {
       return createInternal(ValueType.DOUBLE, scaledValue, data);
     }
 
+    /**
+     * Creates a measure of type {@link ValueType#DOUBLE} from a value which has already been scaled.
+     */
+    Measure createScaled(double scaledValue, @Nullable String data) {
+      return createInternal(ValueType.DOUBLE, scaledValue, data);
+    }
+
     private Measure createInternal(ValueType type, double value, @Nullable String data) {
       if (data == null && qualityGateStatus == null && variation == null) {
         return new ValueMeasureImpl(type, value);
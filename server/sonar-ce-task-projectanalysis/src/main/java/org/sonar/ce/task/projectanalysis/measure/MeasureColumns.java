@@ -0,0 +1,194 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.measure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Fixed size records stored column by column in pages of {@link #PAGE_SIZE} records.
+ * <p>
+ * Pages are allocated on heap until {@code heapBudget} bytes are used. Following pages are memory-mapped from a
+ * temporary file which is deleted when this object is closed.
+ * <p>
+ * Columns of a record:
+ * <ul>
+ *   <li>flags (byte)</li>
+ *   <li>value (double, or long for measures of type {@link Measure.ValueType#LONG})</li>
+ *   <li>variation (double)</li>
+ *   <li>data (int), a reference to a dictionary entry</li>
+ *   <li>metric (int), the index of the metric of the record</li>
+ *   <li>next (int), the slot of the next record of the same component</li>
+ * </ul>
+ */
+final class MeasureColumns implements AutoCloseable {
+  static final int PAGE_SIZE = 1 << 13;
+  private static final int FLAGS_OFFSET = 0;
+  private static final int VALUE_OFFSET = FLAGS_OFFSET + PAGE_SIZE * Byte.BYTES;
+  private static final int VARIATION_OFFSET = VALUE_OFFSET + PAGE_SIZE * Double.BYTES;
+  private static final int DATA_OFFSET = VARIATION_OFFSET + PAGE_SIZE * Double.BYTES;
+  private static final int METRIC_OFFSET = DATA_OFFSET + PAGE_SIZE * Integer.BYTES;
+  private static final int NEXT_OFFSET = METRIC_OFFSET + PAGE_SIZE * Integer.BYTES;
+  static final int PAGE_BYTES = NEXT_OFFSET + PAGE_SIZE * Integer.BYTES;
+
+  private final long heapBudget;
+  private final Supplier<Path> spillFileSupplier;
+  private final List<ByteBuffer> pages = new ArrayList<>();
+  private long heapBytes = 0;
+  private int mappedPages = 0;
+  @CheckForNull
+  private FileChannel spillChannel;
+  private int size = 0;
+
+  MeasureColumns(long heapBudget, Supplier<Path> spillFileSupplier) {
+    checkArgument(heapBudget >= 0, "heap budget can't be negative");
+    this.heapBudget = heapBudget;
+    this.spillFileSupplier = spillFileSupplier;
+  }
+
+  /**
+   * @return the slot of the new record
+   */
+  int newRecord() {
+    int slot = size;
+    if (slot / PAGE_SIZE == pages.size()) {
+      pages.add(allocatePage());
+    }
+    size++;
+    return slot;
+  }
+
+  int size() {
+    return size;
+  }
+
+  long getHeapBytes() {
+    return heapBytes;
+  }
+
+  int getMappedPages() {
+    return mappedPages;
+  }
+
+  byte getFlags(int slot) {
+    return page(slot).get(FLAGS_OFFSET + indexInPage(slot));
+  }
+
+  void setFlags(int slot, byte flags) {
+    page(slot).put(FLAGS_OFFSET + indexInPage(slot), flags);
+  }
+
+  double getValue(int slot) {
+    return page(slot).getDouble(VALUE_OFFSET + indexInPage(slot) * Double.BYTES);
+  }
+
+  void setValue(int slot, double value) {
+    page(slot).putDouble(VALUE_OFFSET + indexInPage(slot) * Double.BYTES, value);
+  }
+
+  long getLongValue(int slot) {
+    return page(slot).getLong(VALUE_OFFSET + indexInPage(slot) * Long.BYTES);
+  }
+
+  void setLongValue(int slot, long value) {
+    page(slot).putLong(VALUE_OFFSET + indexInPage(slot) * Long.BYTES, value);
+  }
+
+  double getVariation(int slot) {
+    return page(slot).getDouble(VARIATION_OFFSET + indexInPage(slot) * Double.BYTES);
+  }
+
+  void setVariation(int slot, double variation) {
+    page(slot).putDouble(VARIATION_OFFSET + indexInPage(slot) * Double.BYTES, variation);
+  }
+
+  int getData(int slot) {
+    return page(slot).getInt(DATA_OFFSET + indexInPage(slot) * Integer.BYTES);
+  }
+
+  void setData(int slot, int data) {
+    page(slot).putInt(DATA_OFFSET + indexInPage(slot) * Integer.BYTES, data);
+  }
+
+  int getMetric(int slot) {
+    return page(slot).getInt(METRIC_OFFSET + indexInPage(slot) * Integer.BYTES);
+  }
+
+  void setMetric(int slot, int metric) {
+    page(slot).putInt(METRIC_OFFSET + indexInPage(slot) * Integer.BYTES, metric);
+  }
+
+  int getNext(int slot) {
+    return page(slot).getInt(NEXT_OFFSET + indexInPage(slot) * Integer.BYTES);
+  }
+
+  void setNext(int slot, int next) {
+    page(slot).putInt(NEXT_OFFSET + indexInPage(slot) * Integer.BYTES, next);
+  }
+
+  private ByteBuffer page(int slot) {
+    return pages.get(slot / PAGE_SIZE);
+  }
+
+  private static int indexInPage(int slot) {
+    return slot % PAGE_SIZE;
+  }
+
+  private ByteBuffer allocatePage() {
+    if (heapBytes + PAGE_BYTES <= heapBudget) {
+      heapBytes += PAGE_BYTES;
+      return ByteBuffer.allocate(PAGE_BYTES);
+    }
+    try {
+      if (spillChannel == null) {
+        spillChannel = FileChannel.open(spillFileSupplier.get(),
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+      }
+      ByteBuffer page = spillChannel.map(FileChannel.MapMode.READ_WRITE, (long) mappedPages * PAGE_BYTES, PAGE_BYTES);
+      mappedPages++;
+      return page;
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to map measure storage page to disk", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    pages.clear();
+    if (spillChannel != null) {
+      try {
+        spillChannel.close();
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to close measure storage file", e);
+      } finally {
+        spillChannel = null;
+      }
+    }
+  }
+}
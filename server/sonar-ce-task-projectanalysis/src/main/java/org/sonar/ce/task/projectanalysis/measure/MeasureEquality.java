@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.measure;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Value based equality of {@link Measure}, whatever the implementation. Two measures are equal if they have the same
+ * value type, value, data, QualityGate status and variation.
+ */
+final class MeasureEquality {
+  private MeasureEquality() {
+    // only static methods
+  }
+
+  static boolean areEqual(Measure measure, @Nullable Object o) {
+    if (measure == o) {
+      return true;
+    }
+    if (!(o instanceof Measure)) {
+      return false;
+    }
+    Measure that = (Measure) o;
+    return measure.getValueType() == that.getValueType()
+      && Objects.equals(valueOf(measure), valueOf(that))
+      && Objects.equals(measure.getData(), that.getData())
+      && Objects.equals(qualityGateStatusOf(measure), qualityGateStatusOf(that))
+      && Objects.equals(variationOf(measure), variationOf(that));
+  }
+
+  static int hashCodeOf(Measure measure) {
+    return Objects.hash(measure.getValueType(), valueOf(measure), measure.getData(), qualityGateStatusOf(measure), variationOf(measure));
+  }
+
+  @Nullable
+  private static Object valueOf(Measure measure) {
+    switch (measure.getValueType()) {
+      case BOOLEAN:
+        return measure.getBooleanValue();
+      case INT:
+        return measure.getIntValue();
+      case LONG:
+        return measure.getLongValue();
+      case DOUBLE:
+        return measure.getDoubleValue();
+      case STRING:
+        return measure.getStringValue();
+      case LEVEL:
+        return measure.getLevelValue();
+      case NO_VALUE:
+      default:
+        return null;
+    }
+  }
+
+  @Nullable
+  private static QualityGateStatus qualityGateStatusOf(Measure measure) {
+    return measure.hasQualityGateStatus() ? measure.getQualityGateStatus() : null;
+  }
+
+  @Nullable
+  private static Double variationOf(Measure measure) {
+    return measure.hasVariation() ? measure.getVariation() : null;
+  }
+}
@@ -24,6 +24,7 @@ import java.util.Optional;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
 import org.sonar.ce.task.projectanalysis.metric.MetricImpl;
+import org.sonar.ce.task.step.ComputationStep;
 
 public interface MeasureRepository {
 
@@ -38,6 +39,12 @@ public interface MeasureRepository {
    */
   Optional<Measure> getBaseMeasure(Component component, Metric metric);
 
+  /**
+   * Adds to the specified statistics how base measures have been retrieved since the last call of this method, if this
+   * implementation keeps track of it.
+   */
+  void addBaseMeasureStatistics(ComputationStep.Statistics statistics);
+
   /**
    * Retrieves the measure created during the current analysis for the specified {@link Component} for the specified
    * {@link Metric} if it exists (ie. one created by the Compute Engine or the Scanner).
@@ -23,24 +23,40 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.TempFolder;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.ce.task.projectanalysis.component.Component;
-import org.sonar.ce.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.ce.task.projectanalysis.measure.ColumnarRawMeasureRepository.OverridePolicy;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
 import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
 import org.sonar.ce.task.projectanalysis.metric.ReportMetricValidator;
+import org.sonar.ce.task.step.ComputationStep;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
-import org.sonar.db.measure.MeasureDto;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 import static org.sonar.ce.task.projectanalysis.component.ComponentFunctions.toComponentUuid;
 
-public class MeasureRepositoryImpl implements MeasureRepository {
-  private final MapBasedRawMeasureRepository<String> delegate = new MapBasedRawMeasureRepository<>(toComponentUuid());
-  private final DbClient dbClient;
+/**
+ * Raw measures can be read and written concurrently by {@link org.sonar.ce.task.step.DataAwareComputationStep}s
+ * computing different metrics, hence access to them is synchronized.
+ * <p>
+ * Raw measures are stored in a {@link ColumnarRawMeasureRepository}, which keeps at most
+ * {@link #HEAP_BUDGET_PROPERTY} MB on heap and then stores measures in memory-mapped temporary files.
+ * <p>
+ * Base measures are read from DB in bulk and cached, see {@link BaseMeasureCache}.
+ */
+public class MeasureRepositoryImpl implements MeasureRepository, Startable {
+  public static final String HEAP_BUDGET_PROPERTY = "sonar.ce.task.measures.heapBudgetInMb";
+  private static final int DEFAULT_HEAP_BUDGET_IN_MB = 128;
+
+  private final ColumnarRawMeasureRepository<String> delegate;
+  private final BaseMeasureCache baseMeasureCache;
   private final BatchReportReader reportReader;
   private final BatchMeasureToMeasure batchMeasureToMeasure;
   private final MetricRepository metricRepository;
@@ -49,32 +65,63 @@ public class MeasureRepositoryImpl implements MeasureRepository {
   private MeasureDtoToMeasure measureTransformer = new MeasureDtoToMeasure();
   private final Set<Integer> loadedComponents = new HashSet<>();
 
-  public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository,
+  /**
+   * Keeps all raw measures on heap.
+   */
+  public MeasureRepositoryImpl(DbClient dbClient, TaskDbSessions taskDbSessions, BatchReportReader reportReader, MetricRepository metricRepository,
     ReportMetricValidator reportMetricValidator) {
-    this.dbClient = dbClient;
+    this(dbClient, taskDbSessions, reportReader, metricRepository, reportMetricValidator, new ColumnarRawMeasureRepository<>(toComponentUuid()));
+  }
+
+  public MeasureRepositoryImpl(DbClient dbClient, TaskDbSessions taskDbSessions, BatchReportReader reportReader, MetricRepository metricRepository,
+    ReportMetricValidator reportMetricValidator, Configuration configuration, TempFolder tempFolder) {
+    this(dbClient, taskDbSessions, reportReader, metricRepository, reportMetricValidator, new ColumnarRawMeasureRepository<>(toComponentUuid(),
+      heapBudgetOf(configuration), () -> tempFolder.newFile("measures", ".dat").toPath()));
+  }
+
+  private MeasureRepositoryImpl(DbClient dbClient, TaskDbSessions taskDbSessions, BatchReportReader reportReader, MetricRepository metricRepository,
+    ReportMetricValidator reportMetricValidator, ColumnarRawMeasureRepository<String> delegate) {
+    this.delegate = delegate;
+    this.baseMeasureCache = new BaseMeasureCache(dbClient, taskDbSessions);
     this.reportReader = reportReader;
     this.reportMetricValidator = reportMetricValidator;
     this.batchMeasureToMeasure = new BatchMeasureToMeasure();
     this.metricRepository = metricRepository;
   }
 
+  private static long heapBudgetOf(Configuration configuration) {
+    int budgetInMb = configuration.getInt(HEAP_BUDGET_PROPERTY).orElse(DEFAULT_HEAP_BUDGET_IN_MB);
+    checkArgument(budgetInMb >= 0, "Property %s must be >= 0, got %s", HEAP_BUDGET_PROPERTY, budgetInMb);
+    return budgetInMb * 1024L * 1024L;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public synchronized void stop() {
+    delegate.close();
+  }
+
   @Override
   public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
     // fail fast
     requireNonNull(component);
     requireNonNull(metric);
 
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      Optional<MeasureDto> measureDto = dbClient.measureDao().selectLastMeasure(dbSession, component.getUuid(), metric.getKey());
-      if (measureDto.isPresent()) {
-        return measureTransformer.toMeasure(measureDto.get(), metric);
-      }
-      return Optional.empty();
-    }
+    return baseMeasureCache.get(component, metric)
+      .flatMap(measureDto -> measureTransformer.toMeasure(measureDto, metric));
+  }
+
+  @Override
+  public void addBaseMeasureStatistics(ComputationStep.Statistics statistics) {
+    baseMeasureCache.addStatistics(statistics);
   }
 
   @Override
-  public Optional<Measure> getRawMeasure(Component component, Metric metric) {
+  public synchronized Optional<Measure> getRawMeasure(Component component, Metric metric) {
     Optional<Measure> local = delegate.getRawMeasure(component, metric);
     if (local.isPresent()) {
       return local;
@@ -86,17 +133,17 @@ public class MeasureRepositoryImpl implements MeasureRepository {
   }
 
   @Override
-  public void add(Component component, Metric metric, Measure measure) {
+  public synchronized void add(Component component, Metric metric, Measure measure) {
     delegate.add(component, metric, measure);
   }
 
   @Override
-  public void update(Component component, Metric metric, Measure measure) {
+  public synchronized void update(Component component, Metric metric, Measure measure) {
     delegate.update(component, metric, measure);
   }
 
   @Override
-  public Map<String, Measure> getRawMeasures(Component component) {
+  public synchronized Map<String, Measure> getRawMeasures(Component component) {
     loadBatchMeasuresForComponent(component);
     return delegate.getRawMeasures(component);
   }
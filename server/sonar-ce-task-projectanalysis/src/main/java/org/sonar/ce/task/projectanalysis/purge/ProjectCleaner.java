@@ -39,12 +39,15 @@ public class ProjectCleaner {
   private final PurgeListener purgeListener;
   private final PurgeDao purgeDao;
   private final DefaultPeriodCleaner periodCleaner;
+  private final PurgeHousekeeping purgeHousekeeping;
 
-  public ProjectCleaner(PurgeDao purgeDao, DefaultPeriodCleaner periodCleaner, PurgeProfiler profiler, PurgeListener purgeListener) {
+  public ProjectCleaner(PurgeDao purgeDao, DefaultPeriodCleaner periodCleaner, PurgeProfiler profiler, PurgeListener purgeListener,
+    PurgeHousekeeping purgeHousekeeping) {
     this.purgeDao = purgeDao;
     this.periodCleaner = periodCleaner;
     this.profiler = profiler;
     this.purgeListener = purgeListener;
+    this.purgeHousekeeping = purgeHousekeeping;
   }
 
   public ProjectCleaner purge(DbSession session, String rootUuid, String projectUuid, Configuration projectConfig, Set<String> disabledComponentUuids) {
@@ -56,6 +59,9 @@ public class ProjectCleaner {
     purgeDao.purge(session, configuration, purgeListener, profiler);
 
     session.commit();
+    if (configuration.isHousekeepingInBackground()) {
+      purgeHousekeeping.submit(configuration);
+    }
     return this;
   }
 }
@@ -0,0 +1,90 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.purge;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.purge.PurgeConfiguration;
+import org.sonar.db.purge.PurgeListener;
+import org.sonar.db.purge.PurgeProfiler;
+
+/**
+ * Executes the housekeeping of projects (see {@link org.sonar.db.purge.PurgeDao#housekeeping}) in background, when it
+ * is deferred by property {@link PurgeConfiguration#HOUSEKEEPING_IN_BACKGROUND_PROPERTY}.
+ * <p>
+ * Housekeeping of a given root component is executed once, with the latest configuration, whatever the number of times
+ * it was submitted while pending. Housekeeping pending when the Compute Engine stops is dropped: it is executed again
+ * after the next analysis.
+ */
+@ComputeEngineSide
+public class PurgeHousekeeping implements Startable {
+  private static final Logger LOG = Loggers.get(PurgeHousekeeping.class);
+
+  private final DbClient dbClient;
+  private final PurgeListener purgeListener;
+  private final Map<String, PurgeConfiguration> pendingByRootUuid = new ConcurrentHashMap<>();
+  private ExecutorService executorService;
+
+  public PurgeHousekeeping(DbClient dbClient, PurgeListener purgeListener) {
+    this.dbClient = dbClient;
+    this.purgeListener = purgeListener;
+  }
+
+  @Override
+  public void start() {
+    this.executorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("purge_housekeeping-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  public void submit(PurgeConfiguration configuration) {
+    String rootUuid = configuration.rootUuid();
+    if (pendingByRootUuid.put(rootUuid, configuration) == null) {
+      executorService.execute(() -> execute(pendingByRootUuid.remove(rootUuid)));
+    }
+  }
+
+  private void execute(PurgeConfiguration configuration) {
+    PurgeProfiler profiler = new PurgeProfiler();
+    try (DbSession dbSession = dbClient.openSession(true)) {
+      dbClient.purgeDao().housekeeping(dbSession, configuration, purgeListener, profiler);
+      dbSession.commit();
+    } catch (Exception e) {
+      LOG.warn("Failed to purge data of component {}", configuration.rootUuid(), e);
+    }
+  }
+}
@@ -68,6 +68,7 @@ public class RegisterQualityProfileStatusStep implements ComputationStep {
           executeForProject(tree);
         }
       }).visit(treeRootHolder.getRoot());
+    measureRepository.addBaseMeasureStatistics(context.getStatistics());
   }
 
   private void executeForProject(Component project) {
@@ -22,6 +22,7 @@ package org.sonar.ce.task.projectanalysis.scm;
 import java.util.Optional;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.analysis.Branch;
 import org.sonar.ce.task.projectanalysis.component.Component;
@@ -37,13 +38,15 @@ public class ScmInfoDbLoader {
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final MovedFilesRepository movedFilesRepository;
   private final DbClient dbClient;
+  private final TaskDbSessions taskDbSessions;
   private final ReferenceBranchComponentUuids referenceBranchComponentUuid;
 
   public ScmInfoDbLoader(AnalysisMetadataHolder analysisMetadataHolder, MovedFilesRepository movedFilesRepository, DbClient dbClient,
-    ReferenceBranchComponentUuids referenceBranchComponentUuid) {
+    TaskDbSessions taskDbSessions, ReferenceBranchComponentUuids referenceBranchComponentUuid) {
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.movedFilesRepository = movedFilesRepository;
     this.dbClient = dbClient;
+    this.taskDbSessions = taskDbSessions;
     this.referenceBranchComponentUuid = referenceBranchComponentUuid;
   }
 
@@ -54,7 +57,7 @@ public class ScmInfoDbLoader {
     }
 
     LOGGER.trace("Reading SCM info from DB for file '{}'", uuid.get());
-    try (DbSession dbSession = dbClient.openSession(false)) {
+    try (DbSession dbSession = taskDbSessions.openReadOnlySession()) {
       FileSourceDto dto = dbClient.fileSourceDao().selectByFileUuid(dbSession, uuid.get());
       if (dto == null) {
         return Optional.empty();
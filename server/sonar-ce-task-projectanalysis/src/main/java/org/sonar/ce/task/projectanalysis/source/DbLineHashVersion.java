@@ -22,6 +22,7 @@ package org.sonar.ce.task.projectanalysis.source;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.CheckForNull;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.ReferenceBranchComponentUuids;
@@ -32,11 +33,14 @@ import org.sonar.db.source.LineHashVersion;
 public class DbLineHashVersion {
   private final Map<Component, LineHashVersion> lineHashVersionPerComponent = new HashMap<>();
   private final DbClient dbClient;
+  private final TaskDbSessions taskDbSessions;
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final ReferenceBranchComponentUuids referenceBranchComponentUuids;
 
-  public DbLineHashVersion(DbClient dbClient, AnalysisMetadataHolder analysisMetadataHolder, ReferenceBranchComponentUuids referenceBranchComponentUuids) {
+  public DbLineHashVersion(DbClient dbClient, TaskDbSessions taskDbSessions, AnalysisMetadataHolder analysisMetadataHolder,
+    ReferenceBranchComponentUuids referenceBranchComponentUuids) {
     this.dbClient = dbClient;
+    this.taskDbSessions = taskDbSessions;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.referenceBranchComponentUuids = referenceBranchComponentUuids;
   }
@@ -61,7 +65,7 @@ public class DbLineHashVersion {
 
   @CheckForNull
   private LineHashVersion compute(Component component) {
-    try (DbSession session = dbClient.openSession(false)) {
+    try (DbSession session = taskDbSessions.openReadOnlySession()) {
       String referenceComponentUuid = getReferenceComponentUuid(component);
       if (referenceComponentUuid != null) {
         return dbClient.fileSourceDao().selectLineHashesVersion(session, referenceComponentUuid);
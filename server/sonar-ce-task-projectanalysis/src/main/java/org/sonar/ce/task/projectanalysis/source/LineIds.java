@@ -0,0 +1,81 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.source;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the lines of two files by int ids, equal lines getting the same id, so that lines can then be compared
+ * without calling {@link Object#equals(Object)}. Ids are numbered from zero, in the order lines are first found.
+ * <p>
+ * Arrays are reused from a pair of files to the other: the arrays returned by {@link #left()} and {@link #right()}
+ * are only valid until the next call to {@link #intern(List, List)}, and they can be longer than the files. For the
+ * same reason, instances are not thread-safe.
+ */
+public final class LineIds {
+  private final Map<Object, Integer> idsByLine = new HashMap<>();
+  private int[] left = new int[0];
+  private int[] right = new int[0];
+  private int idCount = 0;
+
+  public void intern(List<?> leftLines, List<?> rightLines) {
+    idsByLine.clear();
+    left = ensureCapacity(left, leftLines.size());
+    right = ensureCapacity(right, rightLines.size());
+    fill(leftLines, left);
+    fill(rightLines, right);
+    idCount = idsByLine.size();
+  }
+
+  private void fill(List<?> lines, int[] ids) {
+    int index = 0;
+    for (Object line : lines) {
+      ids[index] = idsByLine.computeIfAbsent(line, l -> idsByLine.size());
+      index++;
+    }
+  }
+
+  /**
+   * {@code array} if it can hold {@code capacity} values, otherwise a new, larger, array. Values are not copied.
+   */
+  public static int[] ensureCapacity(int[] array, int capacity) {
+    if (array.length >= capacity) {
+      return array;
+    }
+    return new int[Math.max(capacity, 2 * array.length)];
+  }
+
+  public int[] left() {
+    return left;
+  }
+
+  public int[] right() {
+    return right;
+  }
+
+  /**
+   * Number of distinct lines in both files.
+   */
+  public int idCount() {
+    return idCount;
+  }
+}
@@ -20,9 +20,11 @@
 package org.sonar.ce.task.projectanalysis.source;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -35,6 +37,7 @@ import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.ce.task.projectanalysis.scm.Changeset;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.ce.task.step.DataAwareComputationStep;
 import org.sonar.core.util.UuidFactory;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -42,8 +45,14 @@ import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 
 import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.DB_FILE_SOURCES;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.DUPLICATIONS;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.NEW_LINES;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.REPORT;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.SCM_INFO;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.SOURCE_LINES;
 
-public class PersistFileSourcesStep implements ComputationStep {
+public class PersistFileSourcesStep implements DataAwareComputationStep {
   private final DbClient dbClient;
   private final System2 system2;
   private final TreeRootHolder treeRootHolder;
@@ -64,6 +73,17 @@ public class PersistFileSourcesStep implements ComputationStep {
     this.uuidFactory = uuidFactory;
   }
 
+  @Override
+  public Set<String> getReadData() {
+    return ImmutableSet.of(REPORT, SOURCE_LINES, DUPLICATIONS);
+  }
+
+  @Override
+  public Set<String> getWrittenData() {
+    // SCM information and new lines are cached on first access by the line readers
+    return ImmutableSet.of(DB_FILE_SOURCES, SCM_INFO, NEW_LINES);
+  }
+
   @Override
   public void execute(ComputationStep.Context context) {
     // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
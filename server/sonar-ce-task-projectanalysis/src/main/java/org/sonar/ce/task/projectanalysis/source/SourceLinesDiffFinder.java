@@ -19,47 +19,106 @@
  */
 package org.sonar.ce.task.projectanalysis.source;
 
-import difflib.myers.DifferentiationFailedException;
-import difflib.myers.MyersDiff;
-import difflib.myers.PathNode;
+import java.util.Arrays;
 import java.util.List;
-import org.sonar.api.utils.log.Logger;
-import org.sonar.api.utils.log.Loggers;
 
+import static org.sonar.ce.task.projectanalysis.source.LineIds.ensureCapacity;
+
+/**
+ * Finds the lines which are the same in two versions of a file, with the greedy algorithm of Myers ("An O(ND)
+ * Difference Algorithm and Its Variations"). Lines are compared as int ids and the algorithm works on arrays held by
+ * the instance, so instances are not thread-safe.
+ * <p>
+ * Ties between paths of the same length are broken the same way as in the implementation of java-diff-utils, which
+ * was previously used, so that matching lines do not change.
+ */
 public class SourceLinesDiffFinder {
-  private static final Logger LOG = Loggers.get(SourceLinesDiffFinder.class);
+  private static final int NO_SNAKE = -1;
+  private static final int SNAKE_SIZE = 4;
 
+  private final LineIds lineIds = new LineIds();
+  // for each diagonal, the furthest reaching index in left and the last snake of the path to it
+  private int[] diagonalIndexes = new int[0];
+  private int[] diagonalSnakes = new int[0];
+  // snakes, ie. runs of matching lines, as quadruples (index in left, index in right, length, previous snake)
+  private int[] snakes = new int[0];
+  private int snakeCount;
+
+  /**
+   * @return for each line of {@code right}, the number (starting at 1) of the same line in {@code left}, or 0 if there's no
+   * such line
+   */
   public int[] findMatchingLines(List<String> left, List<String> right) {
+    lineIds.intern(left, right);
     int[] index = new int[right.size()];
+    int snake = buildPath(lineIds.left(), left.size(), lineIds.right(), right.size());
+    while (snake != NO_SNAKE) {
+      int offset = snake * SNAKE_SIZE;
+      int leftIndex = snakes[offset];
+      int rightIndex = snakes[offset + 1];
+      int length = snakes[offset + 2];
+      for (int i = 0; i < length; i++) {
+        index[rightIndex + i] = leftIndex + i + 1;
+      }
+      snake = snakes[offset + 3];
+    }
+    return index;
+  }
 
-    int dbLine = left.size();
-    int reportLine = right.size();
-    try {
-      PathNode node = MyersDiff.buildPath(left.toArray(), right.toArray());
-
-      while (node.prev != null) {
-        PathNode prevNode = node.prev;
+  /**
+   * @return the last snake of the shortest path from the start of both files to their end
+   */
+  private int buildPath(int[] left, int leftLength, int[] right, int rightLength) {
+    int max = leftLength + rightLength + 1;
+    int size = 1 + 2 * max;
+    int middle = size / 2;
+    diagonalIndexes = ensureCapacity(diagonalIndexes, size);
+    diagonalSnakes = ensureCapacity(diagonalSnakes, size);
+    snakeCount = 0;
 
-        if (!node.isSnake()) {
-          // additions
-          reportLine -= (node.j - prevNode.j);
-          // removals
-          dbLine -= (node.i - prevNode.i);
+    diagonalIndexes[middle + 1] = 0;
+    diagonalSnakes[middle + 1] = NO_SNAKE;
+    for (int d = 0; d < max; d++) {
+      for (int k = -d; k <= d; k += 2) {
+        int kMiddle = middle + k;
+        int kPlus = kMiddle + 1;
+        int kMinus = kMiddle - 1;
+        int i;
+        int previousSnake;
+        if (k == -d || (k != d && diagonalIndexes[kMinus] < diagonalIndexes[kPlus])) {
+          i = diagonalIndexes[kPlus];
+          previousSnake = diagonalSnakes[kPlus];
         } else {
-          // matches
-          for (int i = node.i; i > prevNode.i; i--) {
-            index[reportLine - 1] = dbLine;
-            reportLine--;
-            dbLine--;
-          }
+          i = diagonalIndexes[kMinus] + 1;
+          previousSnake = diagonalSnakes[kMinus];
+        }
+        int j = i - k;
+        int start = i;
+        while (i < leftLength && j < rightLength && left[i] == right[j]) {
+          i++;
+          j++;
+        }
+        diagonalIndexes[kMiddle] = i;
+        diagonalSnakes[kMiddle] = i > start ? addSnake(start, start - k, i - start, previousSnake) : previousSnake;
+        if (i >= leftLength && j >= rightLength) {
+          return diagonalSnakes[kMiddle];
         }
-        node = prevNode;
       }
-    } catch (DifferentiationFailedException e) {
-      LOG.error("Error finding matching lines", e);
-      return index;
     }
-    return index;
+    // according to Myers, this can not happen
+    throw new IllegalStateException("Could not find a diff path");
   }
 
+  private int addSnake(int leftIndex, int rightIndex, int length, int previousSnake) {
+    int offset = snakeCount * SNAKE_SIZE;
+    if (offset + SNAKE_SIZE > snakes.length) {
+      snakes = Arrays.copyOf(snakes, Math.max(16 * SNAKE_SIZE, 2 * snakes.length));
+    }
+    snakes[offset] = leftIndex;
+    snakes[offset + 1] = rightIndex;
+    snakes[offset + 2] = length;
+    snakes[offset + 3] = previousSnake;
+    snakeCount++;
+    return snakeCount - 1;
+  }
 }
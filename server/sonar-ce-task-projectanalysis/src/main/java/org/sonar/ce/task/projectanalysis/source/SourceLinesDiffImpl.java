@@ -22,26 +22,26 @@ package org.sonar.ce.task.projectanalysis.source;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.ReferenceBranchComponentUuids;
 import org.sonar.ce.task.projectanalysis.filemove.MovedFilesRepository;
-import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDao;
 
 public class SourceLinesDiffImpl implements SourceLinesDiff {
 
-  private final DbClient dbClient;
+  private final TaskDbSessions taskDbSessions;
   private final FileSourceDao fileSourceDao;
   private final SourceLinesHashRepository sourceLinesHash;
   private final ReferenceBranchComponentUuids referenceBranchComponentUuids;
   private final MovedFilesRepository movedFilesRepository;
   private final AnalysisMetadataHolder analysisMetadataHolder;
 
-  public SourceLinesDiffImpl(DbClient dbClient, FileSourceDao fileSourceDao, SourceLinesHashRepository sourceLinesHash,
+  public SourceLinesDiffImpl(TaskDbSessions taskDbSessions, FileSourceDao fileSourceDao, SourceLinesHashRepository sourceLinesHash,
     ReferenceBranchComponentUuids referenceBranchComponentUuids, MovedFilesRepository movedFilesRepository, AnalysisMetadataHolder analysisMetadataHolder) {
-    this.dbClient = dbClient;
+    this.taskDbSessions = taskDbSessions;
     this.fileSourceDao = fileSourceDao;
     this.sourceLinesHash = sourceLinesHash;
     this.referenceBranchComponentUuids = referenceBranchComponentUuids;
@@ -54,11 +54,12 @@ public class SourceLinesDiffImpl implements SourceLinesDiff {
     List<String> database = getDBLines(component);
     List<String> report = getReportLines(component);
 
+    // not thread-safe, files may be processed concurrently
     return new SourceLinesDiffFinder().findMatchingLines(database, report);
   }
 
   private List<String> getDBLines(Component component) {
-    try (DbSession dbSession = dbClient.openSession(false)) {
+    try (DbSession dbSession = taskDbSessions.openReadOnlySession()) {
       String uuid;
       if (analysisMetadataHolder.isPullRequest()) {
         uuid = referenceBranchComponentUuids.getComponentUuid(component.getDbKey());
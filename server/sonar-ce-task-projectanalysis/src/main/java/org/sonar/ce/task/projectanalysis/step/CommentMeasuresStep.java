@@ -20,7 +20,9 @@
 package org.sonar.ce.task.projectanalysis.step;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import java.util.Optional;
+import java.util.Set;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.ce.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
@@ -36,6 +38,7 @@ import org.sonar.ce.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
 import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.ce.task.step.DataAwareComputationStep;
 
 import static org.sonar.api.measures.CoreMetrics.COMMENT_LINES_DENSITY_KEY;
 import static org.sonar.api.measures.CoreMetrics.COMMENT_LINES_KEY;
@@ -43,11 +46,12 @@ import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
 import static org.sonar.api.measures.CoreMetrics.PUBLIC_API_KEY;
 import static org.sonar.api.measures.CoreMetrics.PUBLIC_DOCUMENTED_API_DENSITY_KEY;
 import static org.sonar.api.measures.CoreMetrics.PUBLIC_UNDOCUMENTED_API_KEY;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.measures;
 
 /**
  * Computes comments measures on files and then aggregates them on higher components.
  */
-public class CommentMeasuresStep implements ComputationStep {
+public class CommentMeasuresStep implements DataAwareComputationStep {
 
   private final TreeRootHolder treeRootHolder;
   private final MetricRepository metricRepository;
@@ -198,6 +202,17 @@ public class CommentMeasuresStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<String> getReadData() {
+    return ImmutableSet.copyOf(measures(NCLOC_KEY, COMMENT_LINES_KEY, PUBLIC_API_KEY, PUBLIC_UNDOCUMENTED_API_KEY));
+  }
+
+  @Override
+  public Set<String> getWrittenData() {
+    return ImmutableSet.copyOf(measures(COMMENT_LINES_KEY, COMMENT_LINES_DENSITY_KEY, PUBLIC_API_KEY, PUBLIC_UNDOCUMENTED_API_KEY,
+      PUBLIC_DOCUMENTED_API_DENSITY_KEY));
+  }
+
   @Override
   public String getDescription() {
     return "Compute comment measures";
@@ -20,7 +20,9 @@
 package org.sonar.ce.task.projectanalysis.step;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
 import java.util.List;
+import java.util.Set;
 import org.apache.commons.lang.math.NumberUtils;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.ComponentVisitor;
@@ -33,11 +35,14 @@ import org.sonar.ce.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
 import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.ce.task.step.DataAwareComputationStep;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.measure.custom.CustomMeasureDto;
 
-public class CustomMeasuresCopyStep implements ComputationStep {
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.CUSTOM_MEASURES;
+
+public class CustomMeasuresCopyStep implements DataAwareComputationStep {
 
   private final TreeRootHolder treeRootHolder;
   private final DbClient dbClient;
@@ -109,6 +114,16 @@ public class CustomMeasuresCopyStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<String> getReadData() {
+    return ImmutableSet.of();
+  }
+
+  @Override
+  public Set<String> getWrittenData() {
+    return ImmutableSet.of(CUSTOM_MEASURES);
+  }
+
   @Override
   public String getDescription() {
     return "Copy custom measures";
@@ -19,22 +19,43 @@
  */
 package org.sonar.ce.task.projectanalysis.step;
 
-import org.sonar.api.measures.CoreMetrics;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.ce.task.projectanalysis.duplication.DuplicationMeasures;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.ce.task.step.DataAwareComputationStep;
+
+import static org.sonar.api.measures.CoreMetrics.DUPLICATED_BLOCKS_KEY;
+import static org.sonar.api.measures.CoreMetrics.DUPLICATED_FILES_KEY;
+import static org.sonar.api.measures.CoreMetrics.DUPLICATED_LINES_DENSITY_KEY;
+import static org.sonar.api.measures.CoreMetrics.DUPLICATED_LINES_KEY;
+import static org.sonar.api.measures.CoreMetrics.LINES_KEY;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.DUPLICATIONS;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.measures;
 
 /**
  * Computes duplication measures on files and then aggregates them on higher components.
- * 
- * This step must be executed after {@link CommentMeasuresStep} as it depends on {@link CoreMetrics#COMMENT_LINES}
  */
-public class DuplicationMeasuresStep implements ComputationStep {
+public class DuplicationMeasuresStep implements DataAwareComputationStep {
   private final DuplicationMeasures defaultDuplicationMeasures;
 
   public DuplicationMeasuresStep(DuplicationMeasures defaultDuplicationMeasures) {
     this.defaultDuplicationMeasures = defaultDuplicationMeasures;
   }
 
+  @Override
+  public Set<String> getReadData() {
+    return ImmutableSet.<String>builder()
+      .add(DUPLICATIONS)
+      .add(measures(LINES_KEY, DUPLICATED_FILES_KEY, DUPLICATED_LINES_KEY, DUPLICATED_BLOCKS_KEY))
+      .build();
+  }
+
+  @Override
+  public Set<String> getWrittenData() {
+    return ImmutableSet.copyOf(measures(DUPLICATED_FILES_KEY, DUPLICATED_LINES_KEY, DUPLICATED_LINES_DENSITY_KEY, DUPLICATED_BLOCKS_KEY));
+  }
+
   @Override
   public String getDescription() {
     return "Compute duplication measures";
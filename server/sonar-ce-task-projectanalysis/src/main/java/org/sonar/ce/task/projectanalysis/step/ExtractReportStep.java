@@ -23,6 +23,7 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Optional;
 import org.apache.commons.io.FileUtils;
 import org.sonar.api.utils.MessageException;
@@ -37,10 +38,14 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeTaskInputDao;
 import org.sonar.process.FileUtils2;
+import org.sonar.scanner.protocol.output.ScannerReportContainer;
 
 /**
  * Extracts the content zip file of the {@link CeTask} to a temp directory and adds a {@link File}
  * representing that temp directory to the {@link MutableBatchReportDirectoryHolder}.
+ * <p>
+ * A report uploaded as a {@link ScannerReportContainer} is not extracted: it is copied as a single file into the temp
+ * directory and read in place.
  */
 public class ExtractReportStep implements ComputationStep {
 
@@ -67,7 +72,11 @@ public class ExtractReportStep implements ComputationStep {
         File unzippedDir = tempFolder.newDir();
         try (CeTaskInputDao.DataStream reportStream = opt.get();
              InputStream zipStream = new BufferedInputStream(reportStream.getInputStream())) {
-          ZipUtils.unzip(zipStream, unzippedDir);
+          if (ScannerReportContainer.isContainer(zipStream)) {
+            Files.copy(zipStream, new File(unzippedDir, ScannerReportContainer.FILENAME).toPath());
+          } else {
+            ZipUtils.unzip(zipStream, unzippedDir);
+          }
         } catch (IOException e) {
           throw new IllegalStateException("Fail to extract report " + task.getUuid() + " from database", e);
         }
@@ -21,10 +21,12 @@ package org.sonar.ce.task.projectanalysis.step;
 
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.TreeMultiset;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.api.measures.CoreMetrics;
@@ -41,15 +43,19 @@ import org.sonar.ce.task.projectanalysis.measure.Measure;
 import org.sonar.ce.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.ce.task.step.DataAwareComputationStep;
 
 import static com.google.common.collect.Maps.asMap;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
 import static org.sonar.api.measures.CoreMetrics.NCLOC_LANGUAGE_DISTRIBUTION_KEY;
 import static org.sonar.api.utils.KeyValueFormat.format;
 import static org.sonar.api.utils.KeyValueFormat.newIntegerConverter;
 import static org.sonar.api.utils.KeyValueFormat.newStringConverter;
 import static org.sonar.ce.task.projectanalysis.measure.Measure.newMeasureBuilder;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.measure;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.measures;
 
-public class LanguageDistributionMeasuresStep implements ComputationStep {
+public class LanguageDistributionMeasuresStep implements DataAwareComputationStep {
 
   private static final String UNKNOWN_LANGUAGE_KEY = "<null>";
 
@@ -145,6 +151,16 @@ public class LanguageDistributionMeasuresStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<String> getReadData() {
+    return ImmutableSet.copyOf(measures(NCLOC_KEY, NCLOC_LANGUAGE_DISTRIBUTION_KEY));
+  }
+
+  @Override
+  public Set<String> getWrittenData() {
+    return ImmutableSet.of(measure(NCLOC_LANGUAGE_DISTRIBUTION_KEY));
+  }
+
   @Override
   public String getDescription() {
     return "Compute language distribution";
@@ -21,10 +21,17 @@ package org.sonar.ce.task.projectanalysis.step;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.task.projectanalysis.analysis.Analysis;
@@ -56,6 +63,11 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
 
   private static final Logger LOGGER = Loggers.get(LoadCrossProjectDuplicationsRepositoryStep.class);
 
+  /**
+   * Number of distinct hashes from which the candidates of a batch of files are loaded
+   */
+  static final int MAX_HASHES_PER_BATCH = 10_000;
+
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
   private final AnalysisMetadataHolder analysisMetadataHolder;
@@ -77,7 +89,9 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   @Override
   public void execute(ComputationStep.Context context) {
     if (crossProjectDuplicationStatusHolder.isEnabled()) {
-      new DepthTraversalTypeAwareCrawler(new CrossProjectDuplicationVisitor()).visit(treeRootHolder.getRoot());
+      CrossProjectDuplicationVisitor visitor = new CrossProjectDuplicationVisitor();
+      new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+      visitor.processRemainingBatches();
     }
   }
 
@@ -86,7 +100,12 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
     return "Compute cross project duplications";
   }
 
+  /**
+   * Files are processed by batches of files of the same language, so that the candidate blocks of many files are loaded
+   * by the same queries, each distinct hash being requested only once.
+   */
   private class CrossProjectDuplicationVisitor extends TypeAwareVisitorAdapter {
+    private final Map<String, FileBatch> batchesByLanguage = new HashMap<>();
 
     private CrossProjectDuplicationVisitor() {
       super(CrawlerDepthLimit.FILE, Order.PRE_ORDER);
@@ -105,28 +124,73 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
         return;
       }
 
-      Collection<String> hashes = cpdTextBlocks.stream().map(CpdTextBlockToHash.INSTANCE).collect(Collectors.toList());
-      List<DuplicationUnitDto> dtos = selectDuplicates(file, hashes);
-      if (dtos.isEmpty()) {
+      String language = file.getFileAttributes().getLanguageKey();
+      FileBatch batch = batchesByLanguage.computeIfAbsent(language, FileBatch::new);
+      batch.add(file, cpdTextBlocks);
+      if (batch.hashes.size() >= MAX_HASHES_PER_BATCH) {
+        batchesByLanguage.remove(language);
+        process(batch);
+      }
+    }
+
+    private void processRemainingBatches() {
+      batchesByLanguage.values().forEach(this::process);
+      batchesByLanguage.clear();
+    }
+
+    private void process(FileBatch batch) {
+      Map<String, List<DuplicationUnitDto>> candidatesByHash = selectDuplicates(batch.language, batch.hashes).stream()
+        .collect(Collectors.groupingBy(DuplicationUnitDto::getHash));
+      if (candidatesByHash.isEmpty()) {
+        return;
+      }
+      for (Map.Entry<Component, List<CpdTextBlock>> fileBlocks : batch.blocksByFile.entrySet()) {
+        computeCpd(fileBlocks.getKey(), fileBlocks.getValue(), candidatesByHash);
+      }
+    }
+
+    private void computeCpd(Component file, List<CpdTextBlock> cpdTextBlocks, Map<String, List<DuplicationUnitDto>> candidatesByHash) {
+      Collection<Block> duplicatedBlocks = cpdTextBlocks.stream()
+        .map(CpdTextBlockToHash.INSTANCE)
+        .distinct()
+        .flatMap(hash -> candidatesByHash.getOrDefault(hash, Collections.emptyList()).stream())
+        .map(DtoToBlock.INSTANCE)
+        .collect(Collectors.toList());
+      if (duplicatedBlocks.isEmpty()) {
         return;
       }
 
-      Collection<Block> duplicatedBlocks = dtos.stream().map(DtoToBlock.INSTANCE).collect(Collectors.toList());
       Collection<Block> originBlocks = cpdTextBlocks.stream().map(new CpdTextBlockToBlock(file.getDbKey())).collect(Collectors.toList());
       LOGGER.trace("Found {} duplicated cpd blocks on file {}", duplicatedBlocks.size(), file.getDbKey());
 
       integrateCrossProjectDuplications.computeCpd(file, originBlocks, duplicatedBlocks);
     }
 
-    private List<DuplicationUnitDto> selectDuplicates(Component file, Collection<String> hashes) {
+    private List<DuplicationUnitDto> selectDuplicates(@Nullable String language, Collection<String> hashes) {
       try (DbSession dbSession = dbClient.openSession(false)) {
         Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
         String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
-        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, file.getFileAttributes().getLanguageKey(), hashes);
+        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, language, hashes);
       }
     }
   }
 
+  private static class FileBatch {
+    @Nullable
+    private final String language;
+    private final Map<Component, List<CpdTextBlock>> blocksByFile = new LinkedHashMap<>();
+    private final Set<String> hashes = new HashSet<>();
+
+    private FileBatch(@Nullable String language) {
+      this.language = language;
+    }
+
+    private void add(Component file, List<CpdTextBlock> cpdTextBlocks) {
+      blocksByFile.put(file, cpdTextBlocks);
+      cpdTextBlocks.forEach(block -> hashes.add(block.getHash()));
+    }
+  }
+
   private enum CpdTextBlockToHash implements Function<CpdTextBlock, String> {
     INSTANCE;
 
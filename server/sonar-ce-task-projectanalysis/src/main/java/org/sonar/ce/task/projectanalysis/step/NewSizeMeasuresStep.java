@@ -20,6 +20,7 @@
 package org.sonar.ce.task.projectanalysis.step;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Optional;
@@ -43,16 +44,21 @@ import org.sonar.ce.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
 import org.sonar.ce.task.projectanalysis.source.NewLinesRepository;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.ce.task.step.DataAwareComputationStep;
 
 import static org.sonar.api.measures.CoreMetrics.NEW_BLOCKS_DUPLICATED_KEY;
 import static org.sonar.api.measures.CoreMetrics.NEW_DUPLICATED_LINES_DENSITY_KEY;
 import static org.sonar.api.measures.CoreMetrics.NEW_DUPLICATED_LINES_KEY;
 import static org.sonar.api.measures.CoreMetrics.NEW_LINES_KEY;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.DUPLICATIONS;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.NEW_LINES;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.SCM_INFO;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.measures;
 
 /**
  * Computes measures on new code related to the size
  */
-public class NewSizeMeasuresStep implements ComputationStep {
+public class NewSizeMeasuresStep implements DataAwareComputationStep {
 
   private final TreeRootHolder treeRootHolder;
   private final MetricRepository metricRepository;
@@ -67,6 +73,20 @@ public class NewSizeMeasuresStep implements ComputationStep {
     this.duplicationFormula = new NewDuplicationFormula(newLinesRepository, duplicationRepository);
   }
 
+  @Override
+  public Set<String> getReadData() {
+    return ImmutableSet.of(DUPLICATIONS);
+  }
+
+  @Override
+  public Set<String> getWrittenData() {
+    return ImmutableSet.<String>builder()
+      // new lines, and the SCM information they are computed from, are cached on first access
+      .add(NEW_LINES, SCM_INFO)
+      .add(measures(NEW_LINES_KEY, NEW_DUPLICATED_LINES_KEY, NEW_DUPLICATED_LINES_DENSITY_KEY, NEW_BLOCKS_DUPLICATED_KEY))
+      .build();
+  }
+
   @Override
   public String getDescription() {
     return "Compute size measures on new code";
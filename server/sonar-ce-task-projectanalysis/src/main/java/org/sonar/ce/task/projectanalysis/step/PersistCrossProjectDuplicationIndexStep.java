@@ -19,6 +19,8 @@
  */
 package org.sonar.ce.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.ce.task.projectanalysis.component.Component;
@@ -28,6 +30,7 @@ import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.ce.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.ce.task.step.DataAwareComputationStep;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -35,11 +38,13 @@ import org.sonar.db.duplication.DuplicationUnitDto;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
 import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.DB_DUPLICATIONS_INDEX;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.REPORT;
 
 /**
  * Persist cross project duplications text blocks into DUPLICATIONS_INDEX table
  */
-public class PersistCrossProjectDuplicationIndexStep implements ComputationStep {
+public class PersistCrossProjectDuplicationIndexStep implements DataAwareComputationStep {
 
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
@@ -57,6 +62,16 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
     this.crossProjectDuplicationStatusHolder = crossProjectDuplicationStatusHolder;
   }
 
+  @Override
+  public Set<String> getReadData() {
+    return ImmutableSet.of(REPORT);
+  }
+
+  @Override
+  public Set<String> getWrittenData() {
+    return ImmutableSet.of(DB_DUPLICATIONS_INDEX);
+  }
+
   @Override
   public void execute(ComputationStep.Context context) {
     if (!crossProjectDuplicationStatusHolder.isEnabled()) {
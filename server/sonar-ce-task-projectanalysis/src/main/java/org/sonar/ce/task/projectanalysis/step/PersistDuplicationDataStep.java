@@ -19,8 +19,10 @@
  */
 package org.sonar.ce.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
@@ -40,6 +42,7 @@ import org.sonar.ce.task.projectanalysis.measure.MeasureToMeasureDto;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
 import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.ce.task.step.DataAwareComputationStep;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.measure.LiveMeasureDto;
@@ -47,11 +50,13 @@ import org.sonar.db.measure.LiveMeasureDto;
 import static com.google.common.collect.Iterables.isEmpty;
 import static org.sonar.api.measures.CoreMetrics.DUPLICATIONS_DATA_KEY;
 import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.DB_LIVE_MEASURES;
+import static org.sonar.ce.task.projectanalysis.step.StepDataKeys.DUPLICATIONS;
 
 /**
  * Compute duplication data measures on files, based on the {@link DuplicationRepository}
  */
-public class PersistDuplicationDataStep implements ComputationStep {
+public class PersistDuplicationDataStep implements DataAwareComputationStep {
 
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
@@ -68,6 +73,16 @@ public class PersistDuplicationDataStep implements ComputationStep {
     this.duplicationDataMetric = metricRepository.getByKey(DUPLICATIONS_DATA_KEY);
   }
 
+  @Override
+  public Set<String> getReadData() {
+    return ImmutableSet.of(DUPLICATIONS);
+  }
+
+  @Override
+  public Set<String> getWrittenData() {
+    return ImmutableSet.of(DB_LIVE_MEASURES);
+  }
+
   @Override
   public void execute(ComputationStep.Context context) {
     boolean supportUpsert = dbClient.getDatabase().getDialect().supportsUpsert();
@@ -19,10 +19,20 @@
  */
 package org.sonar.ce.task.projectanalysis.step;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.System2;
 import org.sonar.ce.task.projectanalysis.issue.ProtoIssueCache;
 import org.sonar.ce.task.projectanalysis.issue.RuleRepository;
@@ -39,13 +49,22 @@ import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueMapper;
 import org.sonar.server.issue.IssueStorage;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.sonar.core.util.stream.MoreCollectors.toList;
 import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 
+/**
+ * Issues of the cache are decoded and grouped into batches of inserts and batches of updates by the step thread.
+ * Batches are persisted, from the building of their {@link IssueDto}s to the commit, by a pool of
+ * {@link #PARALLELISM_PROPERTY} threads, each batch in its own batch session of {@link #BATCH_SIZE_PROPERTY} statements.
+ * Only a few batches per thread are pending at any time, so that decoding does not get too far ahead of writing.
+ * <p>
+ * With the default parallelism of 1, batches are persisted by the step thread.
+ */
 public class PersistIssuesStep implements ComputationStep {
-  // holding up to 1000 DefaultIssue (max size of addedIssues and updatedIssues at any given time) in memory should not
-  // be a problem while making sure we leverage extensively the batch feature to speed up persistence
-  private static final int ISSUE_BATCHING_SIZE = BatchSession.MAX_BATCH_SIZE * 2;
+  public static final String PARALLELISM_PROPERTY = "sonar.ce.task.issuePersistenceParallelism";
+  public static final String BATCH_SIZE_PROPERTY = "sonar.ce.task.issuePersistenceBatchSize";
+  private static final int PENDING_BATCHES_PER_THREAD = 2;
 
   private final DbClient dbClient;
   private final System2 system2;
@@ -54,9 +73,12 @@ public class PersistIssuesStep implements ComputationStep {
   private final ProtoIssueCache protoIssueCache;
   private final IssueStorage issueStorage;
   private final UuidFactory uuidFactory;
+  private final int parallelism;
+  private final int batchSize;
 
   public PersistIssuesStep(DbClient dbClient, System2 system2, UpdateConflictResolver conflictResolver,
-    RuleRepository ruleRepository, ProtoIssueCache protoIssueCache, IssueStorage issueStorage, UuidFactory uuidFactory) {
+    RuleRepository ruleRepository, ProtoIssueCache protoIssueCache, IssueStorage issueStorage, UuidFactory uuidFactory,
+    Configuration configuration) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.conflictResolver = conflictResolver;
@@ -64,70 +86,150 @@ public class PersistIssuesStep implements ComputationStep {
     this.protoIssueCache = protoIssueCache;
     this.issueStorage = issueStorage;
     this.uuidFactory = uuidFactory;
+    this.parallelism = configuration.getInt(PARALLELISM_PROPERTY).orElse(1);
+    checkArgument(parallelism >= 1, "Property %s must be >= 1, got %s", PARALLELISM_PROPERTY, parallelism);
+    this.batchSize = configuration.getInt(BATCH_SIZE_PROPERTY).orElse(BatchSession.MAX_BATCH_SIZE);
+    checkArgument(batchSize >= 1, "Property %s must be >= 1, got %s", BATCH_SIZE_PROPERTY, batchSize);
   }
 
   @Override
   public void execute(ComputationStep.Context context) {
     context.getStatistics().add("cacheSize", FileUtils.byteCountToDisplaySize(protoIssueCache.fileSize()));
     IssueStatistics statistics = new IssueStatistics();
-    try (DbSession dbSession = dbClient.openSession(true);
-
-      CloseableIterator<DefaultIssue> issues = protoIssueCache.traverse()) {
-      List<DefaultIssue> addedIssues = new ArrayList<>(ISSUE_BATCHING_SIZE);
-      List<DefaultIssue> updatedIssues = new ArrayList<>(ISSUE_BATCHING_SIZE);
+    long start = system2.now();
+    try {
+      if (parallelism == 1) {
+        persistSequentially(statistics);
+      } else {
+        persistInParallel(statistics);
+      }
+    } finally {
+      statistics.dumpTo(context, system2.now() - start);
+    }
+  }
 
+  private void persistSequentially(IssueStatistics statistics) {
+    try (DbSession dbSession = dbClient.openBatchSession(batchSize)) {
       IssueMapper mapper = dbSession.getMapper(IssueMapper.class);
       IssueChangeMapper changeMapper = dbSession.getMapper(IssueChangeMapper.class);
+      readBatches(batch -> persist(statistics, batch, mapper, changeMapper));
+      flushSession(dbSession);
+    }
+  }
+
+  private void persistInParallel(IssueStatistics statistics) {
+    ExecutorService executorService = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+      .setNameFormat("CE_persist_issues-%d")
+      .setDaemon(true)
+      .build());
+    Semaphore pendingBatches = new Semaphore(parallelism * PENDING_BATCHES_PER_THREAD);
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      readBatches(batch -> {
+        acquire(pendingBatches);
+        futures.add(executorService.submit(() -> {
+          try (DbSession dbSession = dbClient.openBatchSession(batchSize)) {
+            persist(statistics, batch, dbSession.getMapper(IssueMapper.class), dbSession.getMapper(IssueChangeMapper.class));
+            flushSession(dbSession);
+          } finally {
+            pendingBatches.release();
+          }
+        }));
+        // fail fast rather than reading the remaining issues
+        futures.removeIf(future -> {
+          if (future.isDone()) {
+            waitFor(future);
+            return true;
+          }
+          return false;
+        });
+      });
+      futures.forEach(PersistIssuesStep::waitFor);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static void acquire(Semaphore semaphore) {
+    try {
+      semaphore.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while persisting issues", e);
+    }
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while persisting issues", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to persist issues", e.getCause());
+    }
+  }
+
+  /**
+   * Rule uuids of new issues are resolved here, on the step thread, as {@link RuleRepository} is not thread-safe.
+   */
+  private void readBatches(Consumer<IssueBatch> batchConsumer) {
+    // holding up to two batches of DefaultIssue (one of inserts, one of updates) in memory should not
+    // be a problem while making sure we leverage extensively the batch feature to speed up persistence
+    int issuesPerBatch = batchSize * 2;
+    try (CloseableIterator<DefaultIssue> issues = protoIssueCache.traverse()) {
+      IssueBatch addedIssues = new IssueBatch(true, issuesPerBatch);
+      IssueBatch updatedIssues = new IssueBatch(false, issuesPerBatch);
       while (issues.hasNext()) {
         DefaultIssue issue = issues.next();
         if (issue.isNew() || issue.isCopied()) {
-          addedIssues.add(issue);
-          if (addedIssues.size() >= ISSUE_BATCHING_SIZE) {
-            persistNewIssues(statistics, addedIssues, mapper, changeMapper);
-            addedIssues.clear();
+          addedIssues.add(issue, ruleRepository.getByKey(issue.ruleKey()).getUuid());
+          if (addedIssues.size() >= issuesPerBatch) {
+            batchConsumer.accept(addedIssues);
+            addedIssues = new IssueBatch(true, issuesPerBatch);
           }
         } else if (issue.isChanged()) {
-          updatedIssues.add(issue);
-          if (updatedIssues.size() >= ISSUE_BATCHING_SIZE) {
-            persistUpdatedIssues(statistics, updatedIssues, mapper, changeMapper);
-            updatedIssues.clear();
+          updatedIssues.add(issue, null);
+          if (updatedIssues.size() >= issuesPerBatch) {
+            batchConsumer.accept(updatedIssues);
+            updatedIssues = new IssueBatch(false, issuesPerBatch);
           }
         }
       }
-      persistNewIssues(statistics, addedIssues, mapper, changeMapper);
-      persistUpdatedIssues(statistics, updatedIssues, mapper, changeMapper);
-      flushSession(dbSession);
-    } finally {
-      statistics.dumpTo(context);
+      if (addedIssues.size() > 0) {
+        batchConsumer.accept(addedIssues);
+      }
+      if (updatedIssues.size() > 0) {
+        batchConsumer.accept(updatedIssues);
+      }
     }
   }
 
-  private void persistNewIssues(IssueStatistics statistics, List<DefaultIssue> addedIssues, IssueMapper mapper, IssueChangeMapper changeMapper) {
-    if (addedIssues.isEmpty()) {
-      return;
+  private void persist(IssueStatistics statistics, IssueBatch batch, IssueMapper mapper, IssueChangeMapper changeMapper) {
+    if (batch.added) {
+      persistNewIssues(statistics, batch, mapper, changeMapper);
+    } else {
+      persistUpdatedIssues(statistics, batch.issues, mapper, changeMapper);
     }
+  }
 
+  private void persistNewIssues(IssueStatistics statistics, IssueBatch addedIssues, IssueMapper mapper, IssueChangeMapper changeMapper) {
     long now = system2.now();
-    addedIssues.forEach(i -> {
-      String ruleUuid = ruleRepository.getByKey(i.ruleKey()).getUuid();
-      IssueDto dto = IssueDto.toDtoForComputationInsert(i, ruleUuid, now);
+    for (int i = 0; i < addedIssues.size(); i++) {
+      IssueDto dto = IssueDto.toDtoForComputationInsert(addedIssues.issues.get(i), addedIssues.ruleUuids.get(i), now);
       mapper.insert(dto);
-      statistics.inserts++;
-    });
+      statistics.inserts.incrementAndGet();
+    }
 
-    addedIssues.forEach(i -> issueStorage.insertChanges(changeMapper, i, uuidFactory));
+    addedIssues.issues.forEach(i -> issueStorage.insertChanges(changeMapper, i, uuidFactory));
   }
 
   private void persistUpdatedIssues(IssueStatistics statistics, List<DefaultIssue> updatedIssues, IssueMapper mapper, IssueChangeMapper changeMapper) {
-    if (updatedIssues.isEmpty()) {
-      return;
-    }
-
     long now = system2.now();
     updatedIssues.forEach(i -> {
       IssueDto dto = IssueDto.toDtoForUpdate(i, now);
       mapper.updateIfBeforeSelectedDate(dto);
-      statistics.updates++;
+      statistics.updates.incrementAndGet();
     });
 
     // retrieve those of the updatedIssues which have not been updated and apply conflictResolver on them
@@ -139,7 +241,7 @@ public class PersistIssuesStep implements ComputationStep {
         .forEach(dbIssue -> {
           DefaultIssue updatedIssue = issuesByKeys.get(dbIssue.getKey());
           conflictResolver.resolve(updatedIssue, dbIssue, mapper);
-          statistics.merged++;
+          statistics.merged.incrementAndGet();
         });
     }
 
@@ -156,16 +258,42 @@ public class PersistIssuesStep implements ComputationStep {
     return "Persist issues";
   }
 
+  private static class IssueBatch {
+    private final boolean added;
+    private final List<DefaultIssue> issues;
+    // rule uuids of added issues, in the same order as issues
+    private final List<String> ruleUuids;
+
+    private IssueBatch(boolean added, int expectedSize) {
+      this.added = added;
+      this.issues = new ArrayList<>(expectedSize);
+      this.ruleUuids = added ? new ArrayList<>(expectedSize) : null;
+    }
+
+    private void add(DefaultIssue issue, @Nullable String ruleUuid) {
+      issues.add(issue);
+      if (added) {
+        ruleUuids.add(ruleUuid);
+      }
+    }
+
+    private int size() {
+      return issues.size();
+    }
+  }
+
   private static class IssueStatistics {
-    private int inserts = 0;
-    private int updates = 0;
-    private int merged = 0;
+    private final AtomicInteger inserts = new AtomicInteger();
+    private final AtomicInteger updates = new AtomicInteger();
+    private final AtomicInteger merged = new AtomicInteger();
 
-    private void dumpTo(ComputationStep.Context context) {
+    private void dumpTo(ComputationStep.Context context, long durationMs) {
+      long rows = (long) inserts.get() + updates.get();
       context.getStatistics()
-        .add("inserts", String.valueOf(inserts))
-        .add("updates", String.valueOf(updates))
-        .add("merged", String.valueOf(merged));
+        .add("inserts", String.valueOf(inserts.get()))
+        .add("updates", String.valueOf(updates.get()))
+        .add("merged", String.valueOf(merged.get()))
+        .add("rowsPerSecond", String.valueOf(rows * 1_000 / Math.max(1, durationMs)));
     }
   }
 }
@@ -82,6 +82,7 @@ public class QualityGateEventsStep implements ComputationStep {
           executeForProject(project);
         }
       }).visit(treeRootHolder.getRoot());
+    measureRepository.addBaseMeasureStatistics(context.getStatistics());
   }
 
   private void executeForProject(Component project) {
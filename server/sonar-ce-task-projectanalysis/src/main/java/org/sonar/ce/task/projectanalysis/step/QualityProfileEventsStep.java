@@ -84,6 +84,7 @@ public class QualityProfileEventsStep implements ComputationStep {
           executeForProject(tree);
         }
       }).visit(treeRootHolder.getRoot());
+    measureRepository.addBaseMeasureStatistics(context.getStatistics());
   }
 
   private void executeForProject(Component projectComponent) {
@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.step;
+
+import org.sonar.ce.task.step.DataAwareComputationStep;
+
+/**
+ * Keys of the data declared by the {@link DataAwareComputationStep} of the project analysis.
+ */
+public final class StepDataKeys {
+  /**
+   * The scanner report, read only once extracted.
+   */
+  public static final String REPORT = "report";
+  public static final String DUPLICATIONS = "duplications";
+  /**
+   * New lines of files. They are computed on first access and cached by a repository which is not thread-safe, so
+   * steps which access them must declare them as written, not only as read.
+   */
+  public static final String NEW_LINES = "newLines";
+  public static final String SOURCE_LINES = "sourceLines";
+  /**
+   * SCM information of files. Same as {@link #NEW_LINES}, it is computed on first access and must be declared as
+   * written by the steps which access it.
+   */
+  public static final String SCM_INFO = "scmInfo";
+  /**
+   * Measures of user managed metrics, copied from DB.
+   */
+  public static final String CUSTOM_MEASURES = "measures:custom";
+  public static final String DB_LIVE_MEASURES = "db:live_measures";
+  public static final String DB_FILE_SOURCES = "db:file_sources";
+  public static final String DB_DUPLICATIONS_INDEX = "db:duplications_index";
+
+  private StepDataKeys() {
+    // only constants
+  }
+
+  /**
+   * Raw measures of the specified metric in {@link org.sonar.ce.task.projectanalysis.measure.MeasureRepository}.
+   */
+  public static String measure(String metricKey) {
+    return "measures:" + metricKey;
+  }
+
+  public static String[] measures(String... metricKeys) {
+    String[] res = new String[metricKeys.length];
+    for (int i = 0; i < metricKeys.length; i++) {
+      res[i] = measure(metricKeys[i]);
+    }
+    return res;
+  }
+}
@@ -19,19 +19,29 @@
  */
 package org.sonar.ce.task.projectanalysis.util.cache;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableSet;
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Serializable;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.CheckForNull;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.utils.Duration;
@@ -45,12 +55,20 @@ import org.sonar.db.protobuf.DbIssues;
 
 import static java.util.Optional.ofNullable;
 
+/**
+ * Issues are stored in blocks of about {@link #BLOCK_SIZE} bytes of length-delimited protobuf messages, compressed
+ * with LZ4.
+ * <p>
+ * The offset and size of blocks are kept in memory, the file being private to the task.
+ */
 public class ProtobufIssueDiskCache implements DiskCache<DefaultIssue> {
   private static final String TAGS_SEPARATOR = ",";
   private static final Splitter TAGS_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+  static final int BLOCK_SIZE = 64 * 1024;
 
   private final File file;
   private final System2 system2;
+  private final List<Block> blocks = new ArrayList<>();
 
   public ProtobufIssueDiskCache(File file, System2 system2) {
     this.file = file;
@@ -73,22 +91,13 @@ public class ProtobufIssueDiskCache implements DiskCache<DefaultIssue> {
 
   @Override
   public CloseableIterator<DefaultIssue> traverse() {
-    CloseableIterator<IssueCache.Issue> protoIterator = Protobuf.readStream(file, IssueCache.Issue.parser());
-    return new CloseableIterator<DefaultIssue>() {
-      @CheckForNull
-      @Override
-      protected DefaultIssue doNext() {
-        if (protoIterator.hasNext()) {
-          return toDefaultIssue(protoIterator.next());
-        }
-        return null;
-      }
+    return new BlocksIterator(getBlocks());
+  }
 
-      @Override
-      protected void doClose() {
-        protoIterator.close();
-      }
-    };
+  private List<Block> getBlocks() {
+    synchronized (blocks) {
+      return new ArrayList<>(blocks);
+    }
   }
 
   private static DefaultIssue toDefaultIssue(IssueCache.Issue next) {
@@ -263,24 +272,131 @@ public class ProtobufIssueDiskCache implements DiskCache<DefaultIssue> {
     return builder.build();
   }
 
+  private static final class Block {
+    private final long offset;
+    private final int size;
+
+    private Block(long offset, int size) {
+      this.offset = offset;
+      this.size = size;
+    }
+  }
+
   private class ProtoCacheAppender implements CacheAppender<DefaultIssue> {
     private final OutputStream out;
     private final IssueCache.Issue.Builder builder;
+    private final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream(BLOCK_SIZE);
+    private long offset;
+    private boolean blockIsEmpty = true;
 
     private ProtoCacheAppender() throws FileNotFoundException {
+      this.offset = file.length();
       this.out = new BufferedOutputStream(new FileOutputStream(file, true));
       this.builder = IssueCache.Issue.newBuilder();
     }
 
     @Override
     public CacheAppender append(DefaultIssue object) {
-      Protobuf.writeStream(Collections.singleton(toProto(builder, object)), out);
+      if (blockBuffer.size() >= BLOCK_SIZE) {
+        flushBlock();
+      }
+      blockIsEmpty = false;
+      try {
+        toProto(builder, object).writeDelimitedTo(blockBuffer);
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to serialize issue", e);
+      }
       return this;
     }
 
+    private void flushBlock() {
+      try {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(blockBuffer.size() / 2);
+        try (LZ4BlockOutputStream compressedOut = new LZ4BlockOutputStream(compressed)) {
+          blockBuffer.writeTo(compressedOut);
+        }
+        compressed.writeTo(out);
+        synchronized (blocks) {
+          blocks.add(new Block(offset, compressed.size()));
+        }
+        offset += compressed.size();
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to write issues to " + file, e);
+      }
+      blockBuffer.reset();
+      blockIsEmpty = true;
+    }
+
     @Override
     public void close() {
-      system2.close(out);
+      try {
+        if (!blockIsEmpty) {
+          flushBlock();
+        }
+      } finally {
+        system2.close(out);
+      }
+    }
+  }
+
+  /**
+   * Reads the issues of the specified blocks, which must be ordered by offset. Compressed data of a block is read
+   * only when the issues of the previous block have been read.
+   */
+  private class BlocksIterator extends CloseableIterator<DefaultIssue> {
+    private final Iterator<Block> blockIterator;
+    @CheckForNull
+    private DataInputStream input;
+    private long position = 0;
+    @CheckForNull
+    private CloseableIterator<IssueCache.Issue> blockIssues;
+
+    private BlocksIterator(List<Block> blocks) {
+      this.blockIterator = blocks.iterator();
+    }
+
+    @CheckForNull
+    @Override
+    protected DefaultIssue doNext() {
+      while (blockIssues == null || !blockIssues.hasNext()) {
+        if (!blockIterator.hasNext()) {
+          return null;
+        }
+        blockIssues = readBlock(blockIterator.next());
+      }
+      return toDefaultIssue(blockIssues.next());
+    }
+
+    private CloseableIterator<IssueCache.Issue> readBlock(Block block) {
+      try {
+        if (input == null) {
+          input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        }
+        skipTo(block.offset);
+        byte[] compressed = new byte[block.size];
+        input.readFully(compressed);
+        position += block.size;
+        return Protobuf.readStream(new LZ4BlockInputStream(new ByteArrayInputStream(compressed)), IssueCache.Issue.parser());
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to read issues from " + file, e);
+      }
+    }
+
+    private void skipTo(long offset) throws IOException {
+      while (position < offset) {
+        long skipped = input.skip(offset - position);
+        if (skipped <= 0) {
+          throw new EOFException();
+        }
+        position += skipped;
+      }
+    }
+
+    @Override
+    protected void doClose() {
+      if (input != null) {
+        system2.close(input);
+      }
     }
   }
 }
@@ -29,6 +29,7 @@ import org.junit.Test;
 import org.sonar.api.impl.utils.JUnitTempFolder;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportContainer;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
 import static com.google.common.collect.ImmutableList.of;
@@ -51,12 +52,13 @@ public class BatchReportReaderImplTest {
   @Rule
   public JUnitTempFolder tempFolder = new JUnitTempFolder();
 
+  private BatchReportDirectoryHolder holder;
   private ScannerReportWriter writer;
   private BatchReportReaderImpl underTest;
 
   @Before
   public void setUp() {
-    BatchReportDirectoryHolder holder = new ImmutableBatchReportDirectoryHolder(tempFolder.newDir());
+    holder = new ImmutableBatchReportDirectoryHolder(tempFolder.newDir());
     underTest = new BatchReportReaderImpl(holder);
     writer = new ScannerReportWriter(holder.getDirectory());
   }
@@ -100,6 +102,7 @@ public class BatchReportReaderImplTest {
   @Test
   public void verify_readComponentMeasures_returns_measures() {
     writer.appendComponentMeasure(COMPONENT_REF, MEASURE);
+    writer.flush();
 
     try (CloseableIterator<ScannerReport.Measure> measures = underTest.readComponentMeasures(COMPONENT_REF)) {
       assertThat(measures.next()).isEqualTo(MEASURE);
@@ -110,6 +113,7 @@ public class BatchReportReaderImplTest {
   @Test
   public void readComponentMeasures_is_not_cached() {
     writer.appendComponentMeasure(COMPONENT_REF, MEASURE);
+    writer.flush();
 
     assertThat(underTest.readComponentMeasures(COMPONENT_REF)).isNotSameAs(underTest.readComponentMeasures(COMPONENT_REF));
   }
@@ -295,4 +299,26 @@ public class BatchReportReaderImplTest {
     assertThat(res).toIterable().containsExactlyElementsOf(warnings);
     res.close();
   }
+
+  @Test
+  public void read_report_container_in_place() throws IOException {
+    File reportDir = tempFolder.newDir();
+    ScannerReportWriter containerWriter = new ScannerReportWriter(reportDir);
+    ScannerReport.Metadata metadata = ScannerReport.Metadata.newBuilder().setProjectKey("foo").build();
+    containerWriter.writeMetadata(metadata);
+    containerWriter.writeComponentIssues(COMPONENT_REF, of(ISSUE));
+    FileUtils.writeLines(containerWriter.getSourceFile(COMPONENT_REF), of("1", "2"));
+    FileUtils.write(containerWriter.getFileStructure().analysisLog(), "log1\nlog2");
+    ScannerReportContainer.write(reportDir, new File(holder.getDirectory(), ScannerReportContainer.FILENAME));
+
+    assertThat(underTest.readMetadata()).isEqualTo(metadata);
+    assertThat(underTest.readComponentIssues(COMPONENT_REF)).toIterable().containsExactly(ISSUE);
+    assertThat(underTest.readComponentDuplications(COMPONENT_REF)).isExhausted();
+    assertThat(underTest.readFileSource(COMPONENT_REF).get()).toIterable().containsExactly("1", "2");
+    assertThat(underTest.readScannerLogs()).toIterable().containsExactly("log1", "log2");
+    // nothing is extracted next to the container
+    assertThat(holder.getDirectory().list()).containsOnly(ScannerReportContainer.FILENAME);
+
+    underTest.stop();
+  }
 }
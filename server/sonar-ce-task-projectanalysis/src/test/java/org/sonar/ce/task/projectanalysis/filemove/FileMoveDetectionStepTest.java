@@ -525,6 +525,34 @@ public class FileMoveDetectionStepTest {
     verifyStatistics(context, 2, 2, 2, 0);
   }
 
+  @Test
+  public void execute_detects_moves_of_large_rename_set() {
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    int fileCount = 110;
+    assertThat(fileCount * fileCount).isGreaterThanOrEqualTo(FileMoveDetectionStep.MIN_PAIRS_FOR_CANDIDATE_INDEX);
+    Component[] removedFiles = new Component[fileCount];
+    Component[] addedFiles = new Component[fileCount];
+    for (int i = 0; i < fileCount; i++) {
+      String filePrefix = "file" + i;
+      String[] content = IntStream.range(0, 30).mapToObj(line -> filePrefix + "_line" + line).toArray(String[]::new);
+      removedFiles[i] = fileComponent(1_000 + i, null);
+      insertFiles(removedFiles[i].getUuid());
+      insertContentOfFileInDb(removedFiles[i].getUuid(), content);
+      content[i % content.length] = "changed";
+      addedFiles[i] = fileComponent(2_000 + i, content);
+    }
+    setFilesInReport(addedFiles);
+
+    TestComputationStepContext context = new TestComputationStepContext();
+    underTest.execute(context);
+
+    for (int i = 0; i < fileCount; i++) {
+      assertThat(movedFilesRepository.getOriginalFile(addedFiles[i]).get().getUuid()).isEqualTo(removedFiles[i].getUuid());
+    }
+    assertThat(addedFileRepository.getComponents()).isEmpty();
+    verifyStatistics(context, fileCount, fileCount, fileCount, fileCount);
+  }
+
   /**
    * Creates an array of {@code numberOfElements} int values as String, starting with zero.
    */
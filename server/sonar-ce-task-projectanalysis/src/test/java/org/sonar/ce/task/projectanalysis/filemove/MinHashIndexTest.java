@@ -0,0 +1,183 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.ce.task.projectanalysis.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
+
+public class MinHashIndexTest {
+
+  private static final List<String> COMMON_LINES = asList("", "}", "{", "return;", "} else {");
+
+  private final Random random = new Random(4_201L);
+  private final SourceSimilarityImpl sourceSimilarity = new SourceSimilarityImpl();
+
+  @Test
+  public void identical_files_are_candidates() {
+    List<String> file = randomFile(50);
+    MinHashIndex underTest = new MinHashIndex(asList(randomFile(50), file, randomFile(50)));
+
+    assertThat(underTest.candidates(new ArrayList<>(file)).get(1)).isTrue();
+  }
+
+  @Test
+  public void files_without_common_lines_are_not_candidates() {
+    MinHashIndex underTest = new MinHashIndex(asList(lines("a", 40), lines("b", 40)));
+
+    assertThat(underTest.candidates(lines("c", 40)).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void empty_files_are_candidates_only_to_each_other() {
+    MinHashIndex underTest = new MinHashIndex(asList(emptyList(), singletonList("a")));
+
+    assertThat(underTest.candidates(emptyList()).stream().toArray()).containsExactly(0);
+  }
+
+  @Test
+  public void order_of_lines_does_not_change_candidates() {
+    List<String> file = randomFile(30);
+    List<String> reversed = new ArrayList<>(file);
+    Collections.reverse(reversed);
+
+    assertThat(MinHashIndex.signature(reversed)).isEqualTo(MinHashIndex.signature(file));
+  }
+
+  @Test
+  public void files_made_mostly_of_repeated_lines_are_candidates() {
+    List<List<String>> removedFiles = new ArrayList<>();
+    List<List<String>> addedFiles = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      List<String> removedFile = new ArrayList<>();
+      List<String> addedFile = new ArrayList<>();
+      for (int line = 0; line < 60; line++) {
+        if (line % 10 == 0) {
+          removedFile.add(Long.toHexString(random.nextLong()));
+          addedFile.add(Long.toHexString(random.nextLong()));
+        } else {
+          String commonLine = COMMON_LINES.get(random.nextInt(COMMON_LINES.size()));
+          removedFile.add(commonLine);
+          addedFile.add(commonLine);
+        }
+      }
+      removedFiles.add(removedFile);
+      addedFiles.add(addedFile);
+    }
+
+    MinHashIndex underTest = new MinHashIndex(addedFiles);
+
+    for (int i = 0; i < removedFiles.size(); i++) {
+      assertThat(sourceSimilarity.score(removedFiles.get(i), addedFiles.get(i))).isGreaterThanOrEqualTo(MIN_REQUIRED_SCORE);
+      assertThat(underTest.candidates(removedFiles.get(i)).get(i)).isTrue();
+    }
+  }
+
+  /**
+   * Synthetic rename set: every pair of files with a score high enough to be a move must be a candidate, so that the
+   * index does not change the moves that are detected.
+   */
+  @Test
+  public void all_pairs_with_min_required_score_are_candidates() {
+    int fileCount = 80;
+    List<List<String>> removedFiles = IntStream.range(0, fileCount)
+      .mapToObj(i -> randomFile(40 + random.nextInt(80)))
+      .collect(Collectors.toList());
+    List<List<String>> addedFiles = removedFiles.stream()
+      .map(file -> edit(file, random.nextInt(file.size() / 4)))
+      .collect(Collectors.toList());
+    // a few added files are the copy of another one with a few changes, so that a removed file has several good matches
+    addedFiles.set(0, edit(addedFiles.get(1), 2));
+
+    MinHashIndex underTest = new MinHashIndex(addedFiles);
+
+    int expectedPairs = 0;
+    for (List<String> removedFile : removedFiles) {
+      BitSet candidates = underTest.candidates(removedFile);
+      for (int i = 0; i < addedFiles.size(); i++) {
+        if (sourceSimilarity.score(removedFile, addedFiles.get(i)) >= MIN_REQUIRED_SCORE) {
+          expectedPairs++;
+          assertThat(candidates.get(i)).isTrue();
+        }
+      }
+    }
+    assertThat(expectedPairs).isGreaterThan(fileCount / 2);
+  }
+
+  @Test
+  public void few_pairs_of_unrelated_files_are_candidates() {
+    List<List<String>> addedFiles = IntStream.range(0, 200).mapToObj(i -> randomFile(60)).collect(Collectors.toList());
+    MinHashIndex underTest = new MinHashIndex(addedFiles);
+
+    int candidatePairs = IntStream.range(0, 200)
+      .map(i -> underTest.candidates(randomFile(60)).cardinality())
+      .sum();
+
+    assertThat(candidatePairs).isLessThan(200 * 200 / 10);
+  }
+
+  private List<String> randomFile(int lineCount) {
+    List<String> lines = new ArrayList<>(lineCount);
+    for (int i = 0; i < lineCount; i++) {
+      if (random.nextInt(4) == 0) {
+        lines.add(COMMON_LINES.get(random.nextInt(COMMON_LINES.size())));
+      } else {
+        lines.add(Long.toHexString(random.nextLong()));
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Copy of {@code file} where {@code changes} lines are either replaced, removed or added.
+   */
+  private List<String> edit(List<String> file, int changes) {
+    List<String> res = new ArrayList<>(file);
+    for (int i = 0; i < changes; i++) {
+      int index = random.nextInt(res.size());
+      switch (random.nextInt(3)) {
+        case 0:
+          res.set(index, Long.toHexString(random.nextLong()));
+          break;
+        case 1:
+          res.remove(index);
+          break;
+        default:
+          res.add(index, Long.toHexString(random.nextLong()));
+      }
+    }
+    return res;
+  }
+
+  private static List<String> lines(String prefix, int lineCount) {
+    return IntStream.range(0, lineCount).mapToObj(i -> prefix + i).collect(Collectors.toList());
+  }
+}
@@ -19,7 +19,9 @@
  */
 package org.sonar.ce.task.projectanalysis.filemove;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.junit.Rule;
@@ -129,4 +131,47 @@ public class SourceSimilarityImplTest {
   public void two_empty_lists_are_not_considered_as_equal() {
     assertThat(underTest.score(emptyList(), emptyList())).isEqualTo(0);
   }
+
+  @Test
+  public void score_is_the_same_as_with_levenshtein_distance_computed_on_full_matrix() {
+    Random random = new Random(1_234L);
+    for (int i = 0; i < 500; i++) {
+      int distinctLines = 1 + random.nextInt(20);
+      List<String> left = randomLines(random, random.nextInt(200), distinctLines);
+      List<String> right = random.nextBoolean() ? randomLines(random, random.nextInt(200), distinctLines) : modify(random, left, distinctLines);
+
+      int expectedScore = left.isEmpty() && right.isEmpty() ? 0
+        : (int) (100 * (1.0 - ((double) levenshteinDistance(left, right)) / (Math.max(left.size(), right.size()))));
+      assertThat(underTest.score(left, right)).describedAs("%s %s", left, right).isEqualTo(expectedScore);
+    }
+  }
+
+  private static List<String> randomLines(Random random, int lineCount, int distinctLines) {
+    return IntStream.range(0, lineCount).mapToObj(i -> String.valueOf(random.nextInt(distinctLines))).collect(Collectors.toList());
+  }
+
+  private static List<String> modify(Random random, List<String> lines, int distinctLines) {
+    List<String> res = new ArrayList<>(lines);
+    for (int i = random.nextInt(10); i > 0 && !res.isEmpty(); i--) {
+      res.set(random.nextInt(res.size()), String.valueOf(random.nextInt(distinctLines)));
+    }
+    return res;
+  }
+
+  private static int levenshteinDistance(List<String> left, List<String> right) {
+    int[][] distances = new int[left.size() + 1][right.size() + 1];
+    for (int i = 0; i <= left.size(); i++) {
+      distances[i][0] = i;
+    }
+    for (int j = 0; j <= right.size(); j++) {
+      distances[0][j] = j;
+    }
+    for (int i = 1; i <= left.size(); i++) {
+      for (int j = 1; j <= right.size(); j++) {
+        int match = left.get(i - 1).equals(right.get(j - 1)) ? 0 : 1;
+        distances[i][j] = Math.min(Math.min(distances[i - 1][j] + 1, distances[i][j - 1] + 1), distances[i - 1][j - 1] + match);
+      }
+    }
+    return distances[left.size()][right.size()];
+  }
 }
@@ -0,0 +1,179 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.util.Optional;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.ReportComponent;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.ce.task.projectanalysis.filemove.MovedFilesRepository;
+import org.sonar.db.issue.IssueDto;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BaseIssuesPrefetcherTest {
+  private static final int FILE_COUNT = 10;
+
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
+  private ComponentIssuesLoader issuesLoader = mock(ComponentIssuesLoader.class);
+  private AnalysisMetadataHolder analysisMetadataHolder = mock(AnalysisMetadataHolder.class);
+  private MapSettings settings = new MapSettings();
+
+  private BaseIssuesPrefetcher underTest;
+
+  @Before
+  public void setUp() {
+    ReportComponent.Builder project = ReportComponent.builder(Component.Type.PROJECT, 1);
+    for (int i = 0; i < FILE_COUNT; i++) {
+      project.addChildren(ReportComponent.builder(Component.Type.FILE, 2 + i).setUuid(fileUuid(i)).build());
+    }
+    treeRootHolder.setRoot(project.build());
+    when(movedFilesRepository.getOriginalFile(any(Component.class))).thenReturn(Optional.empty());
+    when(issuesLoader.selectOpenIssues(anyString())).thenAnswer(invocation -> singletonList(new IssueDto().setKee(invocation.getArgument(0))));
+  }
+
+  @After
+  public void tearDown() {
+    if (underTest != null) {
+      underTest.stop();
+    }
+  }
+
+  @Test
+  public void does_not_prefetch_issues_by_default() {
+    underTest = newPrefetcher();
+
+    underTest.beforeFile();
+
+    assertThat(underTest.takeOpenIssues(fileUuid(0))).isEmpty();
+    verify(issuesLoader, never()).selectOpenIssues(anyString());
+  }
+
+  @Test
+  public void does_not_prefetch_issues_on_first_analysis() {
+    settings.setProperty(BaseIssuesPrefetcher.PARALLELISM_PROPERTY, 2);
+    when(analysisMetadataHolder.isFirstAnalysis()).thenReturn(true);
+    underTest = newPrefetcher();
+
+    underTest.beforeFile();
+
+    assertThat(underTest.takeOpenIssues(fileUuid(0))).isEmpty();
+    verify(issuesLoader, never()).selectOpenIssues(anyString());
+  }
+
+  @Test
+  public void prefetch_issues_of_files_ahead_of_visited_file() {
+    settings.setProperty(BaseIssuesPrefetcher.PARALLELISM_PROPERTY, 2);
+    underTest = newPrefetcher();
+
+    underTest.beforeFile();
+
+    // 4 files per thread
+    for (int i = 0; i < 8; i++) {
+      verify(issuesLoader, timeout(5_000)).selectOpenIssues(fileUuid(i));
+    }
+    verify(issuesLoader, never()).selectOpenIssues(fileUuid(8));
+    assertThat(underTest.takeOpenIssues(fileUuid(0)).get()).extracting(IssueDto::getKee).containsOnly(fileUuid(0));
+    assertThat(underTest.takeOpenIssues(fileUuid(0))).isEmpty();
+
+    underTest.beforeFile();
+
+    verify(issuesLoader, timeout(5_000)).selectOpenIssues(fileUuid(8));
+    verify(issuesLoader, never()).selectOpenIssues(fileUuid(9));
+    assertThat(underTest.takeOpenIssues(fileUuid(1)).get()).extracting(IssueDto::getKee).containsOnly(fileUuid(1));
+  }
+
+  @Test
+  public void prefetched_issues_of_previous_file_are_dropped_if_not_taken() {
+    settings.setProperty(BaseIssuesPrefetcher.PARALLELISM_PROPERTY, 2);
+    underTest = newPrefetcher();
+
+    underTest.beforeFile();
+    underTest.beforeFile();
+
+    assertThat(underTest.takeOpenIssues(fileUuid(0))).isEmpty();
+    assertThat(underTest.takeOpenIssues(fileUuid(1))).isPresent();
+  }
+
+  @Test
+  public void prefetch_issues_of_original_file_of_moved_file() {
+    settings.setProperty(BaseIssuesPrefetcher.PARALLELISM_PROPERTY, 2);
+    when(movedFilesRepository.getOriginalFile(treeRootHolder.getComponentByRef(2)))
+      .thenReturn(Optional.of(new MovedFilesRepository.OriginalFile("original uuid", "original key")));
+    underTest = newPrefetcher();
+
+    underTest.beforeFile();
+
+    assertThat(underTest.takeOpenIssues("original uuid")).isPresent();
+    assertThat(underTest.takeOpenIssues(fileUuid(0))).isEmpty();
+  }
+
+  @Test
+  public void takeOpenIssues_fails_if_prefetch_failed() {
+    settings.setProperty(BaseIssuesPrefetcher.PARALLELISM_PROPERTY, 2);
+    when(issuesLoader.selectOpenIssues(fileUuid(0))).thenThrow(new IllegalStateException("DB error"));
+    underTest = newPrefetcher();
+
+    underTest.beforeFile();
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to load issues of component '" + fileUuid(0) + "'");
+
+    underTest.takeOpenIssues(fileUuid(0));
+  }
+
+  @Test
+  public void fail_if_parallelism_is_lower_than_1() {
+    settings.setProperty(BaseIssuesPrefetcher.PARALLELISM_PROPERTY, 0);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.ce.task.issueTrackingParallelism must be >= 1, got 0");
+
+    newPrefetcher();
+  }
+
+  private BaseIssuesPrefetcher newPrefetcher() {
+    return new BaseIssuesPrefetcher(treeRootHolder, movedFilesRepository, issuesLoader, analysisMetadataHolder, settings.asConfig());
+  }
+
+  private static String fileUuid(int index) {
+    return "FILE_" + index;
+  }
+}
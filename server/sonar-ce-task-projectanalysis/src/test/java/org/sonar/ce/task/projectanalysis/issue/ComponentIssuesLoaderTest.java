@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Random;
 import java.util.stream.IntStream;
 import javax.annotation.Nullable;
+import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -39,6 +40,7 @@ import org.sonar.api.config.Configuration;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.utils.System2;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.FieldDiffs;
 import org.sonar.db.DbClient;
@@ -71,8 +73,14 @@ public class ComponentIssuesLoaderTest {
   public ExpectedException expectedException = ExpectedException.none();
 
   private DbClient dbClient = db.getDbClient();
+  private final TaskDbSessions taskDbSessions = new TaskDbSessions(dbClient);
   private System2 system2 = mock(System2.class);
 
+  @After
+  public void tearDown() {
+    taskDbSessions.stop();
+  }
+
   @Test
   public void loadClosedIssues_returns_single_DefaultIssue_by_issue_based_on_first_row() {
     OrganizationDto organization = db.organizations().insert();
@@ -218,7 +226,7 @@ public class ComponentIssuesLoaderTest {
     DbClient dbClient = mock(DbClient.class);
     Configuration configuration = newConfiguration("0");
     String componentUuid = randomAlphabetic(15);
-    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient,
+    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient, new TaskDbSessions(dbClient),
       null /* not used in loadClosedIssues */, null /* not used in loadClosedIssues */, configuration, system2);
 
     assertThat(underTest.loadClosedIssues(componentUuid)).isEmpty();
@@ -229,7 +237,7 @@ public class ComponentIssuesLoaderTest {
   @Test
   public void loadLatestDiffChangesForReopeningOfClosedIssues_does_not_query_DB_if_issue_list_is_empty() {
     DbClient dbClient = mock(DbClient.class);
-    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient,
+    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient, new TaskDbSessions(dbClient),
       null /* not used in method */, null /* not used in method */, newConfiguration("0"), null /* not used by method */);
 
     underTest.loadLatestDiffChangesForReopeningOfClosedIssues(emptyList());
@@ -247,7 +255,7 @@ public class ComponentIssuesLoaderTest {
     db.issues().insertChange(issue, t -> t.setChangeData(randomDiffWith(statusOrResolutionFieldName, "val1")).setIssueChangeCreationDate(5));
     db.issues().insertChange(issue, t -> t.setChangeData(randomDiffWith(statusOrResolutionFieldName, "val2")).setIssueChangeCreationDate(20));
     db.issues().insertChange(issue, t -> t.setChangeData(randomDiffWith(statusOrResolutionFieldName, "val3")).setIssueChangeCreationDate(13));
-    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient,
+    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient, taskDbSessions,
       null /* not used in method */, null /* not used in method */, newConfiguration("0"), null /* not used by method */);
     DefaultIssue defaultIssue = new DefaultIssue().setKey(issue.getKey());
 
@@ -271,7 +279,7 @@ public class ComponentIssuesLoaderTest {
     db.issues().insertChange(issue, t -> t.setChangeData(randomDiffWith("status", "valStatus2")).setIssueChangeCreationDate(19));
     db.issues().insertChange(issue, t -> t.setChangeData(randomDiffWith("status", "valStatus3", "resolution", "valRes3")).setIssueChangeCreationDate(20));
     db.issues().insertChange(issue, t -> t.setChangeData(randomDiffWith("resolution", "valRes4")).setIssueChangeCreationDate(13));
-    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient,
+    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient, taskDbSessions,
       null /* not used in method */, null /* not used in method */, newConfiguration("0"), null /* not used by method */);
     DefaultIssue defaultIssue = new DefaultIssue().setKey(issue.getKey());
 
@@ -299,7 +307,7 @@ public class ComponentIssuesLoaderTest {
     db.issues().insertChange(issue, t -> t.setChangeData(randomDiffWith("status", "valStatus2", "resolution", "valRes2")).setIssueChangeCreationDate(19));
     db.issues().insertChange(issue, t -> t.setChangeData(randomDiffWith("status", "valStatus3")).setIssueChangeCreationDate(20));
     db.issues().insertChange(issue, t -> t.setChangeData(randomDiffWith("resolution", "valRes4")).setIssueChangeCreationDate(13));
-    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient,
+    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient, taskDbSessions,
       null /* not used in method */, null /* not used in method */, newConfiguration("0"), null /* not used by method */);
     DefaultIssue defaultIssue = new DefaultIssue().setKey(issue.getKey());
 
@@ -379,7 +387,7 @@ public class ComponentIssuesLoaderTest {
   }
 
   private ComponentIssuesLoader newComponentIssuesLoader(Configuration configuration) {
-    return new ComponentIssuesLoader(dbClient,
+    return new ComponentIssuesLoader(dbClient, taskDbSessions,
       null /* not used in loadClosedIssues */, null /* not used in loadClosedIssues */, configuration, system2);
   }
 
@@ -22,11 +22,13 @@ package org.sonar.ce.task.projectanalysis.issue;
 import com.google.common.collect.ImmutableMap;
 import java.util.Collections;
 import java.util.Date;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolderRule;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.ReportComponent;
@@ -63,11 +65,12 @@ public class ProjectTrackerBaseLazyInputTest {
   public RuleRepositoryRule ruleRepositoryRule = new RuleRepositoryRule();
 
   private DbClient dbClient = dbTester.getDbClient();
+  private final TaskDbSessions taskDbSessions = new TaskDbSessions(dbClient);
   private ProjectTrackerBaseLazyInput underTest;
   private RuleDefinitionDto rule;
   private ComponentDto rootProjectDto;
-  private ComponentIssuesLoader issuesLoader = new ComponentIssuesLoader(dbTester.getDbClient(), ruleRepositoryRule, activeRulesHolderRule, new MapSettings().asConfig(),
-    System2.INSTANCE);
+  private ComponentIssuesLoader issuesLoader = new ComponentIssuesLoader(dbTester.getDbClient(), taskDbSessions, ruleRepositoryRule, activeRulesHolderRule,
+    new MapSettings().asConfig(), System2.INSTANCE);
   private ReportModulesPath reportModulesPath;
 
   @Before
@@ -83,6 +86,11 @@ public class ProjectTrackerBaseLazyInputTest {
       reportModulesPath, rootProject);
   }
 
+  @After
+  public void tearDown() {
+    taskDbSessions.stop();
+  }
+
   @Test
   public void return_only_open_project_issues_if_no_modules_and_folders() {
     ComponentDto file = dbTester.components().insertComponent(newFileDto(rootProjectDto));
@@ -24,6 +24,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.Date;
 import javax.annotation.Nullable;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -34,6 +35,7 @@ import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.System2;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolderRule;
 import org.sonar.ce.task.projectanalysis.analysis.Branch;
 import org.sonar.ce.task.projectanalysis.component.SiblingComponentsWithOpenIssues;
@@ -67,6 +69,7 @@ public class SiblingsIssueMergerTest {
 
   @Rule
   public DbTester db = DbTester.create();
+  private final TaskDbSessions taskDbSessions = new TaskDbSessions(db.getDbClient());
 
   @Rule
   public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule()
@@ -105,7 +108,7 @@ public class SiblingsIssueMergerTest {
   public void setUp() {
     MockitoAnnotations.initMocks(this);
     DbClient dbClient = db.getDbClient();
-    ComponentIssuesLoader componentIssuesLoader = new ComponentIssuesLoader(dbClient, null, null, new MapSettings().asConfig(), System2.INSTANCE);
+    ComponentIssuesLoader componentIssuesLoader = new ComponentIssuesLoader(dbClient, taskDbSessions, null, null, new MapSettings().asConfig(), System2.INSTANCE);
     copier = new SiblingsIssueMerger(new SiblingsIssuesLoader(new SiblingComponentsWithOpenIssues(treeRootHolder, metadataHolder, dbClient), dbClient, componentIssuesLoader),
       tracker,
       issueLifecycle);
@@ -127,6 +130,11 @@ public class SiblingsIssueMergerTest {
     metadataHolder.setBranch(branch);
   }
 
+  @After
+  public void tearDown() {
+    taskDbSessions.stop();
+  }
+
   @Test
   public void do_nothing_if_no_match() {
     DefaultIssue i = createIssue("issue1", rule.getKey(), Issue.STATUS_CONFIRMED, null, new Date());
@@ -19,6 +19,7 @@
  */
 package org.sonar.ce.task.projectanalysis.issue;
 
+import java.util.List;
 import java.util.Optional;
 import org.junit.Before;
 import org.junit.Test;
@@ -31,9 +32,11 @@ import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.tracking.Input;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.issue.IssueDto;
 import org.sonar.db.source.FileSourceDao;
 import org.sonar.server.issue.IssueFieldsSetter;
 
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -56,9 +59,10 @@ public class TrackerBaseInputFactoryTest {
   private FileSourceDao fileSourceDao = mock(FileSourceDao.class);
 
   private MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
+  private BaseIssuesPrefetcher baseIssuesPrefetcher = mock(BaseIssuesPrefetcher.class);
 
   private TrackerBaseInputFactory underTest = new TrackerBaseInputFactory(issuesLoader, dbClient, movedFilesRepository, mock(ReportModulesPath.class), analysisMetadataHolder,
-    new IssueFieldsSetter(), mock(ComponentsWithUnprocessedIssues.class));
+    new IssueFieldsSetter(), mock(ComponentsWithUnprocessedIssues.class), baseIssuesPrefetcher);
 
   @Before
   public void setUp() {
@@ -66,6 +70,7 @@ public class TrackerBaseInputFactoryTest {
     when(dbClient.fileSourceDao()).thenReturn(fileSourceDao);
     when(movedFilesRepository.getOriginalFile(any(Component.class)))
       .thenReturn(Optional.empty());
+    when(baseIssuesPrefetcher.takeOpenIssues(any(String.class))).thenReturn(Optional.empty());
   }
 
   @Test
@@ -113,4 +118,16 @@ public class TrackerBaseInputFactoryTest {
     verify(issuesLoader).loadOpenIssues(originalUuid);
     verify(issuesLoader, times(0)).loadOpenIssues(FILE_UUID);
   }
+
+  @Test
+  public void create_returns_Input_which_retrieves_prefetched_issues_of_specified_file_component() {
+    List<IssueDto> issueDtos = singletonList(new IssueDto());
+    List<DefaultIssue> issues = singletonList(new DefaultIssue());
+    when(baseIssuesPrefetcher.takeOpenIssues(FILE_UUID)).thenReturn(Optional.of(issueDtos));
+    when(issuesLoader.toOpenIssues(issueDtos)).thenReturn(issues);
+
+    assertThat(underTest.create(FILE).getIssues()).isSameAs(issues);
+
+    verify(issuesLoader, times(0)).loadOpenIssues(FILE_UUID);
+  }
 }
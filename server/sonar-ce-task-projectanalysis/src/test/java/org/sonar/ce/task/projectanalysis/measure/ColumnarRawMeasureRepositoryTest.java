@@ -23,14 +23,20 @@ import com.google.common.collect.ImmutableList;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.sonar.api.utils.System2;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.ReportComponent;
@@ -49,11 +55,13 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(DataProviderRunner.class)
-public class MapBasedRawMeasureRepositoryTest {
+public class ColumnarRawMeasureRepositoryTest {
   @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
 
   private static final String FILE_COMPONENT_KEY = "file cpt key";
   private static final ReportComponent FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1)
@@ -75,10 +83,11 @@ public class MapBasedRawMeasureRepositoryTest {
   private ReportMetricValidator reportMetricValidator = mock(ReportMetricValidator.class);
 
   private MetricRepository metricRepository = mock(MetricRepository.class);
-  private MapBasedRawMeasureRepository<Integer> underTest = new MapBasedRawMeasureRepository<>(component -> component.getReportAttributes().getRef());
+  private ColumnarRawMeasureRepository<Integer> underTest = new ColumnarRawMeasureRepository<>(component -> component.getReportAttributes().getRef());
   private DbClient mockedDbClient = mock(DbClient.class);
   private BatchReportReader mockBatchReportReader = mock(BatchReportReader.class);
-  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator);
+  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, new TaskDbSessions(mockedDbClient), mockBatchReportReader, metricRepository,
+    reportMetricValidator);
 
   @Before
   public void setUp() {
@@ -206,7 +215,7 @@ public class MapBasedRawMeasureRepositoryTest {
     underTest.add(FILE_COMPONENT, metric1, SOME_MEASURE);
     underTest.update(FILE_COMPONENT, metric1, newMeasure);
 
-    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric1).get()).isSameAs(newMeasure);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric1).get()).isEqualTo(newMeasure);
   }
 
   @Test
@@ -236,10 +245,109 @@ public class MapBasedRawMeasureRepositoryTest {
     Optional<Measure> res = underTest.getRawMeasure(FILE_COMPONENT, metric1);
 
     assertThat(res).isPresent();
-    assertThat(res.get()).isSameAs(SOME_MEASURE);
+    assertThat(res.get()).isEqualTo(SOME_MEASURE);
 
     // make sure we really match on the specified component and metric
     assertThat(underTest.getRawMeasure(OTHER_COMPONENT, metric1)).isNotPresent();
     assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric2)).isNotPresent();
   }
+
+  @Test
+  @UseDataProvider("measures")
+  public void getRawMeasure_returns_a_measure_equal_to_the_added_one(Measure measure) {
+    MetricImpl metric = new MetricImpl("1", "key", "name", metricTypeOf(measure));
+
+    underTest.add(FILE_COMPONENT, metric, measure);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric)).contains(measure);
+  }
+
+  @Test
+  @UseDataProvider("measures")
+  public void getRawMeasure_returns_variation_data_and_QualityGate_status_of_added_measure(Measure measure) {
+    MetricImpl metric = new MetricImpl("1", "key", "name", metricTypeOf(measure));
+    Measure updated = Measure.updatedMeasureBuilder(measure)
+      .setVariation(12.5d)
+      .setQualityGateStatus(new QualityGateStatus(Measure.Level.ERROR, "some text"))
+      .create();
+
+    underTest.add(FILE_COMPONENT, metric, updated);
+
+    Measure res = underTest.getRawMeasure(FILE_COMPONENT, metric).get();
+    assertThat(res).isEqualTo(updated);
+    assertThat(res.getVariation()).isEqualTo(12.5d);
+    assertThat(res.getQualityGateStatus()).isEqualTo(new QualityGateStatus(Measure.Level.ERROR, "some text"));
+  }
+
+  @Test
+  public void getRawMeasure_returns_exact_value_of_long_measure() {
+    MetricImpl metric = new MetricImpl("1", "key", "name", Metric.MetricType.WORK_DUR);
+    long value = (1L << 53) + 1;
+
+    underTest.add(FILE_COMPONENT, metric, Measure.newMeasureBuilder().create(value));
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric).get().getLongValue()).isEqualTo(value);
+
+    underTest.update(FILE_COMPONENT, metric, Measure.newMeasureBuilder().create(Long.MAX_VALUE));
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric).get().getLongValue()).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void getRawMeasures_returns_measures_of_component_by_metric_key() {
+    underTest.add(FILE_COMPONENT, metric1, SOME_MEASURE);
+    underTest.add(FILE_COMPONENT, metric2, Measure.newMeasureBuilder().create("other value"));
+    underTest.add(OTHER_COMPONENT, metric1, Measure.newMeasureBuilder().create("other component"));
+
+    Map<String, Measure> res = underTest.getRawMeasures(FILE_COMPONENT);
+
+    assertThat(res).hasSize(2);
+    assertThat(res.get(METRIC_KEY_1)).isEqualTo(SOME_MEASURE);
+    assertThat(res.get(METRIC_KEY_2).getStringValue()).isEqualTo("other value");
+    assertThat(underTest.getRawMeasures(ReportComponent.builder(Component.Type.FILE, 3).build())).isEmpty();
+  }
+
+  @Test
+  public void add_with_DO_NOT_OVERRIDE_policy_keeps_existing_measure() {
+    underTest.add(FILE_COMPONENT, metric1, SOME_MEASURE);
+    underTest.add(FILE_COMPONENT, metric1, Measure.newMeasureBuilder().create("other value"), ColumnarRawMeasureRepository.OverridePolicy.DO_NOT_OVERRIDE);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric1)).contains(SOME_MEASURE);
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void measures_beyond_heap_budget_are_stored_in_memory_mapped_file() {
+    MetricImpl metric = new MetricImpl("1", "ncloc", "ncloc", Metric.MetricType.INT);
+    int componentCount = MeasureColumns.PAGE_SIZE * 3;
+    try (ColumnarRawMeasureRepository<Integer> spilling = new ColumnarRawMeasureRepository<>(
+      component -> component.getReportAttributes().getRef(), MeasureColumns.PAGE_BYTES, this::newFile)) {
+      for (int i = 0; i < componentCount; i++) {
+        spilling.add(ReportComponent.builder(Component.Type.FILE, i).build(), metric, Measure.newMeasureBuilder().create(i));
+      }
+
+      for (int i = 0; i < componentCount; i++) {
+        assertThat(spilling.getRawMeasure(ReportComponent.builder(Component.Type.FILE, i).build(), metric).get().getIntValue()).isEqualTo(i);
+      }
+      assertThat(spilling.size()).isEqualTo(componentCount);
+    }
+  }
+
+  private Path newFile() {
+    try {
+      return temp.newFile().toPath();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Metric.MetricType metricTypeOf(Measure measure) {
+    if (measure.getValueType() == Measure.ValueType.NO_VALUE) {
+      return Metric.MetricType.INT;
+    }
+    for (Metric.MetricType metricType : Metric.MetricType.values()) {
+      if (metricType.getValueType() == measure.getValueType()) {
+        return metricType;
+      }
+    }
+    throw new IllegalArgumentException("No metric type for " + measure);
+  }
 }
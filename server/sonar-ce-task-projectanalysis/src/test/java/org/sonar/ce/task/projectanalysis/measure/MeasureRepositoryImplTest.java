@@ -28,20 +28,26 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import javax.annotation.Nullable;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.TempFolder;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.ReportComponent;
+import org.sonar.ce.task.projectanalysis.component.ViewsComponent;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
 import org.sonar.ce.task.projectanalysis.metric.MetricImpl;
 import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
 import org.sonar.ce.task.projectanalysis.metric.ReportMetricValidator;
+import org.sonar.ce.task.step.TestComputationStepContext;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
@@ -91,12 +97,14 @@ public class MeasureRepositoryImplTest {
   private ReportMetricValidator reportMetricValidator = mock(ReportMetricValidator.class);
 
   private DbClient dbClient = dbTester.getDbClient();
+  private final TaskDbSessions taskDbSessions = new TaskDbSessions(dbClient);
   private MetricRepository metricRepository = mock(MetricRepository.class);
-  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator);
+  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, taskDbSessions, reportReader, metricRepository, reportMetricValidator);
 
   private DbClient mockedDbClient = mock(DbClient.class);
   private BatchReportReader mockBatchReportReader = mock(BatchReportReader.class);
-  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator);
+  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, new TaskDbSessions(mockedDbClient), mockBatchReportReader, metricRepository,
+    reportMetricValidator);
 
   private DbSession dbSession = dbTester.getSession();
 
@@ -112,6 +120,11 @@ public class MeasureRepositoryImplTest {
     when(metricRepository.getByKey(METRIC_KEY_2)).thenReturn(metric2);
   }
 
+  @After
+  public void tearDown() {
+    taskDbSessions.stop();
+  }
+
   @Test
   public void getBaseMeasure_throws_NPE_and_does_not_open_session_if_component_is_null() {
     try {
@@ -159,6 +172,64 @@ public class MeasureRepositoryImplTest {
     assertThat(underTest.getBaseMeasure(FILE_COMPONENT, metricOf(metric2))).isNotPresent();
   }
 
+  @Test
+  public void getBaseMeasure_reads_DB_only_once_per_component() {
+    ComponentDto project = dbTester.components().insertPrivateProject();
+    SnapshotDto lastAnalysis = dbTester.components().insertSnapshot(project, t -> t.setLast(true));
+    MetricDto metric1 = dbTester.measures().insertMetric(t -> t.setValueType(org.sonar.api.measures.Metric.ValueType.STRING.name()));
+    MetricDto metric2 = dbTester.measures().insertMetric(t -> t.setValueType(org.sonar.api.measures.Metric.ValueType.STRING.name()));
+    dbClient.measureDao().insert(dbSession, createMeasureDto(metric1.getUuid(), FILE_COMPONENT.getUuid(), lastAnalysis.getUuid()));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(FILE_COMPONENT, metricOf(metric1))).isPresent();
+    // measures inserted after the first read are not visible
+    dbClient.measureDao().insert(dbSession, createMeasureDto(metric2.getUuid(), FILE_COMPONENT.getUuid(), lastAnalysis.getUuid()));
+    dbSession.commit();
+    assertThat(underTest.getBaseMeasure(FILE_COMPONENT, metricOf(metric2))).isNotPresent();
+    assertThat(underTest.getBaseMeasure(FILE_COMPONENT, metricOf(metric1))).isPresent();
+
+    TestComputationStepContext context = new TestComputationStepContext();
+    underTest.addBaseMeasureStatistics(context.getStatistics());
+    context.getStatistics()
+      .assertValue("baseMeasureHits", 2L)
+      .assertValue("baseMeasureMisses", 1L);
+  }
+
+  @Test
+  public void getBaseMeasure_loads_measures_of_sub_views_together_with_the_ones_of_their_view() {
+    ComponentDto project = dbTester.components().insertPrivateProject();
+    SnapshotDto lastAnalysis = dbTester.components().insertSnapshot(project, t -> t.setLast(true));
+    MetricDto metric = dbTester.measures().insertMetric(t -> t.setValueType(org.sonar.api.measures.Metric.ValueType.STRING.name()));
+    Component subView = ViewsComponent.builder(Component.Type.SUBVIEW, "SV").setUuid("SV_UUID").build();
+    Component view = ViewsComponent.builder(Component.Type.VIEW, "V").setUuid("V_UUID").addChildren(subView).build();
+    dbClient.measureDao().insert(dbSession, createMeasureDto(metric.getUuid(), view.getUuid(), lastAnalysis.getUuid()));
+    dbClient.measureDao().insert(dbSession, createMeasureDto(metric.getUuid(), subView.getUuid(), lastAnalysis.getUuid()));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(view, metricOf(metric))).isPresent();
+    assertThat(underTest.getBaseMeasure(subView, metricOf(metric))).isPresent();
+
+    TestComputationStepContext context = new TestComputationStepContext();
+    underTest.addBaseMeasureStatistics(context.getStatistics());
+    context.getStatistics()
+      .assertValue("baseMeasureHits", 1L)
+      .assertValue("baseMeasureMisses", 1L);
+  }
+
+  @Test
+  public void addBaseMeasureStatistics_reports_counters_since_last_call() {
+    underTest.getBaseMeasure(FILE_COMPONENT, metric1);
+    underTest.addBaseMeasureStatistics(new TestComputationStepContext().getStatistics());
+
+    underTest.getBaseMeasure(FILE_COMPONENT, metric1);
+    TestComputationStepContext context = new TestComputationStepContext();
+    underTest.addBaseMeasureStatistics(context.getStatistics());
+
+    context.getStatistics()
+      .assertValue("baseMeasureHits", 1L)
+      .assertValue("baseMeasureMisses", 0L);
+  }
+
   private Metric metricOf(MetricDto metricDto) {
     Metric res = mock(Metric.class);
     when(res.getKey()).thenReturn(metricDto.getKey());
@@ -292,7 +363,7 @@ public class MeasureRepositoryImplTest {
     underTest.add(FILE_COMPONENT, metric1, SOME_MEASURE);
     underTest.update(FILE_COMPONENT, metric1, newMeasure);
 
-    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric1).get()).isSameAs(newMeasure);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric1).get()).isEqualTo(newMeasure);
   }
 
   @Test
@@ -322,7 +393,7 @@ public class MeasureRepositoryImplTest {
     Optional<Measure> res = underTest.getRawMeasure(FILE_COMPONENT, metric1);
 
     assertThat(res).isPresent();
-    assertThat(res.get()).isSameAs(SOME_MEASURE);
+    assertThat(res.get()).isEqualTo(SOME_MEASURE);
 
     // make sure we really match on the specified component and metric
     assertThat(underTest.getRawMeasure(OTHER_COMPONENT, metric1)).isNotPresent();
@@ -373,7 +444,7 @@ public class MeasureRepositoryImplTest {
     Optional<Measure> res = underTest.getRawMeasure(FILE_COMPONENT, metric1);
 
     assertThat(res).isPresent();
-    assertThat(res.get()).isSameAs(addedMeasure);
+    assertThat(res.get()).isEqualTo(addedMeasure);
   }
 
   @Test
@@ -405,6 +476,16 @@ public class MeasureRepositoryImplTest {
     assertThat(rawMeasures.get(METRIC_KEY_2)).extracting(Measure::getStringValue).isEqualTo("some value");
   }
 
+  @Test
+  public void fail_if_heap_budget_is_negative() {
+    MapSettings settings = new MapSettings().setProperty("sonar.ce.task.measures.heapBudgetInMb", -1);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.ce.task.measures.heapBudgetInMb must be >= 0, got -1");
+
+    new MeasureRepositoryImpl(dbClient, taskDbSessions, reportReader, metricRepository, reportMetricValidator, settings.asConfig(), mock(TempFolder.class));
+  }
+
   private static MeasureDto createMeasureDto(String metricUuid, String componentUuid, String analysisUuid) {
     return new MeasureDto()
       .setComponentUuid(componentUuid)
@@ -27,6 +27,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.core.config.PurgeConstants;
 import org.sonar.core.config.PurgeProperties;
 import org.sonar.db.DbSession;
+import org.sonar.db.purge.PurgeConfiguration;
 import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeListener;
 import org.sonar.db.purge.PurgeProfiler;
@@ -34,8 +35,10 @@ import org.sonar.db.purge.period.DefaultPeriodCleaner;
 
 import static java.util.Collections.emptySet;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 public class ProjectCleanerTest {
 
@@ -44,11 +47,12 @@ public class ProjectCleanerTest {
   private PurgeProfiler profiler = mock(PurgeProfiler.class);
   private DefaultPeriodCleaner periodCleaner = mock(DefaultPeriodCleaner.class);
   private PurgeListener purgeListener = mock(PurgeListener.class);
+  private PurgeHousekeeping purgeHousekeeping = mock(PurgeHousekeeping.class);
   private MapSettings settings = new MapSettings(new PropertyDefinitions(System2.INSTANCE, PurgeProperties.all()));
 
   @Before
   public void before() {
-    this.underTest = new ProjectCleaner(dao, periodCleaner, profiler, purgeListener);
+    this.underTest = new ProjectCleaner(dao, periodCleaner, profiler, purgeListener, purgeHousekeeping);
   }
 
   @Test
@@ -59,5 +63,16 @@ public class ProjectCleanerTest {
 
     verify(periodCleaner).clean(any(), any(), any());
     verify(dao).purge(any(), any(), any(), any());
+    verifyZeroInteractions(purgeHousekeeping);
+  }
+
+  @Test
+  public void submit_housekeeping_when_it_is_executed_in_background() {
+    settings.setProperty(PurgeConfiguration.HOUSEKEEPING_IN_BACKGROUND_PROPERTY, true);
+
+    underTest.purge(mock(DbSession.class), "root", "project", settings.asConfig(), emptySet());
+
+    verify(dao).purge(any(), argThat(PurgeConfiguration::isHousekeepingInBackground), any(), any());
+    verify(purgeHousekeeping).submit(argThat(conf -> conf.rootUuid().equals("root")));
   }
 }
@@ -0,0 +1,118 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.purge;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import org.junit.After;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.purge.PurgeConfiguration;
+import org.sonar.db.purge.PurgeDao;
+import org.sonar.db.purge.PurgeListener;
+
+import static java.util.Collections.emptySet;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PurgeHousekeepingTest {
+
+  private DbClient dbClient = mock(DbClient.class);
+  private DbSession dbSession = mock(DbSession.class);
+  private PurgeDao purgeDao = mock(PurgeDao.class);
+  private PurgeListener purgeListener = mock(PurgeListener.class);
+  private PurgeHousekeeping underTest = new PurgeHousekeeping(dbClient, purgeListener);
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void execute_housekeeping_in_background() {
+    mockDbClient();
+    PurgeConfiguration conf = newConfiguration("root");
+    underTest.start();
+
+    underTest.submit(conf);
+
+    verify(purgeDao, timeout(5_000)).housekeeping(same(dbSession), same(conf), same(purgeListener), any());
+    verify(dbSession, timeout(5_000)).commit();
+    verify(dbSession, timeout(5_000)).close();
+  }
+
+  @Test
+  public void execute_pending_housekeeping_of_a_component_once_with_the_latest_configuration() throws InterruptedException {
+    mockDbClient();
+    CountDownLatch firstStarted = new CountDownLatch(1);
+    CountDownLatch firstReleased = new CountDownLatch(1);
+    PurgeConfiguration first = newConfiguration("other");
+    doAnswer(invocation -> {
+      firstStarted.countDown();
+      firstReleased.await();
+      return null;
+    }).when(purgeDao).housekeeping(any(), same(first), any(), any());
+    underTest.start();
+
+    underTest.submit(first);
+    firstStarted.await();
+    PurgeConfiguration second = newConfiguration("root");
+    PurgeConfiguration third = newConfiguration("root");
+    underTest.submit(second);
+    underTest.submit(third);
+    firstReleased.countDown();
+
+    verify(purgeDao, timeout(5_000)).housekeeping(any(), same(third), any(), any());
+    verify(purgeDao, never()).housekeeping(any(), same(second), any(), any());
+  }
+
+  @Test
+  public void failure_of_housekeeping_does_not_prevent_next_ones() {
+    mockDbClient();
+    PurgeConfiguration failing = newConfiguration("failing");
+    PurgeConfiguration conf = newConfiguration("root");
+    doThrow(new IllegalStateException("faking failure")).when(purgeDao).housekeeping(any(), same(failing), any(), any());
+    underTest.start();
+
+    underTest.submit(failing);
+    underTest.submit(conf);
+
+    verify(purgeDao, timeout(5_000)).housekeeping(any(), same(conf), any(), any());
+  }
+
+  private void mockDbClient() {
+    when(dbClient.openSession(eq(true))).thenReturn(dbSession);
+    when(dbClient.purgeDao()).thenReturn(purgeDao);
+  }
+
+  private static PurgeConfiguration newConfiguration(String rootUuid) {
+    return new PurgeConfiguration(rootUuid, "project", 30, Optional.empty(), System2.INSTANCE, emptySet(), 1, true);
+  }
+}
@@ -19,8 +19,10 @@
  */
 package org.sonar.ce.task.projectanalysis.source;
 
+import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolderRule;
 import org.sonar.ce.task.projectanalysis.component.Component;
@@ -42,7 +44,13 @@ public class DbLineHashVersionTest {
 
   private AnalysisMetadataHolder analysisMetadataHolder = mock(AnalysisMetadataHolder.class);
   private ReferenceBranchComponentUuids referenceBranchComponentUuids = mock(ReferenceBranchComponentUuids.class);
-  private DbLineHashVersion underTest = new DbLineHashVersion(db.getDbClient(), analysisMetadataHolder, referenceBranchComponentUuids);
+  private final TaskDbSessions taskDbSessions = new TaskDbSessions(db.getDbClient());
+  private DbLineHashVersion underTest = new DbLineHashVersion(db.getDbClient(), taskDbSessions, analysisMetadataHolder, referenceBranchComponentUuids);
+
+  @After
+  public void tearDown() {
+    taskDbSessions.stop();
+  }
 
   @Test
   public void hasLineHashWithSignificantCode_should_return_true() {
@@ -19,10 +19,13 @@
  */
 package org.sonar.ce.task.projectanalysis.source;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.Before;
 import org.junit.Rule;
@@ -34,6 +37,7 @@ import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.FileAttributes;
 import org.sonar.ce.task.projectanalysis.component.ReportComponent;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.ce.task.projectanalysis.step.StepDataKeys;
 import org.sonar.ce.task.projectanalysis.scm.Changeset;
 import org.sonar.ce.task.projectanalysis.step.BaseStepTest;
 import org.sonar.ce.task.step.ComputationStep;
@@ -93,6 +97,12 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     return underTest;
   }
 
+  @Test
+  public void declare_lazily_computed_new_lines_and_scm_info_as_written() {
+    // so that the step is never executed concurrently with another step filling the same caches
+    assertThat(underTest.getWrittenData()).contains(StepDataKeys.NEW_LINES, StepDataKeys.SCM_INFO);
+  }
+
   @Test
   public void persist_sources() {
     List<String> lineHashes = Arrays.asList("137f72c3708c6bd0de00a0e5a69c699b", "e6251bcf1a7dc3ba5e7933e325bbe605");
@@ -370,6 +380,34 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     verify(fileSourceDataWarnings).commitWarnings();
   }
 
+  @Test
+  public void rewrite_sources_persisted_in_legacy_format() throws IOException {
+    DbFileSources.Data sourceData = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder()
+        .setLine(1)
+        .setSource("line")
+        .build())
+      .build();
+    ByteArrayOutputStream legacyData = new ByteArrayOutputStream();
+    try (LZ4BlockOutputStream output = new LZ4BlockOutputStream(legacyData)) {
+      sourceData.writeTo(output);
+    }
+    dbClient.fileSourceDao().insert(dbTester.getSession(), createDto(dto -> dto
+      .setBinaryData(legacyData.toByteArray())
+      .setDataHash(DigestUtils.md5Hex(legacyData.toByteArray()))));
+    dbTester.getSession().commit();
+
+    // only the format of data changes
+    Changeset changeset = Changeset.newChangesetBuilder().setDate(1L).setRevision("rev-1").build();
+    setComputedData(sourceData, Collections.singletonList("lineHash"), "sourceHash", changeset);
+    underTest.execute(new TestComputationStepContext());
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+    assertThat(fileSourceDto.getBinaryData()).isEqualTo(FileSourceDto.encodeSourceData(sourceData));
+    assertThat(fileSourceDto.getSourceData(1, 1)).isEqualTo(sourceData);
+  }
+
   @Test
   public void update_sources_when_src_hash_is_missing() {
     dbClient.fileSourceDao().insert(dbTester.getSession(), createDto(dto -> dto.setSrcHash(null)));
@@ -21,8 +21,10 @@ package org.sonar.ce.task.projectanalysis.source;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 import org.junit.Test;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class SourceLinesDiffFinderTest {
@@ -254,4 +256,24 @@ public class SourceLinesDiffFinderTest {
 
     assertThat(diff).containsExactly(3, 4);
   }
+
+  @Test
+  public void shouldGiveSameResultsWhenReusedForSeveralFiles() {
+    List<String> database = new ArrayList<>();
+    List<String> report = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      database.add("line - " + i);
+      report.add(i % 10 == 0 ? "line - modified" : ("line - " + i));
+    }
+    List<String> smallDatabase = asList("line - 0", "line - 1", "line - 2");
+    List<String> smallReport = asList("line - new", "line - 0", "line - 2");
+
+    SourceLinesDiffFinder underTest = new SourceLinesDiffFinder();
+    int[] diff = underTest.findMatchingLines(database, report);
+    int[] smallDiff = underTest.findMatchingLines(smallDatabase, smallReport);
+
+    assertThat(diff).containsExactly(IntStream.range(0, 100).map(i -> i % 10 == 0 ? 0 : (i + 1)).toArray());
+    assertThat(smallDiff).containsExactly(0, 1, 3);
+    assertThat(underTest.findMatchingLines(database, report)).containsExactly(diff);
+  }
 }
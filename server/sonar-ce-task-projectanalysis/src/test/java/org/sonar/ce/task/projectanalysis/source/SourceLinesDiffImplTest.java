@@ -23,6 +23,7 @@ import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.ReferenceBranchComponentUuids;
@@ -50,7 +51,7 @@ public class SourceLinesDiffImplTest {
   @Rule
   public MutableMovedFilesRepositoryRule movedFiles = new MutableMovedFilesRepositoryRule();
 
-  private SourceLinesDiffImpl underTest = new SourceLinesDiffImpl(dbClient, fileSourceDao, sourceLinesHash,
+  private SourceLinesDiffImpl underTest = new SourceLinesDiffImpl(new TaskDbSessions(dbClient), fileSourceDao, sourceLinesHash,
     referenceBranchComponentUuids, movedFiles, analysisMetadataHolder);
 
   private static final int FILE_REF = 1;
@@ -38,6 +38,7 @@ import org.sonar.ce.task.projectanalysis.batch.MutableBatchReportDirectoryHolder
 import org.sonar.ce.task.step.TestComputationStepContext;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.scanner.protocol.output.ScannerReportContainer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -95,6 +96,25 @@ public class ExtractReportStepTest {
     assertThat(logTester.logs(LoggerLevel.DEBUG)).anyMatch(log -> log.matches("Analysis report is \\d+ bytes uncompressed"));
   }
 
+  @Test
+  public void copy_report_container_without_extracting_it() throws Exception {
+    File reportDir = tempFolder.newDir();
+    FileUtils.write(new File(reportDir, "metadata.pb"), "{metadata}");
+    File containerFile = tempFolder.newFile();
+    ScannerReportContainer.write(reportDir, containerFile);
+    try (InputStream input = FileUtils.openInputStream(containerFile)) {
+      dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), TASK_UUID, input);
+    }
+    dbTester.getSession().commit();
+    dbTester.getSession().close();
+
+    underTest.execute(new TestComputationStepContext());
+
+    File dir = reportDirectoryHolder.getDirectory();
+    assertThat(dir.listFiles()).hasSize(1);
+    assertThat(new File(dir, ScannerReportContainer.FILENAME)).hasSameContentAs(containerFile);
+  }
+
   private File generateReport() throws IOException {
     File zipDir = tempFolder.newDir();
     File metadataFile = new File(zipDir, "metadata.pb");
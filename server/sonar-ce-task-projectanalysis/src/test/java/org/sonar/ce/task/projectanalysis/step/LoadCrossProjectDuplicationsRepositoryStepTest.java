@@ -60,6 +60,7 @@ import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.sonar.ce.task.projectanalysis.component.Component.Type.FILE;
@@ -256,6 +257,57 @@ public class LoadCrossProjectDuplicationsRepositoryStepTest {
         .build());
   }
 
+  @Test
+  public void load_candidates_of_many_files_at_once() {
+    when(crossProjectDuplicationStatusHolder.isEnabled()).thenReturn(true);
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    Component file2 = ReportComponent.builder(FILE, 3)
+      .setKey("FILE_2_KEY")
+      .setFileAttributes(new FileAttributes(false, XOO_LANGUAGE, 1))
+      .build();
+    Component file3 = ReportComponent.builder(FILE, 4)
+      .setKey("FILE_3_KEY")
+      .setFileAttributes(new FileAttributes(false, XOO_LANGUAGE, 1))
+      .build();
+    treeRootHolder.setRoot(ReportComponent.builder(PROJECT, PROJECT_REF).addChildren(CURRENT_FILE, file2, file3).build());
+
+    ComponentDto otherProject = createProject("OTHER_PROJECT_KEY");
+    SnapshotDto otherProjectSnapshot = createProjectSnapshot(otherProject);
+    ComponentDto otherFile = createFile("OTHER_FILE_KEY", otherProject);
+
+    String duplicatedHash = "a8998353e96320ec";
+    String notDuplicatedHash = "b1234353e96320ff";
+    DuplicationUnitDto duplicate = new DuplicationUnitDto()
+      .setHash(duplicatedHash)
+      .setStartLine(40)
+      .setEndLine(55)
+      .setIndexInFile(0)
+      .setAnalysisUuid(otherProjectSnapshot.getUuid())
+      .setComponentUuid(otherFile.uuid());
+    dbClient.duplicationDao().insert(dbSession, duplicate);
+    dbSession.commit();
+
+    batchReportReader.putDuplicationBlocks(FILE_REF, singletonList(newCpdTextBlock(duplicatedHash)));
+    batchReportReader.putDuplicationBlocks(3, asList(newCpdTextBlock(notDuplicatedHash), newCpdTextBlock(duplicatedHash)));
+    batchReportReader.putDuplicationBlocks(4, singletonList(newCpdTextBlock(notDuplicatedHash)));
+
+    underTest.execute(new TestComputationStepContext());
+
+    Block duplicatedBlock = new Block.Builder()
+      .setResourceId(otherFile.getDbKey())
+      .setBlockHash(new ByteArray(duplicatedHash))
+      .setIndexInFile(duplicate.getIndexInFile())
+      .setLines(duplicate.getStartLine(), duplicate.getEndLine())
+      .build();
+    Class<ArrayList<Block>> listClass = (Class<ArrayList<Block>>) (Class) ArrayList.class;
+    ArgumentCaptor<ArrayList<Block>> originBlocks = ArgumentCaptor.forClass(listClass);
+    verify(integrateCrossProjectDuplications).computeCpd(eq(CURRENT_FILE), originBlocks.capture(), eq(singletonList(duplicatedBlock)));
+    assertThat(originBlocks.getValue()).hasSize(1);
+    verify(integrateCrossProjectDuplications).computeCpd(eq(file2), originBlocks.capture(), eq(singletonList(duplicatedBlock)));
+    assertThat(originBlocks.getValue()).hasSize(2);
+    verifyNoMoreInteractions(integrateCrossProjectDuplications);
+  }
+
   @Test
   public void nothing_to_do_when_cross_project_duplication_is_disabled() {
     when(crossProjectDuplicationStatusHolder.isEnabled()).thenReturn(false);
@@ -322,6 +374,16 @@ public class LoadCrossProjectDuplicationsRepositoryStepTest {
     verifyNoInteractions(integrateCrossProjectDuplications);
   }
 
+  private static ScannerReport.CpdTextBlock newCpdTextBlock(String hash) {
+    return ScannerReport.CpdTextBlock.newBuilder()
+      .setHash(hash)
+      .setStartLine(30)
+      .setEndLine(45)
+      .setStartTokenIndex(0)
+      .setEndTokenIndex(10)
+      .build();
+  }
+
   private ComponentDto createProject(String projectKey) {
     ComponentDto project = ComponentTesting.newPrivateProjectDto(dbTester.organizations().insert()).setDbKey(projectKey);
     dbClient.componentDao().insert(dbSession, project);
@@ -98,6 +98,12 @@ public class NewSizeMeasuresStepTest {
 
   private NewSizeMeasuresStep underTest = new NewSizeMeasuresStep(treeRootHolder, metricRepository, measureRepository, newLinesRepository, duplicationRepository);
 
+  @Test
+  public void declare_lazily_computed_new_lines_and_scm_info_as_written() {
+    // so that the step is never executed concurrently with another step filling the same caches
+    assertThat(underTest.getWrittenData()).contains(StepDataKeys.NEW_LINES, StepDataKeys.SCM_INFO);
+  }
+
   @Test
   public void compute_new_lines() {
     setNewLines(FILE_1, FILE_2, FILE_4);
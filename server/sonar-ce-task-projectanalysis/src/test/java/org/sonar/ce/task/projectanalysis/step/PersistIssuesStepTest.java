@@ -22,12 +22,15 @@ package org.sonar.ce.task.projectanalysis.step;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.IntStream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.utils.System2;
@@ -69,12 +72,15 @@ import static org.sonar.api.issue.Issue.RESOLUTION_FIXED;
 import static org.sonar.api.issue.Issue.STATUS_CLOSED;
 import static org.sonar.api.issue.Issue.STATUS_OPEN;
 import static org.sonar.api.rule.Severity.BLOCKER;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 
 public class PersistIssuesStepTest extends BaseStepTest {
 
   private static final long NOW = 1_400_000_000_000L;
 
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
   @Rule
@@ -104,8 +110,12 @@ public class PersistIssuesStepTest extends BaseStepTest {
     protoIssueCache = new ProtoIssueCache(temp.newFile(), System2.INSTANCE);
     reportReader.setMetadata(ScannerReport.Metadata.getDefaultInstance());
 
-    underTest = new PersistIssuesStep(dbClient, system2, conflictResolver, new RuleRepositoryImpl(adHocRuleCreator, dbClient, analysisMetadataHolder), protoIssueCache,
-      new IssueStorage(), new SequenceUuidFactory());
+    underTest = newStep(new MapSettings());
+  }
+
+  private PersistIssuesStep newStep(MapSettings settings) {
+    return new PersistIssuesStep(dbClient, system2, conflictResolver, new RuleRepositoryImpl(adHocRuleCreator, dbClient, analysisMetadataHolder), protoIssueCache,
+      new IssueStorage(), new SequenceUuidFactory(), settings.asConfig());
   }
 
   @After
@@ -411,4 +421,67 @@ public class PersistIssuesStepTest extends BaseStepTest {
       entry("inserts", "0"), entry("updates", "1"), entry("merged", "0"));
   }
 
+  @Test
+  public void persist_batches_of_issues_in_parallel() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insert();
+    List<IssueDto> existingIssues = IntStream.range(0, 5)
+      .mapToObj(i -> db.issues().insert(rule, project, file,
+        issue -> issue.setStatus(STATUS_OPEN)
+          .setResolution(null)
+          .setCreatedAt(NOW - 1_000_000_000L)
+          .setUpdatedAt(NOW - 1_000_000_000L)))
+      .collect(toList());
+    when(system2.now()).thenReturn(NOW);
+    DiskCache.CacheAppender issueCacheAppender = protoIssueCache.newAppender();
+    existingIssues.forEach(issue -> issueCacheAppender.append(issue.toDefaultIssue()
+      .setStatus(STATUS_CLOSED)
+      .setResolution(RESOLUTION_FIXED)
+      .setSelectedAt(NOW)
+      .setNew(false)
+      .setChanged(true)));
+    IntStream.range(0, 10).forEach(i -> issueCacheAppender.append(new DefaultIssue()
+      .setKey("ISSUE_" + i)
+      .setType(RuleType.CODE_SMELL)
+      .setRuleKey(rule.getKey())
+      .setComponentUuid(file.uuid())
+      .setComponentKey(file.getKey())
+      .setProjectUuid(project.uuid())
+      .setProjectKey(project.getKey())
+      .setSeverity(BLOCKER)
+      .setStatus(STATUS_OPEN)
+      .setNew(true)
+      .setCreationDate(new Date(NOW))));
+    issueCacheAppender.close();
+    underTest = newStep(new MapSettings()
+      .setProperty(PersistIssuesStep.PARALLELISM_PROPERTY, 3)
+      .setProperty(PersistIssuesStep.BATCH_SIZE_PROPERTY, 1));
+
+    TestComputationStepContext context = new TestComputationStepContext();
+    underTest.execute(context);
+
+    assertThat(db.countRowsOfTable("issues")).isEqualTo(15);
+    existingIssues.forEach(issue -> assertThat(dbClient.issueDao().selectOrFailByKey(session, issue.getKey()).getStatus()).isEqualTo(STATUS_CLOSED));
+    assertThat(context.getStatistics().getAll()).contains(
+      entry("inserts", "10"), entry("updates", "5"), entry("merged", "0"));
+    assertThat(context.getStatistics().getAll()).containsKey("rowsPerSecond");
+  }
+
+  @Test
+  public void fail_if_parallelism_is_lower_than_1() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.ce.task.issuePersistenceParallelism must be >= 1, got 0");
+
+    newStep(new MapSettings().setProperty(PersistIssuesStep.PARALLELISM_PROPERTY, 0));
+  }
+
+  @Test
+  public void fail_if_batch_size_is_lower_than_1() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.ce.task.issuePersistenceBatchSize must be >= 1, got 0");
+
+    newStep(new MapSettings().setProperty(PersistIssuesStep.BATCH_SIZE_PROPERTY, 0));
+  }
+
 }
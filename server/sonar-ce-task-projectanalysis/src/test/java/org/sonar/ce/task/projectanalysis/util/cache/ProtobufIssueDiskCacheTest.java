@@ -0,0 +1,121 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.util.cache;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.util.CloseableIterator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProtobufIssueDiskCacheTest {
+  private static final String MESSAGE = "Remove this unused private field";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private ProtobufIssueDiskCache underTest;
+
+  @Test
+  public void write_and_read() throws Exception {
+    underTest = new ProtobufIssueDiskCache(temp.newFile(), System2.INSTANCE);
+    assertThat(keys(underTest.traverse())).isEmpty();
+
+    underTest.newAppender()
+      .append(newIssue("k1", "FILE_1"))
+      .append(newIssue("k2", "FILE_1"))
+      .append(newIssue("k3", "FILE_2"))
+      .close();
+
+    assertThat(keys(underTest.traverse())).containsExactly("k1", "k2", "k3");
+  }
+
+  @Test
+  public void read_issues_written_by_multiple_appenders() throws Exception {
+    underTest = new ProtobufIssueDiskCache(temp.newFile(), System2.INSTANCE);
+
+    underTest.newAppender().append(newIssue("k1", "FILE_1")).close();
+    underTest.newAppender().append(newIssue("k2", "FILE_2")).append(newIssue("k3", "FILE_1")).close();
+
+    assertThat(keys(underTest.traverse())).containsExactly("k1", "k2", "k3");
+  }
+
+  @Test
+  public void read_issues_of_several_blocks() throws Exception {
+    underTest = new ProtobufIssueDiskCache(temp.newFile(), System2.INSTANCE);
+    CacheAppender<DefaultIssue> appender = underTest.newAppender();
+    List<String> expectedKeys = new ArrayList<>();
+    for (int i = 0; i < 5_000; i++) {
+      String key = "issue_" + i;
+      appender.append(newIssue(key, "FILE_" + (i / 1_000)));
+      expectedKeys.add(key);
+    }
+    appender.close();
+
+    // uncompressed messages alone weigh 160 KB, so issues are stored in several blocks
+    assertThat(keys(underTest.traverse())).isEqualTo(expectedKeys);
+  }
+
+  @Test
+  public void issues_are_compressed() throws Exception {
+    underTest = new ProtobufIssueDiskCache(temp.newFile(), System2.INSTANCE);
+    CacheAppender<DefaultIssue> appender = underTest.newAppender();
+    for (int i = 0; i < 1_000; i++) {
+      appender.append(newIssue("issue_" + i, "FILE_1"));
+    }
+    appender.close();
+
+    // uncompressed messages alone weigh 32 KB
+    assertThat(underTest.fileSize()).isLessThan(1_000L * MESSAGE.length() / 2);
+    assertThat(keys(underTest.traverse())).hasSize(1_000);
+  }
+
+  private static List<String> keys(CloseableIterator<DefaultIssue> issues) {
+    List<String> keys = new ArrayList<>();
+    try {
+      issues.forEachRemaining(issue -> keys.add(issue.key()));
+    } finally {
+      issues.close();
+    }
+    return keys;
+  }
+
+  private static DefaultIssue newIssue(String key, String componentUuid) {
+    return new DefaultIssue()
+      .setKey(key)
+      .setComponentUuid(componentUuid)
+      .setComponentKey("project:src/" + componentUuid + ".java")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("project")
+      .setRuleKey(RuleKey.of("java", "S1234"))
+      .setMessage(MESSAGE)
+      .setType(RuleType.CODE_SMELL)
+      .setStatus("OPEN")
+      .setCreationDate(new Date(1_500_000_000_000L));
+  }
+}
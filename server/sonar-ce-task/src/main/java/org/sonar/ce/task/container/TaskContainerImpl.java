@@ -28,6 +28,7 @@ import org.picocontainer.behaviors.OptInCaching;
 import org.picocontainer.monitors.NullComponentMonitor;
 import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.core.platform.ContainerPopulator;
 import org.sonar.core.platform.Module;
@@ -44,6 +45,7 @@ public class TaskContainerImpl extends ComponentContainer implements TaskContain
   }
 
   private void populateContainer(ContainerPopulator<TaskContainer> populator) {
+    add(TaskDbSessions.class);
     populator.populateContainer(this);
     populateFromModules();
   }
@@ -0,0 +1,74 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.db;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ReadOnlyDbSession;
+
+/**
+ * Provides the components of a task with read-only {@link DbSession} which live as long as the task.
+ * <p>
+ * Loading data from DB with a short-lived session for each component of the analyzed project opens a connection and
+ * prepares the same statements again and again. The session returned by {@link #openReadOnlySession()} is opened
+ * once per thread executing the task and keeps the statements it prepared in cache. As computation steps may be
+ * executed concurrently, a session is never shared between threads.
+ * <p>
+ * Sessions can not be committed, calls to {@link DbSession#close()} are ignored and they are rolled back and closed
+ * when the task container is stopped.
+ */
+public class TaskDbSessions implements Startable {
+  private final DbClient dbClient;
+  private final Map<Thread, ReadOnlyDbSession> sessionsByThread = new ConcurrentHashMap<>();
+
+  public TaskDbSessions(DbClient dbClient) {
+    this.dbClient = dbClient;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  public DbSession openReadOnlySession() {
+    return sessionsByThread.computeIfAbsent(Thread.currentThread(), t -> new ReadOnlyDbSession(dbClient.openSession(false)));
+  }
+
+  @Override
+  public void stop() {
+    sessionsByThread.values().forEach(TaskDbSessions::rollbackAndClose);
+    sessionsByThread.clear();
+  }
+
+  private static void rollbackAndClose(ReadOnlyDbSession session) {
+    DbSession delegate = session.getDelegate();
+    try {
+      delegate.rollback();
+    } catch (Exception e) {
+      Loggers.get(TaskDbSessions.class).warn("Failed to rollback DB session", e);
+    } finally {
+      delegate.close();
+    }
+  }
+}
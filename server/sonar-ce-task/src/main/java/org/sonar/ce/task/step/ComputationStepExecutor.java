@@ -19,22 +19,45 @@
  */
 package org.sonar.ce.task.step;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.slf4j.MDC;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.task.CeTaskInterrupter;
 import org.sonar.core.util.logs.Profiler;
+import org.sonar.db.DbSessionCounters;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 public final class ComputationStepExecutor {
+  /**
+   * Maximum number of {@link DataAwareComputationStep} executed concurrently. Steps are executed sequentially when
+   * lower than 2, which is the default.
+   */
+  public static final String PARALLELISM_PROPERTY = "sonar.ce.task.computationStepsParallelism";
+  static final String DB_SESSIONS_STATISTIC = "dbSessions";
+  static final String DB_STATEMENTS_STATISTIC = "dbStatements";
+
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
 
   private final ComputationSteps steps;
   private final CeTaskInterrupter taskInterrupter;
+  private final int parallelism;
   @CheckForNull
   private final Listener listener;
 
@@ -43,20 +66,47 @@ public final class ComputationStepExecutor {
    * container.
    */
   public ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter) {
-    this(steps, taskInterrupter, null);
+    this(steps, taskInterrupter, (Listener) null);
   }
 
   public ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter, @Nullable Listener listener) {
+    this(steps, taskInterrupter, 1, listener);
+  }
+
+  /**
+   * Used when no {@link ComputationStepExecutor.Listener} is available in pico
+   * container.
+   */
+  public ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter, Configuration configuration) {
+    this(steps, taskInterrupter, parallelismOf(configuration), null);
+  }
+
+  public ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter, Configuration configuration, Listener listener) {
+    this(steps, taskInterrupter, parallelismOf(configuration), listener);
+  }
+
+  ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter, int parallelism, @Nullable Listener listener) {
     this.steps = steps;
     this.taskInterrupter = taskInterrupter;
+    this.parallelism = parallelism;
     this.listener = listener;
   }
 
+  private static int parallelismOf(Configuration configuration) {
+    int value = configuration.getInt(PARALLELISM_PROPERTY).orElse(1);
+    checkArgument(value >= 1, "Property %s must be >= 1, got %s", PARALLELISM_PROPERTY, value);
+    return value;
+  }
+
   public void execute() {
     Profiler stepProfiler = Profiler.create(LOGGER).logTimeLast(true);
     boolean allStepsExecuted = false;
     try {
-      executeSteps(stepProfiler);
+      if (parallelism > 1) {
+        executeStepsInParallel();
+      } else {
+        executeSteps(stepProfiler);
+      }
       allStepsExecuted = true;
     } finally {
       if (listener != null) {
@@ -66,26 +116,162 @@ public final class ComputationStepExecutor {
   }
 
   private void executeSteps(Profiler stepProfiler) {
-    StepStatisticsImpl statistics = new StepStatisticsImpl(stepProfiler);
-    ComputationStep.Context context = new StepContextImpl(statistics);
     for (ComputationStep step : steps.instances()) {
-      executeStep(stepProfiler, context, step);
+      executeStep(stepProfiler, step, true);
+    }
+  }
+
+  /**
+   * Steps are scheduled according to {@link ComputationStepGraph}. Barrier steps are executed in the current thread,
+   * the other ones in a pool of {@link #parallelism} threads. When several steps are ready, the one with the lowest
+   * index is started first.
+   * <p>
+   * Interruption is checked in the current thread before each step is started. On the first failure, no other step
+   * is started, steps already running are waited for and the failure is rethrown.
+   */
+  private void executeStepsInParallel() {
+    List<ComputationStep> stepList = new ArrayList<>();
+    steps.instances().forEach(stepList::add);
+    ComputationStepGraph graph = new ComputationStepGraph(stepList);
+
+    int[] pendingDependencies = new int[graph.size()];
+    TreeSet<Integer> readySteps = new TreeSet<>();
+    for (int i = 0; i < graph.size(); i++) {
+      pendingDependencies[i] = graph.getDependencies(i).size();
+      if (pendingDependencies[i] == 0) {
+        readySteps.add(i);
+      }
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+      .setNameFormat("CE_steps-%d")
+      .setDaemon(true)
+      .build());
+    CompletionService<Integer> completionService = new ExecutorCompletionService<>(executorService);
+    Map<String, String> loggingContext = MDC.getCopyOfContextMap();
+    int completed = 0;
+    int running = 0;
+    Throwable failure = null;
+    try {
+      while (running > 0 || (failure == null && completed < graph.size())) {
+        while (failure == null && !readySteps.isEmpty()) {
+          int index = readySteps.pollFirst();
+          ComputationStep step = graph.get(index);
+          if (ComputationStepGraph.isBarrier(step)) {
+            // all other steps are either completed or waiting for this one
+            try {
+              executeStep(newStepProfiler(), step, true);
+              completed++;
+              release(graph, index, pendingDependencies, readySteps);
+            } catch (RuntimeException | Error e) {
+              failure = e;
+            }
+          } else {
+            try {
+              taskInterrupter.check(Thread.currentThread());
+              completionService.submit(() -> executeStepInPool(step, loggingContext), index);
+              running++;
+            } catch (RuntimeException | Error e) {
+              failure = e;
+            }
+          }
+        }
+
+        if (running > 0) {
+          Future<Integer> future = completionService.take();
+          running--;
+          try {
+            int index = future.get();
+            completed++;
+            release(graph, index, pendingDependencies, readySteps);
+          } catch (ExecutionException e) {
+            if (failure == null) {
+              failure = e.getCause();
+            }
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      taskInterrupter.check(Thread.currentThread());
+      throw new IllegalStateException("Interrupted while executing computation steps", e);
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    if (failure != null) {
+      throw rethrow(failure);
+    }
+  }
+
+  private static void release(ComputationStepGraph graph, int completedIndex, int[] pendingDependencies, TreeSet<Integer> readySteps) {
+    for (int dependent : graph.getDependents(completedIndex)) {
+      pendingDependencies[dependent]--;
+      if (pendingDependencies[dependent] == 0) {
+        readySteps.add(dependent);
+      }
+    }
+  }
+
+  private void executeStepInPool(ComputationStep step, @Nullable Map<String, String> loggingContext) {
+    if (loggingContext != null) {
+      MDC.setContextMap(loggingContext);
+    }
+    try {
+      executeStep(newStepProfiler(), step, false);
+    } finally {
+      MDC.clear();
     }
   }
 
-  private void executeStep(Profiler stepProfiler, ComputationStep.Context context, ComputationStep step) {
+  private static Profiler newStepProfiler() {
+    return Profiler.create(LOGGER).logTimeLast(true);
+  }
+
+  private void executeStep(Profiler stepProfiler, ComputationStep step, boolean checkInterruption) {
+    ComputationStep.Context context = new StepContextImpl(new StepStatisticsImpl(stepProfiler));
     String status = "FAILED";
+    long openedSessions = DbSessionCounters.openedSessions();
+    long preparedStatements = DbSessionCounters.preparedStatements();
     stepProfiler.start();
     try {
-      taskInterrupter.check(Thread.currentThread());
+      if (checkInterruption) {
+        taskInterrupter.check(Thread.currentThread());
+      }
       step.execute(context);
       status = "SUCCESS";
     } finally {
+      addDbStatistics(stepProfiler, openedSessions, preparedStatements);
       stepProfiler.addContext("status", status);
       stepProfiler.stopInfo(step.getDescription());
     }
   }
 
+  private static RuntimeException rethrow(Throwable t) {
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    throw new IllegalStateException(t);
+  }
+
+  /**
+   * Adds the number of DB sessions opened and of statements prepared by the current thread during the execution of
+   * the step, if any. Work delegated by the step to other threads is not counted.
+   */
+  private static void addDbStatistics(Profiler stepProfiler, long openedSessionsBefore, long preparedStatementsBefore) {
+    long openedSessions = DbSessionCounters.openedSessions() - openedSessionsBefore;
+    long preparedStatements = DbSessionCounters.preparedStatements() - preparedStatementsBefore;
+    if (openedSessions > 0) {
+      stepProfiler.addContext(DB_SESSIONS_STATISTIC, openedSessions);
+    }
+    if (preparedStatements > 0) {
+      stepProfiler.addContext(DB_STATEMENTS_STATISTIC, preparedStatements);
+    }
+  }
+
   private void executeListener(boolean allStepsExecuted) {
     try {
       listener.finished(allStepsExecuted);
@@ -0,0 +1,97 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.step;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dependency graph of a list of {@link ComputationStep}.
+ * <p>
+ * A step depends on every step preceding it in the list which it conflicts with (see {@link DataAwareComputationStep}).
+ * As dependencies always point to steps preceding in the list, the graph is acyclic and executing steps in list order
+ * is always a valid schedule.
+ */
+final class ComputationStepGraph {
+  private final List<ComputationStep> steps;
+  private final List<List<Integer>> dependencies;
+  private final List<List<Integer>> dependents;
+
+  ComputationStepGraph(List<ComputationStep> steps) {
+    this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+    this.dependencies = new ArrayList<>(steps.size());
+    this.dependents = new ArrayList<>(steps.size());
+    for (int i = 0; i < steps.size(); i++) {
+      dependencies.add(new ArrayList<>());
+      dependents.add(new ArrayList<>());
+    }
+    for (int i = 0; i < steps.size(); i++) {
+      for (int j = 0; j < i; j++) {
+        if (conflict(steps.get(j), steps.get(i))) {
+          dependencies.get(i).add(j);
+          dependents.get(j).add(i);
+        }
+      }
+    }
+  }
+
+  int size() {
+    return steps.size();
+  }
+
+  ComputationStep get(int index) {
+    return steps.get(index);
+  }
+
+  /**
+   * Indexes of the steps which must be completed before step with the specified index can start, in ascending order.
+   */
+  List<Integer> getDependencies(int index) {
+    return Collections.unmodifiableList(dependencies.get(index));
+  }
+
+  /**
+   * Indexes of the steps which can not start before step with the specified index is completed, in ascending order.
+   */
+  List<Integer> getDependents(int index) {
+    return Collections.unmodifiableList(dependents.get(index));
+  }
+
+  static boolean isBarrier(ComputationStep step) {
+    return !(step instanceof DataAwareComputationStep);
+  }
+
+  private static boolean conflict(ComputationStep first, ComputationStep second) {
+    if (isBarrier(first) || isBarrier(second)) {
+      return true;
+    }
+    DataAwareComputationStep a = (DataAwareComputationStep) first;
+    DataAwareComputationStep b = (DataAwareComputationStep) second;
+    return intersect(a.getWrittenData(), b.getReadData())
+      || intersect(a.getWrittenData(), b.getWrittenData())
+      || intersect(a.getReadData(), b.getWrittenData());
+  }
+
+  private static boolean intersect(Set<String> a, Set<String> b) {
+    return !Collections.disjoint(a, b);
+  }
+}
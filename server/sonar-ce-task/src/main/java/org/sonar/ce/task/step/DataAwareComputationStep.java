@@ -0,0 +1,45 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.step;
+
+import java.util.Set;
+
+/**
+ * A {@link ComputationStep} which declares the data it reads and writes, so that {@link ComputationStepExecutor}
+ * can run it concurrently with other steps it does not conflict with.
+ * <p>
+ * Two steps conflict when one of them writes data the other one reads or writes. Conflicting steps are always
+ * executed in the order of {@link ComputationSteps#instances()}.
+ * <p>
+ * Steps which do not implement this interface are barriers: they are executed alone, after all the steps preceding
+ * them and before all the steps following them.
+ */
+public interface DataAwareComputationStep extends ComputationStep {
+
+  /**
+   * Keys of the data read by this step. Keys are opaque, they only need to be consistent across steps.
+   */
+  Set<String> getReadData();
+
+  /**
+   * Keys of the data created or modified by this step.
+   */
+  Set<String> getWrittenData();
+}
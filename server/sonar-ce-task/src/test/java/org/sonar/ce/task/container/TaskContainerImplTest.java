@@ -21,12 +21,17 @@ package org.sonar.ce.task.container;
 
 import org.junit.Test;
 import org.picocontainer.Startable;
+import org.sonar.ce.task.db.TaskDbSessions;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.core.platform.ContainerPopulator;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class TaskContainerImplTest {
   private ComponentContainer parent = new ComponentContainer();
@@ -91,6 +96,22 @@ public class TaskContainerImplTest {
     assertThat(eagerStartable.stopCalls).isEqualTo(1);
   }
 
+  @Test
+  public void close_closes_task_db_sessions() {
+    DbClient dbClient = mock(DbClient.class);
+    DbSession dbSession = mock(DbSession.class);
+    when(dbClient.openSession(false)).thenReturn(dbSession);
+    parent.add(dbClient);
+    TaskContainerImpl ceContainer = new TaskContainerImpl(parent, populator);
+    ceContainer.bootup();
+
+    ceContainer.getComponentByType(TaskDbSessions.class).openReadOnlySession();
+    ceContainer.close();
+
+    verify(dbSession).rollback();
+    verify(dbSession).close();
+  }
+
   public static class DefaultStartable implements Startable {
     protected int startCalls = 0;
     protected int stopCalls = 0;
@@ -0,0 +1,109 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.db;
+
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TaskDbSessionsTest {
+  private final DbClient dbClient = mock(DbClient.class);
+  private final DbSession session1 = mock(DbSession.class);
+  private final DbSession session2 = mock(DbSession.class);
+  private final TaskDbSessions underTest = new TaskDbSessions(dbClient);
+
+  @Test
+  public void openReadOnlySession_returns_the_same_session_in_the_same_thread() {
+    when(dbClient.openSession(false)).thenReturn(session1, session2);
+
+    DbSession first = underTest.openReadOnlySession();
+    first.close();
+    DbSession second = underTest.openReadOnlySession();
+
+    assertThat(second).isSameAs(first);
+    verify(dbClient, times(1)).openSession(false);
+    verify(session1, never()).close();
+  }
+
+  @Test
+  public void openReadOnlySession_returns_a_different_session_in_each_thread() {
+    when(dbClient.openSession(false)).thenReturn(session1, session2);
+
+    DbSession inCurrentThread = underTest.openReadOnlySession();
+    DbSession inOtherThread = CompletableFuture.supplyAsync(underTest::openReadOnlySession).join();
+
+    assertThat(inOtherThread).isNotSameAs(inCurrentThread);
+    verify(dbClient, times(2)).openSession(false);
+  }
+
+  @Test
+  public void session_can_not_be_committed() {
+    when(dbClient.openSession(false)).thenReturn(session1);
+
+    DbSession session = underTest.openReadOnlySession();
+
+    assertThatThrownBy(session::commit)
+      .isInstanceOf(UnsupportedOperationException.class);
+    verify(session1, never()).commit();
+  }
+
+  @Test
+  public void stop_rollbacks_and_closes_all_sessions() {
+    when(dbClient.openSession(false)).thenReturn(session1, session2);
+    underTest.openReadOnlySession();
+    CompletableFuture.supplyAsync(underTest::openReadOnlySession).join();
+
+    underTest.stop();
+
+    verify(session1).rollback();
+    verify(session1).close();
+    verify(session2).rollback();
+    verify(session2).close();
+  }
+
+  @Test
+  public void stop_closes_session_even_if_rollback_fails() {
+    when(dbClient.openSession(false)).thenReturn(session1);
+    doThrow(new IllegalStateException("faking rollback failure")).when(session1).rollback();
+    underTest.openReadOnlySession();
+
+    underTest.stop();
+
+    verify(session1).close();
+  }
+
+  @Test
+  public void stop_does_nothing_if_no_session_was_opened() {
+    underTest.start();
+    underTest.stop();
+
+    verify(dbClient, never()).openSession(false);
+  }
+}
@@ -19,16 +19,26 @@
  */
 package org.sonar.ce.task.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.ce.task.CeTaskInterrupter;
 import org.sonar.ce.task.ChangeLogLevel;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.IsAliveMapper;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
@@ -48,6 +58,8 @@ public class ComputationStepExecutorTest {
   public LogTester logTester = new LogTester();
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public DbTester db = DbTester.create();
 
   private final ComputationStepExecutor.Listener listener = mock(ComputationStepExecutor.Listener.class);
   private final CeTaskInterrupter taskInterrupter = mock(CeTaskInterrupter.class);
@@ -107,6 +119,31 @@ public class ComputationStepExecutorTest {
     }
   }
 
+  @Test
+  public void execute_logs_db_sessions_and_statements_used_by_ComputationStep() {
+    ComputationStep step = new StepWithStatistics("Step One", "foo", "100") {
+      @Override
+      public void execute(Context context) {
+        super.execute(context);
+        for (int i = 0; i < 2; i++) {
+          try (DbSession dbSession = db.getDbClient().openSession(false)) {
+            dbSession.getMapper(IsAliveMapper.class).isAlive();
+            dbSession.getMapper(IsAliveMapper.class).isAlive();
+          }
+        }
+      }
+    };
+
+    try (ChangeLogLevel executor = new ChangeLogLevel(ComputationStepExecutor.class, LoggerLevel.INFO);
+      ChangeLogLevel logLevel = new ChangeLogLevel(step.getClass(), LoggerLevel.INFO)) {
+      new ComputationStepExecutor(mockComputationSteps(step), taskInterrupter).execute();
+
+      assertThat(logTester.logs(LoggerLevel.INFO))
+        .hasSize(1)
+        .allMatch(log -> log.contains("Step One | foo=100 | dbSessions=2 | dbStatements=2 | status=SUCCESS | time="));
+    }
+  }
+
   @Test
   public void execute_logs_end_timing_and_statistics_for_each_ComputationStep_in_INFO_level_even_if_failed() {
     RuntimeException expected = new RuntimeException("faking step failing with RuntimeException");
@@ -275,6 +312,111 @@ public class ComputationStepExecutorTest {
     inOrder.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void execute_runs_non_conflicting_DataAwareComputationSteps_concurrently() {
+    CountDownLatch latch = new CountDownLatch(2);
+    ComputationStep step1 = new LatchStep("step1", latch, ImmutableSet.of("a"));
+    ComputationStep step2 = new LatchStep("step2", latch, ImmutableSet.of("b"));
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2), taskInterrupter, 2, listener).execute();
+
+    assertThat(latch.getCount()).isZero();
+    verify(listener).finished(true);
+  }
+
+  @Test
+  public void execute_runs_conflicting_DataAwareComputationSteps_and_barriers_in_order() {
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    ComputationStep writer = new RecordingStep("writer", executed, ImmutableSet.of(), ImmutableSet.of("x"));
+    ComputationStep reader = new RecordingStep("reader", executed, ImmutableSet.of("x"), ImmutableSet.of());
+    ComputationStep barrier = mockComputationStep("barrier");
+    ComputationStep last = new RecordingStep("last", executed, ImmutableSet.of(), ImmutableSet.of("y"));
+
+    new ComputationStepExecutor(mockComputationSteps(writer, reader, barrier, last), taskInterrupter, 4, null).execute();
+
+    assertThat(executed).containsExactly("writer", "reader", "last");
+    verify(barrier).execute(any());
+  }
+
+  @Test
+  public void execute_in_parallel_does_not_start_new_steps_after_a_failure_and_rethrows_it() {
+    RuntimeException expected = new RuntimeException("faking step failing");
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    ComputationStep failing = new RecordingStep("failing", executed, ImmutableSet.of(), ImmutableSet.of("x")) {
+      @Override
+      public void execute(Context context) {
+        throw expected;
+      }
+    };
+    ComputationStep dependent = new RecordingStep("dependent", executed, ImmutableSet.of("x"), ImmutableSet.of());
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(failing, dependent), taskInterrupter, 2, listener).execute();
+      fail("exception should have been raised");
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(expected);
+      assertThat(executed).isEmpty();
+      verify(listener).finished(false);
+    }
+  }
+
+  @Test
+  public void execute_in_parallel_checks_interrupter_in_current_thread_before_each_step() {
+    RuntimeException exception = new RuntimeException("mocking fail of method check()");
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    ComputationStep step1 = new RecordingStep("step1", executed, ImmutableSet.of(), ImmutableSet.of("x"));
+    ComputationStep step2 = new RecordingStep("step2", executed, ImmutableSet.of("x"), ImmutableSet.of());
+    doNothing()
+      .doThrow(exception)
+      .when(taskInterrupter)
+      .check(Thread.currentThread());
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(step1, step2), taskInterrupter, 2, null).execute();
+      fail("execute should have thrown an exception");
+    } catch (Exception e) {
+      assertThat(e).isSameAs(exception);
+      assertThat(executed).containsExactly("step1");
+    }
+  }
+
+  @Test
+  public void execute_in_parallel_logs_timing_and_statistics_of_each_step() {
+    ComputationStep step1 = new StepWithStatistics("Step One", "foo", "100");
+    ComputationStep step2 = new RecordingStep("Step Two", new ArrayList<>(), ImmutableSet.of(), ImmutableSet.of("x"));
+
+    try (ChangeLogLevel executor = new ChangeLogLevel(ComputationStepExecutor.class, LoggerLevel.INFO)) {
+      new ComputationStepExecutor(mockComputationSteps(step1, step2), taskInterrupter, 2, null).execute();
+
+      List<String> infoLogs = logTester.logs(LoggerLevel.INFO);
+      assertThat(infoLogs).hasSize(2);
+      assertThat(infoLogs.get(0)).contains("Step One | foo=100 | status=SUCCESS | time=");
+      assertThat(infoLogs.get(1)).contains("Step Two | status=SUCCESS | time=");
+    }
+  }
+
+  @Test
+  public void parallelism_is_read_from_configuration() {
+    CountDownLatch latch = new CountDownLatch(2);
+    ComputationStep step1 = new LatchStep("step1", latch, ImmutableSet.of("a"));
+    ComputationStep step2 = new LatchStep("step2", latch, ImmutableSet.of("b"));
+    MapSettings settings = new MapSettings().setProperty("sonar.ce.task.computationStepsParallelism", 2);
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2), taskInterrupter, settings.asConfig()).execute();
+
+    assertThat(latch.getCount()).isZero();
+  }
+
+  @Test
+  public void fail_if_parallelism_is_lower_than_1() {
+    MapSettings settings = new MapSettings().setProperty("sonar.ce.task.computationStepsParallelism", 0);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.ce.task.computationStepsParallelism must be >= 1, got 0");
+
+    new ComputationStepExecutor(mockComputationSteps(computationStep1), taskInterrupter, settings.asConfig());
+  }
+
   private void runInOtherThread(Runnable r) throws Throwable {
     Throwable[] otherThreadException = new Throwable[1];
     Thread t = new Thread(() -> {
@@ -325,4 +467,63 @@ public class ComputationStepExecutorTest {
       return description;
     }
   }
+
+  private static class RecordingStep implements DataAwareComputationStep {
+    private final String description;
+    private final List<String> executed;
+    private final Set<String> readData;
+    private final Set<String> writtenData;
+
+    private RecordingStep(String description, List<String> executed, Set<String> readData, Set<String> writtenData) {
+      this.description = description;
+      this.executed = executed;
+      this.readData = readData;
+      this.writtenData = writtenData;
+    }
+
+    @Override
+    public Set<String> getReadData() {
+      return readData;
+    }
+
+    @Override
+    public Set<String> getWrittenData() {
+      return writtenData;
+    }
+
+    @Override
+    public void execute(Context context) {
+      executed.add(description);
+    }
+
+    @Override
+    public String getDescription() {
+      return description;
+    }
+  }
+
+  /**
+   * Completes only if another step counts down the same latch concurrently.
+   */
+  private static class LatchStep extends RecordingStep {
+    private final CountDownLatch latch;
+
+    private LatchStep(String description, CountDownLatch latch, Set<String> writtenData) {
+      super(description, new ArrayList<>(), ImmutableSet.of(), writtenData);
+      this.latch = latch;
+    }
+
+    @Override
+    public void execute(Context context) {
+      latch.countDown();
+      try {
+        if (!latch.await(10, TimeUnit.SECONDS)) {
+          throw new IllegalStateException("steps were not executed concurrently");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+  }
 }
@@ -0,0 +1,113 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.step;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ComputationStepGraphTest {
+
+  @Test
+  public void barrier_depends_on_all_preceding_steps_and_all_following_steps_depend_on_it() {
+    ComputationStep a = new DataStep(set("a"), set());
+    ComputationStep barrier = mock(ComputationStep.class);
+    ComputationStep b = new DataStep(set("b"), set());
+
+    ComputationStepGraph underTest = new ComputationStepGraph(Arrays.asList(a, barrier, b));
+
+    assertThat(underTest.getDependencies(0)).isEmpty();
+    assertThat(underTest.getDependencies(1)).containsExactly(0);
+    assertThat(underTest.getDependencies(2)).containsExactly(0, 1);
+    assertThat(underTest.getDependents(0)).containsExactly(1, 2);
+  }
+
+  @Test
+  public void steps_reading_the_same_data_do_not_depend_on_each_other() {
+    ComputationStep a = new DataStep(set("x"), set("a"));
+    ComputationStep b = new DataStep(set("x"), set("b"));
+
+    ComputationStepGraph underTest = new ComputationStepGraph(Arrays.asList(a, b));
+
+    assertThat(underTest.getDependencies(1)).isEmpty();
+    assertThat(underTest.getDependents(0)).isEmpty();
+  }
+
+  @Test
+  public void step_depends_on_preceding_step_writing_data_it_reads_or_writes() {
+    ComputationStep writer = new DataStep(set(), set("x"));
+    ComputationStep reader = new DataStep(set("x"), set());
+    ComputationStep otherWriter = new DataStep(set(), set("x"));
+
+    ComputationStepGraph underTest = new ComputationStepGraph(Arrays.asList(writer, reader, otherWriter));
+
+    assertThat(underTest.getDependencies(1)).containsExactly(0);
+    assertThat(underTest.getDependencies(2)).containsExactly(0, 1);
+  }
+
+  @Test
+  public void step_never_depends_on_following_steps() {
+    ComputationStep reader = new DataStep(set("x"), set());
+    ComputationStep writer = new DataStep(set(), set("x"));
+
+    ComputationStepGraph underTest = new ComputationStepGraph(Arrays.asList(reader, writer));
+
+    assertThat(underTest.getDependencies(0)).isEmpty();
+    assertThat(underTest.getDependencies(1)).containsExactly(0);
+  }
+
+  private static Set<String> set(String... keys) {
+    return ImmutableSet.copyOf(keys);
+  }
+
+  private static class DataStep implements DataAwareComputationStep {
+    private final Set<String> readData;
+    private final Set<String> writtenData;
+
+    private DataStep(Set<String> readData, Set<String> writtenData) {
+      this.readData = readData;
+      this.writtenData = writtenData;
+    }
+
+    @Override
+    public Set<String> getReadData() {
+      return readData;
+    }
+
+    @Override
+    public Set<String> getWrittenData() {
+      return writtenData;
+    }
+
+    @Override
+    public void execute(Context context) {
+      // nothing to do
+    }
+
+    @Override
+    public String getDescription() {
+      return "data step";
+    }
+  }
+}
@@ -21,6 +21,7 @@ package org.sonar.ce;
 
 import org.sonar.ce.task.projectanalysis.purge.IndexPurgeListener;
 import org.sonar.ce.task.projectanalysis.purge.ProjectCleaner;
+import org.sonar.ce.task.projectanalysis.purge.PurgeHousekeeping;
 import org.sonar.core.platform.Module;
 import org.sonar.db.purge.period.DefaultPeriodCleaner;
 
@@ -33,6 +34,7 @@ public class CeTaskCommonsModule extends Module {
     add(
       DefaultPeriodCleaner.class,
       ProjectCleaner.class,
+      PurgeHousekeeping.class,
       IndexPurgeListener.class);
   }
 }
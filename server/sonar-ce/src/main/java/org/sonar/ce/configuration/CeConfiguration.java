@@ -37,6 +37,13 @@ public interface CeConfiguration {
    */
   long getQueuePollingDelay();
 
+  /**
+   * The maximum delay in millisecond before a {@link org.sonar.ce.taskprocessor.CeWorker} shall try and find a task
+   * to process when its previous executions had nothing to do. The polling delay doubles, starting from
+   * {@link #getQueuePollingDelay()}, each time the queue is found empty.
+   */
+  long getQueuePollingMaxDelay();
+
   /**
    * Delay before running job that cleans CE tasks for the first time (in minutes).
    */
@@ -36,6 +36,8 @@ public class CeConfigurationImpl implements CeConfiguration {
   private static final int DEFAULT_WORKER_COUNT = 1;
   // 2 seconds
   private static final long DEFAULT_QUEUE_POLLING_DELAY = 2 * 1000L;
+  // 10 seconds
+  private static final long DEFAULT_QUEUE_POLLING_MAX_DELAY = 10 * 1000L;
   // 0 minute
   private static final long CANCEL_WORN_OUTS_INITIAL_DELAY = 0;
   // 2 minutes
@@ -96,6 +98,11 @@ public class CeConfigurationImpl implements CeConfiguration {
     return DEFAULT_QUEUE_POLLING_DELAY;
   }
 
+  @Override
+  public long getQueuePollingMaxDelay() {
+    return DEFAULT_QUEUE_POLLING_MAX_DELAY;
+  }
+
   @Override
   public long getCleanTasksInitialDelay() {
     return CANCEL_WORN_OUTS_INITIAL_DELAY;
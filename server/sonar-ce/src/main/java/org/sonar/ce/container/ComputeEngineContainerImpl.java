@@ -59,6 +59,7 @@ import org.sonar.ce.monitoring.DistributedCEQueueStatusImpl;
 import org.sonar.ce.platform.CECoreExtensionsInstaller;
 import org.sonar.ce.platform.ComputeEngineExtensionInstaller;
 import org.sonar.ce.platform.DatabaseCompatibility;
+import org.sonar.ce.queue.ClusterCeTaskSubmitListener;
 import org.sonar.ce.queue.PurgeCeActivities;
 import org.sonar.ce.task.projectanalysis.ProjectAnalysisTaskModule;
 import org.sonar.ce.task.projectanalysis.analysis.ProjectConfigurationFactory;
@@ -466,6 +467,9 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
         // system health
         CeDistributedInformationImpl.class,
 
+        // wake up workers of other nodes when tasks are submitted
+        ClusterCeTaskSubmitListener.class,
+
         // system info
         DbSection.class,
         ProcessInfoProvider.class,
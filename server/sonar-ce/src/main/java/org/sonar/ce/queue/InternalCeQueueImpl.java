@@ -66,7 +66,12 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
     DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus) {
-    super(system2, dbClient, uuidFactory, defaultOrganizationProvider);
+    this(system2, dbClient, uuidFactory, queueStatus, defaultOrganizationProvider, computeEngineStatus, new CeTaskSubmitListener[0]);
+  }
+
+  public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
+    DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus, CeTaskSubmitListener[] submitListeners) {
+    super(system2, dbClient, uuidFactory, defaultOrganizationProvider, submitListeners);
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
     this.computeEngineStatus = computeEngineStatus;
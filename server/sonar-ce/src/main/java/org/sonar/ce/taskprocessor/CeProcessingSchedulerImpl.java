@@ -19,22 +19,34 @@
  */
 package org.sonar.ce.taskprocessor;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableScheduledFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.ce.queue.CeWorkersWakeUp;
 
 import static com.google.common.util.concurrent.Futures.addCallback;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Chains the executions of each {@link CeWorker}.
+ * <p>
+ * A worker which found no task to process polls the queue again after a delay which starts at
+ * {@link CeConfiguration#getQueuePollingDelay()} and doubles each time the queue is still empty, up to
+ * {@link CeConfiguration#getQueuePollingMaxDelay()}. Idle workers are woken up by {@link CeWorkersWakeUp} as soon as
+ * tasks are submitted.
+ */
 public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
   private static final Logger LOG = Loggers.get(CeProcessingSchedulerImpl.class);
   // 30 seconds
@@ -42,6 +54,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
 
   private final CeProcessingSchedulerExecutorService executorService;
   private final long delayBetweenEnabledTasks;
+  private final long maxDelayBetweenEnabledTasks;
   private final TimeUnit timeUnit;
   private final ChainingCallback[] chainingCallbacks;
   private final CeWorkerController ceWorkerController;
@@ -49,10 +62,11 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
 
   public CeProcessingSchedulerImpl(CeConfiguration ceConfiguration,
     CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerFactory ceCeWorkerFactory,
-    CeWorkerController ceWorkerController) {
+    CeWorkerController ceWorkerController, CeWorkersWakeUp ceWorkersWakeUp) {
     this.executorService = processingExecutorService;
 
     this.delayBetweenEnabledTasks = ceConfiguration.getQueuePollingDelay();
+    this.maxDelayBetweenEnabledTasks = Math.max(delayBetweenEnabledTasks, ceConfiguration.getQueuePollingMaxDelay());
     this.gracefulStopTimeoutInMs = ceConfiguration.getGracefulStopTimeoutInMs();
     this.ceWorkerController = ceWorkerController;
     this.timeUnit = MILLISECONDS;
@@ -63,6 +77,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
       CeWorker worker = ceCeWorkerFactory.create(i);
       chainingCallbacks[i] = new ChainingCallback(worker);
     }
+    ceWorkersWakeUp.register(this::wakeUpIdleWorkers);
   }
 
   @Override
@@ -73,6 +88,13 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
     }
   }
 
+  /**
+   * Makes the workers which are waiting because they previously found no task to process poll the queue right away.
+   */
+  private void wakeUpIdleWorkers() {
+    Arrays.stream(chainingCallbacks).forEach(ChainingCallback::wakeUp);
+  }
+
   /**
    * This method is stopping all the workers and giving them a very large delay before killing them.
    * <p>
@@ -145,10 +167,17 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
   private class ChainingCallback implements FutureCallback<CeWorker.Result> {
     private volatile boolean keepRunning = true;
     private volatile boolean interrupted = false;
+    private volatile long nextEnabledTaskDelay = delayBetweenEnabledTasks;
     private final CeWorker worker;
 
     @CheckForNull
-    private ListenableFuture<CeWorker.Result> workerFuture;
+    private volatile ListenableFuture<CeWorker.Result> workerFuture;
+    /**
+     * Delayed execution of {@link #worker} which can be woken up, non null only while {@link #workerFuture} is
+     * this execution.
+     */
+    @CheckForNull
+    private volatile IdleWorkerCall idleWorkerCall;
 
     public ChainingCallback(CeWorker worker) {
       this.worker = worker;
@@ -169,6 +198,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
               break;
             case TASK_PROCESSED:
             default:
+              nextEnabledTaskDelay = delayBetweenEnabledTasks;
               chainWithoutDelay();
           }
         }
@@ -185,20 +215,40 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
     }
 
     private void chainWithoutDelay() {
+      idleWorkerCall = null;
       workerFuture = executorService.submit(worker);
       addCallback();
     }
 
     private void chainWithEnabledTaskDelay() {
-      workerFuture = executorService.schedule(worker, delayBetweenEnabledTasks, timeUnit);
+      long delay = nextEnabledTaskDelay;
+      nextEnabledTaskDelay = Math.min(2 * delay, maxDelayBetweenEnabledTasks);
+      IdleWorkerCall call = new IdleWorkerCall(worker);
+      workerFuture = executorService.schedule(call, delay, timeUnit);
+      // published after the future so that wakeUp() never cancels a previous execution on behalf of this one
+      idleWorkerCall = call;
       addCallback();
     }
 
     private void chainWithDisabledTaskDelay() {
+      idleWorkerCall = null;
       workerFuture = executorService.schedule(worker, DELAY_BETWEEN_DISABLED_TASKS, timeUnit);
       addCallback();
     }
 
+    /**
+     * Cancels the delayed execution of an idle worker, unless it already started. Cancellation is handled by
+     * {@link #onFailure(Throwable)} which chains the worker without delay.
+     */
+    private void wakeUp() {
+      IdleWorkerCall call = idleWorkerCall;
+      ListenableFuture<CeWorker.Result> future = workerFuture;
+      if (keepRunning && call != null && future != null && call.preventStart()) {
+        nextEnabledTaskDelay = delayBetweenEnabledTasks;
+        future.cancel(false);
+      }
+    }
+
     private void addCallback() {
       if (workerFuture != null) {
         Futures.addCallback(workerFuture, this, MoreExecutors.directExecutor());
@@ -217,4 +267,40 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
       return interrupted;
     }
   }
+
+  /**
+   * Delayed execution of a {@link CeWorker} which previously found no task to process. Either this execution starts
+   * the worker or a wake-up prevents it from starting, never both: a wake-up must not cancel a running worker, the
+   * cancellation would chain a second execution of the same worker.
+   */
+  @VisibleForTesting
+  static final class IdleWorkerCall implements Callable<CeWorker.Result> {
+    private final CeWorker worker;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    private IdleWorkerCall(CeWorker worker) {
+      this.worker = worker;
+    }
+
+    @Override
+    public CeWorker.Result call() throws Exception {
+      if (!started.compareAndSet(false, true)) {
+        // woken up, the future is cancelled and this result is ignored
+        return CeWorker.Result.NO_TASK;
+      }
+      return worker.call();
+    }
+
+    /**
+     * @return {@code true} if the worker had not started yet and will not be started by this execution
+     */
+    private boolean preventStart() {
+      return started.compareAndSet(false, true);
+    }
+
+    @VisibleForTesting
+    CeWorker getWorker() {
+      return worker;
+    }
+  }
 }
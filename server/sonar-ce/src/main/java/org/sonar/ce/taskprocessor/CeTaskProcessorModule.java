@@ -20,6 +20,7 @@
 package org.sonar.ce.taskprocessor;
 
 import org.sonar.ce.notification.ReportAnalysisFailureNotificationExecutionListener;
+import org.sonar.ce.queue.CeWorkersWakeUp;
 import org.sonar.core.platform.Module;
 
 public class CeTaskProcessorModule extends Module {
@@ -34,7 +35,8 @@ public class CeTaskProcessorModule extends Module {
       CeWorkerFactoryImpl.class,
       CeWorkerControllerImpl.class,
       CeProcessingSchedulerExecutorServiceImpl.class,
-      CeProcessingSchedulerImpl.class
+      CeProcessingSchedulerImpl.class,
+      CeWorkersWakeUp.class
 
     );
   }
@@ -30,6 +30,7 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
   private int workerThreadCount = 1;
   private int workerCount = 1;
   private long queuePollingDelay = 2 * 1000L;
+  private long queuePollingMaxDelay = 2 * 1000L;
   private long cleanTasksInitialDelay = 1L;
   private long cleanTasksDelay = 10L;
 
@@ -64,6 +65,16 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     this.queuePollingDelay = queuePollingDelay;
   }
 
+  @Override
+  public long getQueuePollingMaxDelay() {
+    return queuePollingMaxDelay;
+  }
+
+  public void setQueuePollingMaxDelay(long queuePollingMaxDelay) {
+    checkArgument(queuePollingMaxDelay > 0, "Queue polling max delay must be >= 0");
+    this.queuePollingMaxDelay = queuePollingMaxDelay;
+  }
+
   @Override
   public long getCleanTasksInitialDelay() {
     return cleanTasksInitialDelay;
@@ -223,6 +223,11 @@ public class CeTasksMBeanImplTest {
       throw new UnsupportedOperationException("getQueuePollingDelay is not implemented");
     }
 
+    @Override
+    public long getQueuePollingMaxDelay() {
+      throw new UnsupportedOperationException("getQueuePollingMaxDelay is not implemented");
+    }
+
     @Override
     public long getCleanTasksInitialDelay() {
       throw new UnsupportedOperationException("getCleanCeTasksInitialDelay is not implemented");
@@ -48,6 +48,7 @@ import org.junit.rules.DisableOnDebug;
 import org.junit.rules.TestRule;
 import org.junit.rules.Timeout;
 import org.sonar.ce.configuration.CeConfigurationRule;
+import org.sonar.ce.queue.CeWorkersWakeUp;
 
 import static com.google.common.collect.ImmutableList.copyOf;
 import static java.util.Collections.emptySet;
@@ -79,8 +80,9 @@ public class CeProcessingSchedulerImplTest {
   private SchedulerCall extendedDelayedPoll = new SchedulerCall(ceWorker, 30000L, MILLISECONDS);
   private SchedulerCall notDelayedPoll = new SchedulerCall(ceWorker);
   private CeWorkerController ceWorkerController = new CeWorkerControllerImpl(ceConfiguration);
+  private CeWorkersWakeUp ceWorkersWakeUp = new CeWorkersWakeUp();
 
-  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController);
+  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController, ceWorkersWakeUp);
 
   @Test
   public void polls_without_delay_when_CeWorkerCallable_returns_TASK_PROCESSED() throws Exception {
@@ -121,6 +123,48 @@ public class CeProcessingSchedulerImplTest {
       regularDelayedPoll);
   }
 
+  @Test
+  public void polls_with_increasing_delay_up_to_max_delay_when_CeWorkerCallable_keeps_returning_NO_TASK() throws Exception {
+    ceConfiguration.setQueuePollingMaxDelay(5000L);
+    underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController, ceWorkersWakeUp);
+    when(ceWorker.call())
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll,
+      new SchedulerCall(ceWorker, 4000L, MILLISECONDS),
+      new SchedulerCall(ceWorker, 5000L, MILLISECONDS),
+      new SchedulerCall(ceWorker, 5000L, MILLISECONDS));
+  }
+
+  @Test
+  public void polling_delay_is_reset_to_regular_delay_when_CeWorkerCallable_returns_TASK_PROCESSED() throws Exception {
+    ceConfiguration.setQueuePollingMaxDelay(5000L);
+    underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController, ceWorkersWakeUp);
+    when(ceWorker.call())
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(TASK_PROCESSED)
+      .thenReturn(NO_TASK)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll,
+      new SchedulerCall(ceWorker, 4000L, MILLISECONDS),
+      notDelayedPoll,
+      regularDelayedPoll);
+  }
+
   @Test
   public void polls_with_extended_delay_when_CeWorkerCallable_returns_DISABLED() throws Exception {
     when(ceWorker.call())
@@ -239,6 +283,47 @@ public class CeProcessingSchedulerImplTest {
       regularDelayedPoll);
   }
 
+  @Test
+  public void wakeUp_polls_without_delay_when_worker_is_idle() throws Exception {
+    when(ceWorker.call())
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    // first polling finds no task, next one is delayed
+    processingExecutorService.futures.poll().get();
+
+    ceWorkersWakeUp.wakeUp();
+    processingExecutorService.runFutures();
+
+    verify(ceWorker, times(3)).call();
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll,
+      notDelayedPoll,
+      regularDelayedPoll);
+  }
+
+  @Test
+  public void wakeUp_does_not_chain_another_polling_when_delayed_worker_is_running() throws Exception {
+    when(ceWorker.call())
+      .thenReturn(NO_TASK)
+      .thenAnswer(invocation -> {
+        ceWorkersWakeUp.wakeUp();
+        return NO_TASK;
+      })
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    verify(ceWorker, times(3)).call();
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll,
+      regularDelayedPoll);
+  }
+
   @Test
   public void when_workerCount_is_more_than_1_as_many_CeWorkerCallable_are_scheduled() throws Exception {
     int workerCount = Math.abs(new Random().nextInt(10)) + 1;
@@ -257,7 +342,7 @@ public class CeProcessingSchedulerImplTest {
     when(processingExecutorService.schedule(any(CeWorker.class), any(Long.class), any(TimeUnit.class))).thenReturn(listenableScheduledFuture);
 
     CeWorkerFactory ceWorkerFactory = spy(new TestCeWorkerFactory(workers));
-    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController);
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController, ceWorkersWakeUp);
     when(processingExecutorService.schedule(ceWorker, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
       .thenReturn(listenableScheduledFuture);
 
@@ -595,17 +680,24 @@ public class CeProcessingSchedulerImplTest {
     private final TimeUnit unit;
 
     private SchedulerCall(Callable<?> callable, long delay, TimeUnit unit) {
-      this.callable = callable;
+      this.callable = unwrap(callable);
       this.delay = delay;
       this.unit = unit;
     }
 
     private SchedulerCall(Callable<?> callable) {
-      this.callable = callable;
+      this.callable = unwrap(callable);
       this.delay = -63366;
       this.unit = TimeUnit.NANOSECONDS;
     }
 
+    private static Callable<?> unwrap(Callable<?> callable) {
+      if (callable instanceof CeProcessingSchedulerImpl.IdleWorkerCall) {
+        return ((CeProcessingSchedulerImpl.IdleWorkerCall) callable).getWorker();
+      }
+      return callable;
+    }
+
     @Override
     public boolean equals(@Nullable Object o) {
       if (this == o) {
@@ -22,6 +22,11 @@ package org.sonar.db;
 public interface DBSessions {
   DbSession openSession(boolean batch);
 
+  /**
+   * Batch session with a specific batch size. Such sessions are never cached.
+   */
+  DbSession openBatchSession(int batchSize);
+
   void enableCaching();
 
   void disableCaching();
@@ -245,6 +245,10 @@ public class DbClient {
     return dbSessions.openSession(batch);
   }
 
+  public DbSession openBatchSession(int batchSize) {
+    return dbSessions.openBatchSession(batchSize);
+  }
+
   public Database getDatabase() {
     return database;
   }
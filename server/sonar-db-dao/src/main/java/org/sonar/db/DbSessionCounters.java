@@ -0,0 +1,54 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+/**
+ * Counts, for the current thread, the {@link DbSession} opened by {@link MyBatis} and the JDBC statements
+ * actually prepared on their connections.
+ * <p>
+ * A statement executed again by a non-batch {@link DbSession} is served by the statement cache of the session and
+ * is not counted again. Callers compute the number of sessions and statements used by a unit of work with the
+ * difference of the values returned before and after it.
+ */
+public final class DbSessionCounters {
+  private static final ThreadLocal<long[]> COUNTERS = ThreadLocal.withInitial(() -> new long[2]);
+  private static final int OPENED_SESSIONS = 0;
+  private static final int PREPARED_STATEMENTS = 1;
+
+  private DbSessionCounters() {
+    // only statics
+  }
+
+  public static long openedSessions() {
+    return COUNTERS.get()[OPENED_SESSIONS];
+  }
+
+  public static long preparedStatements() {
+    return COUNTERS.get()[PREPARED_STATEMENTS];
+  }
+
+  static void incrementOpenedSessions() {
+    COUNTERS.get()[OPENED_SESSIONS]++;
+  }
+
+  static void incrementPreparedStatements() {
+    COUNTERS.get()[PREPARED_STATEMENTS]++;
+  }
+}
@@ -315,13 +315,22 @@ public class MyBatis implements Startable {
 
   public DbSession openSession(boolean batch) {
     if (batch) {
-      SqlSession session = sessionFactory.openSession(ExecutorType.BATCH, TransactionIsolationLevel.READ_COMMITTED);
-      return new BatchSession(session);
+      return openBatchSession(BatchSession.MAX_BATCH_SIZE);
     }
     SqlSession session = sessionFactory.openSession(ExecutorType.REUSE, TransactionIsolationLevel.READ_COMMITTED);
+    DbSessionCounters.incrementOpenedSessions();
     return new DbSessionImpl(session);
   }
 
+  /**
+   * Batch session which flushes and commits every {@code batchSize} write statements
+   */
+  public DbSession openBatchSession(int batchSize) {
+    SqlSession session = sessionFactory.openSession(ExecutorType.BATCH, TransactionIsolationLevel.READ_COMMITTED);
+    DbSessionCounters.incrementOpenedSessions();
+    return new BatchSession(session, batchSize);
+  }
+
   /**
    * Create a PreparedStatement for SELECT requests with scrolling of results
    */
@@ -335,6 +344,7 @@ public class MyBatis implements Startable {
     try {
       PreparedStatement stmt = session.getConnection().prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
       stmt.setFetchSize(fetchSize);
+      DbSessionCounters.incrementPreparedStatements();
       return stmt;
     } catch (SQLException e) {
       throw new IllegalStateException("Fail to create SQL statement: " + sql, e);
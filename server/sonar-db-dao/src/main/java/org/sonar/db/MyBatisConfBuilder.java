@@ -49,6 +49,7 @@ class MyBatisConfBuilder {
     this.conf.getVariables().setProperty("_from_dual", dialect.getSqlFromDual());
     this.conf.getVariables().setProperty("_scrollFetchSize", String.valueOf(dialect.getScrollDefaultFetchSize()));
     this.conf.setLocalCacheScope(LocalCacheScope.STATEMENT);
+    this.conf.addInterceptor(new PreparedStatementCounterInterceptor());
   }
 
   void loadAlias(String alias, Class dtoClass) {
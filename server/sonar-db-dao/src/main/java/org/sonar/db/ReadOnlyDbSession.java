@@ -0,0 +1,47 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+/**
+ * A {@link DelegatingDbSession} which can be shared by several readers of the same unit of work: calls to
+ * {@link #close()} are ignored and calls to {@link #commit()} are rejected. The owner of the wrapped session is
+ * responsible for rolling it back and closing it.
+ */
+public class ReadOnlyDbSession extends DelegatingDbSession {
+
+  public ReadOnlyDbSession(DbSession delegate) {
+    super(delegate);
+  }
+
+  @Override
+  protected void doClose() {
+    // closed by the owner of the wrapped session
+  }
+
+  @Override
+  public void commit() {
+    throw new UnsupportedOperationException("Read-only session can not be committed");
+  }
+
+  @Override
+  public void commit(boolean force) {
+    throw new UnsupportedOperationException("Read-only session can not be committed");
+  }
+}
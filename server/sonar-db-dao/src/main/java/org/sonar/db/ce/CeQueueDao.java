@@ -39,7 +39,12 @@ import static org.sonar.db.ce.CeQueueDto.Status.PENDING;
 
 public class CeQueueDao implements Dao {
 
-  private static final Pagination ONE_RESULT_PAGINATION = Pagination.forPage(1).andSize(1);
+  /**
+   * Maximum number of eligible tasks loaded by {@link #peek(DbSession, String)}.
+   */
+  static final int PEEK_CHUNK_SIZE = 10;
+  private static final Pagination PEEK_PAGINATION = Pagination.forPage(1).andSize(PEEK_CHUNK_SIZE);
+  private static final RowBounds PEEK_ROW_BOUNDS = new RowBounds(0, PEEK_CHUNK_SIZE);
 
   private final System2 system2;
 
@@ -166,14 +171,27 @@ public class CeQueueDao implements Dao {
     return builder.build();
   }
 
+  /**
+   * Claims the oldest eligible task for the specified worker.
+   * <p>
+   * Up to {@link #PEEK_CHUNK_SIZE} eligible tasks are loaded at once and claimed in order until one is not already
+   * claimed by another worker. On databases which support it, eligible tasks are locked when they are loaded, and
+   * tasks already locked by other workers are skipped ({@code SKIP LOCKED} on PostgreSQL and Oracle, {@code READPAST}
+   * on Microsoft SQL Server). Locks are released when the session is committed.
+   */
   public Optional<CeQueueDto> peek(DbSession session, String workerUuid) {
-    List<String> eligibles = mapper(session).selectEligibleForPeek(ONE_RESULT_PAGINATION);
-    if (eligibles.isEmpty()) {
-      return Optional.empty();
+    List<String> eligibles = mapper(session).selectEligibleForPeek(PEEK_PAGINATION, PEEK_ROW_BOUNDS);
+    for (String eligible : eligibles) {
+      Optional<CeQueueDto> peeked = tryToPeek(session, eligible, workerUuid);
+      if (peeked.isPresent()) {
+        return peeked;
+      }
     }
-
-    String eligible = eligibles.get(0);
-    return tryToPeek(session, eligible, workerUuid);
+    if (!eligibles.isEmpty()) {
+      // release locks on eligible tasks
+      session.commit();
+    }
+    return Optional.empty();
   }
 
   private Optional<CeQueueDto> tryToPeek(DbSession session, String eligibleTaskUuid, String workerUuid) {
@@ -84,6 +84,18 @@ public class CeTaskInputDao implements Dao {
     return dbSession.getMapper(CeTaskInputMapper.class).selectUuidsNotInQueue();
   }
 
+  public List<String> selectUuidsNotInQueueCreatedBefore(DbSession dbSession, long createdBefore) {
+    return dbSession.getMapper(CeTaskInputMapper.class).selectUuidsNotInQueueCreatedBefore(createdBefore);
+  }
+
+  /**
+   * The specified uuids which have data, in no particular order.
+   */
+  public List<String> selectUuidsWithData(DbSession dbSession, Collection<String> uuids) {
+    CeTaskInputMapper mapper = dbSession.getMapper(CeTaskInputMapper.class);
+    return DatabaseUtils.executeLargeInputs(uuids, mapper::selectUuidsWithData);
+  }
+
   public void deleteByUuids(DbSession dbSession, Collection<String> uuids) {
     CeTaskInputMapper mapper = dbSession.getMapper(CeTaskInputMapper.class);
     DatabaseUtils.executeLargeUpdates(uuids, mapper::deleteByUuids);
@@ -28,4 +28,8 @@ public interface CeTaskInputMapper {
 
   List<String> selectUuidsNotInQueue();
 
+  List<String> selectUuidsNotInQueueCreatedBefore(@Param("createdBefore") long createdBefore);
+
+  List<String> selectUuidsWithData(@Param("uuids") List<String> uuids);
+
 }
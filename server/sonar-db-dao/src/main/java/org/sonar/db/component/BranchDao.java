@@ -110,6 +110,14 @@ public class BranchDao implements Dao {
     return Optional.ofNullable(mapper(session).selectByUuid(uuid));
   }
 
+  /**
+   * Same as {@link #selectByUuid(DbSession, String)}, but the row of the branch is locked until the end of the
+   * transaction, so that the updates of data of the branch which depend on their previous values are serialized.
+   */
+  public Optional<BranchDto> selectByUuidForUpdate(DbSession session, String uuid) {
+    return Optional.ofNullable(mapper(session).selectByUuidForUpdate(uuid));
+  }
+
   public boolean hasNonMainBranches(DbSession dbSession) {
     return mapper(dbSession).countNonMainBranches() > 0L;
   }
@@ -42,6 +42,8 @@ public interface BranchMapper {
 
   BranchDto selectByUuid(@Param("uuid") String uuid);
 
+  BranchDto selectByUuidForUpdate(@Param("uuid") String uuid);
+
   Collection<BranchDto> selectByProjectUuid(@Param("projectUuid") String projectUuid);
 
   List<BranchDto> selectByBranchKeys(@Param("branchKeyByProjectUuid") Map<String, String> branchKeyByProjectUuid);
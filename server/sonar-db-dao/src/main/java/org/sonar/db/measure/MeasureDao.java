@@ -23,10 +23,13 @@ import com.google.common.collect.Lists;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.core.util.UuidFactory;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
+
 public class MeasureDao implements Dao {
 
   private final UuidFactory uuidFactory;
@@ -39,6 +42,14 @@ public class MeasureDao implements Dao {
     return Optional.ofNullable(mapper(dbSession).selectLastMeasure(componentUuid, metricKey));
   }
 
+  /**
+   * Streams the measures of the last analysis of all the specified components, whatever their metric. Component uuids
+   * are partitioned so that a single query never has more than 1000 of them.
+   */
+  public void scrollLastMeasures(DbSession dbSession, Collection<String> largeComponentUuids, ResultHandler<MeasureDto> handler) {
+    executeLargeInputsWithoutOutput(largeComponentUuids, componentUuids -> mapper(dbSession).scrollLastMeasures(componentUuids, handler));
+  }
+
   public Optional<MeasureDto> selectMeasure(DbSession dbSession, String analysisUuid, String componentUuid, String metricKey) {
     return Optional.ofNullable(mapper(dbSession).selectMeasure(analysisUuid, componentUuid, metricKey));
   }
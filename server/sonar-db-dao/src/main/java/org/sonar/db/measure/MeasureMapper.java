@@ -19,9 +19,11 @@
  */
 package org.sonar.db.measure;
 
+import java.util.Collection;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 public interface MeasureMapper {
 
@@ -31,6 +33,10 @@ public interface MeasureMapper {
     @Param("metricKey") String metricKey
   );
 
+  void scrollLastMeasures(
+    @Param("componentUuids") Collection<String> componentUuids,
+    ResultHandler<MeasureDto> handler);
+
   @CheckForNull
   MeasureDto selectMeasure(
     @Param("analysisUuid") String analysisUuid,
@@ -20,11 +20,15 @@
 package org.sonar.db.purge;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
@@ -35,6 +39,7 @@ class PurgeCommands {
 
   private static final int MAX_SNAPSHOTS_PER_QUERY = 1000;
   private static final int MAX_RESOURCES_PER_QUERY = 1000;
+  private static final int MAX_ROWS_PER_QUERY = 1000;
   private static final String[] UNPROCESSED_STATUS = new String[] {"U"};
 
   private final DbSession session;
@@ -72,21 +77,9 @@ class PurgeCommands {
     List<List<String>> analysisUuidsPartitions = Lists.partition(purgeMapper.selectAnalysisUuids(new PurgeSnapshotQuery(rootComponentUuid)), MAX_SNAPSHOTS_PER_QUERY);
 
     deleteAnalysisDuplications(analysisUuidsPartitions);
-
-    profiler.start("deleteAnalyses (project_measures)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisMeasures);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAnalyses (analysis_properties)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisProperties);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAnalyses (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalyses);
-    session.commit();
-    profiler.stop();
+    deleteInBatches("deleteAnalyses (project_measures)", analysisUuidsPartitions, purgeMapper::deleteAnalysisMeasures);
+    deleteInBatches("deleteAnalyses (analysis_properties)", analysisUuidsPartitions, purgeMapper::deleteAnalysisProperties);
+    deleteInBatches("deleteAnalyses (snapshots)", analysisUuidsPartitions, purgeMapper::deleteAnalyses);
   }
 
   void deleteAbortedAnalyses(String rootUuid) {
@@ -101,31 +94,11 @@ class PurgeCommands {
     List<List<String>> analysisUuidsPartitions = Lists.partition(analysisIdUuids, MAX_SNAPSHOTS_PER_QUERY);
 
     deleteAnalysisDuplications(analysisUuidsPartitions);
-
-    profiler.start("deleteAnalyses (event_component_changes)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisEventComponentChanges);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAnalyses (events)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisEvents);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAnalyses (project_measures)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisMeasures);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAnalyses (analysis_properties)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisProperties);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAnalyses (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalyses);
-    session.commit();
-    profiler.stop();
+    deleteInBatches("deleteAnalyses (event_component_changes)", analysisUuidsPartitions, purgeMapper::deleteAnalysisEventComponentChanges);
+    deleteInBatches("deleteAnalyses (events)", analysisUuidsPartitions, purgeMapper::deleteAnalysisEvents);
+    deleteInBatches("deleteAnalyses (project_measures)", analysisUuidsPartitions, purgeMapper::deleteAnalysisMeasures);
+    deleteInBatches("deleteAnalyses (analysis_properties)", analysisUuidsPartitions, purgeMapper::deleteAnalysisProperties);
+    deleteInBatches("deleteAnalyses (snapshots)", analysisUuidsPartitions, purgeMapper::deleteAnalyses);
   }
 
   void purgeAnalyses(List<String> analysisUuids) {
@@ -183,12 +156,47 @@ class PurgeCommands {
   }
 
   private void deleteAnalysisDuplications(List<List<String>> snapshotUuidsPartitions) {
-    profiler.start("deleteAnalysisDuplications (duplications_index)");
-    snapshotUuidsPartitions.forEach(purgeMapper::deleteAnalysisDuplications);
-    session.commit();
+    deleteInBatches("deleteAnalysisDuplications (duplications_index)", snapshotUuidsPartitions, purgeMapper::deleteAnalysisDuplications);
+  }
+
+  /**
+   * Each batch is committed on its own, so that transactions stay small whatever the size of the project, and so
+   * that an interrupted deletion can be resumed by deleting the remaining rows.
+   */
+  private void deleteInBatches(String table, List<List<String>> partitions, Consumer<List<String>> deleteBatch) {
+    profiler.start(table);
+    for (List<String> partition : partitions) {
+      deleteBatch.accept(partition);
+      session.commit();
+      profiler.progress(partition.size());
+    }
     profiler.stop();
   }
 
+  /**
+   * Same as {@link #deleteInBatches(String, List, Consumer)}, except that keys are selected page by page, in increasing
+   * order from the last key of the previous page, so that the keys of large projects are never all loaded in memory.
+   * Each page is deleted from the tables in the iteration order of {@code deletesByTable}.
+   */
+  private void deleteInPages(BiFunction<String, Integer, List<String>> selectPage, Map<String, Consumer<List<String>>> deletesByTable) {
+    String afterKey = null;
+    List<String> page = selectPage.apply(afterKey, MAX_ROWS_PER_QUERY);
+    while (!page.isEmpty()) {
+      for (Map.Entry<String, Consumer<List<String>>> delete : deletesByTable.entrySet()) {
+        profiler.start(delete.getKey());
+        delete.getValue().accept(page);
+        session.commit();
+        profiler.progress(page.size());
+        profiler.stop();
+      }
+      if (page.size() < MAX_ROWS_PER_QUERY) {
+        return;
+      }
+      afterKey = page.get(page.size() - 1);
+      page = selectPage.apply(afterKey, MAX_ROWS_PER_QUERY);
+    }
+  }
+
   void deletePermissions(String rootUuid) {
     profiler.start("deletePermissions (group_roles)");
     purgeMapper.deleteGroupRolesByComponentUuid(rootUuid);
@@ -202,15 +210,10 @@ class PurgeCommands {
   }
 
   void deleteIssues(String rootUuid) {
-    profiler.start("deleteIssues (issue_changes)");
-    purgeMapper.deleteIssueChangesByProjectUuid(rootUuid);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteIssues (issues)");
-    purgeMapper.deleteIssuesByProjectUuid(rootUuid);
-    session.commit();
-    profiler.stop();
+    // changes are deleted before their issues, so that none is left behind if the deletion is interrupted
+    deleteInPages((afterKey, limit) -> purgeMapper.selectIssueKeysByProjectUuid(rootUuid, afterKey, limit), ImmutableMap.of(
+      "deleteIssues (issue_changes)", purgeMapper::deleteIssueChangesFromIssueKeys,
+      "deleteIssues (issues)", purgeMapper::deleteIssuesFromKeys));
   }
 
   void deleteLinks(String rootUuid) {
@@ -296,10 +299,8 @@ class PurgeCommands {
   }
 
   void deleteFileSources(String rootUuid) {
-    profiler.start("deleteFileSources (file_sources)");
-    purgeMapper.deleteFileSourcesByProjectUuid(rootUuid);
-    session.commit();
-    profiler.stop();
+    deleteInPages((afterKey, limit) -> purgeMapper.selectFileSourceFileUuidsByProjectUuid(rootUuid, afterKey, limit),
+      ImmutableMap.of("deleteFileSources (file_sources)", purgeMapper::deleteFileSourcesByFileUuid));
   }
 
   void deleteCeActivity(String rootUuid) {
@@ -414,10 +415,8 @@ class PurgeCommands {
   }
 
   void deleteLiveMeasures(String rootUuid) {
-    profiler.start("deleteLiveMeasures (live_measures)");
-    purgeMapper.deleteLiveMeasuresByProjectUuid(rootUuid);
-    session.commit();
-    profiler.stop();
+    deleteInPages((afterKey, limit) -> purgeMapper.selectLiveMeasureUuidsByProjectUuid(rootUuid, afterKey, limit),
+      ImmutableMap.of("deleteLiveMeasures (live_measures)", purgeMapper::deleteLiveMeasuresByUuids));
   }
 
   void deleteNewCodePeriods(String rootUuid) {
@@ -29,28 +29,45 @@ import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.core.config.PurgeConstants;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 public class PurgeConfiguration {
 
+  public static final String PARALLELISM_PROPERTY = "sonar.ce.task.purgeParallelism";
+  public static final String HOUSEKEEPING_IN_BACKGROUND_PROPERTY = "sonar.ce.task.purgeHousekeepingInBackground";
+
   private final String rootUuid;
   private final String projectUuid;
   private final int maxAgeInDaysOfClosedIssues;
   private final Optional<Integer> maxAgeInDaysOfInactiveBranches;
   private final System2 system2;
   private final Set<String> disabledComponentUuids;
+  private final int parallelism;
+  private final boolean housekeepingInBackground;
 
   public PurgeConfiguration(String rootUuid, String projectUuid, int maxAgeInDaysOfClosedIssues,
     Optional<Integer> maxAgeInDaysOfInactiveBranches, System2 system2, Set<String> disabledComponentUuids) {
+    this(rootUuid, projectUuid, maxAgeInDaysOfClosedIssues, maxAgeInDaysOfInactiveBranches, system2, disabledComponentUuids, 1, false);
+  }
+
+  public PurgeConfiguration(String rootUuid, String projectUuid, int maxAgeInDaysOfClosedIssues,
+    Optional<Integer> maxAgeInDaysOfInactiveBranches, System2 system2, Set<String> disabledComponentUuids,
+    int parallelism, boolean housekeepingInBackground) {
+    checkArgument(parallelism >= 1, "Property %s must be >= 1, got %s", PARALLELISM_PROPERTY, parallelism);
     this.rootUuid = rootUuid;
     this.projectUuid = projectUuid;
     this.maxAgeInDaysOfClosedIssues = maxAgeInDaysOfClosedIssues;
     this.system2 = system2;
     this.disabledComponentUuids = disabledComponentUuids;
     this.maxAgeInDaysOfInactiveBranches = maxAgeInDaysOfInactiveBranches;
+    this.parallelism = parallelism;
+    this.housekeepingInBackground = housekeepingInBackground;
   }
 
   public static PurgeConfiguration newDefaultPurgeConfiguration(Configuration config, String rootUuid, String projectUuid, Set<String> disabledComponentUuids) {
     return new PurgeConfiguration(rootUuid, projectUuid, config.getInt(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES).get(),
-      config.getInt(PurgeConstants.DAYS_BEFORE_DELETING_INACTIVE_BRANCHES_AND_PRS), System2.INSTANCE, disabledComponentUuids);
+      config.getInt(PurgeConstants.DAYS_BEFORE_DELETING_INACTIVE_BRANCHES_AND_PRS), System2.INSTANCE, disabledComponentUuids,
+      config.getInt(PARALLELISM_PROPERTY).orElse(1), config.getBoolean(HOUSEKEEPING_IN_BACKGROUND_PROPERTY).orElse(false));
   }
 
   /**
@@ -73,6 +90,23 @@ public class PurgeConfiguration {
     return disabledComponentUuids;
   }
 
+  /**
+   * Maximum number of tables purged concurrently, each on its own connection.
+   */
+  public int parallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Whether the purge of data which is not related to the analysis (closed issues, old tasks, inactive branches...)
+   * is deferred to a background job rather than being executed during the analysis.
+   *
+   * @see PurgeDao#housekeeping(org.sonar.db.DbSession, PurgeConfiguration, PurgeListener, PurgeProfiler)
+   */
+  public boolean isHousekeepingInBackground() {
+    return housekeepingInBackground;
+  }
+
   @CheckForNull
   public Date maxLiveDateOfClosedIssues() {
     return maxLiveDateOfClosedIssues(new Date(system2.now()));
@@ -34,9 +34,11 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
+import org.sonar.db.MyBatis;
 import org.sonar.db.component.BranchMapper;
 import org.sonar.db.component.ComponentDto;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Optional.ofNullable;
 import static org.sonar.api.utils.DateUtils.dateToLong;
@@ -49,11 +51,18 @@ public class PurgeDao implements Dao {
   private static final String SCOPE_PROJECT = "PRJ";
 
   private final System2 system2;
+  private final MyBatis myBatis;
 
-  public PurgeDao(System2 system2) {
+  public PurgeDao(System2 system2, MyBatis myBatis) {
     this.system2 = system2;
+    this.myBatis = myBatis;
   }
 
+  /**
+   * Purges the analyses and the disabled components of the specified root component, then executes the
+   * {@link #housekeeping(DbSession, PurgeConfiguration, PurgeListener, PurgeProfiler) housekeeping} unless
+   * {@link PurgeConfiguration#isHousekeepingInBackground() it is deferred} to the caller.
+   */
   public void purge(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler) {
     PurgeMapper mapper = session.getMapper(PurgeMapper.class);
     PurgeCommands commands = new PurgeCommands(session, mapper, profiler, system2);
@@ -61,15 +70,30 @@ public class PurgeDao implements Dao {
     deleteAbortedAnalyses(rootUuid, commands);
     purgeAnalyses(commands, rootUuid);
     purgeDisabledComponents(commands, conf, listener);
+
+    if (!conf.isHousekeepingInBackground()) {
+      housekeeping(session, conf, listener, profiler);
+    }
+  }
+
+  /**
+   * Purges the data of the specified root component which does not relate to its last analysis: old closed issues,
+   * old Compute Engine tasks, old disabled components and inactive branches. It can safely be executed outside
+   * of the analysis and, as every deletion is idempotent, it can be executed again if it has been interrupted.
+   */
+  public void housekeeping(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler) {
+    PurgeMapper mapper = session.getMapper(PurgeMapper.class);
+    PurgeCommands commands = new PurgeCommands(session, mapper, profiler, system2);
+    String rootUuid = conf.rootUuid();
     deleteOldClosedIssues(conf, mapper, listener);
     purgeOldCeActivities(rootUuid, commands);
     purgeOldCeScannerContexts(rootUuid, commands);
 
     deleteOldDisabledComponents(commands, mapper, rootUuid);
-    purgeStaleBranches(commands, conf, mapper, rootUuid);
+    purgeStaleBranches(session, commands, conf, mapper, newExecutor(profiler, conf.parallelism()));
   }
 
-  private static void purgeStaleBranches(PurgeCommands commands, PurgeConfiguration conf, PurgeMapper mapper, String rootUuid) {
+  private static void purgeStaleBranches(DbSession session, PurgeCommands commands, PurgeConfiguration conf, PurgeMapper mapper, PurgeExecutor executor) {
     Optional<Date> maxDate = conf.maxLiveDateOfInactiveBranches();
     if (!maxDate.isPresent()) {
       // not available if branch plugin is not installed
@@ -81,8 +105,8 @@ public class PurgeDao implements Dao {
     List<String> branchUuids = mapper.selectStaleBranchesAndPullRequests(conf.projectUuid(), maxDateValue);
 
     for (String branchUuid : branchUuids) {
-      if (!rootUuid.equals(branchUuid)) {
-        deleteRootComponent(branchUuid, mapper, commands);
+      if (!conf.rootUuid().equals(branchUuid)) {
+        deleteRootComponent(session, branchUuid, mapper, commands, executor);
       }
     }
   }
@@ -174,37 +198,52 @@ public class PurgeDao implements Dao {
     PurgeProfiler profiler = new PurgeProfiler();
     PurgeMapper purgeMapper = mapper(session);
     PurgeCommands purgeCommands = new PurgeCommands(session, profiler, system2);
-    deleteRootComponent(uuid, purgeMapper, purgeCommands);
+    deleteRootComponent(session, uuid, purgeMapper, purgeCommands, newExecutor(profiler, 1));
   }
 
   public void deleteProject(DbSession session, String uuid) {
+    deleteProject(session, uuid, 1);
+  }
+
+  /**
+   * Deletes the specified project and all its branches. Up to {@code parallelism} tables are purged concurrently,
+   * each on its own connection.
+   */
+  public void deleteProject(DbSession session, String uuid, int parallelism) {
     PurgeProfiler profiler = new PurgeProfiler();
     PurgeMapper purgeMapper = mapper(session);
     PurgeCommands purgeCommands = new PurgeCommands(session, profiler, system2);
+    PurgeExecutor executor = newExecutor(profiler, parallelism);
 
     session.getMapper(BranchMapper.class).selectByProjectUuid(uuid).stream()
       .filter(branch -> !uuid.equals(branch.getUuid()))
-      .forEach(branch -> deleteRootComponent(branch.getUuid(), purgeMapper, purgeCommands));
+      .forEach(branch -> deleteRootComponent(session, branch.getUuid(), purgeMapper, purgeCommands, executor));
 
-    deleteRootComponent(uuid, purgeMapper, purgeCommands);
+    deleteRootComponent(session, uuid, purgeMapper, purgeCommands, executor);
   }
 
-  private static void deleteRootComponent(String rootUuid, PurgeMapper mapper, PurgeCommands commands) {
+  private static void deleteRootComponent(DbSession session, String rootUuid, PurgeMapper mapper, PurgeCommands commands, PurgeExecutor executor) {
     List<String> rootAndModulesOrSubviews = mapper.selectRootAndModulesOrSubviewsByProjectUuid(rootUuid);
     commands.deleteLinks(rootUuid);
-    commands.deleteAnalyses(rootUuid);
     commands.deleteByRootAndModulesOrSubviews(rootAndModulesOrSubviews);
-    commands.deleteIssues(rootUuid);
-    commands.deleteFileSources(rootUuid);
-    commands.deleteCeActivity(rootUuid);
-    commands.deleteCeQueue(rootUuid);
+    // largest tables, which are independent of each other
+    executor.execute(session, commands, asList(
+      c -> c.deleteAnalyses(rootUuid),
+      c -> c.deleteIssues(rootUuid),
+      c -> c.deleteFileSources(rootUuid),
+      c -> c.deleteLiveMeasures(rootUuid),
+      // CE tables share child tables (task characteristics, inputs, scanner contexts...), which would risk deadlocks
+      c -> {
+        c.deleteCeActivity(rootUuid);
+        c.deleteCeQueue(rootUuid);
+      }));
     commands.deleteWebhooks(rootUuid);
     commands.deleteWebhookDeliveries(rootUuid);
-    commands.deleteLiveMeasures(rootUuid);
     commands.deleteProjectMappings(rootUuid);
     commands.deleteProjectAlmBindings(rootUuid);
     commands.deletePermissions(rootUuid);
     commands.deleteNewCodePeriods(rootUuid);
+    // the branch and its components are deleted last, so that the deletion can be executed again if it has been interrupted
     commands.deleteBranch(rootUuid);
     commands.deleteComponents(rootUuid);
     commands.deleteProject(rootUuid);
@@ -251,6 +290,10 @@ public class PurgeDao implements Dao {
     new PurgeCommands(session, profiler, system2).deleteAnalyses(analysisUuids);
   }
 
+  private PurgeExecutor newExecutor(PurgeProfiler profiler, int parallelism) {
+    return new PurgeExecutor(myBatis, profiler, system2, parallelism);
+  }
+
   private static PurgeMapper mapper(DbSession session) {
     return session.getMapper(PurgeMapper.class);
   }
@@ -0,0 +1,95 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.purge;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.MyBatis;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
+
+/**
+ * Executes tasks of {@link PurgeCommands} which delete rows from tables independent of each other.
+ * <p>
+ * With a parallelism of 1, tasks are executed one after the other by the calling thread, on the session of the caller.
+ * Otherwise, they are executed concurrently, each on its own {@link DbSession}, hence on its own connection.
+ */
+class PurgeExecutor {
+
+  private final MyBatis myBatis;
+  private final PurgeProfiler profiler;
+  private final System2 system2;
+  private final int parallelism;
+
+  PurgeExecutor(MyBatis myBatis, PurgeProfiler profiler, System2 system2, int parallelism) {
+    checkArgument(parallelism >= 1, "Parallelism must be >= 1, got %s", parallelism);
+    this.myBatis = myBatis;
+    this.profiler = profiler;
+    this.system2 = system2;
+    this.parallelism = parallelism;
+  }
+
+  void execute(DbSession session, PurgeCommands commands, List<Consumer<PurgeCommands>> tasks) {
+    if (parallelism == 1 || tasks.size() == 1) {
+      tasks.forEach(task -> task.accept(commands));
+      return;
+    }
+
+    // rows deleted by the other sessions must not be locked by the transaction of the caller
+    session.commit();
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()), new ThreadFactoryBuilder()
+      .setNameFormat("purge-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Future<?>> futures = tasks.stream()
+        .map(task -> executorService.submit(() -> executeInOwnSession(task)))
+        .collect(toList(tasks.size()));
+      futures.forEach(PurgeExecutor::waitFor);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void executeInOwnSession(Consumer<PurgeCommands> task) {
+    try (DbSession taskSession = myBatis.openSession(true)) {
+      task.accept(new PurgeCommands(taskSession, profiler, system2));
+    }
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while purging", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to purge", e.getCause());
+    }
+  }
+}
@@ -84,9 +84,10 @@ public interface PurgeMapper {
 
   List<PurgeableAnalysisDto> selectPurgeableAnalyses(@Param("componentUuid") String componentUuid);
 
-  void deleteIssueChangesByProjectUuid(@Param("projectUuid") String projectUuid);
-
-  void deleteIssuesByProjectUuid(@Param("projectUuid") String projectUuid);
+  /**
+   * At most {@code limit} keys, in increasing order, greater than {@code afterKey} if not null.
+   */
+  List<String> selectIssueKeysByProjectUuid(@Param("projectUuid") String projectUuid, @Nullable @Param("afterKey") String afterKey, @Param("limit") int limit);
 
   List<String> selectOldClosedIssueKeys(@Param("projectUuid") String projectUuid, @Nullable @Param("toDate") Long toDate);
 
@@ -101,7 +102,10 @@ public interface PurgeMapper {
 
   void deleteIssueChangesFromIssueKeys(@Param("issueKeys") List<String> issueKeys);
 
-  void deleteFileSourcesByProjectUuid(String rootProjectUuid);
+  /**
+   * At most {@code limit} keys, in increasing order, greater than {@code afterKey} if not null.
+   */
+  List<String> selectFileSourceFileUuidsByProjectUuid(@Param("projectUuid") String projectUuid, @Nullable @Param("afterKey") String afterKey, @Param("limit") int limit);
 
   void deleteFileSourcesByFileUuid(@Param("fileUuids") List<String> fileUuids);
 
@@ -143,7 +147,12 @@ public interface PurgeMapper {
 
   void deleteBranchByUuid(@Param("uuid") String uuid);
 
-  void deleteLiveMeasuresByProjectUuid(@Param("projectUuid") String projectUuid);
+  /**
+   * At most {@code limit} keys, in increasing order, greater than {@code afterKey} if not null.
+   */
+  List<String> selectLiveMeasureUuidsByProjectUuid(@Param("projectUuid") String projectUuid, @Nullable @Param("afterKey") String afterKey, @Param("limit") int limit);
+
+  void deleteLiveMeasuresByUuids(@Param("uuids") List<String> uuids);
 
   void deleteLiveMeasuresByComponentUuids(@Param("componentUuids") List<String> componentUuids);
 
@@ -22,18 +22,22 @@ package org.sonar.db.purge;
 import com.google.common.annotations.VisibleForTesting;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sonar.api.utils.TimeUtils;
 import org.sonar.api.utils.log.Logger;
 
+/**
+ * Cumulates the time spent, and the number of keys processed, per table. Purge commands may be executed concurrently,
+ * hence the table being profiled is tracked per thread.
+ */
 public class PurgeProfiler {
 
-  private Map<String, Long> durations = new HashMap<>();
-  private long startTime;
-  private String currentTable;
+  private final Map<String, Long> durations = new ConcurrentHashMap<>();
+  private final Map<String, Long> processedKeys = new ConcurrentHashMap<>();
+  private final ThreadLocal<Measure> current = new ThreadLocal<>();
   private final Clock clock;
 
   public PurgeProfiler() {
@@ -47,21 +51,34 @@ public class PurgeProfiler {
 
   public void reset() {
     durations.clear();
+    processedKeys.clear();
   }
 
   void start(String table) {
-    this.startTime = clock.now();
-    this.currentTable = table;
+    current.set(new Measure(table, clock.now()));
   }
 
   void stop() {
-    final Long cumulatedDuration;
-    if (durations.containsKey(currentTable)) {
-      cumulatedDuration = durations.get(currentTable);
-    } else {
-      cumulatedDuration = 0L;
+    Measure measure = current.get();
+    if (measure != null) {
+      durations.merge(measure.table, clock.now() - measure.startTime, Long::sum);
+      current.remove();
+    }
+  }
+
+  /**
+   * Records that the rows of a batch of {@code count} keys (issue keys, analysis uuids, component uuids...) have been
+   * deleted from the table currently profiled by this thread.
+   */
+  void progress(int count) {
+    Measure measure = current.get();
+    if (measure != null) {
+      processedKeys.merge(measure.table, (long) count, Long::sum);
     }
-    durations.put(currentTable, cumulatedDuration + (clock.now() - startTime));
+  }
+
+  public long getProcessedKeys(String table) {
+    return processedKeys.getOrDefault(table, 0L);
   }
 
   public void dump(long totalTime, Logger logger) {
@@ -72,6 +89,10 @@ public class PurgeProfiler {
       StringBuilder sb = new StringBuilder();
       sb.append("   o ").append(entry.getKey()).append(": ").append(TimeUtils.formatDuration(entry.getValue()))
         .append(" (").append((int) (entry.getValue() / percent)).append("%)");
+      Long keys = processedKeys.get(entry.getKey());
+      if (keys != null) {
+        sb.append(", ").append(keys).append(" keys");
+      }
       logger.info(sb.toString());
     }
   }
@@ -89,6 +110,16 @@ public class PurgeProfiler {
     return result;
   }
 
+  private static final class Measure {
+    private final String table;
+    private final long startTime;
+
+    private Measure(String table, long startTime) {
+      this.table = table;
+      this.startTime = startTime;
+    }
+  }
+
   static class Clock {
     public long now() {
       return System.currentTimeMillis();
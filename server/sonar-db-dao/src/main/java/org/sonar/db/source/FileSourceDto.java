@@ -24,15 +24,15 @@ import com.google.common.base.Splitter;
 import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import net.jpountz.lz4.LZ4BlockInputStream;
-import net.jpountz.lz4.LZ4BlockOutputStream;
-import org.apache.commons.io.IOUtils;
 import org.sonar.db.protobuf.DbFileSources;
 
 import static com.google.common.base.Splitter.on;
@@ -122,6 +122,9 @@ public class FileSourceDto {
 
   public DbFileSources.Data decodeSourceData(byte[] binaryData) {
     try {
+      if (SourceDataBlocks.isEncodedInBlocks(binaryData)) {
+        return SourceDataBlocks.decode(binaryData);
+      }
       return decodeRegularSourceData(binaryData);
     } catch (IOException e) {
       throw new IllegalStateException(
@@ -130,6 +133,40 @@ public class FileSourceDto {
     }
   }
 
+  /**
+   * Decodes the lines between {@code from} and {@code toInclusive}. Some lines out of this range may also be returned.
+   * Data persisted before the introduction of blocks of lines is entirely decoded, until the file is analyzed again.
+   */
+  public DbFileSources.Data decodeSourceData(byte[] binaryData, int from, int toInclusive) {
+    return decodeSourceData(binaryData, (firstLine, lastLine) -> firstLine <= toInclusive && lastLine >= from);
+  }
+
+  /**
+   * Decodes the given lines. Some other lines may also be returned.
+   *
+   * @see #decodeSourceData(byte[], int, int)
+   */
+  public DbFileSources.Data decodeSourceData(byte[] binaryData, Set<Integer> lines) {
+    NavigableSet<Integer> sortedLines = new TreeSet<>(lines);
+    return decodeSourceData(binaryData, (firstLine, lastLine) -> {
+      Integer line = sortedLines.ceiling(firstLine);
+      return line != null && line <= lastLine;
+    });
+  }
+
+  private DbFileSources.Data decodeSourceData(byte[] binaryData, SourceDataBlocks.BlockFilter filter) {
+    if (!SourceDataBlocks.isEncodedInBlocks(binaryData)) {
+      return decodeSourceData(binaryData);
+    }
+    try {
+      return SourceDataBlocks.decode(binaryData, filter);
+    } catch (IOException e) {
+      throw new IllegalStateException(
+        format("Fail to decompress and deserialize source data [uuid=%s,fileUuid=%s,projectUuid=%s]", uuid, fileUuid, projectUuid),
+        e);
+    }
+  }
+
   private static DbFileSources.Data decodeRegularSourceData(byte[] binaryData) throws IOException {
     try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
       return DbFileSources.Data.parseFrom(lz4Input);
@@ -151,19 +188,13 @@ public class FileSourceDto {
 
   /**
    * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
-   * in the column BINARY_DATA.
+   * in the column BINARY_DATA, as blocks of lines which can be decoded independently.
    */
   public static byte[] encodeSourceData(DbFileSources.Data data) {
-    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
-    LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput);
     try {
-      data.writeTo(compressedOutput);
-      compressedOutput.close();
-      return byteOutput.toByteArray();
+      return SourceDataBlocks.encode(data);
     } catch (IOException e) {
       throw new IllegalStateException("Fail to serialize and compress source data", e);
-    } finally {
-      IOUtils.closeQuietly(compressedOutput);
     }
   }
 
@@ -189,6 +220,20 @@ public class FileSourceDto {
     return decodeSourceData(binaryData);
   }
 
+  /**
+   * @see #decodeSourceData(byte[], int, int)
+   */
+  public DbFileSources.Data getSourceData(int from, int toInclusive) {
+    return decodeSourceData(binaryData, from, toInclusive);
+  }
+
+  /**
+   * @see #decodeSourceData(byte[], Set)
+   */
+  public DbFileSources.Data getSourceData(Set<Integer> lines) {
+    return decodeSourceData(binaryData, lines);
+  }
+
   public FileSourceDto setSourceData(DbFileSources.Data data) {
     this.binaryData = encodeSourceData(data);
     return this;
@@ -0,0 +1,141 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import com.google.protobuf.CodedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.sonar.db.protobuf.DbFileSources;
+
+/**
+ * Encoding of {@link DbFileSources.Data} as independent compressed blocks of {@link #LINES_PER_BLOCK} lines,
+ * so that a range of lines can be read without decompressing and parsing the whole file:
+ * <pre>
+ * MAGIC (4 bytes)
+ * number of blocks (int)
+ * for each block: lowest line, highest line, size in bytes (3 ints)
+ * blocks, each one being a LZ4 compressed {@link DbFileSources.Data}
+ * </pre>
+ * The legacy format, a single LZ4 compressed {@link DbFileSources.Data}, can't start with {@link #MAGIC}.
+ */
+final class SourceDataBlocks {
+
+  static final int LINES_PER_BLOCK = 256;
+  private static final byte[] MAGIC = {0, 'S', 'D', 'B'};
+  private static final int BLOCK_HEADER_SIZE = 3 * Integer.BYTES;
+
+  private SourceDataBlocks() {
+    // only statics
+  }
+
+  static boolean isEncodedInBlocks(byte[] binaryData) {
+    if (binaryData.length < MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (binaryData[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static byte[] encode(DbFileSources.Data data) throws IOException {
+    List<DbFileSources.Line> lines = data.getLinesList();
+    int blockCount = (lines.size() + LINES_PER_BLOCK - 1) / LINES_PER_BLOCK;
+    int[] firstLines = new int[blockCount];
+    int[] lastLines = new int[blockCount];
+    byte[][] blocks = new byte[blockCount][];
+    for (int i = 0; i < blockCount; i++) {
+      List<DbFileSources.Line> blockLines = lines.subList(i * LINES_PER_BLOCK, Math.min(lines.size(), (i + 1) * LINES_PER_BLOCK));
+      firstLines[i] = blockLines.stream().mapToInt(DbFileSources.Line::getLine).min().getAsInt();
+      lastLines[i] = blockLines.stream().mapToInt(DbFileSources.Line::getLine).max().getAsInt();
+      blocks[i] = compress(DbFileSources.Data.newBuilder().addAllLines(blockLines).build());
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.write(MAGIC);
+      output.writeInt(blockCount);
+      for (int i = 0; i < blockCount; i++) {
+        output.writeInt(firstLines[i]);
+        output.writeInt(lastLines[i]);
+        output.writeInt(blocks[i].length);
+      }
+      for (byte[] block : blocks) {
+        output.write(block);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  static DbFileSources.Data decode(byte[] binaryData) throws IOException {
+    return decode(binaryData, (firstLine, lastLine) -> true);
+  }
+
+  /**
+   * Decodes only the blocks accepted by the filter. All the lines of these blocks are returned.
+   */
+  static DbFileSources.Data decode(byte[] binaryData, BlockFilter filter) throws IOException {
+    DataInputStream header = new DataInputStream(new ByteArrayInputStream(binaryData, MAGIC.length, binaryData.length - MAGIC.length));
+    int blockCount = header.readInt();
+    int offset = MAGIC.length + Integer.BYTES + blockCount * BLOCK_HEADER_SIZE;
+    DbFileSources.Data.Builder result = DbFileSources.Data.newBuilder();
+    for (int i = 0; i < blockCount; i++) {
+      int firstLine = header.readInt();
+      int lastLine = header.readInt();
+      int size = header.readInt();
+      if (filter.accept(firstLine, lastLine)) {
+        result.addAllLines(decompress(binaryData, offset, size).getLinesList());
+      }
+      offset += size;
+    }
+    return result.build();
+  }
+
+  @FunctionalInterface
+  interface BlockFilter {
+    boolean accept(int firstLine, int lastLine);
+  }
+
+  private static byte[] compress(DbFileSources.Data data) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (LZ4BlockOutputStream output = new LZ4BlockOutputStream(bytes)) {
+      data.writeTo(output);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static DbFileSources.Data decompress(byte[] binaryData, int offset, int size) throws IOException {
+    try (InputStream input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData, offset, size))) {
+      CodedInputStream codedInput = CodedInputStream.newInstance(input);
+      // lines can be very long, for example in minified files
+      codedInput.setSizeLimit(Integer.MAX_VALUE);
+      return DbFileSources.Data.parseFrom(codedInput);
+    }
+  }
+}
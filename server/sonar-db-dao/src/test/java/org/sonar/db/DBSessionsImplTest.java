@@ -126,6 +126,19 @@ public class DBSessionsImplTest {
       .containsOnly(expected);
   }
 
+  @Test
+  public void openBatchSession_always_returns_a_new_batch_session_even_with_caching() {
+    DbSession[] expected = {mock(DbSession.class), mock(DbSession.class)};
+    when(myBatis.openBatchSession(1_000))
+      .thenReturn(expected[0])
+      .thenReturn(expected[1])
+      .thenThrow(oneCallTooMuch());
+    underTest.enableCaching();
+
+    assertThat(Arrays.stream(expected).map(ignored -> underTest.openBatchSession(1_000)).collect(MoreCollectors.toList()))
+      .containsExactly(expected);
+  }
+
   @Test
   public void openSession_with_caching_returns_a_session_per_thread() {
     boolean batchOrRegular = random.nextBoolean();
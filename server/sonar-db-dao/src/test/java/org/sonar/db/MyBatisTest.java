@@ -70,4 +70,22 @@ public class MyBatisTest {
       assertThat(session.getMapper(RuleMapper.class), notNullValue());
     }
   }
+
+  @Test
+  public void count_opened_sessions_and_prepared_statements_of_current_thread() {
+    underTest.start();
+    long openedSessions = DbSessionCounters.openedSessions();
+    long preparedStatements = DbSessionCounters.preparedStatements();
+
+    try (DbSession session = underTest.openSession(false)) {
+      IsAliveMapper mapper = session.getMapper(IsAliveMapper.class);
+      mapper.isAlive();
+      mapper.isAlive();
+      mapper.isAlive();
+    }
+
+    assertThat(DbSessionCounters.openedSessions() - openedSessions, Is.is(1L));
+    // statement is prepared once and then reused by the session
+    assertThat(DbSessionCounters.preparedStatements() - preparedStatements, Is.is(1L));
+  }
 }
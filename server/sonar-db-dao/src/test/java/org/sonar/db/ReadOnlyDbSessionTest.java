@@ -0,0 +1,62 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class ReadOnlyDbSessionTest {
+  private final DbSession delegate = mock(DbSession.class);
+  private final ReadOnlyDbSession underTest = new ReadOnlyDbSession(delegate);
+
+  @Test
+  public void close_does_not_close_delegate() {
+    underTest.close();
+
+    verifyZeroInteractions(delegate);
+  }
+
+  @Test
+  public void commit_fails() {
+    assertThatThrownBy(underTest::commit)
+      .isInstanceOf(UnsupportedOperationException.class)
+      .hasMessage("Read-only session can not be committed");
+    assertThatThrownBy(() -> underTest.commit(true))
+      .isInstanceOf(UnsupportedOperationException.class)
+      .hasMessage("Read-only session can not be committed");
+
+    verifyZeroInteractions(delegate);
+  }
+
+  @Test
+  public void rollback_and_selects_are_delegated() {
+    underTest.rollback();
+    underTest.selectOne("foo");
+
+    verify(delegate).rollback();
+    verify(delegate).selectOne("foo");
+    assertThat(underTest.getDelegate()).isSameAs(delegate);
+  }
+}
@@ -22,12 +22,18 @@ package org.sonar.db.ce;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -37,11 +43,13 @@ import org.mockito.Mockito;
 import org.sonar.api.impl.utils.AlwaysIncreasingSystem2;
 import org.sonar.api.impl.utils.TestSystem2;
 import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 
 import static com.google.common.collect.FluentIterable.from;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 import static org.assertj.core.groups.Tuple.tuple;
@@ -453,6 +461,61 @@ public class CeQueueDaoTest {
     assertThat(peek.get().getWorkerUuid()).isEqualTo(WORKER_UUID_2);
   }
 
+  @Test
+  public void peek_next_eligible_task_if_oldest_one_is_peeked_concurrently_by_another_worker() {
+    CeQueueDto task1 = insertPending(TASK_UUID_1, MAIN_COMPONENT_UUID_1);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insertPending(TASK_UUID_2, MAIN_COMPONENT_UUID_2);
+    when(mockedSystem2.now())
+      .thenAnswer(invocation -> {
+        // another worker peeks the first task between the selection of eligible tasks and the update
+        try (DbSession otherSession = db.getDbClient().openSession(false)) {
+          CeQueueTesting.makeInProgress(otherSession, WORKER_UUID_2, INIT_TIME, task1);
+          otherSession.commit();
+        }
+        return INIT_TIME;
+      })
+      .thenReturn(INIT_TIME);
+
+    Optional<CeQueueDto> peek = underTestWithSystem2Mock.peek(db.getSession(), WORKER_UUID_1);
+
+    assertThat(peek).isPresent();
+    assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
+    assertThat(peek.get().getWorkerUuid()).isEqualTo(WORKER_UUID_1);
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_1).get().getWorkerUuid()).isEqualTo(WORKER_UUID_2);
+  }
+
+  @Test
+  public void peek_by_concurrent_workers_peeks_each_task_once() throws Exception {
+    List<String> taskUuids = IntStream.range(0, 50)
+      .mapToObj(i -> insertPending("TASK_" + i, "PROJECT_" + i).getUuid())
+      .collect(toList());
+    CeQueueDao dao = new CeQueueDao(alwaysIncreasingSystem2);
+    Callable<List<String>> worker = () -> {
+      String workerUuid = Thread.currentThread().getName();
+      List<String> peeked = new ArrayList<>();
+      try (DbSession session = db.getDbClient().openSession(false)) {
+        Optional<CeQueueDto> task = dao.peek(session, workerUuid);
+        while (task.isPresent()) {
+          peeked.add(task.get().getUuid());
+          task = dao.peek(session, workerUuid);
+        }
+      }
+      return peeked;
+    };
+
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<String> peeked = new ArrayList<>();
+      for (Future<List<String>> future : executorService.invokeAll(Collections.nCopies(4, worker))) {
+        peeked.addAll(future.get());
+      }
+      assertThat(peeked).containsExactlyInAnyOrderElementsOf(taskUuids);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
   @Test
   public void select_by_query() {
     // task status not in query
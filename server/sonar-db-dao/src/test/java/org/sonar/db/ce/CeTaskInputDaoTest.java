@@ -28,6 +28,8 @@ import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -97,6 +99,28 @@ public class CeTaskInputDaoTest {
     assertThat(underTest.selectUuidsNotInQueue(dbTester.getSession())).containsOnly("U1");
   }
 
+  @Test
+  public void selectUuidsNotInQueueCreatedBefore() {
+    insertData("U1", NOW - 10);
+    insertData("U2", NOW - 10);
+    insertData("U3", NOW);
+    CeQueueDto inQueue = new CeQueueDto().setUuid("U2").setTaskType(CeTaskTypes.REPORT).setStatus(CeQueueDto.Status.IN_PROGRESS);
+    new CeQueueDao(system).insert(dbTester.getSession(), inQueue);
+
+    assertThat(underTest.selectUuidsNotInQueueCreatedBefore(dbTester.getSession(), NOW)).containsOnly("U1");
+    assertThat(underTest.selectUuidsNotInQueueCreatedBefore(dbTester.getSession(), NOW + 1)).containsOnly("U1", "U3");
+  }
+
+  @Test
+  public void selectUuidsWithData() {
+    underTest.insert(dbTester.getSession(), "U1", IOUtils.toInputStream(SOME_DATA));
+    underTest.insert(dbTester.getSession(), "U2", IOUtils.toInputStream(SOME_DATA));
+    insertData("U3");
+
+    assertThat(underTest.selectUuidsWithData(dbTester.getSession(), asList("U1", "U3", "U4"))).containsOnly("U1");
+    assertThat(underTest.selectUuidsWithData(dbTester.getSession(), emptyList())).isEmpty();
+  }
+
   @Test
   public void deleteByUuids() {
     insertData(A_UUID);
@@ -108,7 +132,11 @@ public class CeTaskInputDaoTest {
   }
 
   private void insertData(String uuid) {
-    dbTester.executeInsert(TABLE_NAME, "task_uuid", uuid, "created_at", NOW, "updated_at", NOW);
+    insertData(uuid, NOW);
+  }
+
+  private void insertData(String uuid, long createdAt) {
+    dbTester.executeInsert(TABLE_NAME, "task_uuid", uuid, "created_at", createdAt, "updated_at", createdAt);
     dbTester.commit();
   }
 }
@@ -505,6 +505,17 @@ public class BranchDaoTest {
     assertThat(underTest.selectByUuid(db.getSession(), "unknown")).isNotPresent();
   }
 
+  @Test
+  public void selectByUuidForUpdate() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto branch = db.components().insertProjectBranch(project);
+
+    assertThat(underTest.selectByUuidForUpdate(db.getSession(), branch.uuid()).get())
+      .extracting(BranchDto::getUuid)
+      .isEqualTo(branch.uuid());
+    assertThat(underTest.selectByUuidForUpdate(db.getSession(), "unknown")).isNotPresent();
+  }
+
   @Test
   public void existsNonMainBranch() {
     assertThat(underTest.hasNonMainBranches(dbSession)).isFalse();
@@ -19,6 +19,7 @@
  */
 package org.sonar.db.measure;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import org.junit.Before;
@@ -35,6 +36,8 @@ import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.component.SnapshotTesting;
 import org.sonar.db.metric.MetricDto;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.api.utils.DateUtils.parseDate;
@@ -86,6 +89,37 @@ public class MeasureDaoTest {
     assertThat(underTest.selectLastMeasure(dbSession, "_missing_", "_missing_")).isEmpty();
   }
 
+  @Test
+  public void scrollLastMeasures_returns_measures_of_last_analysis_of_specified_components() {
+    MetricDto metric = db.measures().insertMetric();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project));
+    ComponentDto otherFile = db.components().insertComponent(newFileDto(project));
+    SnapshotDto lastAnalysis = insertAnalysis(project.uuid(), true);
+    SnapshotDto pastAnalysis = insertAnalysis(project.uuid(), false);
+
+    MeasureDto lastMeasure1 = MeasureTesting.newMeasureDto(metric, file1, lastAnalysis);
+    MeasureDto lastMeasure2 = MeasureTesting.newMeasureDto(metric, file2, lastAnalysis);
+    underTest.insert(db.getSession(), MeasureTesting.newMeasureDto(metric, file1, pastAnalysis));
+    underTest.insert(db.getSession(), lastMeasure1);
+    underTest.insert(db.getSession(), lastMeasure2);
+    underTest.insert(db.getSession(), MeasureTesting.newMeasureDto(metric, otherFile, lastAnalysis));
+
+    List<MeasureDto> selected = new ArrayList<>();
+    underTest.scrollLastMeasures(db.getSession(), asList(file1.uuid(), file2.uuid(), "_missing_"), context -> selected.add(context.getResultObject()));
+
+    assertThat(selected).extracting(MeasureDto::getUuid).containsOnly(lastMeasure1.getUuid(), lastMeasure2.getUuid());
+  }
+
+  @Test
+  public void scrollLastMeasures_does_nothing_if_no_component() {
+    List<MeasureDto> selected = new ArrayList<>();
+    underTest.scrollLastMeasures(db.getSession(), emptyList(), context -> selected.add(context.getResultObject()));
+
+    assertThat(selected).isEmpty();
+  }
+
   @Test
   public void test_selectMeasure() {
     MetricDto metric = db.measures().insertMetric();
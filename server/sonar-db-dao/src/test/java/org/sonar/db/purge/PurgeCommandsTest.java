@@ -476,6 +476,22 @@ public class PurgeCommandsTest {
     assertThat(countIssuesOfRoot(otherProject)).isEqualTo(count * 4);
   }
 
+  @Test
+  public void deleteIssues_reports_progress_of_each_table_to_profiler() {
+    RuleDefinitionDto rule = dbTester.rules().insert();
+    ComponentDto project = dbTester.components().insertPrivateProject();
+    int count = 5;
+    IntStream.range(0, count).forEach(i -> {
+      IssueDto issue = dbTester.issues().insertIssue(t -> t.setRule(rule).setProject(project).setComponent(project));
+      dbTester.issues().insertChange(issue);
+    });
+
+    underTest.deleteIssues(project.uuid());
+
+    assertThat(profiler.getProcessedKeys("deleteIssues (issue_changes)")).isEqualTo(count);
+    assertThat(profiler.getProcessedKeys("deleteIssues (issues)")).isEqualTo(count);
+  }
+
   @Test
   @UseDataProvider("projectsAndViews")
   public void deleteIssues_deletes_issue_changes(ComponentDto projectOrView) {
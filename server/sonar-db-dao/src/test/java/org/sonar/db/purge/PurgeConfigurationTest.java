@@ -22,11 +22,19 @@ package org.sonar.db.purge;
 import java.util.Date;
 import java.util.Optional;
 import org.junit.Test;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.System2;
+import org.sonar.core.config.PurgeConstants;
+import org.sonar.core.config.PurgeProperties;
 
 import static java.util.Collections.emptySet;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.sonar.db.purge.PurgeConfiguration.HOUSEKEEPING_IN_BACKGROUND_PROPERTY;
+import static org.sonar.db.purge.PurgeConfiguration.PARALLELISM_PROPERTY;
+import static org.sonar.db.purge.PurgeConfiguration.newDefaultPurgeConfiguration;
 
 public class PurgeConfigurationTest {
   @Test
@@ -64,4 +72,35 @@ public class PurgeConfigurationTest {
     assertThat(conf.maxLiveDateOfInactiveBranches()).isEmpty();
   }
 
+  @Test
+  public void purge_sequentially_and_execute_housekeeping_during_analysis_by_default() {
+    MapSettings settings = new MapSettings(new PropertyDefinitions(System2.INSTANCE, PurgeProperties.all()));
+
+    PurgeConfiguration conf = newDefaultPurgeConfiguration(settings.asConfig(), "root", "project", emptySet());
+
+    assertThat(conf.parallelism()).isEqualTo(1);
+    assertThat(conf.isHousekeepingInBackground()).isFalse();
+  }
+
+  @Test
+  public void read_parallelism_and_housekeeping_mode_from_configuration() {
+    MapSettings settings = new MapSettings(new PropertyDefinitions(System2.INSTANCE, PurgeProperties.all()))
+      .setProperty(PARALLELISM_PROPERTY, 4)
+      .setProperty(HOUSEKEEPING_IN_BACKGROUND_PROPERTY, true);
+
+    PurgeConfiguration conf = newDefaultPurgeConfiguration(settings.asConfig(), "root", "project", emptySet());
+
+    assertThat(conf.parallelism()).isEqualTo(4);
+    assertThat(conf.isHousekeepingInBackground()).isTrue();
+  }
+
+  @Test
+  public void fail_if_parallelism_is_less_than_one() {
+    MapSettings settings = new MapSettings(new PropertyDefinitions(System2.INSTANCE, PurgeProperties.all()))
+      .setProperty(PARALLELISM_PROPERTY, 0);
+
+    assertThatThrownBy(() -> newDefaultPurgeConfiguration(settings.asConfig(), "root", "project", emptySet()))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Property sonar.ce.task.purgeParallelism must be >= 1, got 0");
+  }
 }
@@ -527,6 +527,64 @@ public class PurgeDaoTest {
     assertThat(uuidsIn("file_sources", "file_uuid")).containsOnly(otherFileSource.getFileUuid());
   }
 
+  @Test
+  public void delete_project_and_associated_data_with_tables_purged_concurrently() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto branch = db.components().insertProjectBranch(project);
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    ComponentDto branchFile = db.components().insertComponent(newFileDto(branch));
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    IssueDto issue = db.issues().insert(rule, project, file);
+    db.issues().insertChange(issue);
+    db.issues().insert(rule, branch, branchFile);
+    db.fileSources().insertFileSource(file);
+    db.fileSources().insertFileSource(branchFile);
+    MetricDto metric = db.measures().insertMetric();
+    db.measures().insertLiveMeasure(file, metric);
+    db.measures().insertLiveMeasure(branchFile, metric);
+    db.measures().insertMeasure(file, analysis, metric);
+
+    ComponentDto otherProject = db.components().insertPrivateProject();
+    ComponentDto otherFile = db.components().insertComponent(newFileDto(otherProject));
+    SnapshotDto otherAnalysis = db.components().insertSnapshot(otherProject);
+    IssueDto otherIssue = db.issues().insert(rule, otherProject, otherFile);
+    IssueChangeDto otherIssueChange = db.issues().insertChange(otherIssue);
+    FileSourceDto otherFileSource = db.fileSources().insertFileSource(otherFile);
+    db.measures().insertLiveMeasure(otherFile, metric);
+
+    underTest.deleteProject(dbSession, project.uuid(), 4);
+    dbSession.commit();
+
+    assertThat(uuidsIn("components")).containsOnly(otherProject.uuid(), otherFile.uuid());
+    assertThat(uuidsIn("projects")).containsOnly(otherProject.uuid());
+    assertThat(uuidsIn("snapshots")).containsOnly(otherAnalysis.getUuid());
+    assertThat(uuidsIn("issues", "kee")).containsOnly(otherIssue.getKey());
+    assertThat(uuidsIn("issue_changes", "kee")).containsOnly(otherIssueChange.getKey());
+    assertThat(uuidsIn("file_sources", "file_uuid")).containsOnly(otherFileSource.getFileUuid());
+    assertThat(uuidsIn("live_measures", "component_uuid")).containsOnly(otherFile.uuid());
+    assertThat(db.countRowsOfTable("project_measures")).isZero();
+  }
+
+  @Test
+  public void purge_defers_deletion_of_inactive_branches_to_housekeeping_when_it_is_executed_in_background() {
+    when(system2.now()).thenReturn(new Date().getTime());
+    ComponentDto project = db.components().insertPublicProject();
+    when(system2.now()).thenReturn(DateUtils.addDays(new Date(), -31).getTime());
+    ComponentDto inactiveBranch = db.components().insertProjectBranch(project, b -> b.setBranchType(BranchType.BRANCH));
+    PurgeConfiguration conf = new PurgeConfiguration(project.uuid(), project.uuid(), 30, Optional.of(30), System2.INSTANCE, emptySet(), 1, true);
+
+    underTest.purge(dbSession, conf, PurgeListener.EMPTY, new PurgeProfiler());
+    dbSession.commit();
+
+    assertThat(uuidsIn("components")).containsOnly(project.uuid(), inactiveBranch.uuid());
+
+    underTest.housekeeping(dbSession, conf, PurgeListener.EMPTY, new PurgeProfiler());
+    dbSession.commit();
+
+    assertThat(uuidsIn("components")).containsOnly(project.uuid());
+  }
+
   @Test
   public void delete_webhooks_from_project() {
     OrganizationDto organization = db.organizations().insert();
@@ -19,7 +19,10 @@
  */
 package org.sonar.db.purge;
 
+import java.util.List;
 import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -29,6 +32,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.rule.RuleDefinitionDto;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -163,4 +167,20 @@ public class PurgeMapperTest {
     assertThat(purgeMapper.selectRootAndModulesOrSubviewsByProjectUuid(technicalCopy.uuid()))
       .isEmpty();
   }
+
+  @Test
+  public void selectIssueKeysByProjectUuid_returns_pages_of_keys_of_project_in_increasing_order() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto otherProject = db.components().insertPrivateProject();
+    List<String> keys = IntStream.range(0, 5)
+      .mapToObj(i -> db.issues().insertIssue(t -> t.setRule(rule).setProject(project).setComponent(project)).getKey())
+      .sorted()
+      .collect(Collectors.toList());
+    db.issues().insertIssue(t -> t.setRule(rule).setProject(otherProject).setComponent(otherProject));
+
+    assertThat(purgeMapper.selectIssueKeysByProjectUuid(project.uuid(), null, 3)).containsExactlyElementsOf(keys.subList(0, 3));
+    assertThat(purgeMapper.selectIssueKeysByProjectUuid(project.uuid(), keys.get(2), 3)).containsExactlyElementsOf(keys.subList(3, 5));
+    assertThat(purgeMapper.selectIssueKeysByProjectUuid(project.uuid(), keys.get(4), 3)).isEmpty();
+  }
 }
@@ -23,6 +23,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.utils.log.Logger;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -80,6 +81,47 @@ public class PurgeProfilerTest {
     verify(logger).info(contains("bar: 5ms"));
   }
 
+  @Test
+  public void shouldProfileProgressOfTables() {
+    profiler.start("foo");
+    profiler.progress(1000);
+    profiler.progress(200);
+    clock.sleep(10);
+    profiler.stop();
+    profiler.progress(50);
+
+    profiler.start("bar");
+    clock.sleep(5);
+    profiler.stop();
+
+    assertThat(profiler.getProcessedKeys("foo")).isEqualTo(1200);
+    assertThat(profiler.getProcessedKeys("bar")).isZero();
+    profiler.dump(50, logger);
+    verify(logger).info(contains("foo: 10ms (20%), 1200 keys"));
+  }
+
+  @Test
+  public void shouldProfileTablesPurgedConcurrently() throws InterruptedException {
+    profiler.start("foo");
+    clock.sleep(10);
+    Thread thread = new Thread(() -> {
+      profiler.start("bar");
+      profiler.progress(3);
+      clock.sleep(5);
+      profiler.stop();
+    });
+    thread.start();
+    thread.join();
+    profiler.progress(7);
+    profiler.stop();
+
+    assertThat(profiler.getProcessedKeys("foo")).isEqualTo(7);
+    assertThat(profiler.getProcessedKeys("bar")).isEqualTo(3);
+    profiler.dump(50, logger);
+    verify(logger).info(contains("foo: 15ms"));
+    verify(logger).info(contains("bar: 5ms"));
+  }
+
   private static class MockedClock extends PurgeProfiler.Clock {
     private long now = 0;
 
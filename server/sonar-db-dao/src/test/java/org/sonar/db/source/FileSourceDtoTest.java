@@ -20,11 +20,15 @@
 package org.sonar.db.source;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -80,6 +84,46 @@ public class FileSourceDtoTest {
     return dataBuilder.build();
   }
 
+  @Test
+  public void getSourceData_decodes_legacy_format() {
+    DbFileSources.Data data = SourceDataBlocksTest.newData(3);
+    FileSourceDto underTest = new FileSourceDto().setBinaryData(encodeLegacySourceData(data));
+
+    assertThat(underTest.getSourceData()).isEqualTo(data);
+    assertThat(underTest.getSourceData(2, 2)).isEqualTo(data);
+  }
+
+  @Test
+  public void getSourceData_decodes_only_blocks_of_requested_range() {
+    FileSourceDto underTest = new FileSourceDto().setSourceData(SourceDataBlocksTest.newData(1_000));
+
+    assertThat(underTest.getSourceData().getLinesCount()).isEqualTo(1_000);
+    assertThat(underTest.getSourceData(300, 320).getLinesList()).extracting(DbFileSources.Line::getLine)
+      .contains(300, 320)
+      .hasSize(SourceDataBlocks.LINES_PER_BLOCK);
+    assertThat(underTest.getSourceData(250, 260).getLinesCount()).isEqualTo(2 * SourceDataBlocks.LINES_PER_BLOCK);
+  }
+
+  @Test
+  public void getSourceData_decodes_only_blocks_of_requested_lines() {
+    FileSourceDto underTest = new FileSourceDto().setSourceData(SourceDataBlocksTest.newData(1_000));
+
+    assertThat(underTest.getSourceData(ImmutableSet.of(10, 900)).getLinesList()).extracting(DbFileSources.Line::getLine)
+      .contains(10, 900)
+      .hasSize(2 * SourceDataBlocks.LINES_PER_BLOCK);
+    assertThat(underTest.getSourceData(ImmutableSet.of(2_000)).getLinesCount()).isZero();
+  }
+
+  static byte[] encodeLegacySourceData(DbFileSources.Data data) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (LZ4BlockOutputStream output = new LZ4BlockOutputStream(bytes)) {
+      data.writeTo(output);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
   @Test
   public void new_FileSourceDto_as_lineCount_0_and_rawLineHashes_to_null() {
     FileSourceDto underTest = new FileSourceDto();
@@ -0,0 +1,79 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import java.io.IOException;
+import org.junit.Test;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.source.SourceDataBlocks.LINES_PER_BLOCK;
+
+public class SourceDataBlocksTest {
+
+  @Test
+  public void encode_and_decode_all_lines() throws IOException {
+    DbFileSources.Data data = newData(2 * LINES_PER_BLOCK + 3);
+
+    byte[] bytes = SourceDataBlocks.encode(data);
+
+    assertThat(SourceDataBlocks.isEncodedInBlocks(bytes)).isTrue();
+    assertThat(SourceDataBlocks.decode(bytes)).isEqualTo(data);
+  }
+
+  @Test
+  public void encode_and_decode_empty_data() throws IOException {
+    DbFileSources.Data data = DbFileSources.Data.newBuilder().build();
+
+    byte[] bytes = SourceDataBlocks.encode(data);
+
+    assertThat(SourceDataBlocks.isEncodedInBlocks(bytes)).isTrue();
+    assertThat(SourceDataBlocks.decode(bytes).getLinesCount()).isZero();
+  }
+
+  @Test
+  public void decode_only_the_blocks_accepted_by_filter() throws IOException {
+    byte[] bytes = SourceDataBlocks.encode(newData(3 * LINES_PER_BLOCK));
+
+    // lines of second block
+    DbFileSources.Data data = SourceDataBlocks.decode(bytes, (firstLine, lastLine) -> firstLine <= LINES_PER_BLOCK + 10 && lastLine >= LINES_PER_BLOCK + 5);
+
+    assertThat(data.getLinesList()).extracting(DbFileSources.Line::getLine)
+      .hasSize(LINES_PER_BLOCK)
+      .startsWith(LINES_PER_BLOCK + 1)
+      .endsWith(2 * LINES_PER_BLOCK);
+  }
+
+  @Test
+  public void legacy_format_is_not_encoded_in_blocks() {
+    byte[] legacy = FileSourceDtoTest.encodeLegacySourceData(newData(10));
+
+    assertThat(SourceDataBlocks.isEncodedInBlocks(legacy)).isFalse();
+    assertThat(SourceDataBlocks.isEncodedInBlocks(new byte[0])).isFalse();
+  }
+
+  static DbFileSources.Data newData(int lines) {
+    DbFileSources.Data.Builder builder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= lines; i++) {
+      builder.addLines(DbFileSources.Line.newBuilder().setLine(i).setSource("line " + i));
+    }
+    return builder.build();
+  }
+}
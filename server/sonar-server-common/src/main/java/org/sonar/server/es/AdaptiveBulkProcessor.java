@@ -0,0 +1,301 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+
+/**
+ * Replacement of {@link BulkProcessor} which adapts the size of bulk requests and the number of concurrent bulk
+ * requests to the response times of Elasticsearch and to the rejections of its write thread pool:
+ * <ul>
+ * <li>bulk size grows by 25% when a bulk request takes less than half of {@link #TARGET_LATENCY_MS} and shrinks
+ * by 25% when it takes more than {@link #TARGET_LATENCY_MS}</li>
+ * <li>concurrency grows by one after {@link #FAST_BULKS_BEFORE_MORE_CONCURRENCY} consecutive fast bulk requests</li>
+ * <li>on rejections, bulk size and concurrency are halved and the rejected requests are retried with an exponential
+ * backoff</li>
+ * </ul>
+ * Memory is bounded: bulk requests never exceed {@link #MAX_BULK_BYTES} and adding requests blocks while the
+ * maximum number of concurrent bulk requests are being executed. A maximum concurrency of 0 executes bulk requests
+ * synchronously, in the thread adding the requests.
+ */
+class AdaptiveBulkProcessor {
+  static final long MIN_BULK_BYTES = 256 * 1024L;
+  static final long INITIAL_BULK_BYTES = 1024 * 1024L;
+  static final long MAX_BULK_BYTES = 16 * 1024 * 1024L;
+  static final long TARGET_LATENCY_MS = 1_000L;
+  static final int FAST_BULKS_BEFORE_MORE_CONCURRENCY = 4;
+  private static final int MAX_RETRIES = 8;
+  private static final long INITIAL_BACKOFF_MS = 50L;
+
+  private final BulkExecutor bulkExecutor;
+  private final BulkProcessor.Listener listener;
+  private final int maxConcurrency;
+  @CheckForNull
+  private final ExecutorService executorService;
+  private final AtomicLong executionIds = new AtomicLong();
+  private final AtomicLong sentBytes = new AtomicLong();
+  private final Object lock = new Object();
+  private BulkRequest currentRequest = new BulkRequest();
+
+  // guarded by lock
+  private long bulkBytes = INITIAL_BULK_BYTES;
+  private int concurrency;
+  private int inFlight = 0;
+  private int fastBulks = 0;
+  private long rejections = 0;
+
+  AdaptiveBulkProcessor(BulkExecutor bulkExecutor, BulkProcessor.Listener listener, int maxConcurrency) {
+    this.bulkExecutor = bulkExecutor;
+    this.listener = listener;
+    this.maxConcurrency = maxConcurrency;
+    this.concurrency = Math.min(1, maxConcurrency);
+    if (maxConcurrency > 0) {
+      this.executorService = Executors.newFixedThreadPool(maxConcurrency, new ThreadFactoryBuilder()
+        .setNameFormat("BulkIndexer-%d")
+        .setDaemon(true)
+        .build());
+    } else {
+      this.executorService = null;
+    }
+  }
+
+  synchronized void add(DocWriteRequest<?> request) {
+    currentRequest.add(request);
+    if (currentRequest.estimatedSizeInBytes() >= getBulkBytes()) {
+      flush();
+    }
+  }
+
+  /**
+   * Sends the pending requests and waits for the completion of all bulk requests.
+   *
+   * @return {@code false} if bulk requests are still being executed after the timeout
+   */
+  synchronized boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+    flush();
+    if (executorService == null) {
+      return true;
+    }
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    try {
+      synchronized (lock) {
+        while (inFlight > 0) {
+          long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+          if (remainingMs <= 0) {
+            return false;
+          }
+          lock.wait(remainingMs);
+        }
+      }
+      return true;
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  private void flush() {
+    if (currentRequest.numberOfActions() == 0) {
+      return;
+    }
+    BulkRequest request = currentRequest;
+    currentRequest = new BulkRequest();
+    if (executorService == null) {
+      execute(request);
+      return;
+    }
+    acquireSlot();
+    executorService.execute(() -> {
+      try {
+        execute(request);
+      } finally {
+        releaseSlot();
+      }
+    });
+  }
+
+  private void acquireSlot() {
+    synchronized (lock) {
+      while (inFlight >= concurrency) {
+        try {
+          lock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting for Elasticsearch bulk requests", e);
+        }
+      }
+      inFlight++;
+    }
+  }
+
+  private void releaseSlot() {
+    synchronized (lock) {
+      inFlight--;
+      lock.notifyAll();
+    }
+  }
+
+  private void execute(BulkRequest request) {
+    long executionId = executionIds.incrementAndGet();
+    listener.beforeBulk(executionId, request);
+    sentBytes.addAndGet(request.estimatedSizeInBytes());
+    try {
+      listener.afterBulk(executionId, request, executeWithRetries(request));
+    } catch (RuntimeException e) {
+      listener.afterBulk(executionId, request, e);
+    }
+  }
+
+  /**
+   * Retries the rejected requests until they are all accepted or until {@link #MAX_RETRIES} is reached. The returned
+   * response contains the last response of each request of the bulk, in the order of the bulk.
+   */
+  private BulkResponse executeWithRetries(BulkRequest request) {
+    long start = System.nanoTime();
+    BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+    BulkRequest attempt = request;
+    int[] positions = new int[request.numberOfActions()];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = i;
+    }
+    long backoffMs = INITIAL_BACKOFF_MS;
+    for (int retry = 0;; retry++) {
+      long attemptStart = System.nanoTime();
+      BulkResponse response;
+      try {
+        response = bulkExecutor.execute(attempt);
+      } catch (RuntimeException e) {
+        if (retry >= MAX_RETRIES || !(ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException)) {
+          throw e;
+        }
+        afterAttempt(elapsedMs(attemptStart), attempt.numberOfActions());
+        sleep(backoffMs);
+        backoffMs *= 2;
+        continue;
+      }
+
+      List<Integer> rejected = new ArrayList<>();
+      BulkItemResponse[] attemptItems = response.getItems();
+      for (int i = 0; i < attemptItems.length; i++) {
+        items[positions[i]] = attemptItems[i];
+        if (isRejected(attemptItems[i])) {
+          rejected.add(i);
+        }
+      }
+      afterAttempt(elapsedMs(attemptStart), rejected.size());
+      if (rejected.isEmpty() || retry >= MAX_RETRIES) {
+        return new BulkResponse(items, elapsedMs(start));
+      }
+
+      BulkRequest retryRequest = new BulkRequest();
+      int[] retryPositions = new int[rejected.size()];
+      for (int i = 0; i < rejected.size(); i++) {
+        retryRequest.add(attempt.requests().get(rejected.get(i)));
+        retryPositions[i] = positions[rejected.get(i)];
+      }
+      attempt = retryRequest;
+      positions = retryPositions;
+      sleep(backoffMs);
+      backoffMs *= 2;
+    }
+  }
+
+  private static boolean isRejected(BulkItemResponse item) {
+    return item.isFailed() && item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS;
+  }
+
+  private static long elapsedMs(long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+
+  private static void sleep(long ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while retrying Elasticsearch bulk request", e);
+    }
+  }
+
+  @VisibleForTesting
+  void afterAttempt(long latencyMs, int rejectedRequests) {
+    synchronized (lock) {
+      if (rejectedRequests > 0) {
+        rejections += rejectedRequests;
+        bulkBytes = Math.max(MIN_BULK_BYTES, bulkBytes / 2);
+        concurrency = Math.max(Math.min(1, maxConcurrency), concurrency / 2);
+        fastBulks = 0;
+      } else if (latencyMs > TARGET_LATENCY_MS) {
+        bulkBytes = Math.max(MIN_BULK_BYTES, bulkBytes * 3 / 4);
+        fastBulks = 0;
+      } else if (latencyMs < TARGET_LATENCY_MS / 2) {
+        bulkBytes = Math.min(MAX_BULK_BYTES, bulkBytes * 5 / 4);
+        fastBulks++;
+        if (fastBulks >= FAST_BULKS_BEFORE_MORE_CONCURRENCY && concurrency < maxConcurrency) {
+          concurrency++;
+          fastBulks = 0;
+          lock.notifyAll();
+        }
+      }
+    }
+  }
+
+  long getBulkBytes() {
+    synchronized (lock) {
+      return bulkBytes;
+    }
+  }
+
+  int getConcurrency() {
+    synchronized (lock) {
+      return concurrency;
+    }
+  }
+
+  long getRejections() {
+    synchronized (lock) {
+      return rejections;
+    }
+  }
+
+  long getSentBytes() {
+    return sentBytes.get();
+  }
+
+  @FunctionalInterface
+  interface BulkExecutor {
+    BulkResponse execute(BulkRequest request);
+  }
+}
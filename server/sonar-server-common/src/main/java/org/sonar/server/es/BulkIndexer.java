@@ -22,17 +22,22 @@ package org.sonar.server.es;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.LinkedHashMultiset;
 import com.google.common.collect.Multiset;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
 import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequestBuilder;
-import org.elasticsearch.action.bulk.BackoffPolicy;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkProcessor;
 import org.elasticsearch.action.bulk.BulkProcessor.Listener;
@@ -46,8 +51,6 @@ import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.document.DocumentField;
-import org.elasticsearch.common.unit.ByteSizeUnit;
-import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.sort.SortOrder;
@@ -61,24 +64,29 @@ import static java.lang.String.format;
 /**
  * Helper to bulk requests in an efficient way :
  * <ul>
- * <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
- * <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
+ * <li>bulk request is sent on the wire when its size is higher than a threshold adapted to the response times
+ * of Elasticsearch, see {@link AdaptiveBulkProcessor}</li>
+ * <li>on large table indexing, bulk requests are sent concurrently, replicas and automatic refresh are temporarily
+ * disabled</li>
  * </ul>
  */
 public class BulkIndexer {
 
   private static final Logger LOGGER = Loggers.get(BulkIndexer.class);
-  private static final ByteSizeValue FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB);
-  private static final int FLUSH_ACTIONS = -1;
+  private static final int SCROLL_PAGE_SIZE = 500;
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final int DEFAULT_NUMBER_OF_SHARDS = 5;
 
   private final EsClient client;
   private final IndexType indexType;
-  private final BulkProcessor bulkProcessor;
+  private final AdaptiveBulkProcessor bulkProcessor;
   private final IndexingResult result = new IndexingResult();
   private final IndexingListener indexingListener;
   private final SizeHandler sizeHandler;
+  private long startMs;
+  // requests the next pages of scrolls, see addDeletion(SearchRequestBuilder)
+  @CheckForNull
+  private ExecutorService scrollExecutor;
 
   public BulkIndexer(EsClient client, IndexType indexType, Size size) {
     this(client, indexType, size, IndexingListener.FAIL_ON_ERROR);
@@ -90,12 +98,8 @@ public class BulkIndexer {
     this.sizeHandler = size.createHandler(Runtime2.INSTANCE);
     this.indexingListener = indexingListener;
     BulkProcessorListener bulkProcessorListener = new BulkProcessorListener();
-    this.bulkProcessor = BulkProcessor.builder(client.nativeClient(), bulkProcessorListener)
-      .setBackoffPolicy(BackoffPolicy.exponentialBackoff())
-      .setBulkSize(FLUSH_BYTE_SIZE)
-      .setBulkActions(FLUSH_ACTIONS)
-      .setConcurrentRequests(sizeHandler.getConcurrentRequests())
-      .build();
+    this.bulkProcessor = new AdaptiveBulkProcessor(request -> client.nativeClient().bulk(request).actionGet(),
+      bulkProcessorListener, sizeHandler.getConcurrentRequests());
   }
 
   public IndexType getIndexType() {
@@ -104,6 +108,7 @@ public class BulkIndexer {
 
   public void start() {
     result.clear();
+    startMs = System.currentTimeMillis();
     sizeHandler.beforeStart(this);
   }
 
@@ -111,6 +116,10 @@ public class BulkIndexer {
    * @return the number of documents successfully indexed
    */
   public IndexingResult stop() {
+    if (scrollExecutor != null) {
+      scrollExecutor.shutdown();
+      scrollExecutor = null;
+    }
     try {
       bulkProcessor.awaitClose(1, TimeUnit.MINUTES);
     } catch (InterruptedException e) {
@@ -138,41 +147,78 @@ public class BulkIndexer {
     bulkProcessor.add(request);
   }
 
+  /**
+   * Deletes the documents matching the search request. Documents are streamed by scrolling: the next page of
+   * documents is requested while the deletions of the current page are being added to bulk requests.
+   * <p>
+   * Note that delete_by_query can't be used, as the reindex module is not part of the transport client.
+   */
   public void addDeletion(SearchRequestBuilder searchRequest) {
-    // TODO to be replaced by delete_by_query that is back in ES5
     searchRequest
       .addSort("_doc", SortOrder.ASC)
       .setScroll(TimeValue.timeValueMinutes(5))
-      .setSize(100)
+      .setSize(SCROLL_PAGE_SIZE)
       // load only doc ids, not _source fields
       .setFetchSource(false);
 
-    // this search is synchronous. An optimization would be to be non-blocking,
-    // but it requires to tracking pending requests in close().
-    // Same semaphore can't be reused because of potential deadlock (requires to acquire
-    // two locks)
     SearchResponse searchResponse = searchRequest.get();
+    ExecutorService executor = getScrollExecutor();
+    Future<SearchResponse> nextPage = null;
+    try {
+      while (true) {
+        SearchHit[] hits = searchResponse.getHits().getHits();
+        String scrollId = searchResponse.getScrollId();
+        if (hits.length == 0 || scrollId == null) {
+          if (scrollId != null) {
+            client.nativeClient().prepareClearScroll().addScrollId(scrollId).get();
+          }
+          break;
+        }
 
-    while (true) {
-      SearchHit[] hits = searchResponse.getHits().getHits();
-      for (SearchHit hit : hits) {
-        DocumentField routing = hit.field("_routing");
-        DeleteRequestBuilder deleteRequestBuilder = client.prepareDelete(hit.getIndex(), hit.getType(), hit.getId());
-        if (routing != null) {
-          deleteRequestBuilder.setRouting(routing.getValue());
+        // proxies of EsClient only support synchronous requests, so the next page is requested by another thread
+        nextPage = executor.submit(() -> client.prepareSearchScroll(scrollId)
+          .setScroll(TimeValue.timeValueMinutes(5))
+          .get());
+        for (SearchHit hit : hits) {
+          DocumentField routing = hit.field("_routing");
+          DeleteRequestBuilder deleteRequestBuilder = client.prepareDelete(hit.getIndex(), hit.getType(), hit.getId());
+          if (routing != null) {
+            deleteRequestBuilder.setRouting(routing.getValue());
+          }
+          add(deleteRequestBuilder.request());
         }
-        add(deleteRequestBuilder.request());
+        searchResponse = getNextPage(nextPage);
+        nextPage = null;
       }
-
-      String scrollId = searchResponse.getScrollId();
-      if (scrollId == null) {
-        break;
+    } finally {
+      if (nextPage != null) {
+        nextPage.cancel(true);
       }
-      searchResponse = client.prepareSearchScroll(scrollId).setScroll(TimeValue.timeValueMinutes(5)).get();
-      if (hits.length == 0) {
-        client.nativeClient().prepareClearScroll().addScrollId(scrollId).get();
-        break;
+    }
+  }
+
+  private ExecutorService getScrollExecutor() {
+    if (scrollExecutor == null) {
+      scrollExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("es-scroll-%d")
+        .setDaemon(true)
+        .build());
+    }
+    return scrollExecutor;
+  }
+
+  private static SearchResponse getNextPage(Future<SearchResponse> nextPage) {
+    try {
+      return nextPage.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while scrolling documents to delete", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
       }
+      throw new IllegalStateException("Fail to scroll documents to delete", cause);
     }
   }
 
@@ -218,12 +264,19 @@ public class BulkIndexer {
         }
       }
       indexingListener.onSuccess(successDocIds);
+      notifyThroughput();
     }
 
     @Override
     public void afterBulk(long executionId, BulkRequest request, Throwable e) {
       LOGGER.error("Fail to execute bulk index request: " + request, e);
       stopProfiler(request);
+      notifyThroughput();
+    }
+
+    private void notifyThroughput() {
+      indexingListener.onThroughput(new IndexingThroughput(indexType.getMainType().getIndex().getName(), result.getSuccess(),
+        bulkProcessor.getSentBytes(), System.currentTimeMillis() - startMs, bulkProcessor.getRejections()));
     }
 
     private void stopProfiler(BulkRequest request) {
@@ -348,7 +401,8 @@ public class BulkIndexer {
 
   static class SizeHandler {
     /**
-     * @see BulkProcessor.Builder#setConcurrentRequests(int)
+     * Maximum number of concurrent bulk requests, 0 meaning that bulk requests are executed synchronously.
+     * The actual concurrency is adapted up to this maximum, see {@link AdaptiveBulkProcessor}.
      */
     int getConcurrentRequests() {
       // in the same thread by default
@@ -27,6 +27,13 @@ public interface IndexingListener {
 
   void onFinish(IndexingResult result);
 
+  /**
+   * Called after each bulk request
+   */
+  default void onThroughput(IndexingThroughput throughput) {
+    // nothing to do by default
+  }
+
   IndexingListener FAIL_ON_ERROR = new IndexingListener() {
     @Override
     public void onSuccess(List<DocId> docIds) {
@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Throughput of a {@link BulkIndexer} on an index, since {@link BulkIndexer#start()}.
+ */
+@Immutable
+public class IndexingThroughput {
+
+  private final String index;
+  private final long documents;
+  private final long bytes;
+  private final long durationMs;
+  private final long rejections;
+
+  IndexingThroughput(String index, long documents, long bytes, long durationMs, long rejections) {
+    this.index = index;
+    this.documents = documents;
+    this.bytes = bytes;
+    this.durationMs = durationMs;
+    this.rejections = rejections;
+  }
+
+  public String getIndex() {
+    return index;
+  }
+
+  /**
+   * Number of documents successfully indexed or deleted
+   */
+  public long getDocuments() {
+    return documents;
+  }
+
+  /**
+   * Estimated size of the bulk requests sent to Elasticsearch
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  public long getDurationMs() {
+    return durationMs;
+  }
+
+  /**
+   * Number of requests rejected by Elasticsearch because its write queue was full. Rejected requests are retried.
+   */
+  public long getRejections() {
+    return rejections;
+  }
+
+  public long getDocumentsPerSecond() {
+    return documents * 1_000 / Math.max(1, durationMs);
+  }
+
+  public long getBytesPerSecond() {
+    return bytes * 1_000 / Math.max(1, durationMs);
+  }
+
+  @Override
+  public String toString() {
+    return "IndexingThroughput{" +
+      "index='" + index + '\'' +
+      ", documents=" + documents +
+      ", bytes=" + bytes +
+      ", durationMs=" + durationMs +
+      ", rejections=" + rejections +
+      '}';
+  }
+}
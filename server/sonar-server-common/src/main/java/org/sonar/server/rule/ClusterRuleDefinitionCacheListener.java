@@ -0,0 +1,62 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import java.util.concurrent.RejectedExecutionException;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.ProcessId;
+import org.sonar.process.cluster.hz.DistributedCall;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.sonar.process.cluster.hz.HazelcastMemberSelectors.selectorForProcessIds;
+
+/**
+ * Invalidates the {@link RuleDefinitionCache} of all the Web Servers of the cluster when rules are changed.
+ */
+@ServerSide
+public class ClusterRuleDefinitionCacheListener implements RuleDefinitionCacheListener {
+  private static final Logger LOGGER = Loggers.get(ClusterRuleDefinitionCacheListener.class);
+
+  private final HazelcastMember hazelcastMember;
+
+  public ClusterRuleDefinitionCacheListener(HazelcastMember hazelcastMember) {
+    this.hazelcastMember = hazelcastMember;
+  }
+
+  @Override
+  public void onInvalidated() {
+    try {
+      hazelcastMember.callAsync(invalidateCache(), selectorForProcessIds(ProcessId.WEB_SERVER), response -> {
+        // nothing to do, there is no way to recover from a Web Server which did not answer
+      });
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("No Web Server to notify of rule changes in the cluster", e);
+    }
+  }
+
+  private static DistributedCall<Object> invalidateCache() {
+    return () -> {
+      RuleDefinitionCache.invalidateFromHazelcastDistributedQuery();
+      return null;
+    };
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.rule.RuleDefinitionDto;
+
+/**
+ * Read-through cache of the definitions of rules, by uuid and by key. Rules are changed only at startup and on rare
+ * administrative operations, while they are read by most of the web services related to issues, hotspots, rules
+ * and quality profiles.
+ * <p>
+ * Code changing rules in DB must call {@link #invalidate()} once changes are committed. Caches of the other
+ * processes of the cluster are invalidated through {@link RuleDefinitionCacheListener}.
+ * <p>
+ * Returned DTOs are shared between threads and must not be modified.
+ */
+@ServerSide
+public class RuleDefinitionCache implements Startable {
+
+  @VisibleForTesting
+  static final int MAX_ENTRIES = 20_000;
+  private static final Logger LOGGER = Loggers.get(RuleDefinitionCache.class);
+
+  /** Used for Hazelcast's distributed queries in cluster mode */
+  @CheckForNull
+  private static RuleDefinitionCache instance;
+
+  private final DbClient dbClient;
+  private final RuleDefinitionCacheListener[] listeners;
+  private final Cache<String, RuleDefinitionDto> rulesByUuid = newCache();
+  private final Cache<RuleKey, RuleDefinitionDto> rulesByKey = newCache();
+  /**
+   * Incremented on each invalidation, so that rules loaded from DB before an invalidation are not put in cache after it.
+   */
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public RuleDefinitionCache(DbClient dbClient) {
+    this(dbClient, new RuleDefinitionCacheListener[0]);
+  }
+
+  public RuleDefinitionCache(DbClient dbClient, RuleDefinitionCacheListener[] listeners) {
+    this.dbClient = dbClient;
+    this.listeners = listeners;
+  }
+
+  private static <K> Cache<K, RuleDefinitionDto> newCache() {
+    return CacheBuilder.newBuilder()
+      .maximumSize(MAX_ENTRIES)
+      .recordStats()
+      .build();
+  }
+
+  @Override
+  public void start() {
+    instance = this;
+  }
+
+  @Override
+  public void stop() {
+    instance = null;
+  }
+
+  public Optional<RuleDefinitionDto> getByUuid(DbSession dbSession, String uuid) {
+    return getByUuids(dbSession, Collections.singleton(uuid)).stream().findFirst();
+  }
+
+  public Optional<RuleDefinitionDto> getByKey(DbSession dbSession, RuleKey key) {
+    return getByKeys(dbSession, Collections.singleton(key)).stream().findFirst();
+  }
+
+  /**
+   * Rules which do not exist are ignored.
+   */
+  public List<RuleDefinitionDto> getByUuids(DbSession dbSession, Collection<String> uuids) {
+    return getAll(uuids, rulesByUuid, missingUuids -> dbClient.ruleDao().selectDefinitionByUuids(dbSession, missingUuids));
+  }
+
+  /**
+   * Rules which do not exist are ignored.
+   */
+  public List<RuleDefinitionDto> getByKeys(DbSession dbSession, Collection<RuleKey> keys) {
+    return getAll(keys, rulesByKey, missingKeys -> dbClient.ruleDao().selectDefinitionByKeys(dbSession, missingKeys));
+  }
+
+  private <K> List<RuleDefinitionDto> getAll(Collection<K> ids, Cache<K, RuleDefinitionDto> cache, Function<Set<K>, List<RuleDefinitionDto>> loader) {
+    List<RuleDefinitionDto> result = new ArrayList<>(ids.size());
+    Set<K> missingIds = new LinkedHashSet<>();
+    for (K id : ids) {
+      RuleDefinitionDto rule = cache.getIfPresent(id);
+      if (rule == null) {
+        missingIds.add(id);
+      } else {
+        result.add(rule);
+      }
+    }
+    if (missingIds.isEmpty()) {
+      return result;
+    }
+
+    long loadedGeneration = generation.get();
+    List<RuleDefinitionDto> loadedRules = loader.apply(missingIds);
+    synchronized (this) {
+      if (loadedGeneration == generation.get()) {
+        loadedRules.forEach(rule -> {
+          rulesByUuid.put(rule.getUuid(), rule);
+          rulesByKey.put(rule.getKey(), rule);
+        });
+      }
+    }
+    result.addAll(loadedRules);
+    return result;
+  }
+
+  /**
+   * Invalidates the cache of the current process and of the other Web Servers of the cluster. Must be called
+   * once changes of rules are committed.
+   */
+  public void invalidate() {
+    invalidateLocally();
+    for (RuleDefinitionCacheListener listener : listeners) {
+      try {
+        listener.onInvalidated();
+      } catch (RuntimeException e) {
+        LOGGER.warn("Failed to notify {} of invalidation of rules", listener.getClass().getSimpleName(), e);
+      }
+    }
+  }
+
+  private synchronized void invalidateLocally() {
+    generation.incrementAndGet();
+    invalidations.incrementAndGet();
+    rulesByUuid.invalidateAll();
+    rulesByKey.invalidateAll();
+  }
+
+  public long size() {
+    return rulesByUuid.size();
+  }
+
+  public long getHitCount() {
+    return rulesByUuid.stats().plus(rulesByKey.stats()).hitCount();
+  }
+
+  public long getMissCount() {
+    return rulesByUuid.stats().plus(rulesByKey.stats()).missCount();
+  }
+
+  public long getInvalidationCount() {
+    return invalidations.get();
+  }
+
+  /**
+   * Invalidates the cache of the current process, if it is a started Web Server.
+   */
+  public static void invalidateFromHazelcastDistributedQuery() {
+    RuleDefinitionCache cache = instance;
+    if (cache != null) {
+      cache.invalidateLocally();
+    }
+  }
+}
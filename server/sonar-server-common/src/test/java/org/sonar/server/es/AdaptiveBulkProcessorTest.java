@@ -0,0 +1,210 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.es.AdaptiveBulkProcessor.FAST_BULKS_BEFORE_MORE_CONCURRENCY;
+import static org.sonar.server.es.AdaptiveBulkProcessor.INITIAL_BULK_BYTES;
+import static org.sonar.server.es.AdaptiveBulkProcessor.MAX_BULK_BYTES;
+import static org.sonar.server.es.AdaptiveBulkProcessor.MIN_BULK_BYTES;
+import static org.sonar.server.es.AdaptiveBulkProcessor.TARGET_LATENCY_MS;
+
+public class AdaptiveBulkProcessorTest {
+
+  private final BulkProcessor.Listener listener = mock(BulkProcessor.Listener.class);
+  private final List<BulkRequest> executedRequests = new ArrayList<>();
+
+  @Test
+  public void bulk_size_grows_when_bulk_requests_are_fast_and_shrinks_when_they_are_slow() {
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(this::succeed, listener, 0);
+    assertThat(underTest.getBulkBytes()).isEqualTo(INITIAL_BULK_BYTES);
+
+    underTest.afterAttempt(TARGET_LATENCY_MS / 4, 0);
+    assertThat(underTest.getBulkBytes()).isEqualTo(INITIAL_BULK_BYTES * 5 / 4);
+
+    underTest.afterAttempt(TARGET_LATENCY_MS * 2, 0);
+    assertThat(underTest.getBulkBytes()).isEqualTo(INITIAL_BULK_BYTES * 5 / 4 * 3 / 4);
+
+    // acceptable latency does not change anything
+    underTest.afterAttempt(TARGET_LATENCY_MS * 3 / 4, 0);
+    assertThat(underTest.getBulkBytes()).isEqualTo(INITIAL_BULK_BYTES * 5 / 4 * 3 / 4);
+  }
+
+  @Test
+  public void bulk_size_is_bounded() {
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(this::succeed, listener, 0);
+
+    for (int i = 0; i < 100; i++) {
+      underTest.afterAttempt(0, 0);
+    }
+    assertThat(underTest.getBulkBytes()).isEqualTo(MAX_BULK_BYTES);
+
+    for (int i = 0; i < 100; i++) {
+      underTest.afterAttempt(TARGET_LATENCY_MS * 10, 0);
+    }
+    assertThat(underTest.getBulkBytes()).isEqualTo(MIN_BULK_BYTES);
+  }
+
+  @Test
+  public void concurrency_grows_after_fast_bulk_requests_and_is_halved_on_rejections() {
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(this::succeed, listener, 3);
+    assertThat(underTest.getConcurrency()).isEqualTo(1);
+
+    for (int i = 0; i < FAST_BULKS_BEFORE_MORE_CONCURRENCY * 10; i++) {
+      underTest.afterAttempt(0, 0);
+    }
+    assertThat(underTest.getConcurrency()).isEqualTo(3);
+    long bulkBytes = underTest.getBulkBytes();
+
+    underTest.afterAttempt(0, 5);
+    assertThat(underTest.getConcurrency()).isEqualTo(1);
+    assertThat(underTest.getBulkBytes()).isEqualTo(bulkBytes / 2);
+    assertThat(underTest.getRejections()).isEqualTo(5);
+
+    underTest.afterAttempt(0, 1);
+    assertThat(underTest.getConcurrency()).isEqualTo(1);
+  }
+
+  @Test
+  public void execute_pending_requests_synchronously_on_close() throws Exception {
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(this::succeed, listener, 0);
+    underTest.add(new DeleteRequest("foo", "bar", "1"));
+    underTest.add(new DeleteRequest("foo", "bar", "2"));
+    assertThat(executedRequests).isEmpty();
+
+    assertThat(underTest.awaitClose(1, TimeUnit.MINUTES)).isTrue();
+
+    assertThat(executedRequests).hasSize(1);
+    assertThat(executedRequests.get(0).numberOfActions()).isEqualTo(2);
+    verify(listener).beforeBulk(anyLong(), eq(executedRequests.get(0)));
+    verify(listener).afterBulk(anyLong(), eq(executedRequests.get(0)), any(BulkResponse.class));
+    assertThat(underTest.getSentBytes()).isPositive();
+  }
+
+  @Test
+  public void execute_requests_concurrently() throws Exception {
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(this::succeed, listener, 2);
+    underTest.add(new DeleteRequest("foo", "bar", "1"));
+
+    assertThat(underTest.awaitClose(1, TimeUnit.MINUTES)).isTrue();
+
+    assertThat(executedRequests).hasSize(1);
+    verify(listener).afterBulk(anyLong(), eq(executedRequests.get(0)), any(BulkResponse.class));
+  }
+
+  @Test
+  public void retry_rejected_requests() throws Exception {
+    BulkItemResponse rejected = mockItem(RestStatus.TOO_MANY_REQUESTS);
+    BulkItemResponse accepted = mockItem(null);
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(request -> {
+      executedRequests.add(request);
+      if (executedRequests.size() == 1) {
+        return new BulkResponse(new BulkItemResponse[] {accepted, rejected}, 1L);
+      }
+      return new BulkResponse(new BulkItemResponse[] {accepted}, 1L);
+    }, listener, 0);
+    underTest.add(new DeleteRequest("foo", "bar", "1"));
+    underTest.add(new DeleteRequest("foo", "bar", "2"));
+
+    underTest.awaitClose(1, TimeUnit.MINUTES);
+
+    assertThat(executedRequests).hasSize(2);
+    assertThat(executedRequests.get(1).requests()).containsExactly(executedRequests.get(0).requests().get(1));
+    assertThat(underTest.getRejections()).isEqualTo(1);
+    ArgumentCaptor<BulkResponse> response = ArgumentCaptor.forClass(BulkResponse.class);
+    verify(listener).afterBulk(anyLong(), eq(executedRequests.get(0)), response.capture());
+    assertThat(response.getValue().getItems()).containsExactly(accepted, accepted);
+  }
+
+  @Test
+  public void retry_rejected_bulk_request() throws Exception {
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(request -> {
+      executedRequests.add(request);
+      if (executedRequests.size() == 1) {
+        throw new EsRejectedExecutionException("queue is full");
+      }
+      return new BulkResponse(new BulkItemResponse[] {mockItem(null)}, 1L);
+    }, listener, 0);
+    underTest.add(new DeleteRequest("foo", "bar", "1"));
+
+    underTest.awaitClose(1, TimeUnit.MINUTES);
+
+    assertThat(executedRequests).hasSize(2);
+    assertThat(underTest.getRejections()).isEqualTo(1);
+    verify(listener).afterBulk(anyLong(), eq(executedRequests.get(0)), any(BulkResponse.class));
+  }
+
+  @Test
+  public void notify_listener_of_failures_which_are_not_rejections() throws Exception {
+    IllegalStateException failure = new IllegalStateException("boom");
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(request -> {
+      executedRequests.add(request);
+      throw failure;
+    }, listener, 0);
+    underTest.add(new DeleteRequest("foo", "bar", "1"));
+
+    underTest.awaitClose(1, TimeUnit.MINUTES);
+
+    assertThat(executedRequests).hasSize(1);
+    verify(listener).afterBulk(anyLong(), eq(executedRequests.get(0)), eq(failure));
+  }
+
+  private BulkResponse succeed(BulkRequest request) {
+    synchronized (executedRequests) {
+      executedRequests.add(request);
+    }
+    BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+    for (int i = 0; i < items.length; i++) {
+      items[i] = mockItem(null);
+    }
+    return new BulkResponse(items, 1L);
+  }
+
+  private static BulkItemResponse mockItem(@Nullable RestStatus failureStatus) {
+    BulkItemResponse item = mock(BulkItemResponse.class);
+    if (failureStatus != null) {
+      BulkItemResponse.Failure failure = mock(BulkItemResponse.Failure.class);
+      when(failure.getStatus()).thenReturn(failureStatus);
+      when(item.isFailed()).thenReturn(true);
+      when(item.getFailure()).thenReturn(failure);
+    }
+    return item;
+  }
+}
@@ -119,6 +119,27 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(removeFrom);
   }
 
+  @Test
+  public void bulk_delete_scrolls_pages_through_proxy_of_client() {
+    logTester.setLevel(LoggerLevel.TRACE);
+    int max = 1_200;
+    FakeDoc[] docs = new FakeDoc[max];
+    for (int i = 0; i < max; i++) {
+      docs[i] = FakeIndexDefinition.newDoc(i);
+    }
+    es.putDocuments(TYPE_FAKE, docs);
+
+    SearchRequestBuilder req = es.client().prepareSearch(TYPE_FAKE)
+      .setQuery(QueryBuilders.rangeQuery(FakeIndexDefinition.INT_FIELD).gte(100));
+    BulkIndexer.delete(es.client(), TYPE_FAKE, req);
+
+    assertThat(count()).isEqualTo(100);
+    assertThat(logTester.logs(LoggerLevel.TRACE)
+      .stream()
+      .filter(log -> log.contains("ES search scroll request"))
+      .count()).isEqualTo(3);
+  }
+
   @Test
   public void listener_is_called_on_successful_requests() {
     FakeListener listener = new FakeListener();
@@ -159,6 +180,21 @@ public class BulkIndexerTest {
     assertThat(listener.calledResult.getTotal()).isEqualTo(2);
   }
 
+  @Test
+  public void listener_is_notified_of_throughput() {
+    FakeListener listener = new FakeListener();
+    BulkIndexer indexer = new BulkIndexer(es.client(), TYPE_FAKE, Size.REGULAR, listener);
+    indexer.start();
+    indexer.add(newIndexRequestWithDocId("foo"));
+    indexer.add(newIndexRequestWithDocId("bar"));
+    indexer.stop();
+
+    assertThat(listener.calledThroughput.getIndex()).isEqualTo(INDEX);
+    assertThat(listener.calledThroughput.getDocuments()).isEqualTo(2);
+    assertThat(listener.calledThroughput.getBytes()).isPositive();
+    assertThat(listener.calledThroughput.getRejections()).isZero();
+  }
+
   @Test
   public void log_requests_when_TRACE_level_is_enabled() {
     logTester.setLevel(LoggerLevel.TRACE);
@@ -180,6 +216,7 @@ public class BulkIndexerTest {
   private static class FakeListener implements IndexingListener {
     private final List<DocId> calledDocIds = new ArrayList<>();
     private IndexingResult calledResult;
+    private IndexingThroughput calledThroughput;
 
     @Override
     public void onSuccess(List<DocId> docIds) {
@@ -190,6 +227,11 @@ public class BulkIndexerTest {
     public void onFinish(IndexingResult result) {
       calledResult = result;
     }
+
+    @Override
+    public void onThroughput(IndexingThroughput throughput) {
+      calledThroughput = throughput;
+    }
   }
 
   private long count() {
@@ -0,0 +1,130 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import java.util.Optional;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.rule.RuleDefinitionDto;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class RuleDefinitionCacheTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private DbSession dbSession = db.getSession();
+  private RuleDefinitionCacheListener listener = mock(RuleDefinitionCacheListener.class);
+  private RuleDefinitionCache underTest = new RuleDefinitionCache(db.getDbClient(), new RuleDefinitionCacheListener[] {listener});
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void load_rules_from_db_only_once() {
+    RuleDefinitionDto rule = db.rules().insert(r -> r.setName("name"));
+
+    assertThat(underTest.getByUuid(dbSession, rule.getUuid()).map(RuleDefinitionDto::getName)).contains("name");
+    rule.setName("new name");
+    db.rules().update(rule);
+
+    assertThat(underTest.getByUuid(dbSession, rule.getUuid()).map(RuleDefinitionDto::getName)).contains("name");
+    assertThat(underTest.getHitCount()).isEqualTo(1);
+    assertThat(underTest.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void rules_loaded_by_uuid_are_cached_by_key_and_conversely() {
+    RuleDefinitionDto rule1 = db.rules().insert();
+    RuleDefinitionDto rule2 = db.rules().insert();
+
+    assertThat(underTest.getByUuids(dbSession, asList(rule1.getUuid(), "unknown"))).extracting(RuleDefinitionDto::getKey)
+      .containsExactly(rule1.getKey());
+    assertThat(underTest.getByKeys(dbSession, asList(rule1.getKey(), rule2.getKey()))).extracting(RuleDefinitionDto::getUuid)
+      .containsExactlyInAnyOrder(rule1.getUuid(), rule2.getUuid());
+    assertThat(underTest.getByUuid(dbSession, rule2.getUuid())).isPresent();
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.getHitCount()).isEqualTo(2);
+    assertThat(underTest.getMissCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void rules_which_do_not_exist_are_not_cached() {
+    RuleKey key = RuleKey.of("java", "S001");
+
+    assertThat(underTest.getByKey(dbSession, key)).isEmpty();
+    RuleDefinitionDto rule = db.rules().insert(key);
+
+    Optional<RuleDefinitionDto> loaded = underTest.getByKey(dbSession, key);
+    assertThat(loaded.map(RuleDefinitionDto::getUuid)).contains(rule.getUuid());
+  }
+
+  @Test
+  public void invalidate_reloads_rules_from_db_and_notifies_listeners() {
+    RuleDefinitionDto rule = db.rules().insert(r -> r.setName("name"));
+    underTest.getByKey(dbSession, rule.getKey());
+    rule.setName("new name");
+    db.rules().update(rule);
+
+    underTest.invalidate();
+
+    assertThat(underTest.size()).isZero();
+    assertThat(underTest.getInvalidationCount()).isEqualTo(1);
+    assertThat(underTest.getByKey(dbSession, rule.getKey()).map(RuleDefinitionDto::getName)).contains("new name");
+    verify(listener).onInvalidated();
+  }
+
+  @Test
+  public void invalidate_does_not_fail_if_a_listener_fails() {
+    doThrow(new IllegalStateException("failure")).when(listener).onInvalidated();
+    underTest.getByUuid(dbSession, db.rules().insert().getUuid());
+
+    underTest.invalidate();
+
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void invalidateFromHazelcastDistributedQuery_invalidates_started_cache_without_notifying_listeners() {
+    underTest.getByUuid(dbSession, db.rules().insert().getUuid());
+
+    RuleDefinitionCache.invalidateFromHazelcastDistributedQuery();
+    assertThat(underTest.size()).isEqualTo(1);
+
+    underTest.start();
+    RuleDefinitionCache.invalidateFromHazelcastDistributedQuery();
+    assertThat(underTest.size()).isZero();
+    verifyZeroInteractions(listener);
+  }
+}
@@ -27,4 +27,10 @@ public interface CeHttpClient {
   Optional<ProtobufSystemInfo.SystemInfo> retrieveSystemInfo();
 
   void changeLogLevel(LoggerLevel level);
+
+  /**
+   * Asks the Compute Engine to make its idle workers poll the queue right away, without waiting for its response.
+   * Does nothing if the Compute Engine is not up.
+   */
+  void wakeUpWorkers();
 }
@@ -30,6 +30,7 @@ import org.sonar.db.permission.template.PermissionTemplateGroupDto;
 import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserGroupDto;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.rule.index.RuleIndexer;
 import org.sonar.server.usergroups.DefaultGroupCreator;
 import org.sonar.server.usergroups.DefaultGroupFinder;
@@ -45,10 +46,11 @@ public class OrganisationSupport {
   private final DefaultGroupFinder defaultGroupFinder;
   private final RuleIndexer ruleIndexer;
   private final UuidFactory uuidFactory;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
   public OrganisationSupport(DbClient dbClient, DefaultOrganizationProvider defaultOrganizationProvider,
     OrganizationFlags organizationFlags, DefaultGroupCreator defaultGroupCreator, DefaultGroupFinder defaultGroupFinder,
-    RuleIndexer ruleIndexer, UuidFactory uuidFactory) {
+    RuleIndexer ruleIndexer, UuidFactory uuidFactory, RuleDefinitionCache ruleDefinitionCache) {
     this.dbClient = dbClient;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.organizationFlags = organizationFlags;
@@ -56,6 +58,7 @@ public class OrganisationSupport {
     this.defaultGroupFinder = defaultGroupFinder;
     this.ruleIndexer = ruleIndexer;
     this.uuidFactory = uuidFactory;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   public void enable(String login) {
@@ -67,6 +70,7 @@ public class OrganisationSupport {
         List<String> disabledTemplateAndCustomRuleUuids = disableTemplateRulesAndCustomRules(dbSession);
         enableFeature(dbSession);
         ruleIndexer.commitAndIndex(dbSession, disabledTemplateAndCustomRuleUuids);
+        ruleDefinitionCache.invalidate();
       }
     }
   }
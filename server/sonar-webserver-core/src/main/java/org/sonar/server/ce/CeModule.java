@@ -20,11 +20,19 @@
 package org.sonar.server.ce;
 
 import org.sonar.ce.queue.CeQueueImpl;
+import org.sonar.ce.queue.ClusterCeTaskSubmitListener;
 import org.sonar.ce.task.log.CeTaskLogging;
 import org.sonar.core.platform.Module;
 import org.sonar.server.ce.http.CeHttpClientImpl;
+import org.sonar.server.platform.WebServer;
 
 public class CeModule extends Module {
+  private final WebServer webServer;
+
+  public CeModule(WebServer webServer) {
+    this.webServer = webServer;
+  }
+
   @Override
   protected void configureModule() {
     add(CeTaskLogging.class,
@@ -32,5 +40,11 @@ public class CeModule extends Module {
 
       // Queue
       CeQueueImpl.class);
+
+    if (webServer.isStandalone()) {
+      add(StandaloneCeTaskSubmitListener.class);
+    } else {
+      add(ClusterCeTaskSubmitListener.class);
+    }
   }
 }
@@ -0,0 +1,49 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce;
+
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeTaskSubmitListener;
+import org.sonar.server.ce.http.CeHttpClient;
+
+/**
+ * Wakes up the idle workers of the Compute Engine of the same SonarQube instance when the Web Server submits tasks.
+ */
+@ServerSide
+public class StandaloneCeTaskSubmitListener implements CeTaskSubmitListener {
+  private static final Logger LOGGER = Loggers.get(StandaloneCeTaskSubmitListener.class);
+
+  private final CeHttpClient ceHttpClient;
+
+  public StandaloneCeTaskSubmitListener(CeHttpClient ceHttpClient) {
+    this.ceHttpClient = ceHttpClient;
+  }
+
+  @Override
+  public void onTasksSubmitted() {
+    try {
+      ceHttpClient.wakeUpWorkers();
+    } catch (IllegalStateException e) {
+      LOGGER.debug("Failed to wake up workers of Compute Engine", e);
+    }
+  }
+}
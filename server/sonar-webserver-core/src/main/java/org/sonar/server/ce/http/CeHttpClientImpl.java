@@ -23,11 +23,16 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.process.sharedmemoryfile.DefaultProcessCommands;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 
@@ -39,14 +44,22 @@ import static org.sonar.process.ProcessId.COMPUTE_ENGINE;
  * Client for the HTTP server of the Compute Engine.
  */
 public class CeHttpClientImpl implements CeHttpClient {
+  private static final Logger LOGGER = Loggers.get(CeHttpClientImpl.class);
 
   private static final String PATH_CHANGE_LOG_LEVEL = "changeLogLevel";
   private static final String PATH_SYSTEM_INFO = "systemInfo";
+  private static final String PATH_WAKE_UP_WORKERS = "wakeUpWorkers";
+  private static final long WAKE_UP_WORKERS_TIMEOUT_MS = 1_000L;
 
   private final File ipcSharedDir;
+  private final OkHttpClient wakeUpWorkersClient;
 
   public CeHttpClientImpl(Configuration config) {
     this.ipcSharedDir = new File(config.get(PROPERTY_SHARED_PATH).get());
+    this.wakeUpWorkersClient = new OkHttpClient.Builder()
+      .connectTimeout(WAKE_UP_WORKERS_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+      .readTimeout(WAKE_UP_WORKERS_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+      .build();
   }
 
   /**
@@ -123,6 +136,57 @@ public class CeHttpClientImpl implements CeHttpClient {
     }
   }
 
+  /**
+   * The request is sent asynchronously on a best-effort basis: tasks are picked up by the next polling of the queue
+   * anyway, so the submitter must not wait for the Compute Engine.
+   */
+  @Override
+  public void wakeUpWorkers() {
+    call(new WakeUpWorkersActionClient(wakeUpWorkersClient));
+  }
+
+  private static final class WakeUpWorkersActionClient implements ActionClient<Void>, Callback {
+    private final OkHttpClient client;
+
+    private WakeUpWorkersActionClient(OkHttpClient client) {
+      this.client = client;
+    }
+
+    @Override
+    public String getPath() {
+      return PATH_WAKE_UP_WORKERS;
+    }
+
+    @Override
+    public Void getDefault() {
+      return null;
+    }
+
+    @Override
+    public Void call(String url) {
+      okhttp3.Request request = new okhttp3.Request.Builder()
+        .post(RequestBody.create(null, new byte[0]))
+        .url(url)
+        .build();
+      client.newCall(request).enqueue(this);
+      return null;
+    }
+
+    @Override
+    public void onFailure(Call call, IOException e) {
+      LOGGER.debug("Failed to wake up workers of Compute Engine", e);
+    }
+
+    @Override
+    public void onResponse(Call call, okhttp3.Response response) {
+      try (okhttp3.Response r = response) {
+        if (r.code() != 200) {
+          LOGGER.debug("Failed to wake up workers of Compute Engine. Code was '{}' for url '{}'", r.code(), call.request().url());
+        }
+      }
+    }
+  }
+
   private <T> T call(ActionClient<T> actionClient) {
     try (DefaultProcessCommands commands = DefaultProcessCommands.secondary(ipcSharedDir, COMPUTE_ENGINE.getIpcIndex())) {
       if (commands.isUp()) {
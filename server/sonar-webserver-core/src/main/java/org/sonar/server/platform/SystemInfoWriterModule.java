@@ -28,6 +28,7 @@ import org.sonar.server.platform.monitoring.EsIndexesSection;
 import org.sonar.server.platform.monitoring.EsStateSection;
 import org.sonar.server.platform.monitoring.LoggingSection;
 import org.sonar.server.platform.monitoring.PluginsSection;
+import org.sonar.server.platform.monitoring.RuleDefinitionCacheSection;
 import org.sonar.server.platform.monitoring.SettingsSection;
 import org.sonar.server.platform.monitoring.StandaloneSystemSection;
 import org.sonar.server.platform.monitoring.cluster.AppNodesInfoLoaderImpl;
@@ -58,6 +59,7 @@ public class SystemInfoWriterModule extends Module {
       EsIndexesSection.class,
       LoggingSection.class,
       PluginsSection.class,
+      RuleDefinitionCacheSection.class,
       SettingsSection.class
 
       );
@@ -20,18 +20,50 @@
 package org.sonar.server.ce;
 
 import org.junit.Test;
+import org.picocontainer.ComponentAdapter;
+import org.sonar.ce.queue.ClusterCeTaskSubmitListener;
 import org.sonar.core.platform.ComponentContainer;
+import org.sonar.server.platform.WebServer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.sonar.core.platform.ComponentContainer.COMPONENTS_IN_EMPTY_COMPONENT_CONTAINER;
 
 public class CeModuleTest {
+  private WebServer webServer = mock(WebServer.class);
 
   @Test
   public void verify_count_of_added_components() {
     ComponentContainer container = new ComponentContainer();
-    new CeModule().configure(container);
-    assertThat(container.size()).isEqualTo(COMPONENTS_IN_EMPTY_COMPONENT_CONTAINER + 3);
+    new CeModule(webServer).configure(container);
+    assertThat(container.size()).isEqualTo(COMPONENTS_IN_EMPTY_COMPONENT_CONTAINER + 4);
+  }
+
+  @Test
+  public void wakes_up_workers_through_HTTP_if_SQ_standalone() {
+    when(webServer.isStandalone()).thenReturn(true);
+    ComponentContainer container = new ComponentContainer();
+
+    new CeModule(webServer).configure(container);
+
+    assertThat(container.getPicoContainer().getComponentAdapters())
+      .extracting(ComponentAdapter::getComponentKey)
+      .contains(StandaloneCeTaskSubmitListener.class)
+      .doesNotContain(ClusterCeTaskSubmitListener.class);
+  }
+
+  @Test
+  public void wakes_up_workers_through_Hazelcast_if_cluster() {
+    when(webServer.isStandalone()).thenReturn(false);
+    ComponentContainer container = new ComponentContainer();
+
+    new CeModule(webServer).configure(container);
+
+    assertThat(container.getPicoContainer().getComponentAdapters())
+      .extracting(ComponentAdapter::getComponentKey)
+      .contains(ClusterCeTaskSubmitListener.class)
+      .doesNotContain(StandaloneCeTaskSubmitListener.class);
   }
 
 
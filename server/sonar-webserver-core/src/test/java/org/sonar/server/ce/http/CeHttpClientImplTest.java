@@ -22,8 +22,10 @@ package org.sonar.server.ce.http;
 import java.io.File;
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import okio.Buffer;
 import org.junit.Before;
 import org.junit.Rule;
@@ -133,6 +135,37 @@ public class CeHttpClientImplTest {
     underTest.changeLogLevel(LoggerLevel.INFO);
   }
 
+  @Test
+  public void wakeUpWorkers_sends_request_to_compute_engine() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(200));
+
+    setUpWithHttpUrl(ProcessId.COMPUTE_ENGINE);
+
+    underTest.wakeUpWorkers();
+
+    RecordedRequest request = server.takeRequest(10, TimeUnit.SECONDS);
+    assertThat(request.getMethod()).isEqualTo("POST");
+    assertThat(request.getPath()).isEqualTo("/wakeUpWorkers");
+  }
+
+  @Test
+  public void wakeUpWorkers_does_not_fail_if_http_error() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    setUpWithHttpUrl(ProcessId.COMPUTE_ENGINE);
+
+    underTest.wakeUpWorkers();
+
+    assertThat(server.takeRequest(10, TimeUnit.SECONDS).getPath()).isEqualTo("/wakeUpWorkers");
+  }
+
+  @Test
+  public void wakeUpWorkers_does_not_fail_if_process_is_down() {
+    underTest.wakeUpWorkers();
+
+    assertThat(server.getRequestCount()).isZero();
+  }
+
   private void setUpWithHttpUrl(ProcessId processId) {
     try (DefaultProcessCommands processCommands = DefaultProcessCommands.secondary(ipcSharedDir, processId.getIpcIndex())) {
       processCommands.setUp();
@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.junit.Test;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.rule.RuleDefinitionCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.platform.monitoring.SystemInfoTesting.assertThatAttributeIs;
+
+public class RuleDefinitionCacheSectionTest {
+
+  private RuleDefinitionCache cache = mock(RuleDefinitionCache.class);
+  private RuleDefinitionCacheSection underTest = new RuleDefinitionCacheSection(cache);
+
+  @Test
+  public void name() {
+    assertThat(underTest.toProtobuf().getName()).isEqualTo("Web Rule Cache");
+  }
+
+  @Test
+  public void cache_statistics() {
+    when(cache.size()).thenReturn(10L);
+    when(cache.getHitCount()).thenReturn(150L);
+    when(cache.getMissCount()).thenReturn(12L);
+    when(cache.getInvalidationCount()).thenReturn(2L);
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThatAttributeIs(section, "Entries", 10L);
+    assertThatAttributeIs(section, "Hits", 150L);
+    assertThatAttributeIs(section, "Misses", 12L);
+    assertThatAttributeIs(section, "Invalidations", 2L);
+  }
+}
@@ -117,6 +117,7 @@ public class RegisterRulesTest {
 
   private QProfileRules qProfileRules = mock(QProfileRules.class);
   private WebServerRuleFinder webServerRuleFinder = mock(WebServerRuleFinder.class);
+  private RuleDefinitionCache ruleDefinitionCache = mock(RuleDefinitionCache.class);
   private DbClient dbClient = db.getDbClient();
   private RuleIndexer ruleIndexer;
   private ActiveRuleIndexer activeRuleIndexer;
@@ -1070,15 +1071,16 @@ public class RegisterRulesTest {
       defs);
     Languages languages = mock(Languages.class);
     when(languages.get(any())).thenReturn(mock(Language.class));
-    reset(webServerRuleFinder);
+    reset(webServerRuleFinder, ruleDefinitionCache);
 
     RegisterRules task = new RegisterRules(loader, qProfileRules, dbClient, ruleIndexer, activeRuleIndexer,
-      languages, system, organizationFlags, webServerRuleFinder, uuidFactory, metadataIndex);
+      languages, system, organizationFlags, webServerRuleFinder, uuidFactory, metadataIndex, ruleDefinitionCache);
     task.start();
     // Execute a commit to refresh session state as the task is using its own session
     db.getSession().commit();
 
     verify(webServerRuleFinder).startCaching();
+    verify(ruleDefinitionCache).invalidate();
   }
 
   @SafeVarargs
@@ -25,6 +25,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -41,6 +42,7 @@ import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
@@ -107,7 +109,10 @@ import static org.sonar.api.rules.RuleType.SECURITY_HOTSPOT;
 import static org.sonar.api.rules.RuleType.VULNERABILITY;
 import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 import static org.sonar.server.es.BaseDoc.epochMillisToEpochSeconds;
+import static org.sonar.server.es.EsUtils.SCROLL_TIME_IN_MINUTES;
 import static org.sonar.server.es.EsUtils.escapeSpecialRegexChars;
+import static org.sonar.server.es.EsUtils.optimizeScrollRequest;
+import static org.sonar.server.es.EsUtils.scrollIds;
 import static org.sonar.server.es.IndexType.FIELD_INDEX_TYPE;
 import static org.sonar.server.es.searchrequest.TopAggregationDefinition.NON_STICKY;
 import static org.sonar.server.es.searchrequest.TopAggregationDefinition.STICKY;
@@ -201,6 +206,7 @@ public class IssueIndex {
 
   private static final int DEFAULT_FACET_SIZE = 15;
   private static final int MAX_FACET_SIZE = 100;
+  private static final int SCROLL_PAGE_SIZE = 500;
   private static final String AGG_VULNERABILITIES = "vulnerabilities";
   private static final String AGG_SEVERITIES = "severities";
   private static final String AGG_TO_REVIEW_SECURITY_HOTSPOTS = "toReviewSecurityHotspots";
@@ -360,6 +366,29 @@ public class IssueIndex {
     return esRequest.get();
   }
 
+  /**
+   * Return the keys of all the issues matching the query, without facets nor sorting. Contrary to
+   * {@link #search(IssueQuery, SearchOptions)}, the number of results is not limited by the size of the search window
+   * of Elasticsearch: pages of keys are requested while the iterator is being consumed.
+   */
+  public Iterator<String> scrollKeys(IssueQuery query) {
+    SearchOptions options = new SearchOptions();
+    SearchRequestBuilder esRequest = client.prepareSearch(TYPE_ISSUE.getMainType())
+      .setScroll(TimeValue.timeValueMinutes(SCROLL_TIME_IN_MINUTES))
+      .setSize(SCROLL_PAGE_SIZE);
+
+    optimizeScrollRequest(esRequest);
+    configureRouting(query, options, esRequest);
+
+    RequestFiltersComputer filterComputer = newFilterComputer(options, createAllFilters(query));
+    configureQuery(esRequest, filterComputer);
+    configureTopFilters(esRequest, filterComputer);
+
+    esRequest.setFetchSource(false);
+
+    return scrollIds(client, esRequest.get(), id -> id);
+  }
+
   private void configureTopAggregations(IssueQuery query, SearchOptions options, SearchRequestBuilder esRequest, AllFilters allFilters, RequestFiltersComputer filterComputer) {
     TopAggregationHelper aggregationHelper = newAggregationHelper(filterComputer, query);
 
@@ -129,6 +129,33 @@ public class IssueIndexTest {
     assertThat(result.getHits().getHits()).hasSize(SearchOptions.MAX_LIMIT);
   }
 
+  @Test
+  public void scrollKeys_returns_all_issues_beyond_max_limit() {
+    ComponentDto project = newPrivateProjectDto(newOrganizationDto());
+    ComponentDto file = newFileDto(project, null);
+    IssueDoc[] issues = IntStream.range(0, 1_200).mapToObj(i -> newDoc("I" + i, file)).toArray(IssueDoc[]::new);
+    indexIssues(issues);
+
+    List<String> keys = new ArrayList<>();
+    underTest.scrollKeys(IssueQuery.builder().build()).forEachRemaining(keys::add);
+
+    assertThat(keys)
+      .hasSize(1_200)
+      .containsExactlyInAnyOrder(Arrays.stream(issues).map(IssueDoc::key).toArray(String[]::new));
+  }
+
+  @Test
+  public void scrollKeys_applies_filters_of_query() {
+    ComponentDto project1 = newPrivateProjectDto(newOrganizationDto());
+    ComponentDto project2 = newPrivateProjectDto(newOrganizationDto());
+    indexIssues(newDoc("I1", newFileDto(project1, null)), newDoc("I2", newFileDto(project2, null)), newDoc("I3", newFileDto(project1, null)));
+
+    List<String> keys = new ArrayList<>();
+    underTest.scrollKeys(IssueQuery.builder().projectUuids(singletonList(project1.uuid())).build()).forEachRemaining(keys::add);
+
+    assertThat(keys).containsExactlyInAnyOrder("I1", "I3");
+  }
+
   @Test
   public void authorized_issues_on_groups() {
     OrganizationDto org = newOrganizationDto();
@@ -27,6 +27,7 @@ import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.queue.CeQueue;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.process.ProcessProperties;
@@ -74,8 +75,10 @@ public class CeQueueCleaner implements Startable {
     try (DbSession dbSession = dbClient.openSession(false)) {
       // Reports that have been processed are not kept in database yet.
       // They are supposed to be systematically dropped.
-      // Let's clean-up orphans if any.
-      List<String> uuids = dbClient.ceTaskInputDao().selectUuidsNotInQueue(dbSession);
+      // Let's clean-up orphans if any. Uploads in progress are kept, they are dropped by ReportChunksCleaner when they expire.
+      List<String> uuids = dbClient.ceTaskInputDao().selectUuidsNotInQueue(dbSession).stream()
+        .filter(uuid -> !ReportChunks.isUploadRow(uuid))
+        .collect(MoreCollectors.toList());
       dbClient.ceTaskInputDao().deleteByUuids(dbSession, uuids);
       dbSession.commit();
     }
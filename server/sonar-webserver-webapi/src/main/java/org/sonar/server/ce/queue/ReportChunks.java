@@ -0,0 +1,258 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.queue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.server.ServerSide;
+import org.sonar.core.util.UuidFactory;
+import org.sonar.core.util.stream.MoreCollectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeTaskInputDao;
+import org.sonar.server.exceptions.NotFoundException;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singleton;
+import static org.sonar.server.exceptions.BadRequestException.checkRequest;
+import static org.sonar.server.user.AbstractUserSession.insufficientPrivilegesException;
+
+/**
+ * Stores the chunks of a report which is uploaded in several requests, until the report is submitted.
+ * <p>
+ * Chunks are rows of table CE_TASK_INPUT, so that they are shared by all the web servers of a cluster. Their uuids
+ * are longer than the uuids of tasks, hence they can't overwrite the input of a task. An upload is owned by the user
+ * who created it and targets a single project, both recorded in an additional row of the upload: only its owner
+ * can store chunks, and the report can only be submitted by its owner for that project. Uploads which are never
+ * submitted expire after {@link #EXPIRATION_MS}, they are dropped by {@link ReportChunksCleaner}.
+ */
+@ServerSide
+public class ReportChunks {
+  public static final int MAX_CHUNKS = 10_000;
+  public static final int UPLOAD_ID_LENGTH = 20;
+  public static final long EXPIRATION_MS = 24 * 60 * 60 * 1000L;
+  private static final String OWNER_SEPARATOR = "\n";
+
+  private final DbClient dbClient;
+  private final UuidFactory uuidFactory;
+
+  public ReportChunks(DbClient dbClient, UuidFactory uuidFactory) {
+    this.dbClient = dbClient;
+    this.uuidFactory = uuidFactory;
+  }
+
+  /**
+   * Creates an upload owned by the specified user, for the report of the specified project.
+   *
+   * @return the id of the upload
+   */
+  public String create(String userUuid, String organizationKey, String projectKey) {
+    String uploadId = uuidFactory.create();
+    String owner = String.join(OWNER_SEPARATOR, userUuid, organizationKey, projectKey);
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.ceTaskInputDao().insert(dbSession, ownerUuid(uploadId), IOUtils.toInputStream(owner, UTF_8));
+    }
+    return uploadId;
+  }
+
+  /**
+   * Stores the chunk with the specified index, replacing the chunk sent by a previous attempt if any.
+   *
+   * @throws NotFoundException if the upload does not exist
+   * @throws org.sonar.server.exceptions.ForbiddenException if the upload is not owned by the specified user
+   */
+  public void store(String uploadId, int index, InputStream data, String userUuid) {
+    checkRequest(index >= 0 && index < MAX_CHUNKS, "Chunk index must be between 0 and %s", MAX_CHUNKS - 1);
+    checkUploadId(uploadId);
+    String chunkUuid = chunkUuid(uploadId, index);
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      checkOwner(selectOwner(dbSession, uploadId), userUuid);
+      dbClient.ceTaskInputDao().deleteByUuids(dbSession, singleton(chunkUuid));
+      dbSession.commit();
+      dbClient.ceTaskInputDao().insert(dbSession, chunkUuid, data);
+    }
+  }
+
+  /**
+   * Streams the concatenation of the chunks of the specified upload. Chunks are read from database one after
+   * the other, while the returned stream is consumed.
+   *
+   * @throws NotFoundException if the upload does not exist
+   * @throws org.sonar.server.exceptions.ForbiddenException if the upload is not owned by the specified user
+   */
+  public InputStream open(String uploadId, int chunks, String userUuid, String organizationKey, String projectKey) {
+    checkUploadId(uploadId);
+    checkRequest(chunks > 0 && chunks <= MAX_CHUNKS, "Number of chunks must be between 1 and %s", MAX_CHUNKS);
+    List<String> chunkUuids = chunkUuids(uploadId, chunks);
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      String[] owner = selectOwner(dbSession, uploadId);
+      checkOwner(owner, userUuid);
+      checkRequest(owner[1].equals(organizationKey) && owner[2].equals(projectKey),
+        "Upload %s is not a report of project '%s' of organization '%s'", uploadId, projectKey, organizationKey);
+      Set<String> stored = new HashSet<>(dbClient.ceTaskInputDao().selectUuidsWithData(dbSession, chunkUuids));
+      checkRequest(stored.size() == chunks, "Upload %s is incomplete: %s chunks out of %s have been received", uploadId, stored.size(), chunks);
+      return new ChunksInputStream(dbClient.ceTaskInputDao(), dbSession, chunkUuids.iterator());
+    } catch (RuntimeException e) {
+      dbSession.close();
+      throw e;
+    }
+  }
+
+  public void delete(String uploadId, int chunks) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      List<String> uuids = chunkUuids(uploadId, chunks);
+      uuids.add(ownerUuid(uploadId));
+      dbClient.ceTaskInputDao().deleteByUuids(dbSession, uuids);
+      dbSession.commit();
+    }
+  }
+
+  /**
+   * @return the uuid of the owner, the key of the organization and the key of the project of the upload
+   */
+  private String[] selectOwner(DbSession dbSession, String uploadId) {
+    Optional<CeTaskInputDao.DataStream> data = dbClient.ceTaskInputDao().selectData(dbSession, ownerUuid(uploadId));
+    if (!data.isPresent()) {
+      throw new NotFoundException(format("Upload %s does not exist", uploadId));
+    }
+    try (CeTaskInputDao.DataStream owner = data.get()) {
+      return IOUtils.toString(owner.getInputStream(), UTF_8).split(OWNER_SEPARATOR, 3);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Fail to read owner of upload " + uploadId, e);
+    }
+  }
+
+  private static void checkOwner(String[] owner, String userUuid) {
+    if (!owner[0].equals(userUuid)) {
+      throw insufficientPrivilegesException();
+    }
+  }
+
+  /**
+   * Deletes the rows of the uploads which have been created before the specified date.
+   *
+   * @return the number of deleted rows
+   */
+  public int deleteExpired(long createdBefore) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      List<String> uuids = dbClient.ceTaskInputDao().selectUuidsNotInQueueCreatedBefore(dbSession, createdBefore).stream()
+        .filter(ReportChunks::isUploadRow)
+        .collect(MoreCollectors.toList());
+      dbClient.ceTaskInputDao().deleteByUuids(dbSession, uuids);
+      dbSession.commit();
+      return uuids.size();
+    }
+  }
+
+  /**
+   * Whether the specified uuid of a row of CE_TASK_INPUT is the uuid of a chunk or of the owner of an upload, rather
+   * than the uuid of a task.
+   */
+  static boolean isUploadRow(String uuid) {
+    return uuid.length() > UPLOAD_ID_LENGTH;
+  }
+
+  private static void checkUploadId(String uploadId) {
+    checkRequest(uploadId.length() == UPLOAD_ID_LENGTH, "Upload id '%s' is not valid", uploadId);
+  }
+
+  private static List<String> chunkUuids(String uploadId, int chunks) {
+    List<String> uuids = new ArrayList<>(chunks);
+    for (int i = 0; i < chunks; i++) {
+      uuids.add(chunkUuid(uploadId, i));
+    }
+    return uuids;
+  }
+
+  private static String chunkUuid(String uploadId, int index) {
+    return uploadId + "-" + index;
+  }
+
+  private static String ownerUuid(String uploadId) {
+    return uploadId + "-owner";
+  }
+
+  private static class ChunksInputStream extends InputStream {
+    private final CeTaskInputDao dao;
+    private final DbSession dbSession;
+    private final Iterator<String> chunkUuids;
+    @CheckForNull
+    private CeTaskInputDao.DataStream current;
+
+    private ChunksInputStream(CeTaskInputDao dao, DbSession dbSession, Iterator<String> chunkUuids) {
+      this.dao = dao;
+      this.dbSession = dbSession;
+      this.chunkUuids = chunkUuids;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int count = read(b, 0, 1);
+      return count < 0 ? -1 : (b[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      while (true) {
+        if (current == null) {
+          if (!chunkUuids.hasNext()) {
+            return -1;
+          }
+          String chunkUuid = chunkUuids.next();
+          current = dao.selectData(dbSession, chunkUuid)
+            .orElseThrow(() -> new IllegalStateException("Chunk " + chunkUuid + " of report is missing"));
+        }
+        int count = current.getInputStream().read(b, off, len);
+        if (count >= 0) {
+          return count;
+        }
+        current.close();
+        current = null;
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        if (current != null) {
+          current.close();
+          current = null;
+        }
+      } finally {
+        dbSession.close();
+      }
+    }
+  }
+}
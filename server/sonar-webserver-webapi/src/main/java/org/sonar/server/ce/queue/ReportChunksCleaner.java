@@ -0,0 +1,94 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.queue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.util.GlobalLockManager;
+
+/**
+ * Regularly drops the uploads of reports in chunks which have expired, see {@link ReportChunks}. Only one web server
+ * of a cluster drops them at a time.
+ */
+@ServerSide
+public class ReportChunksCleaner implements Startable {
+
+  private static final Logger LOG = Loggers.get(ReportChunksCleaner.class);
+  private static final long DELAY_IN_MINUTES = 60;
+  private static final String LOCK_NAME = "ReportChunks";
+
+  private final ReportChunks reportChunks;
+  private final GlobalLockManager lockManager;
+  private final System2 system2;
+
+  @CheckForNull
+  private ScheduledExecutorService executorService;
+
+  public ReportChunksCleaner(ReportChunks reportChunks, GlobalLockManager lockManager, System2 system2) {
+    this.reportChunks = reportChunks;
+    this.lockManager = lockManager;
+    this.system2 = system2;
+  }
+
+  @Override
+  public void start() {
+    executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("report-chunks-cleaner-%d")
+      .setPriority(Thread.MIN_PRIORITY)
+      .setDaemon(true)
+      .build());
+    executorService.scheduleWithFixedDelay(this::clean, 1, DELAY_IN_MINUTES, TimeUnit.MINUTES);
+  }
+
+  void clean() {
+    try {
+      if (!lockManager.tryLock(LOCK_NAME)) {
+        return;
+      }
+      int deleted = reportChunks.deleteExpired(system2.now() - ReportChunks.EXPIRATION_MS);
+      if (deleted > 0) {
+        LOG.debug("{} rows of expired uploads of reports have been deleted", deleted);
+      }
+    } catch (Exception e) {
+      LOG.error("Failed to delete expired uploads of reports", e);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (executorService == null) {
+      return;
+    }
+    try {
+      executorService.shutdown();
+      executorService.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -96,6 +96,26 @@ public class ReportSubmitter {
     }
   }
 
+  /**
+   * Verifies that the current user is allowed to submit a report of the specified project, before its upload
+   * in chunks starts. Permissions are verified again when the report is submitted.
+   *
+   * @throws NotFoundException if the organization with the specified key does not exist
+   * @throws IllegalArgumentException if the organization with the specified key is not the organization of the specified project (when it already exists in DB)
+   */
+  public void checkCanSubmit(String organizationKey, String projectKey) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      OrganizationDto organizationDto = getOrganizationDtoOrFail(dbSession, organizationKey);
+      Optional<ComponentDto> existingProject = dbClient.componentDao().selectByKey(dbSession, projectKey);
+      if (existingProject.isPresent()) {
+        ensureOrganizationIsConsistent(existingProject.get(), organizationDto);
+        checkScanPermission(existingProject.get());
+      } else {
+        userSession.checkPermission(OrganizationPermission.PROVISION_PROJECTS, organizationDto);
+      }
+    }
+  }
+
   private void checkScanPermission(ComponentDto project) {
     // this is a specific and inconsistent behavior. For legacy reasons, "technical users"
     // defined on an organization should be able to analyze a project even if
@@ -21,6 +21,8 @@ package org.sonar.server.ce.ws;
 
 import org.sonar.core.platform.Module;
 import org.sonar.server.ce.queue.BranchSupport;
+import org.sonar.server.ce.queue.ReportChunks;
+import org.sonar.server.ce.queue.ReportChunksCleaner;
 import org.sonar.server.ce.queue.ReportSubmitter;
 
 public class CeWsModule extends Module {
@@ -28,6 +30,8 @@ public class CeWsModule extends Module {
   protected void configureModule() {
     add(
       BranchSupport.class,
+      ReportChunks.class,
+      ReportChunksCleaner.class,
       ReportSubmitter.class,
 
       CeWs.class,
@@ -42,6 +46,7 @@ public class CeWsModule extends Module {
       PauseAction.class,
       ResumeAction.class,
       SubmitAction.class,
+      SubmitChunkAction.class,
       TaskFormatter.class,
       TaskAction.class,
       TaskTypesAction.class,
@@ -29,8 +29,10 @@ import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.ce.task.CeTask;
 import org.sonar.db.ce.CeTaskCharacteristicDto;
+import org.sonar.server.ce.queue.ReportChunks;
 import org.sonar.server.ce.queue.ReportSubmitter;
 import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.user.UserSession;
 import org.sonar.server.ws.WsUtils;
 import org.sonarqube.ws.Ce;
 
@@ -47,12 +49,19 @@ public class SubmitAction implements CeWsAction {
   private static final String PARAM_PROJECT_NAME = "projectName";
   private static final String PARAM_REPORT_DATA = "report";
   private static final String PARAM_ANALYSIS_CHARACTERISTIC = "characteristic";
+  private static final String PARAM_UPLOAD_ID = SubmitChunkAction.PARAM_UPLOAD_ID;
+  private static final String PARAM_CHUNKS = "chunks";
 
+  private final UserSession userSession;
   private final ReportSubmitter reportSubmitter;
+  private final ReportChunks reportChunks;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
 
-  public SubmitAction(ReportSubmitter reportSubmitter, DefaultOrganizationProvider defaultOrganizationProvider) {
+  public SubmitAction(UserSession userSession, ReportSubmitter reportSubmitter, ReportChunks reportChunks,
+    DefaultOrganizationProvider defaultOrganizationProvider) {
+    this.userSession = userSession;
     this.reportSubmitter = reportSubmitter;
+    this.reportChunks = reportChunks;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
   }
 
@@ -88,8 +97,22 @@ public class SubmitAction implements CeWsAction {
 
     action
       .createParam(PARAM_REPORT_DATA)
-      .setRequired(true)
-      .setDescription("Report file. Format is not an API, it changes among SonarQube versions.");
+      .setDescription("Report file. Format is not an API, it changes among SonarQube versions. " +
+        "Required unless the report has been uploaded in chunks, see parameter '%s'.", PARAM_UPLOAD_ID);
+
+    action
+      .createParam(PARAM_UPLOAD_ID)
+      .setDescription("Id of the upload of the report with api/ce/submit_chunk. The upload must have been created by the current user " +
+        "for the same organization and project. Can't be set with parameter '%s'.", PARAM_REPORT_DATA)
+      .setMaximumLength(ReportChunks.UPLOAD_ID_LENGTH)
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy")
+      .setSince("8.4");
+
+    action
+      .createParam(PARAM_CHUNKS)
+      .setDescription("Number of chunks of the upload. Required when parameter '%s' is set.", PARAM_UPLOAD_ID)
+      .setExampleValue("3")
+      .setSince("8.4");
 
     action
       .createParam(PARAM_ANALYSIS_CHARACTERISTIC)
@@ -109,14 +132,25 @@ public class SubmitAction implements CeWsAction {
 
     Map<String, String> characteristics = parseTaskCharacteristics(wsRequest);
 
-    try (InputStream report = new BufferedInputStream(wsRequest.mandatoryParamAsPart(PARAM_REPORT_DATA).getInputStream())) {
-      CeTask task = reportSubmitter.submit(organizationKey, projectKey, projectName, characteristics, report);
-      Ce.SubmitResponse submitResponse = Ce.SubmitResponse.newBuilder()
-        .setTaskId(task.getUuid())
-        .setProjectId(task.getComponent().get().getUuid())
-        .build();
-      WsUtils.writeProtobuf(submitResponse, wsRequest, wsResponse);
+    String uploadId = wsRequest.param(PARAM_UPLOAD_ID);
+    CeTask task;
+    if (uploadId == null) {
+      try (InputStream report = new BufferedInputStream(wsRequest.mandatoryParamAsPart(PARAM_REPORT_DATA).getInputStream())) {
+        task = reportSubmitter.submit(organizationKey, projectKey, projectName, characteristics, report);
+      }
+    } else {
+      checkRequest(wsRequest.paramAsPart(PARAM_REPORT_DATA) == null, "Parameters '%s' and '%s' can't be set together", PARAM_REPORT_DATA, PARAM_UPLOAD_ID);
+      int chunks = wsRequest.mandatoryParamAsInt(PARAM_CHUNKS);
+      try (InputStream report = new BufferedInputStream(reportChunks.open(uploadId, chunks, userSession.getUuid(), organizationKey, projectKey))) {
+        task = reportSubmitter.submit(organizationKey, projectKey, projectName, characteristics, report);
+      }
+      reportChunks.delete(uploadId, chunks);
     }
+    Ce.SubmitResponse submitResponse = Ce.SubmitResponse.newBuilder()
+      .setTaskId(task.getUuid())
+      .setProjectId(task.getComponent().get().getUuid())
+      .build();
+    WsUtils.writeProtobuf(submitResponse, wsRequest, wsResponse);
   }
 
   private static Map<String, String> parseTaskCharacteristics(Request wsRequest) {
@@ -0,0 +1,115 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.server.ce.queue.ReportChunks;
+import org.sonar.server.ce.queue.ReportSubmitter;
+import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.user.UserSession;
+import org.sonar.server.ws.WsUtils;
+import org.sonarqube.ws.Ce;
+
+import static org.sonar.core.component.ComponentKeys.MAX_COMPONENT_KEY_LENGTH;
+import static org.sonar.server.exceptions.BadRequestException.checkRequest;
+
+public class SubmitChunkAction implements CeWsAction {
+
+  static final String PARAM_UPLOAD_ID = "uploadId";
+  private static final String PARAM_ORGANIZATION_KEY = "organization";
+  private static final String PARAM_PROJECT_KEY = "projectKey";
+  private static final String PARAM_INDEX = "index";
+  private static final String PARAM_CHUNK_DATA = "chunk";
+
+  private final UserSession userSession;
+  private final ReportChunks reportChunks;
+  private final ReportSubmitter reportSubmitter;
+  private final DefaultOrganizationProvider defaultOrganizationProvider;
+
+  public SubmitChunkAction(UserSession userSession, ReportChunks reportChunks, ReportSubmitter reportSubmitter,
+    DefaultOrganizationProvider defaultOrganizationProvider) {
+    this.userSession = userSession;
+    this.reportChunks = reportChunks;
+    this.reportSubmitter = reportSubmitter;
+    this.defaultOrganizationProvider = defaultOrganizationProvider;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction("submit_chunk")
+      .setDescription("Uploads a chunk of a scanner report. Chunks are concatenated in the order of their index when the report " +
+        "is submitted with the upload id returned for the first chunk. A chunk can be sent again when its upload failed. " +
+        "The upload can only be continued and submitted by the user who sent its first chunk, for the project specified with the first chunk. " +
+        "Requires analysis permission on the project, or provisioning permission if the project does not exist.")
+      .setPost(true)
+      .setInternal(true)
+      .setSince("8.4")
+      .setHandler(this);
+
+    action.createParam(PARAM_UPLOAD_ID)
+      .setDescription("Id of the upload, as returned for its first chunk. Must not be set when sending the first chunk.")
+      .setMaximumLength(ReportChunks.UPLOAD_ID_LENGTH)
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy");
+
+    action.createParam(PARAM_ORGANIZATION_KEY)
+      .setDescription("Key of the organization the project belongs to. Only used with the first chunk.")
+      .setExampleValue("my-org")
+      .setInternal(true);
+
+    action.createParam(PARAM_PROJECT_KEY)
+      .setDescription("Key of the project of the report. Required with the first chunk, ignored with the next ones.")
+      .setMaximumLength(MAX_COMPONENT_KEY_LENGTH)
+      .setExampleValue("my_project");
+
+    action.createParam(PARAM_INDEX)
+      .setRequired(true)
+      .setDescription("Zero-based index of the chunk")
+      .setExampleValue("0");
+
+    action.createParam(PARAM_CHUNK_DATA)
+      .setRequired(true)
+      .setDescription("Chunk of the report file");
+  }
+
+  @Override
+  public void handle(Request wsRequest, Response wsResponse) throws Exception {
+    userSession.checkLoggedIn();
+    String uploadId = wsRequest.param(PARAM_UPLOAD_ID);
+    int index = wsRequest.mandatoryParamAsInt(PARAM_INDEX);
+
+    if (uploadId == null) {
+      checkRequest(index == 0, "Upload id is required to store chunk %s", index);
+      String organizationKey = wsRequest.getParam(PARAM_ORGANIZATION_KEY)
+        .emptyAsNull()
+        .or(defaultOrganizationProvider.get()::getKey);
+      String projectKey = wsRequest.mandatoryParam(PARAM_PROJECT_KEY);
+      reportSubmitter.checkCanSubmit(organizationKey, projectKey);
+      uploadId = reportChunks.create(userSession.getUuid(), organizationKey, projectKey);
+    }
+    try (InputStream chunk = new BufferedInputStream(wsRequest.mandatoryParamAsPart(PARAM_CHUNK_DATA).getInputStream())) {
+      reportChunks.store(uploadId, index, chunk, userSession.getUuid());
+      WsUtils.writeProtobuf(Ce.SubmitChunkResponse.newBuilder().setUploadId(uploadId).build(), wsRequest, wsResponse);
+    }
+  }
+}
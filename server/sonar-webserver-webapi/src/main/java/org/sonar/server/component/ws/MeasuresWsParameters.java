@@ -29,6 +29,7 @@ public class MeasuresWsParameters {
   public static final String ACTION_COMPONENT_TREE = "component_tree";
   public static final String ACTION_COMPONENT = "component";
   public static final String ACTION_SEARCH_HISTORY = "search_history";
+  public static final String ACTION_PENDING_REFRESH = "pending_refresh";
 
   // parameters
   public static final String DEPRECATED_PARAM_BASE_COMPONENT_ID = "baseComponentId";
@@ -57,6 +57,7 @@ import org.sonar.server.es.SearchOptions;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.issue.index.IssueQuery;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.security.SecurityStandards;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.Common;
@@ -104,13 +105,16 @@ public class SearchAction implements HotspotsWsAction {
   private final IssueIndex issueIndex;
   private final HotspotWsResponseFormatter responseFormatter;
   private System2 system2;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
-  public SearchAction(DbClient dbClient, UserSession userSession, IssueIndex issueIndex, HotspotWsResponseFormatter responseFormatter, System2 system2) {
+  public SearchAction(DbClient dbClient, UserSession userSession, IssueIndex issueIndex, HotspotWsResponseFormatter responseFormatter, System2 system2,
+    RuleDefinitionCache ruleDefinitionCache) {
     this.dbClient = dbClient;
     this.userSession = userSession;
     this.issueIndex = issueIndex;
     this.responseFormatter = responseFormatter;
     this.system2 = system2;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   @Override
@@ -334,7 +338,7 @@ public class SearchAction implements HotspotsWsAction {
       .map(IssueDto::getRuleKey)
       .collect(Collectors.toSet());
     if (!ruleKeys.isEmpty()) {
-      searchResponseData.addRules(dbClient.ruleDao().selectDefinitionByKeys(dbSession, ruleKeys));
+      searchResponseData.addRules(ruleDefinitionCache.getByKeys(dbSession, ruleKeys));
     }
   }
 
@@ -45,6 +45,7 @@ import org.sonar.server.issue.IssueChangeWSSupport.Load;
 import org.sonar.server.issue.TextRangeResponseFormatter;
 import org.sonar.server.issue.ws.UserResponseFormatter;
 import org.sonar.server.rule.HotspotRuleDescription;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.rule.RuleDescriptionFormatter;
 import org.sonar.server.security.SecurityStandards;
 import org.sonar.server.text.MacroInterpreter;
@@ -72,10 +73,12 @@ public class ShowAction implements HotspotsWsAction {
   private final UserResponseFormatter userFormatter;
   private final IssueChangeWSSupport issueChangeSupport;
   private final MacroInterpreter macroInterpreter;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
   public ShowAction(DbClient dbClient, HotspotWsSupport hotspotWsSupport,
     HotspotWsResponseFormatter responseFormatter, TextRangeResponseFormatter textRangeFormatter,
-    UserResponseFormatter userFormatter, IssueChangeWSSupport issueChangeSupport, MacroInterpreter macroInterpreter) {
+    UserResponseFormatter userFormatter, IssueChangeWSSupport issueChangeSupport, MacroInterpreter macroInterpreter,
+    RuleDefinitionCache ruleDefinitionCache) {
     this.dbClient = dbClient;
     this.hotspotWsSupport = hotspotWsSupport;
     this.responseFormatter = responseFormatter;
@@ -83,6 +86,7 @@ public class ShowAction implements HotspotsWsAction {
     this.userFormatter = userFormatter;
     this.issueChangeSupport = issueChangeSupport;
     this.macroInterpreter = macroInterpreter;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   @Override
@@ -218,7 +222,7 @@ public class ShowAction implements HotspotsWsAction {
 
   private RuleDefinitionDto loadRule(DbSession dbSession, IssueDto hotspot) {
     RuleKey ruleKey = hotspot.getRuleKey();
-    return dbClient.ruleDao().selectDefinitionByKey(dbSession, ruleKey)
+    return ruleDefinitionCache.getByKey(dbSession, ruleKey)
       .orElseThrow(() -> new NotFoundException(format("Rule '%s' does not exist", ruleKey)));
   }
 
@@ -25,6 +25,7 @@ import org.sonar.core.issue.DefaultIssue;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.server.measure.live.LiveMeasureComputer;
+import org.sonar.server.measure.live.LiveMeasureRefreshQueue;
 import org.sonar.server.qualitygate.changeevent.QGChangeEvent;
 import org.sonar.server.qualitygate.changeevent.QGChangeEventListeners;
 
@@ -32,14 +33,22 @@ public class IssueChangePostProcessorImpl implements IssueChangePostProcessor {
 
   private final LiveMeasureComputer liveMeasureComputer;
   private final QGChangeEventListeners qualityGateListeners;
+  private final LiveMeasureRefreshQueue refreshQueue;
 
-  public IssueChangePostProcessorImpl(LiveMeasureComputer liveMeasureComputer, QGChangeEventListeners qualityGateListeners) {
+  public IssueChangePostProcessorImpl(LiveMeasureComputer liveMeasureComputer, QGChangeEventListeners qualityGateListeners,
+    LiveMeasureRefreshQueue refreshQueue) {
     this.liveMeasureComputer = liveMeasureComputer;
     this.qualityGateListeners = qualityGateListeners;
+    this.refreshQueue = refreshQueue;
   }
 
   @Override
   public void process(DbSession dbSession, List<DefaultIssue> changedIssues, Collection<ComponentDto> components) {
+    if (refreshQueue.isEnabled()) {
+      // changes of issues are already committed, measures are refreshed in background
+      refreshQueue.enqueue(changedIssues, components);
+      return;
+    }
     List<QGChangeEvent> gateChangeEvents = liveMeasureComputer.refresh(dbSession, components);
     qualityGateListeners.broadcastOnIssueChange(changedIssues, gateChangeEvents);
   }
@@ -0,0 +1,216 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.core.util.ProtobufJsonFormat;
+import org.sonar.server.issue.SearchRequest;
+import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.issue.index.IssueQuery;
+import org.sonar.server.issue.index.IssueQueryFactory;
+import org.sonarqube.ws.Issues.SearchWsResponse;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static org.sonar.api.issue.Issue.RESOLUTIONS;
+import static org.sonar.server.issue.index.IssueQueryFactory.ISSUE_STATUSES;
+import static org.sonar.server.issue.ws.SearchAction.ALL_RULE_TYPES_EXCEPT_SECURITY_HOTSPOTS;
+import static org.sonar.server.issue.ws.SearchAction.allRuleTypesExceptHotspotsIfEmpty;
+import static org.sonar.server.ws.KeyExamples.KEY_BRANCH_EXAMPLE_001;
+import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
+import static org.sonar.server.ws.KeyExamples.KEY_PULL_REQUEST_EXAMPLE_001;
+import static org.sonarqube.ws.MediaTypes.PROTOBUF;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ADDITIONAL_FIELDS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_BRANCH;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_COMPONENT_KEYS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_AFTER;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_BEFORE;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ORGANIZATION;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_PULL_REQUEST;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_RESOLUTIONS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_RESOLVED;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_RULES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_SEVERITIES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_STATUSES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_TAGS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_TYPES;
+
+/**
+ * Streams all the issues matching a query, without the limit of {@link SearchAction} on the number of results.
+ * Issues are read from Elasticsearch with a scroll and written by batches of {@link #BATCH_SIZE}, so that
+ * memory does not depend on the number of issues being exported.
+ */
+public class ExportAction implements IssuesWsAction {
+
+  static final String ACTION_EXPORT = "export";
+  static final String NDJSON = "application/x-ndjson";
+  static final int BATCH_SIZE = 500;
+
+  private final IssueIndex issueIndex;
+  private final IssueQueryFactory issueQueryFactory;
+  private final SearchResponseLoader searchResponseLoader;
+  private final SearchResponseFormat searchResponseFormat;
+
+  public ExportAction(IssueIndex issueIndex, IssueQueryFactory issueQueryFactory, SearchResponseLoader searchResponseLoader,
+    SearchResponseFormat searchResponseFormat) {
+    this.issueIndex = issueIndex;
+    this.issueQueryFactory = issueQueryFactory;
+    this.searchResponseLoader = searchResponseLoader;
+    this.searchResponseFormat = searchResponseFormat;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller
+      .createAction(ACTION_EXPORT)
+      .setHandler(this)
+      .setDescription("Export all the issues matching the query. Unlike api/issues/search, the number of issues is not limited.<br/>" +
+        "The response is a sequence of batches of at most " + BATCH_SIZE + " issues. Each batch has the format of a search response, " +
+        "without paging nor facets. In JSON, each batch is written on its own line. In protobuf, each batch is a length-delimited message.<br/>" +
+        "Requires the 'Browse' permission on the issues to be exported.")
+      .setSince("8.4")
+      .setResponseExample(getClass().getResource("export-example.json"));
+
+    action.createParam(PARAM_ADDITIONAL_FIELDS)
+      .setDescription("Comma-separated list of the optional fields to be returned in response.")
+      .setPossibleValues(SearchAdditionalField.possibleValues());
+    action.createParam(PARAM_COMPONENT_KEYS)
+      .setDescription("Comma-separated list of component keys. Export issues associated to a specific list of components (and all its descendants). " +
+        "A component can be a portfolio, project, module, directory or file.")
+      .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+    action.createParam(PARAM_BRANCH)
+      .setDescription("Branch key. Not available in the community edition.")
+      .setExampleValue(KEY_BRANCH_EXAMPLE_001);
+    action.createParam(PARAM_PULL_REQUEST)
+      .setDescription("Pull request id. Not available in the community edition.")
+      .setExampleValue(KEY_PULL_REQUEST_EXAMPLE_001);
+    action.createParam(PARAM_ORGANIZATION)
+      .setDescription("Organization key")
+      .setInternal(true)
+      .setExampleValue("my-org");
+    action.createParam(PARAM_SEVERITIES)
+      .setDescription("Comma-separated list of severities")
+      .setExampleValue(Severity.BLOCKER + "," + Severity.CRITICAL)
+      .setPossibleValues(Severity.ALL);
+    action.createParam(PARAM_STATUSES)
+      .setDescription("Comma-separated list of statuses")
+      .setPossibleValues(ISSUE_STATUSES);
+    action.createParam(PARAM_RESOLUTIONS)
+      .setDescription("Comma-separated list of resolutions")
+      .setPossibleValues(RESOLUTIONS);
+    action.createParam(PARAM_RESOLVED)
+      .setDescription("To match resolved or unresolved issues")
+      .setBooleanPossibleValues();
+    action.createParam(PARAM_RULES)
+      .setDescription("Comma-separated list of coding rule keys. Format is &lt;repository&gt;:&lt;rule&gt;")
+      .setExampleValue("squid:AvoidCycles");
+    action.createParam(PARAM_TAGS)
+      .setDescription("Comma-separated list of tags.")
+      .setExampleValue("security,convention");
+    action.createParam(PARAM_TYPES)
+      .setDescription("Comma-separated list of types.")
+      .setPossibleValues(ALL_RULE_TYPES_EXCEPT_SECURITY_HOTSPOTS)
+      .setExampleValue(format("%s,%s", RuleType.CODE_SMELL, RuleType.BUG));
+    action.createParam(PARAM_CREATED_AFTER)
+      .setDescription("To export issues created after the given date (inclusive). <br>" +
+        "Either a date (server timezone) or datetime can be provided.")
+      .setExampleValue("2017-10-19 or 2017-10-19T13:00:00+0200");
+    action.createParam(PARAM_CREATED_BEFORE)
+      .setDescription("To export issues created before the given date (exclusive). <br>" +
+        "Either a date (server timezone) or datetime can be provided.")
+      .setExampleValue("2017-10-19 or 2017-10-19T13:00:00+0200");
+  }
+
+  @Override
+  public void handle(Request request, Response response) throws Exception {
+    SearchRequest searchRequest = toSearchRequest(request);
+    EnumSet<SearchAdditionalField> additionalFields = SearchAdditionalField.getFromRequest(searchRequest);
+    IssueQuery query = issueQueryFactory.create(searchRequest);
+    boolean protobuf = PROTOBUF.equals(request.getMediaType());
+
+    response.stream().setMediaType(protobuf ? PROTOBUF : NDJSON);
+    OutputStream output = response.stream().output();
+    try {
+      Writer writer = new OutputStreamWriter(output, UTF_8);
+      Iterator<String> issueKeys = issueIndex.scrollKeys(query);
+      List<String> batch = new ArrayList<>(BATCH_SIZE);
+      while (issueKeys.hasNext()) {
+        batch.add(issueKeys.next());
+        if (batch.size() == BATCH_SIZE || !issueKeys.hasNext()) {
+          SearchWsResponse batchResponse = loadBatch(batch, query, additionalFields);
+          if (protobuf) {
+            batchResponse.writeDelimitedTo(output);
+            output.flush();
+          } else {
+            writer.write(ProtobufJsonFormat.toJson(batchResponse));
+            writer.write('\n');
+            writer.flush();
+          }
+          batch.clear();
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Error while exporting issues", e);
+    } finally {
+      IOUtils.closeQuietly(output);
+    }
+  }
+
+  private SearchWsResponse loadBatch(List<String> issueKeys, IssueQuery query, EnumSet<SearchAdditionalField> additionalFields) {
+    SearchResponseData preloadedData = new SearchResponseData(emptyList());
+    preloadedData.addRules(ImmutableList.copyOf(query.rules()));
+    SearchResponseLoader.Collector collector = new SearchResponseLoader.Collector(new ArrayList<>(issueKeys));
+    SearchResponseData data = searchResponseLoader.load(preloadedData, collector, additionalFields, null);
+    return searchResponseFormat.formatExport(additionalFields, data);
+  }
+
+  private static SearchRequest toSearchRequest(Request request) {
+    return new SearchRequest()
+      .setAdditionalFields(request.paramAsStrings(PARAM_ADDITIONAL_FIELDS))
+      .setComponentKeys(request.paramAsStrings(PARAM_COMPONENT_KEYS))
+      .setBranch(request.param(PARAM_BRANCH))
+      .setPullRequest(request.param(PARAM_PULL_REQUEST))
+      .setOrganization(request.param(PARAM_ORGANIZATION))
+      .setCreatedAfter(request.param(PARAM_CREATED_AFTER))
+      .setCreatedBefore(request.param(PARAM_CREATED_BEFORE))
+      .setResolutions(request.paramAsStrings(PARAM_RESOLUTIONS))
+      .setResolved(request.paramAsBoolean(PARAM_RESOLVED))
+      .setRules(request.paramAsStrings(PARAM_RULES))
+      .setSeverities(request.paramAsStrings(PARAM_SEVERITIES))
+      .setStatuses(request.paramAsStrings(PARAM_STATUSES))
+      .setTags(request.paramAsStrings(PARAM_TAGS))
+      .setTypes(allRuleTypesExceptHotspotsIfEmpty(request.paramAsStrings(PARAM_TYPES)));
+  }
+}
@@ -47,6 +47,7 @@ public class IssueWsModule extends Module {
       IssuesWs.class,
       AvatarResolverImpl.class,
       IssueChangeWSSupport.class,
+      SearchResponseCache.class,
       SearchResponseLoader.class,
       TextRangeResponseFormatter.class,
       UserResponseFormatter.class,
@@ -58,6 +59,7 @@ public class IssueWsModule extends Module {
       AssignAction.class,
       DoTransitionAction.class,
       SearchAction.class,
+      ExportAction.class,
       SetSeverityAction.class,
       TagsAction.class,
       SetTagsAction.class,
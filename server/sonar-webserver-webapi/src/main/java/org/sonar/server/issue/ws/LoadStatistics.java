@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Time spent loading each kind of data of a response of api/issues/search, and hits and misses of
+ * {@link SearchResponseCache}. Data may be loaded concurrently.
+ */
+class LoadStatistics {
+  private final Map<String, Long> durationsInMs = new ConcurrentSkipListMap<>();
+  private final Map<String, int[]> cacheHitsAndMisses = new ConcurrentSkipListMap<>();
+
+  void time(String name, Runnable load) {
+    time(name, () -> {
+      load.run();
+      return null;
+    });
+  }
+
+  <T> T time(String name, Supplier<T> load) {
+    long start = System.nanoTime();
+    try {
+      return load.get();
+    } finally {
+      durationsInMs.merge(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Long::sum);
+    }
+  }
+
+  void addCacheHits(String name, int hits, int misses) {
+    cacheHitsAndMisses.merge(name, new int[] {hits, misses}, (a, b) -> new int[] {a[0] + b[0], a[1] + b[1]});
+  }
+
+  long getDurationInMs(String name) {
+    return durationsInMs.getOrDefault(name, 0L);
+  }
+
+  int getCacheHits(String name) {
+    return cacheHitsAndMisses.getOrDefault(name, new int[2])[0];
+  }
+
+  int getCacheMisses(String name) {
+    return cacheHitsAndMisses.getOrDefault(name, new int[2])[1];
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    durationsInMs.forEach((name, duration) -> {
+      if (sb.length() > 0) {
+        sb.append(", ");
+      }
+      sb.append(name).append('=').append(duration).append("ms");
+    });
+    cacheHitsAndMisses.forEach((name, hitsAndMisses) -> sb.append(", ").append(name).append("Cache=")
+      .append(hitsAndMisses[0]).append(" hits/").append(hitsAndMisses[1]).append(" misses"));
+    return sb.toString();
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.user.UserDto;
+
+/**
+ * Short-lived cache of the data referenced by most responses of api/issues/search: users and organizations.
+ * <p>
+ * Entries expire {@link #TTL_MS} milliseconds after being loaded from DB, so that changes are returned shortly
+ * after being made. The number of entries of each kind of data is bounded by {@link #MAX_ENTRIES}.
+ */
+@ServerSide
+public class SearchResponseCache {
+  static final long TTL_MS = 10_000L;
+  static final int MAX_ENTRIES = 10_000;
+
+  private final System2 system2;
+  private final ExpiringEntries<UserDto> users = new ExpiringEntries<>("users", UserDto::getUuid);
+  private final ExpiringEntries<OrganizationDto> organizations = new ExpiringEntries<>("organizations", OrganizationDto::getUuid);
+
+  public SearchResponseCache(System2 system2) {
+    this.system2 = system2;
+  }
+
+  List<UserDto> getUsers(Set<String> uuids, Function<Set<String>, List<UserDto>> loader, LoadStatistics statistics) {
+    return users.getAll(uuids, loader, statistics);
+  }
+
+  List<OrganizationDto> getOrganizations(Set<String> uuids, Function<Set<String>, List<OrganizationDto>> loader, LoadStatistics statistics) {
+    return organizations.getAll(uuids, loader, statistics);
+  }
+
+  private final class ExpiringEntries<T> {
+    private final String name;
+    private final Function<T, String> uuidFunction;
+    private final Map<String, ExpiringEntry<T>> entriesByUuid = new ConcurrentHashMap<>();
+
+    private ExpiringEntries(String name, Function<T, String> uuidFunction) {
+      this.name = name;
+      this.uuidFunction = uuidFunction;
+    }
+
+    private List<T> getAll(Set<String> uuids, Function<Set<String>, List<T>> loader, LoadStatistics statistics) {
+      long now = system2.now();
+      List<T> result = new ArrayList<>(uuids.size());
+      Set<String> uuidsToLoad = new HashSet<>();
+      for (String uuid : uuids) {
+        ExpiringEntry<T> entry = entriesByUuid.get(uuid);
+        if (entry != null && entry.expiresAt > now) {
+          result.add(entry.value);
+        } else {
+          uuidsToLoad.add(uuid);
+        }
+      }
+      statistics.addCacheHits(name, result.size(), uuidsToLoad.size());
+      if (uuidsToLoad.isEmpty()) {
+        return result;
+      }
+
+      List<T> loaded = loader.apply(uuidsToLoad);
+      evictIfFull(now, loaded.size());
+      loaded.forEach(value -> entriesByUuid.put(uuidFunction.apply(value), new ExpiringEntry<>(value, now + TTL_MS)));
+      result.addAll(loaded);
+      return result;
+    }
+
+    private void evictIfFull(long now, int added) {
+      if (entriesByUuid.size() + added > MAX_ENTRIES) {
+        entriesByUuid.values().removeIf(entry -> entry.expiresAt <= now);
+        if (entriesByUuid.size() + added > MAX_ENTRIES) {
+          entriesByUuid.clear();
+        }
+      }
+    }
+  }
+
+  private static final class ExpiringEntry<T> {
+    private final T value;
+    private final long expiresAt;
+
+    private ExpiringEntry(T value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -94,6 +94,23 @@ public class SearchResponseFormat {
     response.addAllIssues(formatIssues(fields, data));
     response.addAllComponents(formatComponents(data));
     formatFacets(data, facets, response);
+    formatAdditionalFields(fields, data, response);
+    return response.build();
+  }
+
+  /**
+   * Same as {@link #formatSearch(Set, SearchResponseData, Paging, Facets)} for a single batch of an export, which
+   * has neither paging nor facets.
+   */
+  SearchWsResponse formatExport(Set<SearchAdditionalField> fields, SearchResponseData data) {
+    SearchWsResponse.Builder response = SearchWsResponse.newBuilder();
+    response.addAllIssues(formatIssues(fields, data));
+    response.addAllComponents(formatComponents(data));
+    formatAdditionalFields(fields, data, response);
+    return response.build();
+  }
+
+  private void formatAdditionalFields(Set<SearchAdditionalField> fields, SearchResponseData data, SearchWsResponse.Builder response) {
     if (fields.contains(SearchAdditionalField.RULES)) {
       response.setRules(formatRules(data));
     }
@@ -103,7 +120,6 @@ public class SearchResponseFormat {
     if (fields.contains(SearchAdditionalField.LANGUAGES)) {
       response.setLanguages(formatLanguages());
     }
-    return response.build();
   }
 
   Operation formatOperation(SearchResponseData data) {
@@ -21,6 +21,8 @@ package org.sonar.server.issue.ws;
 
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -29,9 +31,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
@@ -44,6 +53,7 @@ import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.es.Facets;
 import org.sonar.server.issue.TransitionService;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.client.issue.IssuesWsParameters;
 
@@ -53,7 +63,7 @@ import static com.google.common.collect.Sets.difference;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
-import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Stream.concat;
 import static org.sonar.api.web.UserRole.ISSUE_ADMIN;
 import static org.sonar.core.util.stream.MoreCollectors.toList;
@@ -67,17 +77,37 @@ import static org.sonar.server.issue.ws.SearchAdditionalField.TRANSITIONS;
 
 /**
  * Loads all the information required for the response of api/issues/search.
+ * <p>
+ * Once issues are loaded, rules, comments and users, and organization memberships are loaded concurrently to components,
+ * each on its own {@link DbSession}. At most {@link #PARALLELISM} loads are executed by the shared threads, the others
+ * being executed by the thread of the request. Rules are read through {@link RuleDefinitionCache}, users and organizations
+ * through {@link SearchResponseCache}.
  */
 public class SearchResponseLoader {
+  private static final Logger LOG = Loggers.get(SearchResponseLoader.class);
+  private static final int PARALLELISM = 8;
 
   private final UserSession userSession;
   private final DbClient dbClient;
   private final TransitionService transitionService;
+  private final SearchResponseCache cache;
+  private final RuleDefinitionCache ruleDefinitionCache;
+  private final ThreadPoolExecutor executorService;
 
-  public SearchResponseLoader(UserSession userSession, DbClient dbClient, TransitionService transitionService) {
+  public SearchResponseLoader(UserSession userSession, DbClient dbClient, TransitionService transitionService, SearchResponseCache cache,
+    RuleDefinitionCache ruleDefinitionCache) {
     this.userSession = userSession;
     this.dbClient = dbClient;
     this.transitionService = transitionService;
+    this.cache = cache;
+    this.ruleDefinitionCache = ruleDefinitionCache;
+    this.executorService = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 60L, SECONDS, new SynchronousQueue<>(),
+      new ThreadFactoryBuilder()
+        .setNameFormat("issues_search_loader-%d")
+        .setDaemon(true)
+        .build(),
+      new ThreadPoolExecutor.CallerRunsPolicy());
+    this.executorService.allowCoreThreadTimeOut(true);
   }
 
   /**
@@ -88,22 +118,56 @@ public class SearchResponseLoader {
    * </p>
    */
   public SearchResponseData load(SearchResponseData preloadedResponseData, Collector collector, Set<SearchAdditionalField> fields, @Nullable Facets facets) {
+    LoadStatistics statistics = new LoadStatistics();
     try (DbSession dbSession = dbClient.openSession(false)) {
-      SearchResponseData result = new SearchResponseData(loadIssues(preloadedResponseData, collector, dbSession));
+      SearchResponseData result = new SearchResponseData(statistics.time("issues", () -> loadIssues(preloadedResponseData, collector, dbSession)));
       collector.collect(result.getIssues());
 
-      loadRules(preloadedResponseData, collector, dbSession, result);
-      // order is important - loading of comments complete the list of users: loadComments() is before loadUsers()
-      loadComments(collector, dbSession, fields, result);
-      loadUsers(preloadedResponseData, collector, dbSession, result);
-      loadComponents(preloadedResponseData, collector, dbSession, result);
-      loadOrganizations(dbSession, result);
+      // user session is bound to the thread of the request
+      String userUuid = userSession.isLoggedIn() ? userSession.getUuid() : null;
+      List<Future<?>> loads = new ArrayList<>();
+      loads.add(submit(statistics, "rules", session -> loadRules(preloadedResponseData, collector, session, result)));
+      loads.add(submit(statistics, "users", session -> {
+        // order is important - loading of comments complete the list of users: loadComments() is before loadUsers()
+        loadComments(collector, session, fields, result, userUuid);
+        loadUsers(preloadedResponseData, collector, session, result, statistics);
+      }));
+      if (userUuid != null) {
+        loads.add(submit(statistics, "memberships", session -> result.setUserOrganizationUuids(
+          dbClient.organizationMemberDao().selectOrganizationUuidsByUser(session, userUuid))));
+      }
+      statistics.time("components", () -> {
+        loadComponents(preloadedResponseData, collector, dbSession, result);
+        loadOrganizations(dbSession, result, statistics);
+      });
+      loads.forEach(SearchResponseLoader::waitFor);
+
       loadActionsAndTransitions(result, fields);
       completeTotalEffortFromFacet(facets, result);
+      LOG.debug("Loaded {} issues: {}", result.getIssues().size(), statistics);
       return result;
     }
   }
 
+  private Future<?> submit(LoadStatistics statistics, String name, Consumer<DbSession> load) {
+    return executorService.submit(() -> statistics.time(name, () -> {
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        load.accept(dbSession);
+      }
+    }));
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading issues", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to load issues", e.getCause());
+    }
+  }
+
   private List<IssueDto> loadIssues(SearchResponseData preloadedResponseData, Collector collector, DbSession dbSession) {
     List<IssueDto> preloadedIssues = preloadedResponseData.getIssues();
     Set<String> preloadedIssueKeys = preloadedIssues.stream().map(IssueDto::getKey).collect(MoreCollectors.toSet(preloadedIssues.size()));
@@ -126,12 +190,13 @@ public class SearchResponseLoader {
       .collect(Collectors.toList());
   }
 
-  private void loadUsers(SearchResponseData preloadedResponseData, Collector collector, DbSession dbSession, SearchResponseData result) {
+  private void loadUsers(SearchResponseData preloadedResponseData, Collector collector, DbSession dbSession, SearchResponseData result,
+    LoadStatistics statistics) {
     Set<String> usersUuidToLoad = collector.getUserUuids();
     List<UserDto> preloadedUsers = firstNonNull(preloadedResponseData.getUsers(), emptyList());
     result.addUsers(preloadedUsers);
     preloadedUsers.forEach(userDto -> usersUuidToLoad.remove(userDto.getUuid()));
-    result.addUsers(dbClient.userDao().selectByUuids(dbSession, usersUuidToLoad));
+    result.addUsers(cache.getUsers(usersUuidToLoad, uuids -> dbClient.userDao().selectByUuids(dbSession, uuids), statistics));
   }
 
   private void loadComponents(SearchResponseData preloadedResponseData, Collector collector, DbSession dbSession, SearchResponseData result) {
@@ -168,36 +233,33 @@ public class SearchResponseLoader {
     result.addRules(preloadedRules);
     Set<String> ruleUuidsToLoad = collector.getRuleUuids();
     ruleUuidsToLoad.removeAll(preloadedRules.stream().map(RuleDefinitionDto::getUuid).collect(toList(preloadedRules.size())));
-    result.addRules(dbClient.ruleDao().selectDefinitionByUuids(dbSession, ruleUuidsToLoad));
+    result.addRules(ruleDefinitionCache.getByUuids(dbSession, ruleUuidsToLoad));
   }
 
-  private void loadComments(Collector collector, DbSession dbSession, Set<SearchAdditionalField> fields, SearchResponseData result) {
+  private void loadComments(Collector collector, DbSession dbSession, Set<SearchAdditionalField> fields, SearchResponseData result, @Nullable String userUuid) {
     if (fields.contains(COMMENTS)) {
       List<IssueChangeDto> comments = dbClient.issueChangeDao().selectByTypeAndIssueKeys(dbSession, collector.getIssueKeys(), IssueChangeDto.TYPE_COMMENT);
       result.setComments(comments);
       for (IssueChangeDto comment : comments) {
         collector.addUserUuids(singletonList(comment.getUserUuid()));
-        if (canEditOrDelete(comment)) {
+        if (canEditOrDelete(comment, userUuid)) {
           result.addUpdatableComment(comment.getKey());
         }
       }
     }
   }
 
-  private boolean canEditOrDelete(IssueChangeDto dto) {
-    return userSession.isLoggedIn() && requireNonNull(userSession.getUuid(), "User uuid should not be null").equals(dto.getUserUuid());
+  private static boolean canEditOrDelete(IssueChangeDto dto, @Nullable String userUuid) {
+    return userUuid != null && userUuid.equals(dto.getUserUuid());
   }
 
-  private void loadOrganizations(DbSession dbSession, SearchResponseData result) {
+  private void loadOrganizations(DbSession dbSession, SearchResponseData result, LoadStatistics statistics) {
     Collection<ComponentDto> components = result.getComponents();
-    dbClient.organizationDao().selectByUuids(
-      dbSession,
-      components.stream().map(ComponentDto::getOrganizationUuid).collect(MoreCollectors.toSet()))
+    cache.getOrganizations(
+      components.stream().map(ComponentDto::getOrganizationUuid).collect(MoreCollectors.toSet()),
+      uuids -> dbClient.organizationDao().selectByUuids(dbSession, uuids),
+      statistics)
       .forEach(result::addOrganization);
-
-    if (userSession.isLoggedIn()) {
-      result.setUserOrganizationUuids(dbClient.organizationMemberDao().selectOrganizationUuidsByUser(dbSession, userSession.getUuid()));
-    }
   }
 
   private void loadActionsAndTransitions(SearchResponseData result, Set<SearchAdditionalField> fields) {
@@ -33,6 +33,7 @@ class IssueMetricFormula {
 
   private final Metric metric;
   private final boolean onLeak;
+  private final Aggregation aggregation;
   private final BiConsumer<Context, IssueCounter> formula;
   private final Collection<Metric> dependentMetrics;
 
@@ -41,8 +42,18 @@ class IssueMetricFormula {
   }
 
   IssueMetricFormula(Metric metric, boolean onLeak, BiConsumer<Context, IssueCounter> formula, Collection<Metric> dependentMetrics) {
+    this(metric, onLeak, Aggregation.NONE, formula, dependentMetrics);
+  }
+
+  IssueMetricFormula(Metric metric, boolean onLeak, Aggregation aggregation, BiConsumer<Context, IssueCounter> formula) {
+    this(metric, onLeak, aggregation, formula, emptyList());
+  }
+
+  IssueMetricFormula(Metric metric, boolean onLeak, Aggregation aggregation, BiConsumer<Context, IssueCounter> formula,
+    Collection<Metric> dependentMetrics) {
     this.metric = metric;
     this.onLeak = onLeak;
+    this.aggregation = aggregation;
     this.formula = formula;
     this.dependentMetrics = dependentMetrics;
   }
@@ -55,6 +66,10 @@ class IssueMetricFormula {
     return onLeak;
   }
 
+  Aggregation getAggregation() {
+    return aggregation;
+  }
+
   Collection<Metric> getDependentMetrics() {
     return dependentMetrics;
   }
@@ -63,6 +78,30 @@ class IssueMetricFormula {
     formula.accept(context, issues);
   }
 
+  /**
+   * How the value of a component relates to the values of its descendants. It allows
+   * to refresh the ancestors of the touched components without loading their issues.
+   */
+  enum Aggregation {
+    /**
+     * The value can only be computed from the issues of the component
+     */
+    NONE,
+    /**
+     * The value is the sum of the values of the descendants, for example a number of issues
+     */
+    SUM,
+    /**
+     * The value is the greatest value of the descendants, for example a rating based on the highest severity
+     */
+    MAX,
+    /**
+     * The value is computed from the other measures of the component only (see {@link #getDependentMetrics()}).
+     * The formula must not read the {@link IssueCounter}.
+     */
+    DEPENDENT
+  }
+
   interface Context {
     ComponentDto getComponent();
 
@@ -31,172 +31,171 @@ import org.sonar.server.measure.Rating;
 
 import static java.util.Arrays.asList;
 import static org.sonar.server.measure.Rating.RATING_BY_SEVERITY;
+import static org.sonar.server.measure.live.IssueMetricFormula.Aggregation.DEPENDENT;
+import static org.sonar.server.measure.live.IssueMetricFormula.Aggregation.MAX;
+import static org.sonar.server.measure.live.IssueMetricFormula.Aggregation.SUM;
 import static org.sonar.server.security.SecurityReviewRating.computePercent;
 import static org.sonar.server.security.SecurityReviewRating.computeRating;
 
 public class IssueMetricFormulaFactoryImpl implements IssueMetricFormulaFactory {
 
   private static final List<IssueMetricFormula> FORMULAS = asList(
-    new IssueMetricFormula(CoreMetrics.CODE_SMELLS, false,
+    new IssueMetricFormula(CoreMetrics.CODE_SMELLS, false, SUM,
       (context, issues) -> context.setValue(issues.countUnresolvedByType(RuleType.CODE_SMELL, false))),
 
-    new IssueMetricFormula(CoreMetrics.BUGS, false,
+    new IssueMetricFormula(CoreMetrics.BUGS, false, SUM,
       (context, issues) -> context.setValue(issues.countUnresolvedByType(RuleType.BUG, false))),
 
-    new IssueMetricFormula(CoreMetrics.VULNERABILITIES, false,
+    new IssueMetricFormula(CoreMetrics.VULNERABILITIES, false, SUM,
       (context, issues) -> context.setValue(issues.countUnresolvedByType(RuleType.VULNERABILITY, false))),
 
-    new IssueMetricFormula(CoreMetrics.SECURITY_HOTSPOTS, false,
+    new IssueMetricFormula(CoreMetrics.SECURITY_HOTSPOTS, false, SUM,
       (context, issues) -> context.setValue(issues.countUnresolvedByType(RuleType.SECURITY_HOTSPOT, false))),
 
-    new IssueMetricFormula(CoreMetrics.VIOLATIONS, false,
+    new IssueMetricFormula(CoreMetrics.VIOLATIONS, false, SUM,
       (context, issues) -> context.setValue(issues.countUnresolved(false))),
 
-    new IssueMetricFormula(CoreMetrics.BLOCKER_VIOLATIONS, false,
+    new IssueMetricFormula(CoreMetrics.BLOCKER_VIOLATIONS, false, SUM,
       (context, issues) -> context.setValue(issues.countUnresolvedBySeverity(Severity.BLOCKER, false))),
 
-    new IssueMetricFormula(CoreMetrics.CRITICAL_VIOLATIONS, false,
+    new IssueMetricFormula(CoreMetrics.CRITICAL_VIOLATIONS, false, SUM,
       (context, issues) -> context.setValue(issues.countUnresolvedBySeverity(Severity.CRITICAL, false))),
 
-    new IssueMetricFormula(CoreMetrics.MAJOR_VIOLATIONS, false,
+    new IssueMetricFormula(CoreMetrics.MAJOR_VIOLATIONS, false, SUM,
       (context, issues) -> context.setValue(issues.countUnresolvedBySeverity(Severity.MAJOR, false))),
 
-    new IssueMetricFormula(CoreMetrics.MINOR_VIOLATIONS, false,
+    new IssueMetricFormula(CoreMetrics.MINOR_VIOLATIONS, false, SUM,
       (context, issues) -> context.setValue(issues.countUnresolvedBySeverity(Severity.MINOR, false))),
 
-    new IssueMetricFormula(CoreMetrics.INFO_VIOLATIONS, false,
+    new IssueMetricFormula(CoreMetrics.INFO_VIOLATIONS, false, SUM,
       (context, issues) -> context.setValue(issues.countUnresolvedBySeverity(Severity.INFO, false))),
 
-    new IssueMetricFormula(CoreMetrics.FALSE_POSITIVE_ISSUES, false,
+    new IssueMetricFormula(CoreMetrics.FALSE_POSITIVE_ISSUES, false, SUM,
       (context, issues) -> context.setValue(issues.countByResolution(Issue.RESOLUTION_FALSE_POSITIVE, false))),
 
-    new IssueMetricFormula(CoreMetrics.WONT_FIX_ISSUES, false,
+    new IssueMetricFormula(CoreMetrics.WONT_FIX_ISSUES, false, SUM,
       (context, issues) -> context.setValue(issues.countByResolution(Issue.RESOLUTION_WONT_FIX, false))),
 
-    new IssueMetricFormula(CoreMetrics.OPEN_ISSUES, false,
+    new IssueMetricFormula(CoreMetrics.OPEN_ISSUES, false, SUM,
       (context, issues) -> context.setValue(issues.countByStatus(Issue.STATUS_OPEN, false))),
 
-    new IssueMetricFormula(CoreMetrics.REOPENED_ISSUES, false,
+    new IssueMetricFormula(CoreMetrics.REOPENED_ISSUES, false, SUM,
       (context, issues) -> context.setValue(issues.countByStatus(Issue.STATUS_REOPENED, false))),
 
-    new IssueMetricFormula(CoreMetrics.CONFIRMED_ISSUES, false,
+    new IssueMetricFormula(CoreMetrics.CONFIRMED_ISSUES, false, SUM,
       (context, issues) -> context.setValue(issues.countByStatus(Issue.STATUS_CONFIRMED, false))),
 
-    new IssueMetricFormula(CoreMetrics.TECHNICAL_DEBT, false,
+    new IssueMetricFormula(CoreMetrics.TECHNICAL_DEBT, false, SUM,
       (context, issues) -> context.setValue(issues.sumEffortOfUnresolved(RuleType.CODE_SMELL, false))),
 
-    new IssueMetricFormula(CoreMetrics.RELIABILITY_REMEDIATION_EFFORT, false,
+    new IssueMetricFormula(CoreMetrics.RELIABILITY_REMEDIATION_EFFORT, false, SUM,
       (context, issues) -> context.setValue(issues.sumEffortOfUnresolved(RuleType.BUG, false))),
 
-    new IssueMetricFormula(CoreMetrics.SECURITY_REMEDIATION_EFFORT, false,
+    new IssueMetricFormula(CoreMetrics.SECURITY_REMEDIATION_EFFORT, false, SUM,
       (context, issues) -> context.setValue(issues.sumEffortOfUnresolved(RuleType.VULNERABILITY, false))),
 
-    new IssueMetricFormula(CoreMetrics.SQALE_DEBT_RATIO, false,
+    new IssueMetricFormula(CoreMetrics.SQALE_DEBT_RATIO, false, DEPENDENT,
       (context, issues) -> context.setValue(100.0 * debtDensity(context)),
       asList(CoreMetrics.TECHNICAL_DEBT, CoreMetrics.DEVELOPMENT_COST)),
 
-    new IssueMetricFormula(CoreMetrics.SQALE_RATING, false,
+    new IssueMetricFormula(CoreMetrics.SQALE_RATING, false, DEPENDENT,
       (context, issues) -> context
         .setValue(context.getDebtRatingGrid().getRatingForDensity(debtDensity(context))),
       asList(CoreMetrics.TECHNICAL_DEBT, CoreMetrics.DEVELOPMENT_COST)),
 
-    new IssueMetricFormula(CoreMetrics.EFFORT_TO_REACH_MAINTAINABILITY_RATING_A, false,
+    new IssueMetricFormula(CoreMetrics.EFFORT_TO_REACH_MAINTAINABILITY_RATING_A, false, DEPENDENT,
       (context, issues) -> context.setValue(effortToReachMaintainabilityRatingA(context)), asList(CoreMetrics.TECHNICAL_DEBT, CoreMetrics.DEVELOPMENT_COST)),
 
-    new IssueMetricFormula(CoreMetrics.RELIABILITY_RATING, false,
+    new IssueMetricFormula(CoreMetrics.RELIABILITY_RATING, false, MAX,
       (context, issues) -> context.setValue(RATING_BY_SEVERITY.get(issues.getHighestSeverityOfUnresolved(RuleType.BUG, false).orElse(Severity.INFO)))),
 
-    new IssueMetricFormula(CoreMetrics.SECURITY_RATING, false,
+    new IssueMetricFormula(CoreMetrics.SECURITY_RATING, false, MAX,
       (context, issues) -> context.setValue(RATING_BY_SEVERITY.get(issues.getHighestSeverityOfUnresolved(RuleType.VULNERABILITY, false).orElse(Severity.INFO)))),
 
-    new IssueMetricFormula(CoreMetrics.SECURITY_REVIEW_RATING, false,
-      (context, issues) -> {
-        Optional<Double> percent = computePercent(issues.countHotspotsByStatus(Issue.STATUS_TO_REVIEW, false), issues.countHotspotsByStatus(Issue.STATUS_REVIEWED, false));
-        context.setValue(computeRating(percent.orElse(null)));
-      }),
-
-    new IssueMetricFormula(CoreMetrics.SECURITY_HOTSPOTS_REVIEWED, false,
-      (context, issues) -> computePercent(issues.countHotspotsByStatus(Issue.STATUS_TO_REVIEW, false), issues.countHotspotsByStatus(Issue.STATUS_REVIEWED, false))
-        .ifPresent(context::setValue)),
-
-    new IssueMetricFormula(CoreMetrics.SECURITY_HOTSPOTS_REVIEWED_STATUS, false,
+    new IssueMetricFormula(CoreMetrics.SECURITY_HOTSPOTS_REVIEWED_STATUS, false, SUM,
       (context, issues) -> context.setValue(issues.countHotspotsByStatus(Issue.STATUS_REVIEWED, false))),
 
-    new IssueMetricFormula(CoreMetrics.SECURITY_HOTSPOTS_TO_REVIEW_STATUS, false,
+    new IssueMetricFormula(CoreMetrics.SECURITY_HOTSPOTS_TO_REVIEW_STATUS, false, SUM,
       (context, issues) -> context.setValue(issues.countHotspotsByStatus(Issue.STATUS_TO_REVIEW, false))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_CODE_SMELLS, true,
+    new IssueMetricFormula(CoreMetrics.SECURITY_REVIEW_RATING, false, DEPENDENT,
+      (context, issues) -> context.setValue(computeRating(hotspotsReviewedPercent(context).orElse(null))),
+      asList(CoreMetrics.SECURITY_HOTSPOTS_TO_REVIEW_STATUS, CoreMetrics.SECURITY_HOTSPOTS_REVIEWED_STATUS)),
+
+    new IssueMetricFormula(CoreMetrics.SECURITY_HOTSPOTS_REVIEWED, false, DEPENDENT,
+      (context, issues) -> hotspotsReviewedPercent(context).ifPresent(context::setValue),
+      asList(CoreMetrics.SECURITY_HOTSPOTS_TO_REVIEW_STATUS, CoreMetrics.SECURITY_HOTSPOTS_REVIEWED_STATUS)),
+
+    new IssueMetricFormula(CoreMetrics.NEW_CODE_SMELLS, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countUnresolvedByType(RuleType.CODE_SMELL, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_BUGS, true,
+    new IssueMetricFormula(CoreMetrics.NEW_BUGS, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countUnresolvedByType(RuleType.BUG, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_VULNERABILITIES, true,
+    new IssueMetricFormula(CoreMetrics.NEW_VULNERABILITIES, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countUnresolvedByType(RuleType.VULNERABILITY, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_HOTSPOTS, true,
+    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_HOTSPOTS, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countUnresolvedByType(RuleType.SECURITY_HOTSPOT, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_VIOLATIONS, true,
+    new IssueMetricFormula(CoreMetrics.NEW_VIOLATIONS, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countUnresolved(true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_BLOCKER_VIOLATIONS, true,
+    new IssueMetricFormula(CoreMetrics.NEW_BLOCKER_VIOLATIONS, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countUnresolvedBySeverity(Severity.BLOCKER, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_CRITICAL_VIOLATIONS, true,
+    new IssueMetricFormula(CoreMetrics.NEW_CRITICAL_VIOLATIONS, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countUnresolvedBySeverity(Severity.CRITICAL, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_MAJOR_VIOLATIONS, true,
+    new IssueMetricFormula(CoreMetrics.NEW_MAJOR_VIOLATIONS, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countUnresolvedBySeverity(Severity.MAJOR, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_MINOR_VIOLATIONS, true,
+    new IssueMetricFormula(CoreMetrics.NEW_MINOR_VIOLATIONS, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countUnresolvedBySeverity(Severity.MINOR, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_INFO_VIOLATIONS, true,
+    new IssueMetricFormula(CoreMetrics.NEW_INFO_VIOLATIONS, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countUnresolvedBySeverity(Severity.INFO, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_TECHNICAL_DEBT, true,
+    new IssueMetricFormula(CoreMetrics.NEW_TECHNICAL_DEBT, true, SUM,
       (context, issues) -> context.setLeakValue(issues.sumEffortOfUnresolved(RuleType.CODE_SMELL, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_RELIABILITY_REMEDIATION_EFFORT, true,
+    new IssueMetricFormula(CoreMetrics.NEW_RELIABILITY_REMEDIATION_EFFORT, true, SUM,
       (context, issues) -> context.setLeakValue(issues.sumEffortOfUnresolved(RuleType.BUG, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_REMEDIATION_EFFORT, true,
+    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_REMEDIATION_EFFORT, true, SUM,
       (context, issues) -> context.setLeakValue(issues.sumEffortOfUnresolved(RuleType.VULNERABILITY, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_RELIABILITY_RATING, true,
+    new IssueMetricFormula(CoreMetrics.NEW_RELIABILITY_RATING, true, MAX,
       (context, issues) -> {
         String highestSeverity = issues.getHighestSeverityOfUnresolved(RuleType.BUG, true).orElse(Severity.INFO);
         context.setLeakValue(RATING_BY_SEVERITY.get(highestSeverity));
       }),
 
-    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_RATING, true,
+    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_RATING, true, MAX,
       (context, issues) -> {
         String highestSeverity = issues.getHighestSeverityOfUnresolved(RuleType.VULNERABILITY, true).orElse(Severity.INFO);
         context.setLeakValue(RATING_BY_SEVERITY.get(highestSeverity));
       }),
 
-    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_REVIEW_RATING, true,
-      (context, issues) -> {
-        Optional<Double> percent = computePercent(issues.countHotspotsByStatus(Issue.STATUS_TO_REVIEW, true), issues.countHotspotsByStatus(Issue.STATUS_REVIEWED, true));
-        context.setLeakValue(computeRating(percent.orElse(null)));
-      }),
-
-    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED, true,
-      (context, issues) -> computePercent(issues.countHotspotsByStatus(Issue.STATUS_TO_REVIEW, true), issues.countHotspotsByStatus(Issue.STATUS_REVIEWED, true))
-        .ifPresent(context::setLeakValue)),
-
-    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED_STATUS, true,
+    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED_STATUS, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countHotspotsByStatus(Issue.STATUS_REVIEWED, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_HOTSPOTS_TO_REVIEW_STATUS, true,
+    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_HOTSPOTS_TO_REVIEW_STATUS, true, SUM,
       (context, issues) -> context.setLeakValue(issues.countHotspotsByStatus(Issue.STATUS_TO_REVIEW, true))),
 
-    new IssueMetricFormula(CoreMetrics.NEW_SQALE_DEBT_RATIO, true,
+    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_REVIEW_RATING, true, DEPENDENT,
+      (context, issues) -> context.setLeakValue(computeRating(newHotspotsReviewedPercent(context).orElse(null))),
+      asList(CoreMetrics.NEW_SECURITY_HOTSPOTS_TO_REVIEW_STATUS, CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED_STATUS)),
+
+    new IssueMetricFormula(CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED, true, DEPENDENT,
+      (context, issues) -> newHotspotsReviewedPercent(context).ifPresent(context::setLeakValue),
+      asList(CoreMetrics.NEW_SECURITY_HOTSPOTS_TO_REVIEW_STATUS, CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED_STATUS)),
+
+    new IssueMetricFormula(CoreMetrics.NEW_SQALE_DEBT_RATIO, true, DEPENDENT,
       (context, issues) -> context.setLeakValue(100.0 * newDebtDensity(context)),
       asList(CoreMetrics.NEW_TECHNICAL_DEBT, CoreMetrics.NEW_DEVELOPMENT_COST)),
 
-    new IssueMetricFormula(CoreMetrics.NEW_MAINTAINABILITY_RATING, true,
+    new IssueMetricFormula(CoreMetrics.NEW_MAINTAINABILITY_RATING, true, DEPENDENT,
       (context, issues) -> context.setLeakValue(context.getDebtRatingGrid().getRatingForDensity(
         newDebtDensity(context))),
       asList(CoreMetrics.NEW_TECHNICAL_DEBT, CoreMetrics.NEW_DEVELOPMENT_COST)));
@@ -221,6 +220,18 @@ public class IssueMetricFormulaFactoryImpl implements IssueMetricFormulaFactory
     return 0.0;
   }
 
+  private static Optional<Double> hotspotsReviewedPercent(IssueMetricFormula.Context context) {
+    long toReview = context.getValue(CoreMetrics.SECURITY_HOTSPOTS_TO_REVIEW_STATUS).orElse(0.0).longValue();
+    long reviewed = context.getValue(CoreMetrics.SECURITY_HOTSPOTS_REVIEWED_STATUS).orElse(0.0).longValue();
+    return computePercent(toReview, reviewed);
+  }
+
+  private static Optional<Double> newHotspotsReviewedPercent(IssueMetricFormula.Context context) {
+    long toReview = context.getLeakValue(CoreMetrics.NEW_SECURITY_HOTSPOTS_TO_REVIEW_STATUS).orElse(0.0).longValue();
+    long reviewed = context.getLeakValue(CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED_STATUS).orElse(0.0).longValue();
+    return computePercent(toReview, reviewed);
+  }
+
   private static double effortToReachMaintainabilityRatingA(IssueMetricFormula.Context context) {
     double developmentCost = context.getValue(CoreMetrics.DEVELOPMENT_COST).orElse(0.0);
     double effort = context.getValue(CoreMetrics.TECHNICAL_DEBT).orElse(0.0);
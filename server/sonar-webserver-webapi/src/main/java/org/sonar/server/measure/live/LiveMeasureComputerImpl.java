@@ -21,12 +21,14 @@ package org.sonar.server.measure.live;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import javax.annotation.CheckForNull;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.measures.Metric;
@@ -54,9 +56,12 @@ import org.sonar.server.setting.ProjectConfigurationLoader;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
+import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.groupingBy;
 import static org.sonar.api.measures.CoreMetrics.ALERT_STATUS_KEY;
 import static org.sonar.core.util.stream.MoreCollectors.toArrayList;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
+import static org.sonar.core.util.stream.MoreCollectors.toSet;
 import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 
 public class LiveMeasureComputerImpl implements LiveMeasureComputer {
@@ -83,7 +88,8 @@ public class LiveMeasureComputerImpl implements LiveMeasureComputer {
     }
 
     List<QGChangeEvent> result = new ArrayList<>();
-    Map<String, List<ComponentDto>> componentsByProjectUuid = components.stream().collect(groupingBy(ComponentDto::projectUuid));
+    // branches are locked in the same order by all the refreshes, so that they can't deadlock
+    Map<String, List<ComponentDto>> componentsByProjectUuid = new TreeMap<>(components.stream().collect(groupingBy(ComponentDto::projectUuid)));
     for (List<ComponentDto> groupedComponents : componentsByProjectUuid.values()) {
       Optional<QGChangeEvent> qgChangeEvent = refreshComponentsOnSameProject(dbSession, groupedComponents);
       qgChangeEvent.ifPresent(result::add);
@@ -96,7 +102,9 @@ public class LiveMeasureComputerImpl implements LiveMeasureComputer {
     List<ComponentDto> components = loadTreeOfComponents(dbSession, touchedComponents);
     ComponentDto branchComponent = findBranchComponent(components);
     OrganizationDto organization = loadOrganization(dbSession, branchComponent);
-    BranchDto branch = loadBranch(dbSession, branchComponent);
+    // the measures of ancestors are updated from their previous values, concurrent refreshes of the branch must wait
+    // for this one to be committed
+    BranchDto branch = lockBranch(dbSession, branchComponent);
     ProjectDto project = loadProject(dbSession, branch.getProjectUuid());
     Optional<SnapshotDto> lastAnalysis = dbClient.snapshotDao().selectLastAnalysisByRootComponentUuid(dbSession, branchComponent.uuid());
     if (!lastAnalysis.isPresent()) {
@@ -121,20 +129,18 @@ public class LiveMeasureComputerImpl implements LiveMeasureComputer {
     FormulaContextImpl context = new FormulaContextImpl(matrix, debtRatingGrid);
     long beginningOfLeak = getBeginningOfLeakPeriod(lastAnalysis, branch);
 
-    components.forEach(c -> {
-      IssueCounter issueCounter = new IssueCounter(dbClient.issueDao().selectIssueGroupsByBaseComponent(dbSession, c, beginningOfLeak));
-      for (IssueMetricFormula formula : formulaFactory.getFormulas()) {
-        // use formulas when the leak period is defined, it's a PR, or the formula is not about the leak period
-        if (shouldUseLeakFormulas(lastAnalysis.get(), branch) || !formula.isOnLeak()) {
-          context.change(c, formula);
-          try {
-            formula.compute(context, issueCounter);
-          } catch (RuntimeException e) {
-            throw new IllegalStateException("Fail to compute " + formula.getMetric().getKey() + " on " + context.getComponent().getDbKey(), e);
-          }
-        }
-      }
-    });
+    // use formulas when the leak period is defined, it's a PR, or the formula is not about the leak period
+    boolean useLeakFormulas = shouldUseLeakFormulas(lastAnalysis.get(), branch);
+    List<IssueMetricFormula> formulas = formulaFactory.getFormulas().stream()
+      .filter(f -> useLeakFormulas || !f.isOnLeak())
+      .collect(toList());
+    IssueMetricComputation computation = new IssueMetricComputation(dbSession, context, formulas, beginningOfLeak);
+    Set<String> touchedUuids = touchedComponents.stream().map(ComponentDto::uuid).collect(toSet());
+    if (canRefreshAncestorsFromDeltas(formulas, components, touchedUuids, matrix)) {
+      refreshAncestorsFromDeltas(computation, matrix, components, touchedUuids);
+    } else {
+      components.forEach(computation::computeFromIssues);
+    }
 
     EvaluatedQualityGate evaluatedQualityGate = qGateComputer.refreshGateStatus(branchComponent, qualityGate, matrix);
 
@@ -147,6 +153,78 @@ public class LiveMeasureComputerImpl implements LiveMeasureComputer {
       new QGChangeEvent(project, branch, lastAnalysis.get(), config, previousStatus, () -> Optional.of(evaluatedQualityGate)));
   }
 
+  /**
+   * The measures of ancestors can be refreshed by applying the changes of the touched components if:
+   * <ul>
+   *   <li>all the formulas can aggregate the values of descendants, see {@link IssueMetricFormula.Aggregation}</li>
+   *   <li>the values to be aggregated are known on all the components</li>
+   *   <li>a touched component is not the ancestor of another touched component, otherwise its changes would be counted twice</li>
+   * </ul>
+   */
+  private static boolean canRefreshAncestorsFromDeltas(List<IssueMetricFormula> formulas, List<ComponentDto> components, Set<String> touchedUuids,
+    MeasureMatrix matrix) {
+    if (touchedUuids.size() == components.size()
+      || formulas.stream().anyMatch(f -> f.getAggregation() == IssueMetricFormula.Aggregation.NONE)) {
+      return false;
+    }
+    for (ComponentDto component : components) {
+      if (touchedUuids.contains(component.uuid()) && component.getUuidPathAsList().stream().anyMatch(touchedUuids::contains)) {
+        return false;
+      }
+      for (IssueMetricFormula formula : formulas) {
+        if (isAggregated(formula) && aggregatedValue(matrix, component, formula) == null) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Only the touched components are computed from their issues. The ancestors are refreshed
+   * by applying the changes of their touched descendants to the values they had on the last refresh.
+   * An ancestor is still computed from its issues if its new values can't be deduced, for example
+   * when the worst rating has been fixed.
+   */
+  private static void refreshAncestorsFromDeltas(IssueMetricComputation computation, MeasureMatrix matrix, List<ComponentDto> components,
+    Set<String> touchedUuids) {
+    List<ComponentDto> touched = components.stream().filter(c -> touchedUuids.contains(c.uuid())).collect(toList());
+    // values must be copied before being updated, as MeasureMatrix mutates the measures
+    Map<String, Map<String, Double>> previousValuesByTouchedUuid = new HashMap<>();
+    for (ComponentDto component : touched) {
+      previousValuesByTouchedUuid.put(component.uuid(), computation.aggregatedValues(matrix, component));
+    }
+    touched.forEach(computation::computeFromIssues);
+
+    for (ComponentDto ancestor : components) {
+      if (touchedUuids.contains(ancestor.uuid())) {
+        continue;
+      }
+      List<ComponentDto> touchedDescendants = touched.stream()
+        .filter(t -> t.getUuidPathAsList().contains(ancestor.uuid()))
+        .collect(toList());
+      Optional<Map<String, Double>> newValues = computation.aggregateDeltas(matrix, ancestor, touchedDescendants, previousValuesByTouchedUuid);
+      if (newValues.isPresent()) {
+        computation.computeFromAggregatedValues(ancestor, newValues.get());
+      } else {
+        computation.computeFromIssues(ancestor);
+      }
+    }
+  }
+
+  private static boolean isAggregated(IssueMetricFormula formula) {
+    return formula.getAggregation() == IssueMetricFormula.Aggregation.SUM || formula.getAggregation() == IssueMetricFormula.Aggregation.MAX;
+  }
+
+  @CheckForNull
+  private static Double aggregatedValue(MeasureMatrix matrix, ComponentDto component, IssueMetricFormula formula) {
+    Optional<LiveMeasureDto> measure = matrix.getMeasure(component, formula.getMetric().getKey());
+    if (!measure.isPresent()) {
+      return null;
+    }
+    return formula.isOnLeak() ? measure.get().getVariation() : measure.get().getValue();
+  }
+
   private static long getBeginningOfLeakPeriod(Optional<SnapshotDto> lastAnalysis, BranchDto branch) {
     if (isPR(branch)) {
       return 0L;
@@ -216,8 +294,8 @@ public class LiveMeasureComputerImpl implements LiveMeasureComputer {
       .orElseThrow(() -> new IllegalStateException("No project found in " + components));
   }
 
-  private BranchDto loadBranch(DbSession dbSession, ComponentDto branchComponent) {
-    return dbClient.branchDao().selectByUuid(dbSession, branchComponent.uuid())
+  private BranchDto lockBranch(DbSession dbSession, ComponentDto branchComponent) {
+    return dbClient.branchDao().selectByUuidForUpdate(dbSession, branchComponent.uuid())
       .orElseThrow(() -> new IllegalStateException("Branch not found: " + branchComponent.uuid()));
   }
 
@@ -232,6 +310,116 @@ public class LiveMeasureComputerImpl implements LiveMeasureComputer {
       .orElseThrow(() -> new IllegalStateException("No organization with UUID " + organizationUuid));
   }
 
+  private class IssueMetricComputation {
+    private final DbSession dbSession;
+    private final FormulaContextImpl context;
+    private final List<IssueMetricFormula> formulas;
+    private final long beginningOfLeak;
+
+    private IssueMetricComputation(DbSession dbSession, FormulaContextImpl context, List<IssueMetricFormula> formulas, long beginningOfLeak) {
+      this.dbSession = dbSession;
+      this.context = context;
+      this.formulas = formulas;
+      this.beginningOfLeak = beginningOfLeak;
+    }
+
+    private void computeFromIssues(ComponentDto component) {
+      IssueCounter issueCounter = new IssueCounter(dbClient.issueDao().selectIssueGroupsByBaseComponent(dbSession, component, beginningOfLeak));
+      for (IssueMetricFormula formula : formulas) {
+        compute(component, formula, issueCounter);
+      }
+    }
+
+    /**
+     * Values of {@link IssueMetricFormula.Aggregation#SUM} and {@link IssueMetricFormula.Aggregation#MAX} formulas are
+     * set as is, then the {@link IssueMetricFormula.Aggregation#DEPENDENT} formulas are applied on the refreshed measures.
+     */
+    private void computeFromAggregatedValues(ComponentDto component, Map<String, Double> aggregatedValues) {
+      IssueCounter noIssues = new IssueCounter(emptyList());
+      for (IssueMetricFormula formula : formulas) {
+        if (isAggregated(formula)) {
+          setAggregatedValue(component, formula, aggregatedValues.get(formula.getMetric().getKey()));
+        } else {
+          compute(component, formula, noIssues);
+        }
+      }
+    }
+
+    private void compute(ComponentDto component, IssueMetricFormula formula, IssueCounter issueCounter) {
+      context.change(component, formula);
+      try {
+        formula.compute(context, issueCounter);
+      } catch (RuntimeException e) {
+        throw new IllegalStateException("Fail to compute " + formula.getMetric().getKey() + " on " + context.getComponent().getDbKey(), e);
+      }
+    }
+
+    private void setAggregatedValue(ComponentDto component, IssueMetricFormula formula, double value) {
+      context.change(component, formula);
+      boolean rating = formula.getAggregation() == IssueMetricFormula.Aggregation.MAX;
+      if (formula.isOnLeak()) {
+        if (rating) {
+          context.setLeakValue(Rating.valueOf((int) value));
+        } else {
+          context.setLeakValue(value);
+        }
+      } else if (rating) {
+        context.setValue(Rating.valueOf((int) value));
+      } else {
+        context.setValue(value);
+      }
+    }
+
+    private Map<String, Double> aggregatedValues(MeasureMatrix matrix, ComponentDto component) {
+      Map<String, Double> values = new HashMap<>();
+      for (IssueMetricFormula formula : formulas) {
+        if (isAggregated(formula)) {
+          values.put(formula.getMetric().getKey(), aggregatedValue(matrix, component, formula));
+        }
+      }
+      return values;
+    }
+
+    /**
+     * @return the new aggregated values of the ancestor, or empty if one of them can't be deduced from
+     * the previous and new values of the touched descendants.
+     */
+    private Optional<Map<String, Double>> aggregateDeltas(MeasureMatrix matrix, ComponentDto ancestor, List<ComponentDto> touchedDescendants,
+      Map<String, Map<String, Double>> previousValuesByTouchedUuid) {
+      Map<String, Double> previousValues = aggregatedValues(matrix, ancestor);
+      Map<String, Double> newValues = new HashMap<>();
+      for (IssueMetricFormula formula : formulas) {
+        if (!isAggregated(formula)) {
+          continue;
+        }
+        String metricKey = formula.getMetric().getKey();
+        double previousValue = previousValues.get(metricKey);
+        double sumOfDeltas = 0.0;
+        double maxOfNewValues = Double.NEGATIVE_INFINITY;
+        boolean previousMaxIsTouched = false;
+        for (ComponentDto descendant : touchedDescendants) {
+          double previousValueOfDescendant = previousValuesByTouchedUuid.get(descendant.uuid()).get(metricKey);
+          double newValueOfDescendant = requireNonNull(aggregatedValue(matrix, descendant, formula));
+          sumOfDeltas += newValueOfDescendant - previousValueOfDescendant;
+          maxOfNewValues = Math.max(maxOfNewValues, newValueOfDescendant);
+          previousMaxIsTouched |= Double.compare(previousValueOfDescendant, previousValue) == 0;
+        }
+
+        if (formula.getAggregation() == IssueMetricFormula.Aggregation.SUM) {
+          newValues.put(metricKey, previousValue + sumOfDeltas);
+        } else if (maxOfNewValues >= previousValue) {
+          newValues.put(metricKey, maxOfNewValues);
+        } else if (!previousMaxIsTouched) {
+          // the maximum is still held by a component which is not touched
+          newValues.put(metricKey, previousValue);
+        } else {
+          return Optional.empty();
+        }
+      }
+      return Optional.of(newValues);
+    }
+  }
+
   private static class FormulaContextImpl implements IssueMetricFormula.Context {
     private final MeasureMatrix matrix;
     private final DebtRatingGrid debtRatingGrid;
@@ -0,0 +1,309 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.live;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.server.qualitygate.changeevent.QGChangeEvent;
+import org.sonar.server.qualitygate.changeevent.QGChangeEventListeners;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Refreshes live measures and quality gate status outside of the HTTP requests which changed issues.
+ * Changes of the same branch are coalesced until no other change is received during
+ * {@link #DELAY_PROPERTY} milliseconds, but never longer than {@link #MAX_DELAY_PROPERTY} milliseconds.
+ * Each refresh broadcasts the quality gate change events once, with all the issues changed since the
+ * previous refresh of the branch. A refresh which fails is retried with an increasing delay, at most
+ * {@link #MAX_REFRESH_ATTEMPTS} times.
+ */
+@ServerSide
+public class LiveMeasureRefreshQueue implements Startable {
+
+  static final String DELAY_PROPERTY = "sonar.liveMeasures.refreshDelayInMilliseconds";
+  static final String MAX_DELAY_PROPERTY = "sonar.liveMeasures.refreshMaxDelayInMilliseconds";
+  private static final long DEFAULT_DELAY = 500L;
+  private static final long DEFAULT_MAX_DELAY = 5_000L;
+  static final int MAX_REFRESH_ATTEMPTS = 5;
+  private static final Logger LOG = Loggers.get(LiveMeasureRefreshQueue.class);
+
+  private final DbClient dbClient;
+  private final LiveMeasureComputer liveMeasureComputer;
+  private final QGChangeEventListeners qualityGateListeners;
+  private final System2 system2;
+  private final long delay;
+  private final long maxDelay;
+  private final Supplier<ScheduledExecutorService> executorServiceFactory;
+  // branch uuid -> changes not refreshed yet
+  private final Map<String, PendingRefresh> pendingByBranchUuid = new HashMap<>();
+  private volatile ScheduledExecutorService executorService;
+
+  public LiveMeasureRefreshQueue(DbClient dbClient, LiveMeasureComputer liveMeasureComputer, QGChangeEventListeners qualityGateListeners,
+    Configuration config, System2 system2) {
+    this(dbClient, liveMeasureComputer, qualityGateListeners, config, system2, () -> Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("live_measures_refresh-%d")
+      .build()));
+  }
+
+  LiveMeasureRefreshQueue(DbClient dbClient, LiveMeasureComputer liveMeasureComputer, QGChangeEventListeners qualityGateListeners,
+    Configuration config, System2 system2, Supplier<ScheduledExecutorService> executorServiceFactory) {
+    this.dbClient = dbClient;
+    this.liveMeasureComputer = liveMeasureComputer;
+    this.qualityGateListeners = qualityGateListeners;
+    this.system2 = system2;
+    this.delay = config.getLong(DELAY_PROPERTY).orElse(DEFAULT_DELAY);
+    this.maxDelay = config.getLong(MAX_DELAY_PROPERTY).orElse(DEFAULT_MAX_DELAY);
+    this.executorServiceFactory = executorServiceFactory;
+    checkArgument(delay >= 0, "Property %s must be >= 0, got %s", DELAY_PROPERTY, delay);
+    checkArgument(maxDelay >= delay, "Property %s must be >= %s, got %s", MAX_DELAY_PROPERTY, delay, maxDelay);
+  }
+
+  @Override
+  public void start() {
+    if (isEnabled()) {
+      executorService = executorServiceFactory.get();
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (executorService == null) {
+      return;
+    }
+    // pending refreshes are executed immediately, see flush()
+    executorService.shutdown();
+    try {
+      executorService.awaitTermination(maxDelay + 10_000L, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * When disabled, live measures must be refreshed synchronously by the caller.
+   */
+  public boolean isEnabled() {
+    return delay > 0;
+  }
+
+  public void enqueue(List<DefaultIssue> changedIssues, Collection<ComponentDto> components) {
+    long now = system2.now();
+    Set<String> branchUuids = new LinkedHashSet<>();
+    synchronized (pendingByBranchUuid) {
+      for (ComponentDto component : components) {
+        String branchUuid = component.projectUuid();
+        branchUuids.add(branchUuid);
+        pendingByBranchUuid.computeIfAbsent(branchUuid, k -> new PendingRefresh(now)).addComponent(component.uuid(), now);
+      }
+      for (DefaultIssue issue : changedIssues) {
+        PendingRefresh pending = pendingByBranchUuid.get(issue.projectUuid());
+        if (pending != null) {
+          pending.addIssue(issue);
+        }
+      }
+    }
+    branchUuids.forEach(this::scheduleFlush);
+  }
+
+  /**
+   * State of the changes of the branch which are not refreshed yet, if any.
+   */
+  public Optional<PendingRefresh> getPendingRefresh(String branchUuid) {
+    synchronized (pendingByBranchUuid) {
+      return Optional.ofNullable(pendingByBranchUuid.get(branchUuid)).map(PendingRefresh::copy);
+    }
+  }
+
+  private void scheduleFlush(String branchUuid) {
+    ScheduledExecutorService executor = executorService;
+    if (executor == null || executor.isShutdown()) {
+      return;
+    }
+    long dueAt;
+    synchronized (pendingByBranchUuid) {
+      PendingRefresh pending = pendingByBranchUuid.get(branchUuid);
+      if (pending == null) {
+        return;
+      }
+      dueAt = pending.getDueAt(delay, maxDelay);
+    }
+    executor.schedule(() -> flush(branchUuid, dueAt), Math.max(0L, dueAt - system2.now()), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Refreshes the branch if its changes are due. Otherwise, if the due date has been postponed since this flush
+   * was scheduled for {@code scheduledDueAt}, the change which postponed it has scheduled another flush.
+   */
+  void flush(String branchUuid, long scheduledDueAt) {
+    PendingRefresh pending;
+    synchronized (pendingByBranchUuid) {
+      pending = pendingByBranchUuid.get(branchUuid);
+      if (pending == null) {
+        // already refreshed by a previous flush
+        return;
+      }
+      boolean stopping = executorService != null && executorService.isShutdown();
+      long dueAt = pending.getDueAt(delay, maxDelay);
+      if (!stopping && dueAt > system2.now()) {
+        if (dueAt == scheduledDueAt) {
+          // the scheduler clock may be slightly ahead of System2
+          scheduleFlushLater(branchUuid, dueAt);
+        }
+        return;
+      }
+      pendingByBranchUuid.remove(branchUuid);
+    }
+    if (!refresh(pending)) {
+      retryLater(branchUuid, pending);
+    }
+  }
+
+  private void scheduleFlushLater(String branchUuid, long dueAt) {
+    ScheduledExecutorService executor = executorService;
+    if (executor != null && !executor.isShutdown()) {
+      executor.schedule(() -> flush(branchUuid, dueAt), Math.max(1L, dueAt - system2.now()), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * @return false if the refresh failed
+   */
+  private boolean refresh(PendingRefresh pending) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      List<ComponentDto> components = dbClient.componentDao().selectByUuids(dbSession, pending.componentUuids);
+      List<QGChangeEvent> gateChangeEvents = liveMeasureComputer.refresh(dbSession, components);
+      qualityGateListeners.broadcastOnIssueChange(new ArrayList<>(pending.issuesByKey.values()), gateChangeEvents);
+      return true;
+    } catch (RuntimeException e) {
+      LOG.error("Failed to refresh live measures of components {}", pending.componentUuids, e);
+      return false;
+    }
+  }
+
+  /**
+   * Enqueues again the changes of a failed refresh, so that live measures of the branch do not remain stale
+   * until the next change of its issues.
+   */
+  private void retryLater(String branchUuid, PendingRefresh failed) {
+    int attempts = failed.attempts + 1;
+    if (attempts >= MAX_REFRESH_ATTEMPTS) {
+      LOG.error("Live measures of components {} are not refreshed after {} attempts", failed.componentUuids, attempts);
+      return;
+    }
+    long now = system2.now();
+    // delay, then twice the delay, and so on, but not more than the max delay
+    long backoff = Math.min(maxDelay, delay << (attempts - 1));
+    synchronized (pendingByBranchUuid) {
+      pendingByBranchUuid.computeIfAbsent(branchUuid, k -> new PendingRefresh(now)).retry(failed, attempts, now + backoff);
+    }
+    scheduleFlush(branchUuid);
+  }
+
+  public static class PendingRefresh {
+    private final long createdAt;
+    private long updatedAt;
+    private final Set<String> componentUuids = new LinkedHashSet<>();
+    private final Map<String, DefaultIssue> issuesByKey = new LinkedHashMap<>();
+    private int attempts = 0;
+    private long retryAt = 0L;
+
+    private PendingRefresh(long createdAt) {
+      this.createdAt = createdAt;
+      this.updatedAt = createdAt;
+    }
+
+    private void addComponent(String componentUuid, long now) {
+      componentUuids.add(componentUuid);
+      updatedAt = now;
+    }
+
+    private void addIssue(DefaultIssue issue) {
+      // keep the latest state of an issue changed multiple times
+      issuesByKey.put(issue.key(), issue);
+    }
+
+    private void retry(PendingRefresh failed, int attempts, long retryAt) {
+      componentUuids.addAll(failed.componentUuids);
+      // issues changed since the failure are more recent
+      failed.issuesByKey.forEach(issuesByKey::putIfAbsent);
+      this.attempts = attempts;
+      this.retryAt = Math.max(this.retryAt, retryAt);
+    }
+
+    private long getDueAt(long delay, long maxDelay) {
+      return Math.max(retryAt, Math.min(updatedAt + delay, createdAt + maxDelay));
+    }
+
+    private PendingRefresh copy() {
+      PendingRefresh copy = new PendingRefresh(createdAt);
+      copy.updatedAt = updatedAt;
+      copy.attempts = attempts;
+      copy.retryAt = retryAt;
+      copy.componentUuids.addAll(componentUuids);
+      copy.issuesByKey.putAll(issuesByKey);
+      return copy;
+    }
+
+    /**
+     * Date of the first change which is not refreshed yet
+     */
+    public long getCreatedAt() {
+      return createdAt;
+    }
+
+    /**
+     * Date of the latest change
+     */
+    public long getUpdatedAt() {
+      return updatedAt;
+    }
+
+    public int getComponentCount() {
+      return componentUuids.size();
+    }
+
+    public int getIssueCount() {
+      return issuesByKey.size();
+    }
+  }
+}
@@ -29,6 +29,7 @@ public class MeasuresWsModule extends Module {
       ComponentTreeAction.class,
       ComponentAction.class,
       SearchAction.class,
-      SearchHistoryAction.class);
+      SearchHistoryAction.class,
+      PendingRefreshAction.class);
   }
 }
@@ -0,0 +1,103 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.ws;
+
+import java.util.Optional;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.api.web.UserRole;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.server.component.ComponentFinder;
+import org.sonar.server.measure.live.LiveMeasureRefreshQueue;
+import org.sonar.server.measure.live.LiveMeasureRefreshQueue.PendingRefresh;
+import org.sonar.server.user.UserSession;
+
+import static org.sonar.api.utils.DateUtils.formatDateTime;
+import static org.sonar.server.component.ws.MeasuresWsParameters.ACTION_PENDING_REFRESH;
+import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_BRANCH;
+import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_COMPONENT;
+import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_PULL_REQUEST;
+import static org.sonar.server.ws.KeyExamples.KEY_BRANCH_EXAMPLE_001;
+import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
+import static org.sonar.server.ws.KeyExamples.KEY_PULL_REQUEST_EXAMPLE_001;
+
+public class PendingRefreshAction implements MeasuresWsAction {
+
+  private final DbClient dbClient;
+  private final ComponentFinder componentFinder;
+  private final UserSession userSession;
+  private final LiveMeasureRefreshQueue refreshQueue;
+
+  public PendingRefreshAction(DbClient dbClient, ComponentFinder componentFinder, UserSession userSession, LiveMeasureRefreshQueue refreshQueue) {
+    this.dbClient = dbClient;
+    this.componentFinder = componentFinder;
+    this.userSession = userSession;
+    this.refreshQueue = refreshQueue;
+  }
+
+  @Override
+  public void define(WebService.NewController context) {
+    WebService.NewAction action = context.createAction(ACTION_PENDING_REFRESH)
+      .setDescription("Tell whether the measures of a project are being refreshed after changes of issues.<br>" +
+        "Requires the following permission: 'Browse' on the specified project")
+      .setResponseExample(getClass().getResource("pending_refresh-example.json"))
+      .setSince("8.4")
+      .setInternal(true)
+      .setHandler(this);
+
+    action.createParam(PARAM_COMPONENT)
+      .setDescription("Project key")
+      .setRequired(true)
+      .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+
+    action.createParam(PARAM_BRANCH)
+      .setDescription("Branch key. Not available in the community edition.")
+      .setExampleValue(KEY_BRANCH_EXAMPLE_001);
+
+    action.createParam(PARAM_PULL_REQUEST)
+      .setDescription("Pull request id. Not available in the community edition.")
+      .setExampleValue(KEY_PULL_REQUEST_EXAMPLE_001);
+  }
+
+  @Override
+  public void handle(Request request, Response response) throws Exception {
+    ComponentDto component;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      component = componentFinder.getByKeyAndOptionalBranchOrPullRequest(dbSession, request.mandatoryParam(PARAM_COMPONENT),
+        request.param(PARAM_BRANCH), request.param(PARAM_PULL_REQUEST));
+    }
+    userSession.checkComponentPermission(UserRole.USER, component);
+    Optional<PendingRefresh> pending = refreshQueue.getPendingRefresh(component.projectUuid());
+
+    try (JsonWriter json = response.newJsonWriter()) {
+      json.beginObject();
+      json.prop("pending", pending.isPresent());
+      pending.ifPresent(p -> json
+        .prop("since", formatDateTime(p.getCreatedAt()))
+        .prop("components", p.getComponentCount())
+        .prop("issues", p.getIssueCount()));
+      json.endObject();
+    }
+  }
+}
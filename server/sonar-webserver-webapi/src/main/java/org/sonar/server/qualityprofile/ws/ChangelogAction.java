@@ -19,7 +19,6 @@
  */
 package org.sonar.server.qualityprofile.ws;
 
-import com.google.common.collect.Lists;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -43,6 +42,7 @@ import org.sonar.db.qualityprofile.QProfileChangeQuery;
 import org.sonar.db.qualityprofile.QProfileDto;
 import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.user.UserDto;
+import org.sonar.server.rule.RuleDefinitionCache;
 
 import static org.sonar.api.utils.DateUtils.parseEndingDateOrDateTime;
 import static org.sonar.api.utils.DateUtils.parseStartingDateOrDateTime;
@@ -57,11 +57,13 @@ public class ChangelogAction implements QProfileWsAction {
   private final QProfileWsSupport wsSupport;
   private final Languages languages;
   private DbClient dbClient;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
-  public ChangelogAction(QProfileWsSupport wsSupport, Languages languages, DbClient dbClient) {
+  public ChangelogAction(QProfileWsSupport wsSupport, Languages languages, DbClient dbClient, RuleDefinitionCache ruleDefinitionCache) {
     this.wsSupport = wsSupport;
     this.languages = languages;
     this.dbClient = dbClient;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   @Override
@@ -135,8 +137,7 @@ public class ChangelogAction implements QProfileWsAction {
       .map(c -> c.ruleUuid)
       .filter(Objects::nonNull)
       .collect(toSet());
-    return dbClient.ruleDao()
-      .selectDefinitionByUuids(dbSession, Lists.newArrayList(ruleUuids))
+    return ruleDefinitionCache.getByUuids(dbSession, ruleUuids)
       .stream()
       .collect(uniqueIndex(RuleDefinitionDto::getUuid));
   }
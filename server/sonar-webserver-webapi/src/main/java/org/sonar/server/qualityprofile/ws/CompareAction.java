@@ -21,7 +21,6 @@ package org.sonar.server.qualityprofile.ws;
 
 import com.google.common.collect.MapDifference.ValueDifference;
 import com.google.common.collect.Maps;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -44,6 +43,7 @@ import org.sonar.db.rule.RuleRepositoryDto;
 import org.sonar.server.qualityprofile.QProfileComparison;
 import org.sonar.server.qualityprofile.QProfileComparison.ActiveRuleDiff;
 import org.sonar.server.qualityprofile.QProfileComparison.QProfileComparisonResult;
+import org.sonar.server.rule.RuleDefinitionCache;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.sonar.core.util.Uuids.UUID_EXAMPLE_01;
@@ -73,12 +73,15 @@ public class CompareAction implements QProfileWsAction {
   private final QProfileComparison comparator;
   private final Languages languages;
   private final QProfileWsSupport wsSupport;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
-  public CompareAction(DbClient dbClient, QProfileComparison comparator, Languages languages, QProfileWsSupport wsSupport) {
+  public CompareAction(DbClient dbClient, QProfileComparison comparator, Languages languages, QProfileWsSupport wsSupport,
+    RuleDefinitionCache ruleDefinitionCache) {
     this.dbClient = dbClient;
     this.comparator = comparator;
     this.languages = languages;
     this.wsSupport = wsSupport;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   @Override
@@ -120,7 +123,7 @@ public class CompareAction implements QProfileWsAction {
 
       QProfileComparisonResult result = comparator.compare(dbSession, left, right);
 
-      List<RuleDefinitionDto> referencedRules = dbClient.ruleDao().selectDefinitionByKeys(dbSession, new ArrayList<>(result.collectRuleKeys()));
+      List<RuleDefinitionDto> referencedRules = ruleDefinitionCache.getByKeys(dbSession, result.collectRuleKeys());
       Map<RuleKey, RuleDefinitionDto> rulesByKey = Maps.uniqueIndex(referencedRules, RuleDefinitionDto::getKey);
       Map<String, RuleRepositoryDto> repositoriesByKey = Maps.uniqueIndex(dbClient.ruleRepositoryDao().selectAll(dbSession), RuleRepositoryDto::getKey);
       writeResult(response.newJsonWriter(), result, rulesByKey, repositoriesByKey);
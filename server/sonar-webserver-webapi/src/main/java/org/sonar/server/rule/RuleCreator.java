@@ -64,15 +64,17 @@ public class RuleCreator {
   private final TypeValidations typeValidations;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
   private final UuidFactory uuidFactory;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
   public RuleCreator(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, TypeValidations typeValidations,
-    DefaultOrganizationProvider defaultOrganizationProvider, UuidFactory uuidFactory) {
+    DefaultOrganizationProvider defaultOrganizationProvider, UuidFactory uuidFactory, RuleDefinitionCache ruleDefinitionCache) {
     this.system2 = system2;
     this.ruleIndexer = ruleIndexer;
     this.dbClient = dbClient;
     this.typeValidations = typeValidations;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.uuidFactory = uuidFactory;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   public RuleKey create(DbSession dbSession, NewCustomRule newRule) {
@@ -93,6 +95,10 @@ public class RuleCreator {
       .orElseGet(() -> createCustomRule(customRuleKey, newRule, templateRule, dbSession));
 
     ruleIndexer.commitAndIndex(dbSession, customRuleUuid);
+    if (definition.isPresent()) {
+      // a removed custom rule has been reactivated
+      ruleDefinitionCache.invalidate();
+    }
     return customRuleKey;
   }
 
@@ -29,6 +29,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.server.qualityprofile.QProfileRules;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.rule.index.RuleIndexer;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -42,13 +43,16 @@ public class DeleteAction implements RulesWsAction {
   private final DbClient dbClient;
   private final QProfileRules qProfileRules;
   private final RuleWsSupport ruleWsSupport;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
-  public DeleteAction(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, QProfileRules qProfileRules, RuleWsSupport ruleWsSupport) {
+  public DeleteAction(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, QProfileRules qProfileRules, RuleWsSupport ruleWsSupport,
+    RuleDefinitionCache ruleDefinitionCache) {
     this.system2 = system2;
     this.ruleIndexer = ruleIndexer;
     this.dbClient = dbClient;
     this.qProfileRules = qProfileRules;
     this.ruleWsSupport = ruleWsSupport;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   @Override
@@ -87,6 +91,7 @@ public class DeleteAction implements RulesWsAction {
       dbClient.ruleDao().update(dbSession, rule);
 
       ruleIndexer.commitAndIndex(dbSession, rule.getUuid());
+      ruleDefinitionCache.invalidate();
     }
   }
 }
@@ -52,6 +52,7 @@ import org.sonar.db.user.UserDto;
 import org.sonar.server.es.Facets;
 import org.sonar.server.es.SearchIdResult;
 import org.sonar.server.es.SearchOptions;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.rule.index.RuleIndex;
 import org.sonar.server.rule.index.RuleQuery;
 import org.sonarqube.ws.Common;
@@ -115,15 +116,17 @@ public class SearchAction implements RulesWsAction {
   private final ActiveRuleCompleter activeRuleCompleter;
   private final RuleMapper mapper;
   private final RuleWsSupport ruleWsSupport;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
   public SearchAction(RuleIndex ruleIndex, ActiveRuleCompleter activeRuleCompleter, RuleQueryFactory ruleQueryFactory, DbClient dbClient, RuleMapper mapper,
-    RuleWsSupport ruleWsSupport) {
+    RuleWsSupport ruleWsSupport, RuleDefinitionCache ruleDefinitionCache) {
     this.ruleIndex = ruleIndex;
     this.activeRuleCompleter = activeRuleCompleter;
     this.ruleQueryFactory = ruleQueryFactory;
     this.dbClient = dbClient;
     this.mapper = mapper;
     this.ruleWsSupport = ruleWsSupport;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   @Override
@@ -242,7 +245,7 @@ public class SearchAction implements RulesWsAction {
       .map(RuleDto::getTemplateUuid)
       .filter(Objects::nonNull)
       .collect(MoreCollectors.toList());
-    List<RuleDefinitionDto> templateRules = dbClient.ruleDao().selectDefinitionByUuids(dbSession, templateRuleUuids);
+    List<RuleDefinitionDto> templateRules = ruleDefinitionCache.getByUuids(dbSession, templateRuleUuids);
     List<RuleParamDto> ruleParamDtos = dbClient.ruleDao().selectRuleParamsByRuleUuids(dbSession, ruleUuids);
     return new SearchResult()
       .setRules(rules)
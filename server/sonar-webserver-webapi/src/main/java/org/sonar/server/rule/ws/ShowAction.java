@@ -33,6 +33,7 @@ import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleParamDto;
 import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonarqube.ws.Rules.ShowResponse;
 
 import static java.util.Collections.singletonList;
@@ -52,12 +53,15 @@ public class ShowAction implements RulesWsAction {
   private final RuleMapper mapper;
   private final ActiveRuleCompleter activeRuleCompleter;
   private final RuleWsSupport ruleWsSupport;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
-  public ShowAction(DbClient dbClient, RuleMapper mapper, ActiveRuleCompleter activeRuleCompleter, RuleWsSupport ruleWsSupport) {
+  public ShowAction(DbClient dbClient, RuleMapper mapper, ActiveRuleCompleter activeRuleCompleter, RuleWsSupport ruleWsSupport,
+    RuleDefinitionCache ruleDefinitionCache) {
     this.dbClient = dbClient;
     this.activeRuleCompleter = activeRuleCompleter;
     this.mapper = mapper;
     this.ruleWsSupport = ruleWsSupport;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   @Override
@@ -108,7 +112,7 @@ public class ShowAction implements RulesWsAction {
         .orElseThrow(() -> new NotFoundException(String.format("Rule not found: %s", key)));
 
       List<RuleDefinitionDto> templateRules = ofNullable(rule.getTemplateUuid())
-        .flatMap(templateUuid -> dbClient.ruleDao().selectDefinitionByUuid(rule.getTemplateUuid(), dbSession))
+        .flatMap(templateUuid -> ruleDefinitionCache.getByUuid(dbSession, templateUuid))
         .map(Collections::singletonList).orElseGet(Collections::emptyList);
 
       List<RuleParamDto> ruleParameters = dbClient.ruleDao().selectRuleParamsByRuleUuids(dbSession, singletonList(rule.getUuid()));
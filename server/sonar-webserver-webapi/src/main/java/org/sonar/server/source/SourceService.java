@@ -76,7 +76,7 @@ public class SourceService {
     if (dto == null) {
       return Optional.empty();
     }
-    return Optional.of(dto.getSourceData().getLinesList().stream()
+    return Optional.of(dto.getSourceData(from, toInclusive).getLinesList().stream()
       .filter(line -> line.hasLine() && line.getLine() >= from)
       .limit((toInclusive - from) + 1L)
       .map(function)
@@ -88,7 +88,7 @@ public class SourceService {
     if (dto == null) {
       return Optional.empty();
     }
-    return Optional.of(dto.getSourceData().getLinesList().stream()
+    return Optional.of(dto.getSourceData(lines).getLinesList().stream()
       .filter(line -> line.hasLine() && lines.contains(line.getLine()))
       .map(function)
       .collect(MoreCollectors.toList()));
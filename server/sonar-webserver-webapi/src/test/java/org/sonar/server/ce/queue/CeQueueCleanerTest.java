@@ -27,6 +27,7 @@ import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.platform.ServerUpgradeStatus;
 import org.sonar.api.utils.System2;
 import org.sonar.ce.queue.CeQueue;
+import org.sonar.core.util.UuidFactoryImpl;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.ce.CeTaskInputDao;
@@ -96,6 +97,19 @@ public class CeQueueCleanerTest {
     assertThat(dataDao.selectData(dbTester.getSession(), "TASK_2")).isNotPresent();
   }
 
+  @Test
+  public void start_does_not_delete_uploads_of_reports() {
+    ReportChunks reportChunks = new ReportChunks(dbTester.getDbClient(), UuidFactoryImpl.INSTANCE);
+    String uploadId = reportChunks.create("U1", "my-org", "my_project");
+    reportChunks.store(uploadId, 0, IOUtils.toInputStream("{binary}"), "U1");
+    insertTaskData("TASK_1");
+
+    runCleaner();
+
+    assertThat(dbTester.getDbClient().ceTaskInputDao().selectUuidsNotInQueue(dbTester.getSession()))
+      .containsOnly(uploadId + "-0", uploadId + "-owner");
+  }
+
   private CeQueueDto insertInQueue(String taskUuid, CeQueueDto.Status status) {
     CeQueueDto dto = new CeQueueDto();
     dto.setTaskType(CeTaskTypes.REPORT);
@@ -0,0 +1,79 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.queue;
+
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.server.util.GlobalLockManager;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ReportChunksCleanerTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+
+  private ReportChunks reportChunks = mock(ReportChunks.class);
+  private GlobalLockManager lockManager = mock(GlobalLockManager.class);
+  private System2 system2 = mock(System2.class);
+  private ReportChunksCleaner underTest = new ReportChunksCleaner(reportChunks, lockManager, system2);
+
+  @Test
+  public void delete_uploads_which_have_expired() {
+    when(system2.now()).thenReturn(NOW);
+    when(lockManager.tryLock(anyString())).thenReturn(true);
+
+    underTest.clean();
+
+    verify(reportChunks).deleteExpired(NOW - ReportChunks.EXPIRATION_MS);
+  }
+
+  @Test
+  public void do_nothing_if_another_server_is_cleaning() {
+    when(lockManager.tryLock(anyString())).thenReturn(false);
+
+    underTest.clean();
+
+    verifyZeroInteractions(reportChunks);
+  }
+
+  @Test
+  public void failure_does_not_stop_next_cleanings() {
+    when(lockManager.tryLock(anyString())).thenReturn(true);
+    when(reportChunks.deleteExpired(anyLong())).thenThrow(new IllegalStateException("database is down"));
+
+    underTest.clean();
+  }
+
+  @Test
+  public void stop_without_start() {
+    underTest.stop();
+  }
+
+  @Test
+  public void start_and_stop() {
+    underTest.start();
+    underTest.stop();
+  }
+}
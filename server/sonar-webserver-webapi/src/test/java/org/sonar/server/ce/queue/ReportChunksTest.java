@@ -0,0 +1,192 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.queue;
+
+import java.io.InputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.UuidFactoryImpl;
+import org.sonar.db.DbTester;
+import org.sonar.server.exceptions.BadRequestException;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.exceptions.NotFoundException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportChunksTest {
+
+  private static final String USER_UUID = "U1";
+  private static final String ORGANIZATION_KEY = "my-org";
+  private static final String PROJECT_KEY = "my_project";
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ReportChunks underTest = new ReportChunks(db.getDbClient(), UuidFactoryImpl.INSTANCE);
+
+  @Test
+  public void concatenate_chunks_in_order_of_index() throws Exception {
+    String uploadId = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+    underTest.store(uploadId, 0, toStream("foo"), USER_UUID);
+    underTest.store(uploadId, 2, toStream("baz"), USER_UUID);
+    underTest.store(uploadId, 1, toStream("bar"), USER_UUID);
+
+    try (InputStream report = open(uploadId, 3)) {
+      assertThat(IOUtils.toString(report, UTF_8)).isEqualTo("foobarbaz");
+    }
+  }
+
+  @Test
+  public void chunk_sent_again_replaces_previous_attempt() throws Exception {
+    String uploadId = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+    underTest.store(uploadId, 0, toStream("foo"), USER_UUID);
+    underTest.store(uploadId, 1, toStream("ba"), USER_UUID);
+    underTest.store(uploadId, 1, toStream("bar"), USER_UUID);
+
+    try (InputStream report = open(uploadId, 2)) {
+      assertThat(IOUtils.toString(report, UTF_8)).isEqualTo("foobar");
+    }
+    // two chunks and the owner of the upload
+    assertThat(db.countRowsOfTable("ce_task_input")).isEqualTo(3);
+  }
+
+  @Test
+  public void uploads_are_isolated() throws Exception {
+    String uploadId1 = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+    underTest.store(uploadId1, 0, toStream("foo"), USER_UUID);
+    String uploadId2 = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+    underTest.store(uploadId2, 0, toStream("bar"), USER_UUID);
+
+    assertThat(uploadId1).isNotEqualTo(uploadId2);
+    try (InputStream report = open(uploadId2, 1)) {
+      assertThat(IOUtils.toString(report, UTF_8)).isEqualTo("bar");
+    }
+  }
+
+  @Test
+  public void delete_chunks_and_owner_of_upload() {
+    String uploadId = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+    underTest.store(uploadId, 0, toStream("foo"), USER_UUID);
+    underTest.store(uploadId, 1, toStream("bar"), USER_UUID);
+    String otherUploadId = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+    underTest.store(otherUploadId, 0, toStream("baz"), USER_UUID);
+
+    underTest.delete(uploadId, 2);
+
+    assertThat(db.getDbClient().ceTaskInputDao().selectUuidsNotInQueue(db.getSession()))
+      .containsOnly(otherUploadId + "-0", otherUploadId + "-owner");
+  }
+
+  @Test
+  public void deleteExpired_deletes_rows_of_uploads_created_before_date() {
+    String uploadId = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+    underTest.store(uploadId, 0, toStream("foo"), USER_UUID);
+    db.getDbClient().ceTaskInputDao().insert(db.getSession(), "AU-Tpxb--iU5OvuD2FLy", toStream("report of a task"));
+
+    assertThat(underTest.deleteExpired(0L)).isZero();
+    assertThat(db.countRowsOfTable("ce_task_input")).isEqualTo(3);
+
+    assertThat(underTest.deleteExpired(System2.INSTANCE.now() + 1_000L)).isEqualTo(2);
+    assertThat(db.getDbClient().ceTaskInputDao().selectUuidsNotInQueue(db.getSession())).containsOnly("AU-Tpxb--iU5OvuD2FLy");
+  }
+
+  @Test
+  public void fail_to_open_incomplete_upload() {
+    String uploadId = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+    underTest.store(uploadId, 0, toStream("foo"), USER_UUID);
+    underTest.store(uploadId, 2, toStream("baz"), USER_UUID);
+
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Upload " + uploadId + " is incomplete: 2 chunks out of 3 have been received");
+
+    open(uploadId, 3);
+  }
+
+  @Test
+  public void fail_to_store_chunk_of_upload_of_other_user() {
+    String uploadId = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+    underTest.store(uploadId, 0, toStream("foo"), USER_UUID);
+
+    expectedException.expect(ForbiddenException.class);
+
+    underTest.store(uploadId, 0, toStream("bar"), "U2");
+  }
+
+  @Test
+  public void fail_to_open_upload_of_other_user() {
+    String uploadId = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+    underTest.store(uploadId, 0, toStream("foo"), USER_UUID);
+
+    expectedException.expect(ForbiddenException.class);
+
+    underTest.open(uploadId, 1, "U2", ORGANIZATION_KEY, PROJECT_KEY);
+  }
+
+  @Test
+  public void fail_to_open_upload_for_other_project() {
+    String uploadId = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+    underTest.store(uploadId, 0, toStream("foo"), USER_UUID);
+
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Upload " + uploadId + " is not a report of project 'other_project' of organization 'my-org'");
+
+    underTest.open(uploadId, 1, USER_UUID, ORGANIZATION_KEY, "other_project");
+  }
+
+  @Test
+  public void fail_to_store_chunk_of_upload_which_does_not_exist() {
+    expectedException.expect(NotFoundException.class);
+    expectedException.expectMessage("Upload AU-Tpxb--iU5OvuD2FLy does not exist");
+
+    underTest.store("AU-Tpxb--iU5OvuD2FLy", 0, toStream("foo"), USER_UUID);
+  }
+
+  @Test
+  public void fail_to_store_chunk_of_invalid_upload_id() {
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Upload id 'ABC' is not valid");
+
+    underTest.store("ABC", 1, toStream("foo"), USER_UUID);
+  }
+
+  @Test
+  public void fail_to_store_chunk_with_index_out_of_bounds() {
+    String uploadId = underTest.create(USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Chunk index must be between 0 and 9999");
+
+    underTest.store(uploadId, ReportChunks.MAX_CHUNKS, toStream("foo"), USER_UUID);
+  }
+
+  private InputStream open(String uploadId, int chunks) {
+    return underTest.open(uploadId, chunks, USER_UUID, ORGANIZATION_KEY, PROJECT_KEY);
+  }
+
+  private static InputStream toStream(String data) {
+    return IOUtils.toInputStream(data, UTF_8);
+  }
+}
@@ -327,6 +327,50 @@ public class ReportSubmitterTest {
     underTest.submit(defaultOrganizationKey, PROJECT_KEY, PROJECT_NAME, emptyMap(), IOUtils.toInputStream("{binary}"));
   }
 
+  @Test
+  public void checkCanSubmit_accepts_existing_project_with_project_scan_permission() {
+    ComponentDto project = db.components().insertPrivateProject(db.getDefaultOrganization());
+    userSession.addProjectPermission(SCAN_EXECUTION, project);
+
+    underTest.checkCanSubmit(defaultOrganizationKey, project.getDbKey());
+  }
+
+  @Test
+  public void checkCanSubmit_accepts_new_project_with_provisioning_permission() {
+    userSession.addPermission(PROVISION_PROJECTS, db.getDefaultOrganization());
+
+    underTest.checkCanSubmit(defaultOrganizationKey, PROJECT_KEY);
+  }
+
+  @Test
+  public void checkCanSubmit_fails_with_forbidden_exception_when_no_scan_permission_on_existing_project() {
+    ComponentDto project = db.components().insertPrivateProject(db.getDefaultOrganization());
+    userSession.addPermission(PROVISION_PROJECTS, db.getDefaultOrganization());
+
+    expectedException.expect(ForbiddenException.class);
+
+    underTest.checkCanSubmit(defaultOrganizationKey, project.getDbKey());
+  }
+
+  @Test
+  public void checkCanSubmit_fails_with_forbidden_exception_when_no_provisioning_permission_on_new_project() {
+    expectedException.expect(ForbiddenException.class);
+
+    underTest.checkCanSubmit(defaultOrganizationKey, PROJECT_KEY);
+  }
+
+  @Test
+  public void checkCanSubmit_fails_if_organization_is_not_the_one_of_the_project() {
+    OrganizationDto organization = db.organizations().insert();
+    ComponentDto project = db.components().insertPrivateProject(db.getDefaultOrganization());
+    userSession.logIn().setRoot();
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage(format("Organization of component with key '%s' does not match specified organization '%s'", project.getDbKey(), organization.getKey()));
+
+    underTest.checkCanSubmit(organization.getKey(), project.getDbKey());
+  }
+
   private void verifyReportIsPersisted(String taskUuid) {
     assertThat(db.selectFirst("select task_uuid from ce_task_input where task_uuid='" + taskUuid + "'")).isNotNull();
   }
@@ -22,8 +22,10 @@ package org.sonar.server.ce.ws;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.sonar.api.server.ws.WebService;
+import org.sonar.server.ce.queue.ReportChunks;
 import org.sonar.server.ce.queue.ReportSubmitter;
 import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.user.UserSession;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -32,7 +34,7 @@ public class CeWsTest {
 
   @Test
   public void define() {
-    CeWsAction wsAction = new SubmitAction(mock(ReportSubmitter.class), mock(DefaultOrganizationProvider.class));
+    CeWsAction wsAction = new SubmitAction(mock(UserSession.class), mock(ReportSubmitter.class), mock(ReportChunks.class), mock(DefaultOrganizationProvider.class));
 
     CeWs ws = new CeWs(wsAction);
     WebService.Context context = mock(WebService.Context.class, Mockito.RETURNS_DEEP_STUBS);
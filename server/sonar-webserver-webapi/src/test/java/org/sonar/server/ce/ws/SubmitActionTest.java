@@ -21,14 +21,21 @@ package org.sonar.server.ce.ws;
 
 import com.google.common.base.Strings;
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Map;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.sonar.ce.task.CeTask;
 import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.ce.queue.ReportChunks;
 import org.sonar.server.ce.queue.ReportSubmitter;
+import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
+import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsActionTester;
 import org.sonar.test.JsonAssert;
@@ -41,8 +48,10 @@ import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class SubmitActionTest {
@@ -58,11 +67,17 @@ public class SubmitActionTest {
     .setSubmitter(new CeTask.User("UUID_1", "LOGIN_1"))
     .build();
 
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+
   private ArgumentCaptor<Map<String, String>> map = ArgumentCaptor.forClass(Map.class);
   private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.fromUuid("org1");
   private String organizationKey = defaultOrganizationProvider.get().getKey();
   private ReportSubmitter reportSubmitter = mock(ReportSubmitter.class);
-  private SubmitAction underTest = new SubmitAction(reportSubmitter, defaultOrganizationProvider);
+  private ReportChunks reportChunks = mock(ReportChunks.class);
+  private SubmitAction underTest = new SubmitAction(userSession, reportSubmitter, reportChunks, defaultOrganizationProvider);
   private WsActionTester tester = new WsActionTester(underTest);
 
   @Test
@@ -121,6 +136,43 @@ public class SubmitActionTest {
     assertThat(submitResponse.getProjectId()).isEqualTo(PROJECT_UUID);
   }
 
+  @Test
+  public void submit_report_uploaded_in_chunks() {
+    userSession.logIn();
+    InputStream report = new ByteArrayInputStream("{binary}".getBytes());
+    when(reportChunks.open("AU-Tpxb--iU5OvuD2FLy", 3, userSession.getUuid(), organizationKey, "my_project")).thenReturn(report);
+    when(reportSubmitter.submit(eq(organizationKey), eq("my_project"), eq("My Project"), anyMap(), any())).thenReturn(A_CE_TASK);
+
+    Ce.SubmitResponse submitResponse = tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("projectName", "My Project")
+      .setParam("uploadId", "AU-Tpxb--iU5OvuD2FLy")
+      .setParam("chunks", "3")
+      .setMethod("POST")
+      .executeProtobuf(Ce.SubmitResponse.class);
+
+    assertThat(submitResponse.getTaskId()).isEqualTo("TASK_1");
+    InOrder inOrder = inOrder(reportSubmitter, reportChunks);
+    inOrder.verify(reportSubmitter).submit(eq(organizationKey), eq("my_project"), eq("My Project"), anyMap(), any());
+    inOrder.verify(reportChunks).delete("AU-Tpxb--iU5OvuD2FLy", 3);
+  }
+
+  @Test
+  public void fail_if_both_report_and_upload_id_are_set() {
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Parameters 'report' and 'uploadId' can't be set together");
+
+    tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("uploadId", "AU-Tpxb--iU5OvuD2FLy")
+      .setParam("chunks", "3")
+      .setPart("report", new ByteArrayInputStream("{binary}".getBytes()), "foo.bar")
+      .setMethod("POST")
+      .execute();
+
+    verifyZeroInteractions(reportSubmitter);
+  }
+
   @Test
   public void test_example_json_response() {
     when(reportSubmitter.submit(eq(organizationKey), eq("my_project"), eq("My Project"), anyMap(), any())).thenReturn(A_CE_TASK);
@@ -0,0 +1,178 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import java.io.ByteArrayInputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.server.ce.queue.ReportChunks;
+import org.sonar.server.ce.queue.ReportSubmitter;
+import org.sonar.server.exceptions.BadRequestException;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.exceptions.UnauthorizedException;
+import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.organization.TestDefaultOrganizationProvider;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.WsActionTester;
+import org.sonarqube.ws.Ce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class SubmitChunkActionTest {
+
+  private static final String UPLOAD_ID = "AU-Tpxb--iU5OvuD2FLy";
+
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.fromUuid("org1");
+  private String organizationKey = defaultOrganizationProvider.get().getKey();
+  private ReportChunks reportChunks = mock(ReportChunks.class);
+  private ReportSubmitter reportSubmitter = mock(ReportSubmitter.class);
+  private WsActionTester tester = new WsActionTester(new SubmitChunkAction(userSession, reportChunks, reportSubmitter, defaultOrganizationProvider));
+
+  @Test
+  public void store_first_chunk_of_new_upload() {
+    userSession.logIn();
+    when(reportChunks.create(userSession.getUuid(), organizationKey, "my_project")).thenReturn(UPLOAD_ID);
+
+    Ce.SubmitChunkResponse response = tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("index", "0")
+      .setPart("chunk", new ByteArrayInputStream("{binary}".getBytes()), "foo.bar")
+      .setMethod("POST")
+      .executeProtobuf(Ce.SubmitChunkResponse.class);
+
+    verify(reportSubmitter).checkCanSubmit(organizationKey, "my_project");
+    verify(reportChunks).store(eq(UPLOAD_ID), eq(0), any(), eq(userSession.getUuid()));
+    assertThat(response.getUploadId()).isEqualTo(UPLOAD_ID);
+  }
+
+  @Test
+  public void store_first_chunk_of_new_upload_of_project_of_specified_organization() {
+    userSession.logIn();
+    when(reportChunks.create(userSession.getUuid(), "my-org", "my_project")).thenReturn(UPLOAD_ID);
+
+    Ce.SubmitChunkResponse response = tester.newRequest()
+      .setParam("organization", "my-org")
+      .setParam("projectKey", "my_project")
+      .setParam("index", "0")
+      .setPart("chunk", new ByteArrayInputStream("{binary}".getBytes()), "foo.bar")
+      .setMethod("POST")
+      .executeProtobuf(Ce.SubmitChunkResponse.class);
+
+    verify(reportSubmitter).checkCanSubmit("my-org", "my_project");
+    assertThat(response.getUploadId()).isEqualTo(UPLOAD_ID);
+  }
+
+  @Test
+  public void store_next_chunk_of_upload() {
+    userSession.logIn();
+
+    Ce.SubmitChunkResponse response = tester.newRequest()
+      .setParam("uploadId", UPLOAD_ID)
+      .setParam("index", "3")
+      .setPart("chunk", new ByteArrayInputStream("{binary}".getBytes()), "foo.bar")
+      .setMethod("POST")
+      .executeProtobuf(Ce.SubmitChunkResponse.class);
+
+    verify(reportChunks).store(eq(UPLOAD_ID), eq(3), any(), eq(userSession.getUuid()));
+    verifyZeroInteractions(reportSubmitter);
+    assertThat(response.getUploadId()).isEqualTo(UPLOAD_ID);
+  }
+
+  @Test
+  public void fail_to_create_upload_without_permission_on_project() {
+    userSession.logIn();
+    doThrow(new ForbiddenException("Insufficient privileges")).when(reportSubmitter).checkCanSubmit(organizationKey, "my_project");
+
+    expectedException.expect(ForbiddenException.class);
+
+    tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("index", "0")
+      .setPart("chunk", new ByteArrayInputStream("{binary}".getBytes()), "foo.bar")
+      .setMethod("POST")
+      .execute();
+
+    verifyZeroInteractions(reportChunks);
+  }
+
+  @Test
+  public void fail_to_create_upload_without_project_key() {
+    userSession.logIn();
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("The 'projectKey' parameter is missing");
+
+    tester.newRequest()
+      .setParam("index", "0")
+      .setPart("chunk", new ByteArrayInputStream("{binary}".getBytes()), "foo.bar")
+      .setMethod("POST")
+      .execute();
+  }
+
+  @Test
+  public void fail_to_store_chunk_other_than_first_without_upload_id() {
+    userSession.logIn();
+
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Upload id is required to store chunk 1");
+
+    tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("index", "1")
+      .setPart("chunk", new ByteArrayInputStream("{binary}".getBytes()), "foo.bar")
+      .setMethod("POST")
+      .execute();
+  }
+
+  @Test
+  public void fail_if_not_logged_in() {
+    expectedException.expect(UnauthorizedException.class);
+
+    tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("index", "0")
+      .setPart("chunk", new ByteArrayInputStream("{binary}".getBytes()), "foo.bar")
+      .setMethod("POST")
+      .execute();
+
+    verifyZeroInteractions(reportChunks);
+  }
+
+  @Test
+  public void define_submit_chunk_action() {
+    assertThat(tester.getDef().key()).isEqualTo("submit_chunk");
+    assertThat(tester.getDef().isPost()).isTrue();
+    assertThat(tester.getDef().isInternal()).isTrue();
+    assertThat(tester.getDef().params()).extracting("key").containsOnly("uploadId", "organization", "projectKey", "index", "chunk");
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.InputStream;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.resources.Languages;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.Durations;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.es.StartupIndexer;
+import org.sonar.server.issue.AvatarResolverImpl;
+import org.sonar.server.issue.IssueFieldsSetter;
+import org.sonar.server.issue.TextRangeResponseFormatter;
+import org.sonar.server.issue.TransitionService;
+import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.issue.index.IssueIteratorFactory;
+import org.sonar.server.issue.index.IssueQueryFactory;
+import org.sonar.server.issue.workflow.FunctionExecutor;
+import org.sonar.server.issue.workflow.IssueWorkflow;
+import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.permission.index.WebAuthorizationTypeSupport;
+import org.sonar.server.rule.RuleDefinitionCache;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.TestResponse;
+import org.sonar.server.ws.WsActionTester;
+import org.sonarqube.ws.Issues.Issue;
+import org.sonarqube.ws.Issues.SearchWsResponse;
+import org.sonarqube.ws.MediaTypes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.server.issue.ws.ExportAction.BATCH_SIZE;
+import static org.sonar.server.tester.UserSessionRule.standalone;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ADDITIONAL_FIELDS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_COMPONENT_KEYS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_SEVERITIES;
+
+public class ExportActionTest {
+
+  @Rule
+  public UserSessionRule userSession = standalone();
+  @Rule
+  public DbTester db = DbTester.create();
+  @Rule
+  public EsTester es = EsTester.create();
+
+  private DbClient dbClient = db.getDbClient();
+  private IssueIndex issueIndex = new IssueIndex(es.client(), System2.INSTANCE, userSession, new WebAuthorizationTypeSupport(userSession));
+  private IssueIndexer issueIndexer = new IssueIndexer(es.client(), dbClient, new IssueIteratorFactory(dbClient));
+  private IssueQueryFactory issueQueryFactory = new IssueQueryFactory(dbClient, Clock.systemUTC(), userSession);
+  private IssueFieldsSetter issueFieldsSetter = new IssueFieldsSetter();
+  private IssueWorkflow issueWorkflow = new IssueWorkflow(new FunctionExecutor(issueFieldsSetter), issueFieldsSetter);
+  private SearchResponseLoader searchResponseLoader = new SearchResponseLoader(userSession, dbClient, new TransitionService(userSession, issueWorkflow),
+    new SearchResponseCache(System2.INSTANCE), new RuleDefinitionCache(dbClient));
+  private SearchResponseFormat searchResponseFormat = new SearchResponseFormat(new Durations(), new Languages(), new TextRangeResponseFormatter(),
+    new UserResponseFormatter(new AvatarResolverImpl()));
+  private WsActionTester ws = new WsActionTester(new ExportAction(issueIndex, issueQueryFactory, searchResponseLoader, searchResponseFormat));
+  private StartupIndexer permissionIndexer = new PermissionIndexer(dbClient, es.client(), issueIndexer);
+
+  @Before
+  public void setUp() {
+    issueWorkflow.start();
+  }
+
+  @Test
+  public void definition() {
+    WebService.Action action = ws.getDef();
+
+    assertThat(action.key()).isEqualTo("export");
+    assertThat(action.since()).isEqualTo("8.4");
+    assertThat(action.isInternal()).isFalse();
+    assertThat(action.isPost()).isFalse();
+    assertThat(action.responseExampleAsString()).isNotEmpty();
+    assertThat(action.params()).extracting(WebService.Param::key).containsExactlyInAnyOrder(
+      "additionalFields", "componentKeys", "branch", "pullRequest", "organization", "severities", "statuses", "resolutions", "resolved", "rules",
+      "tags", "types", "createdAfter", "createdBefore");
+  }
+
+  @Test
+  public void export_issues_by_batches_as_json_lines() {
+    ComponentDto project = db.components().insertPublicProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insertIssueRule();
+    IntStream.range(0, BATCH_SIZE + 1).forEach(i -> db.issues().insertIssue(rule, project, file));
+    indexPermissionsAndIssues();
+
+    TestResponse response = ws.newRequest().execute();
+
+    assertThat(response.getMediaType()).isEqualTo(ExportAction.NDJSON);
+    String[] lines = response.getInput().split("\n");
+    assertThat(lines).hasSize(2);
+    JsonObject firstBatch = new JsonParser().parse(lines[0]).getAsJsonObject();
+    JsonObject secondBatch = new JsonParser().parse(lines[1]).getAsJsonObject();
+    assertThat(firstBatch.getAsJsonArray("issues")).hasSize(BATCH_SIZE);
+    assertThat(secondBatch.getAsJsonArray("issues")).hasSize(1);
+    assertThat(firstBatch.getAsJsonArray("components")).hasSize(2);
+    assertThat(firstBatch.has("paging")).isFalse();
+    assertThat(firstBatch.has("facets")).isFalse();
+  }
+
+  @Test
+  public void export_issues_as_delimited_protobuf() throws Exception {
+    ComponentDto project = db.components().insertPublicProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insertIssueRule();
+    IssueDto issue1 = db.issues().insertIssue(rule, project, file);
+    IssueDto issue2 = db.issues().insertIssue(rule, project, file);
+    indexPermissionsAndIssues();
+
+    TestResponse response = ws.newRequest().setMediaType(MediaTypes.PROTOBUF).execute();
+
+    assertThat(response.getMediaType()).isEqualTo(MediaTypes.PROTOBUF);
+    List<SearchWsResponse> batches = readDelimited(response.getInputStream());
+    assertThat(batches).hasSize(1);
+    assertThat(batches.get(0).getIssuesList()).extracting(Issue::getKey).containsExactlyInAnyOrder(issue1.getKey(), issue2.getKey());
+  }
+
+  @Test
+  public void export_only_issues_matching_the_query() throws Exception {
+    ComponentDto project = db.components().insertPublicProject();
+    ComponentDto otherProject = db.components().insertPublicProject();
+    RuleDefinitionDto rule = db.rules().insertIssueRule();
+    IssueDto blocker = db.issues().insertIssue(rule, project, project, i -> i.setSeverity("BLOCKER"));
+    db.issues().insertIssue(rule, project, project, i -> i.setSeverity("MINOR"));
+    db.issues().insertIssue(rule, otherProject, otherProject, i -> i.setSeverity("BLOCKER"));
+    indexPermissionsAndIssues();
+
+    TestResponse response = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam(PARAM_COMPONENT_KEYS, project.getKey())
+      .setParam(PARAM_SEVERITIES, "BLOCKER")
+      .execute();
+
+    List<SearchWsResponse> batches = readDelimited(response.getInputStream());
+    assertThat(batches).hasSize(1);
+    assertThat(batches.get(0).getIssuesList()).extracting(Issue::getKey).containsExactly(blocker.getKey());
+  }
+
+  @Test
+  public void do_not_export_issues_the_user_can_not_browse() throws Exception {
+    ComponentDto project = db.components().insertPrivateProject();
+    RuleDefinitionDto rule = db.rules().insertIssueRule();
+    db.issues().insertIssue(rule, project, project);
+    indexPermissionsAndIssues();
+
+    TestResponse response = ws.newRequest().setMediaType(MediaTypes.PROTOBUF).execute();
+
+    assertThat(readDelimited(response.getInputStream())).isEmpty();
+  }
+
+  @Test
+  public void return_additional_fields_of_each_batch() throws Exception {
+    ComponentDto project = db.components().insertPublicProject();
+    RuleDefinitionDto rule = db.rules().insertIssueRule();
+    db.issues().insertIssue(rule, project, project);
+    indexPermissionsAndIssues();
+
+    TestResponse response = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam(PARAM_ADDITIONAL_FIELDS, "rules")
+      .execute();
+
+    List<SearchWsResponse> batches = readDelimited(response.getInputStream());
+    assertThat(batches).hasSize(1);
+    assertThat(batches.get(0).getRules().getRulesList()).extracting(r -> r.getKey()).containsExactly(rule.getKey().toString());
+    assertThat(batches.get(0).hasUsers()).isFalse();
+  }
+
+  private static List<SearchWsResponse> readDelimited(InputStream input) throws Exception {
+    List<SearchWsResponse> batches = new ArrayList<>();
+    SearchWsResponse batch;
+    while ((batch = SearchWsResponse.parseDelimitedFrom(input)) != null) {
+      batches.add(batch);
+    }
+    return batches;
+  }
+
+  private void indexPermissionsAndIssues() {
+    permissionIndexer.indexOnStartup(permissionIndexer.getIndexTypes());
+    issueIndexer.indexOnStartup(issueIndexer.getIndexTypes());
+  }
+}
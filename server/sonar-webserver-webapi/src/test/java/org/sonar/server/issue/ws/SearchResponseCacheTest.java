@@ -0,0 +1,132 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import org.junit.Test;
+import org.sonar.api.impl.utils.TestSystem2;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.user.UserDto;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
+
+public class SearchResponseCacheTest {
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000L);
+  private LoadStatistics statistics = new LoadStatistics();
+  private RecordingLoader<UserDto> userLoader = new RecordingLoader<>(uuid -> new UserDto().setUuid(uuid));
+  private SearchResponseCache underTest = new SearchResponseCache(system2);
+
+  @Test
+  public void load_only_users_missing_from_cache() {
+    assertThat(uuids(underTest.getUsers(of("U1", "U2"), userLoader, statistics))).containsOnly("U1", "U2");
+    assertThat(uuids(underTest.getUsers(of("U1", "U2", "U3"), userLoader, statistics))).containsOnly("U1", "U2", "U3");
+
+    assertThat(userLoader.loadedUuids).containsExactly(of("U1", "U2"), of("U3"));
+    assertThat(statistics.getCacheHits("users")).isEqualTo(2);
+    assertThat(statistics.getCacheMisses("users")).isEqualTo(3);
+  }
+
+  @Test
+  public void do_not_call_loader_when_all_users_are_cached() {
+    underTest.getUsers(of("U1"), userLoader, statistics);
+
+    underTest.getUsers(of("U1"), userLoader, statistics);
+    underTest.getUsers(of(), userLoader, statistics);
+
+    assertThat(userLoader.loadedUuids).containsExactly(of("U1"));
+  }
+
+  @Test
+  public void reload_entries_once_expired() {
+    underTest.getUsers(of("U1"), userLoader, statistics);
+
+    system2.setNow(1_000L + SearchResponseCache.TTL_MS - 1);
+    underTest.getUsers(of("U1"), userLoader, statistics);
+    assertThat(userLoader.loadedUuids).hasSize(1);
+
+    system2.setNow(1_000L + SearchResponseCache.TTL_MS);
+    underTest.getUsers(of("U1"), userLoader, statistics);
+    assertThat(userLoader.loadedUuids).containsExactly(of("U1"), of("U1"));
+  }
+
+  @Test
+  public void do_not_cache_uuids_which_do_not_exist() {
+    RecordingLoader<UserDto> loader = new RecordingLoader<>(uuid -> null);
+
+    assertThat(underTest.getUsers(of("unknown"), loader, statistics)).isEmpty();
+    assertThat(underTest.getUsers(of("unknown"), loader, statistics)).isEmpty();
+
+    assertThat(loader.loadedUuids).hasSize(2);
+  }
+
+  @Test
+  public void bound_number_of_entries() {
+    for (int i = 0; i < SearchResponseCache.MAX_ENTRIES; i++) {
+      underTest.getUsers(of("U" + i), userLoader, statistics);
+    }
+    underTest.getUsers(of("U0"), userLoader, statistics);
+    assertThat(userLoader.loadedUuids).hasSize(SearchResponseCache.MAX_ENTRIES);
+
+    // cache is full of entries which have not expired
+    underTest.getUsers(of("U" + SearchResponseCache.MAX_ENTRIES), userLoader, statistics);
+    underTest.getUsers(of("U0"), userLoader, statistics);
+
+    assertThat(userLoader.loadedUuids).hasSize(SearchResponseCache.MAX_ENTRIES + 2);
+  }
+
+  @Test
+  public void organizations_are_cached_independently_of_users() {
+    RecordingLoader<OrganizationDto> organizationLoader = new RecordingLoader<>(uuid -> new OrganizationDto().setUuid(uuid));
+    underTest.getUsers(of("U1"), userLoader, statistics);
+
+    assertThat(underTest.getOrganizations(of("U1"), organizationLoader, statistics)).extracting(OrganizationDto::getUuid).containsOnly("U1");
+    assertThat(underTest.getOrganizations(of("U1"), organizationLoader, statistics)).extracting(OrganizationDto::getUuid).containsOnly("U1");
+
+    assertThat(organizationLoader.loadedUuids).containsExactly(of("U1"));
+    assertThat(statistics.getCacheHits("organizations")).isEqualTo(1);
+    assertThat(statistics.getCacheMisses("organizations")).isEqualTo(1);
+    assertThat(statistics.toString()).contains("usersCache=0 hits/1 misses", "organizationsCache=1 hits/1 misses");
+  }
+
+  private static List<String> uuids(List<UserDto> users) {
+    return users.stream().map(UserDto::getUuid).collect(toList());
+  }
+
+  private static class RecordingLoader<T> implements Function<Set<String>, List<T>> {
+    private final Function<String, T> factory;
+    private final List<Set<String>> loadedUuids = new ArrayList<>();
+
+    private RecordingLoader(Function<String, T> factory) {
+      this.factory = factory;
+    }
+
+    @Override
+    public List<T> apply(Set<String> uuids) {
+      loadedUuids.add(uuids);
+      return uuids.stream().map(factory).filter(t -> t != null).collect(toList());
+    }
+  }
+}
@@ -57,6 +57,21 @@ public class IssueMetricFormulaFactoryImplTest {
     }
   }
 
+  @Test
+  public void formulas_can_be_aggregated_from_descendants() {
+    Set<Metric> computedMetrics = new HashSet<>();
+    for (IssueMetricFormula formula : underTest.getFormulas()) {
+      assertThat(formula.getAggregation()).isNotEqualTo(IssueMetricFormula.Aggregation.NONE);
+      if (formula.getAggregation() == IssueMetricFormula.Aggregation.DEPENDENT) {
+        // dependent metrics which are computed by other formulas must be refreshed before
+        formula.getDependentMetrics().stream()
+          .filter(m -> underTest.getFormulas().stream().anyMatch(f -> f.getMetric().equals(m)))
+          .forEach(m -> assertThat(computedMetrics).contains(m));
+      }
+      computedMetrics.add(formula.getMetric());
+    }
+  }
+
   @Test
   public void test_violations() {
     withNoIssues().assertThatValueIs(CoreMetrics.VIOLATIONS, 0);
@@ -125,10 +140,9 @@ public class IssueMetricFormulaFactoryImplTest {
 
   @Test
   public void test_security_review_rating() {
-    with(
-      newGroup(RuleType.SECURITY_HOTSPOT).setStatus(Issue.STATUS_REVIEWED).setCount(3),
-      newGroup(RuleType.SECURITY_HOTSPOT).setStatus(Issue.STATUS_TO_REVIEW).setCount(1))
-        .assertThatValueIs(CoreMetrics.SECURITY_REVIEW_RATING, Rating.B);
+    with(CoreMetrics.SECURITY_HOTSPOTS_REVIEWED_STATUS, 3.0)
+      .and(CoreMetrics.SECURITY_HOTSPOTS_TO_REVIEW_STATUS, 1.0)
+      .assertThatValueIs(CoreMetrics.SECURITY_REVIEW_RATING, Rating.B);
 
     withNoIssues()
       .assertThatValueIs(CoreMetrics.SECURITY_REVIEW_RATING, Rating.A);
@@ -136,9 +150,8 @@ public class IssueMetricFormulaFactoryImplTest {
 
   @Test
   public void test_security_hotspots_reviewed() {
-    with(
-      newGroup(RuleType.SECURITY_HOTSPOT).setStatus(Issue.STATUS_REVIEWED).setCount(3),
-      newGroup(RuleType.SECURITY_HOTSPOT).setStatus(Issue.STATUS_TO_REVIEW).setCount(1))
+    with(CoreMetrics.SECURITY_HOTSPOTS_REVIEWED_STATUS, 3.0)
+      .and(CoreMetrics.SECURITY_HOTSPOTS_TO_REVIEW_STATUS, 1.0)
       .assertThatValueIs(CoreMetrics.SECURITY_HOTSPOTS_REVIEWED, 75.0);
 
     withNoIssues()
@@ -676,12 +689,11 @@ public class IssueMetricFormulaFactoryImplTest {
 
   @Test
   public void test_new_security_review_rating() {
-    with(
-      newGroup(RuleType.SECURITY_HOTSPOT).setStatus(Issue.STATUS_REVIEWED).setCount(3).setInLeak(true),
-      newGroup(RuleType.SECURITY_HOTSPOT).setStatus(Issue.STATUS_TO_REVIEW).setCount(1).setInLeak(true),
+    withLeak(CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED_STATUS, 3.0)
+      .andLeak(CoreMetrics.NEW_SECURITY_HOTSPOTS_TO_REVIEW_STATUS, 1.0)
       // not in leak
-      newGroup(RuleType.SECURITY_HOTSPOT).setSeverity(Issue.STATUS_TO_REVIEW).setInLeak(false))
-        .assertThatLeakValueIs(CoreMetrics.NEW_SECURITY_REVIEW_RATING, Rating.B);
+      .and(CoreMetrics.SECURITY_HOTSPOTS_TO_REVIEW_STATUS, 5.0)
+      .assertThatLeakValueIs(CoreMetrics.NEW_SECURITY_REVIEW_RATING, Rating.B);
 
     withNoIssues()
       .assertThatLeakValueIs(CoreMetrics.NEW_SECURITY_REVIEW_RATING, Rating.A);
@@ -689,12 +701,11 @@ public class IssueMetricFormulaFactoryImplTest {
 
   @Test
   public void test_new_security_hotspots_reviewed() {
-    with(
-      newGroup(RuleType.SECURITY_HOTSPOT).setStatus(Issue.STATUS_REVIEWED).setCount(3).setInLeak(true),
-      newGroup(RuleType.SECURITY_HOTSPOT).setStatus(Issue.STATUS_TO_REVIEW).setCount(1).setInLeak(true),
+    withLeak(CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED_STATUS, 3.0)
+      .andLeak(CoreMetrics.NEW_SECURITY_HOTSPOTS_TO_REVIEW_STATUS, 1.0)
       // not in leak
-      newGroup(RuleType.SECURITY_HOTSPOT).setStatus(Issue.STATUS_TO_REVIEW).setCount(5).setInLeak(false))
-        .assertThatLeakValueIs(CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED, 75.0);
+      .and(CoreMetrics.SECURITY_HOTSPOTS_TO_REVIEW_STATUS, 5.0)
+      .assertThatLeakValueIs(CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED, 75.0);
 
     withNoIssues()
       .assertNoLeakValue(CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED);
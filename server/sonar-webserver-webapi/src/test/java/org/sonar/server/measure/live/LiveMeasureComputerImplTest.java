@@ -26,6 +26,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
@@ -60,9 +64,11 @@ import org.sonar.server.qualitygate.changeevent.QGChangeEvent;
 import org.sonar.server.setting.ProjectConfigurationLoader;
 import org.sonar.server.setting.TestProjectConfigurationLoader;
 
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -375,6 +381,168 @@ public class LiveMeasureComputerImplTest {
     verify(qGateComputer).refreshGateStatus(eq(project), same(qualityGate), any(MeasureMatrix.class));
   }
 
+  @Test
+  public void refresh_ancestors_from_changes_of_touched_components() {
+    markProjectAsAnalyzed(project);
+    db.measures().insertLiveMeasure(project, intMetric, m -> m.setValue(8.0).setVariation(2.0));
+    db.measures().insertLiveMeasure(dir, intMetric, m -> m.setValue(5.0));
+    db.measures().insertLiveMeasure(file1, intMetric, m -> m.setValue(2.0));
+    db.measures().insertLiveMeasure(file2, intMetric, m -> m.setValue(3.0));
+
+    List<QGChangeEvent> result = run(file1, newIntSumFormula(6.0));
+
+    // ancestors are not computed by the formula but from the change of file1: 2 -> 6
+    assertThatIntMeasureHasValue(file1, 6.0);
+    assertThatIntMeasureHasValue(dir, 9.0);
+    LiveMeasureDto measure = assertThatIntMeasureHasValue(project, 12.0);
+    assertThat(measure.getVariation()).isEqualTo(6.0);
+    // untouched
+    assertThatIntMeasureHasValue(file2, 3.0);
+    assertThatProjectChanged(result, project);
+  }
+
+  @Test
+  public void refresh_ancestors_from_changes_of_multiple_touched_components() {
+    markProjectAsAnalyzed(project);
+    db.measures().insertLiveMeasure(project, intMetric, m -> m.setValue(8.0));
+    db.measures().insertLiveMeasure(dir, intMetric, m -> m.setValue(5.0));
+    db.measures().insertLiveMeasure(file1, intMetric, m -> m.setValue(2.0));
+    db.measures().insertLiveMeasure(file2, intMetric, m -> m.setValue(3.0));
+
+    run(asList(file1, file2), newIntSumFormula(6.0));
+
+    assertThatIntMeasureHasValue(file1, 6.0);
+    assertThatIntMeasureHasValue(file2, 6.0);
+    assertThatIntMeasureHasValue(dir, 12.0);
+    assertThatIntMeasureHasValue(project, 15.0);
+  }
+
+  @Test
+  public void refresh_ancestors_from_leak_changes_of_touched_components() {
+    markProjectAsAnalyzed(project);
+    db.measures().insertLiveMeasure(project, intMetric, m -> m.setVariation(7.0).setValue(null));
+    db.measures().insertLiveMeasure(dir, intMetric, m -> m.setVariation(4.0).setValue(null));
+    db.measures().insertLiveMeasure(file1, intMetric, m -> m.setVariation(1.0).setValue(null));
+
+    run(file1, newIntSumLeakFormula(3.0));
+
+    assertThatIntMeasureHasLeakValue(file1, 3.0);
+    assertThatIntMeasureHasLeakValue(dir, 6.0);
+    assertThatIntMeasureHasLeakValue(project, 9.0);
+  }
+
+  @Test
+  public void worst_rating_of_ancestors_is_kept_when_held_by_untouched_component() {
+    markProjectAsAnalyzed(project);
+    insertRating(project, Rating.D);
+    insertRating(dir, Rating.D);
+    insertRating(file1, Rating.B);
+    insertRating(file2, Rating.D);
+
+    run(file1, newRatingMaxFormula(Rating.C));
+
+    assertThatRatingMeasureHasValue(file1, Rating.C);
+    assertThatRatingMeasureHasValue(dir, Rating.D);
+    assertThatRatingMeasureHasValue(project, Rating.D);
+  }
+
+  @Test
+  public void worst_rating_of_ancestors_is_raised_by_touched_component() {
+    markProjectAsAnalyzed(project);
+    insertRating(project, Rating.D);
+    insertRating(dir, Rating.C);
+    insertRating(file1, Rating.B);
+    insertRating(file2, Rating.C);
+
+    run(file1, newRatingMaxFormula(Rating.E));
+
+    assertThatRatingMeasureHasValue(file1, Rating.E);
+    assertThatRatingMeasureHasValue(dir, Rating.E);
+    assertThatRatingMeasureHasValue(project, Rating.E);
+  }
+
+  @Test
+  public void compute_ancestors_from_issues_when_worst_rating_is_fixed() {
+    markProjectAsAnalyzed(project);
+    insertRating(project, Rating.D);
+    insertRating(dir, Rating.D);
+    insertRating(file1, Rating.D);
+    insertRating(file2, Rating.B);
+
+    run(file1, newRatingMaxFormula(Rating.A));
+
+    // the new worst rating can't be deduced, so the formula is applied on ancestors
+    assertThatRatingMeasureHasValue(file1, Rating.A);
+    assertThatRatingMeasureHasValue(dir, Rating.A);
+    assertThatRatingMeasureHasValue(project, Rating.A);
+    assertThatRatingMeasureHasValue(file2, Rating.B);
+  }
+
+  @Test
+  public void compute_ancestors_from_issues_when_measures_are_missing() {
+    markProjectAsAnalyzed(project);
+    db.measures().insertLiveMeasure(project, intMetric, m -> m.setValue(8.0));
+    db.measures().insertLiveMeasure(file1, intMetric, m -> m.setValue(2.0));
+
+    run(file1, newIntSumFormula(6.0));
+
+    assertThatIntMeasureHasValue(file1, 6.0);
+    assertThatIntMeasureHasValue(dir, 6.0);
+    assertThatIntMeasureHasValue(project, 6.0);
+  }
+
+  @Test
+  public void compute_ancestors_from_issues_when_a_touched_component_is_ancestor_of_another_one() {
+    markProjectAsAnalyzed(project);
+    db.measures().insertLiveMeasure(project, intMetric, m -> m.setValue(8.0));
+    db.measures().insertLiveMeasure(dir, intMetric, m -> m.setValue(5.0));
+    db.measures().insertLiveMeasure(file1, intMetric, m -> m.setValue(2.0));
+
+    run(asList(file1, dir), newIntSumFormula(6.0));
+
+    assertThatIntMeasureHasValue(file1, 6.0);
+    assertThatIntMeasureHasValue(dir, 6.0);
+    assertThatIntMeasureHasValue(project, 6.0);
+  }
+
+  @Test
+  public void concurrent_refreshes_of_a_branch_do_not_lose_changes_of_ancestors() throws Exception {
+    markProjectAsAnalyzed(project);
+    db.measures().insertLiveMeasure(project, intMetric, m -> m.setValue(8.0));
+    db.measures().insertLiveMeasure(dir, intMetric, m -> m.setValue(5.0));
+    db.measures().insertLiveMeasure(file1, intMetric, m -> m.setValue(2.0));
+    db.measures().insertLiveMeasure(file2, intMetric, m -> m.setValue(3.0));
+    CountDownLatch firstRefreshStarted = new CountDownLatch(1);
+    CountDownLatch secondRefreshDone = new CountDownLatch(1);
+    Metric metric = new Metric.Builder(intMetric.getKey(), intMetric.getShortName(), Metric.ValueType.valueOf(intMetric.getValueType())).create();
+    IssueMetricFormula slowFormula = new IssueMetricFormula(metric, false, IssueMetricFormula.Aggregation.SUM, (ctx, issues) -> {
+      firstRefreshStarted.countDown();
+      // if the branch was not locked, the second refresh would be committed meanwhile
+      awaitUninterruptibly(secondRefreshDone, 500, MILLISECONDS);
+      ctx.setValue(6.0);
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> firstRefresh = executor.submit(() -> runInOwnSession(file1, slowFormula));
+      firstRefreshStarted.await();
+      Future<?> secondRefresh = executor.submit(() -> {
+        runInOwnSession(file2, newIntSumFormula(6.0));
+        secondRefreshDone.countDown();
+      });
+      firstRefresh.get();
+      secondRefresh.get();
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // file1: 2 -> 6, file2: 3 -> 6
+    assertThatIntMeasureHasValue(file1, 6.0);
+    assertThatIntMeasureHasValue(file2, 6.0);
+    assertThatIntMeasureHasValue(dir, 12.0);
+    assertThatIntMeasureHasValue(project, 15.0);
+  }
+
   @Test
   public void exception_describes_context_when_a_formula_fails() {
     markProjectAsAnalyzed(project);
@@ -393,6 +561,16 @@ public class LiveMeasureComputerImplTest {
   }
 
   private List<QGChangeEvent> run(Collection<ComponentDto> components, IssueMetricFormula... formulas) {
+    return newLiveMeasureComputer(projectIndexer, formulas).refresh(db.getSession(), components);
+  }
+
+  private void runInOwnSession(ComponentDto component, IssueMetricFormula... formulas) {
+    try (DbSession dbSession = db.getDbClient().openSession(false)) {
+      newLiveMeasureComputer(new TestProjectIndexers(), formulas).refresh(dbSession, singleton(component));
+    }
+  }
+
+  private LiveMeasureComputerImpl newLiveMeasureComputer(TestProjectIndexers projectIndexer, IssueMetricFormula... formulas) {
     IssueMetricFormulaFactory formulaFactory = new TestIssueMetricFormulaFactory(asList(formulas));
 
     when(qGateComputer.loadQualityGate(any(DbSession.class), any(OrganizationDto.class), any(ProjectDto.class), any(BranchDto.class)))
@@ -403,9 +581,7 @@ public class LiveMeasureComputerImplTest {
     MapSettings settings = new MapSettings(new PropertyDefinitions(System2.INSTANCE, CorePropertyDefinitions.all()));
     ProjectConfigurationLoader configurationLoader = new TestProjectConfigurationLoader(settings.asConfig());
 
-    LiveMeasureComputerImpl underTest = new LiveMeasureComputerImpl(db.getDbClient(), formulaFactory, qGateComputer, configurationLoader, projectIndexer);
-
-    return underTest.refresh(db.getSession(), components);
+    return new LiveMeasureComputerImpl(db.getDbClient(), formulaFactory, qGateComputer, configurationLoader, projectIndexer);
   }
 
   private void markProjectAsAnalyzed(ComponentDto p) {
@@ -496,6 +672,25 @@ public class LiveMeasureComputerImplTest {
     });
   }
 
+  private void insertRating(ComponentDto component, Rating rating) {
+    db.measures().insertLiveMeasure(component, ratingMetric, m -> m.setValue((double) rating.getIndex()).setData(rating.name()));
+  }
+
+  private IssueMetricFormula newIntSumFormula(double value) {
+    Metric metric = new Metric.Builder(intMetric.getKey(), intMetric.getShortName(), Metric.ValueType.valueOf(intMetric.getValueType())).create();
+    return new IssueMetricFormula(metric, false, IssueMetricFormula.Aggregation.SUM, (ctx, issues) -> ctx.setValue(value));
+  }
+
+  private IssueMetricFormula newIntSumLeakFormula(double value) {
+    Metric metric = new Metric.Builder(intMetric.getKey(), intMetric.getShortName(), Metric.ValueType.valueOf(intMetric.getValueType())).create();
+    return new IssueMetricFormula(metric, true, IssueMetricFormula.Aggregation.SUM, (ctx, issues) -> ctx.setLeakValue(value));
+  }
+
+  private IssueMetricFormula newRatingMaxFormula(Rating rating) {
+    Metric metric = new Metric.Builder(ratingMetric.getKey(), ratingMetric.getShortName(), Metric.ValueType.valueOf(ratingMetric.getValueType())).create();
+    return new IssueMetricFormula(metric, false, IssueMetricFormula.Aggregation.MAX, (ctx, issues) -> ctx.setValue(rating));
+  }
+
   private void assertThatProjectChanged(List<QGChangeEvent> events, ComponentDto... projects) {
     for (ComponentDto p : projects) {
       assertThat(projectIndexer.hasBeenCalled(p.uuid(), ProjectIndexer.Cause.MEASURE_CHANGE)).isTrue();
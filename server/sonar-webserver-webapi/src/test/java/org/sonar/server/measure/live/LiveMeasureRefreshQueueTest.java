@@ -0,0 +1,299 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.live;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.impl.utils.TestSystem2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDao;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.server.qualitygate.changeevent.QGChangeEvent;
+import org.sonar.server.qualitygate.changeevent.QGChangeEventListeners;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.db.component.ComponentTesting.newPrivateProjectDto;
+import static org.sonar.db.organization.OrganizationTesting.newOrganizationDto;
+
+public class LiveMeasureRefreshQueueTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000L);
+  private DbClient dbClient = mock(DbClient.class);
+  private ComponentDao componentDao = mock(ComponentDao.class);
+  private LiveMeasureComputer liveMeasureComputer = mock(LiveMeasureComputer.class);
+  private QGChangeEventListeners qualityGateListeners = mock(QGChangeEventListeners.class);
+  private MapSettings settings = new MapSettings()
+    .setProperty(LiveMeasureRefreshQueue.DELAY_PROPERTY, 500)
+    .setProperty(LiveMeasureRefreshQueue.MAX_DELAY_PROPERTY, 2_000);
+  private ComponentDto project = newPrivateProjectDto(newOrganizationDto());
+  private ComponentDto file1 = newFileDto(project);
+  private ComponentDto file2 = newFileDto(project);
+  private ScheduledExecutorService executorService = mock(ScheduledExecutorService.class);
+
+  @Test
+  public void coalesce_changes_of_branch_until_no_change_is_received_during_delay() {
+    LiveMeasureRefreshQueue underTest = newQueue();
+    List<QGChangeEvent> events = singletonList(mock(QGChangeEvent.class));
+    when(liveMeasureComputer.refresh(any(), anyList())).thenReturn(events);
+
+    underTest.enqueue(singletonList(newIssue("I1")), singletonList(file1));
+    system2.setNow(1_200L);
+    underTest.enqueue(asList(newIssue("I2"), newIssue("I1")), singletonList(file2));
+
+    system2.setNow(1_600L);
+    underTest.flush(project.uuid(), 1_500L);
+    verifyZeroInteractions(liveMeasureComputer, qualityGateListeners);
+
+    system2.setNow(1_700L);
+    underTest.flush(project.uuid(), 1_700L);
+    verify(componentDao).selectByUuids(any(DbSession.class), argThat((Collection<String> uuids) -> uuids.containsAll(asList(file1.uuid(), file2.uuid()))));
+    verify(liveMeasureComputer, times(1)).refresh(any(), anyList());
+    verify(qualityGateListeners, times(1)).broadcastOnIssueChange(argThat(issues -> issues.size() == 2), eq(events));
+    assertThat(underTest.getPendingRefresh(project.uuid())).isEmpty();
+
+    // already refreshed
+    underTest.flush(project.uuid(), 1_700L);
+    verify(liveMeasureComputer, times(1)).refresh(any(), anyList());
+  }
+
+  @Test
+  public void refresh_when_max_delay_is_reached_even_if_changes_are_still_received() {
+    LiveMeasureRefreshQueue underTest = newQueue();
+
+    for (long now = 1_000L; now < 3_000L; now += 400L) {
+      system2.setNow(now);
+      underTest.enqueue(singletonList(newIssue("I" + now)), singletonList(file1));
+    }
+    system2.setNow(3_000L);
+    underTest.flush(project.uuid(), 3_000L);
+
+    verify(liveMeasureComputer).refresh(any(), anyList());
+    verify(qualityGateListeners).broadcastOnIssueChange(argThat(issues -> issues.size() == 5), anyList());
+  }
+
+  @Test
+  public void branches_are_refreshed_independently() {
+    LiveMeasureRefreshQueue underTest = newQueue();
+    ComponentDto otherProject = newPrivateProjectDto(newOrganizationDto());
+
+    underTest.enqueue(singletonList(newIssue("I1")), singletonList(file1));
+    system2.setNow(1_400L);
+    underTest.enqueue(singletonList(newIssue("I2", otherProject)), singletonList(otherProject));
+
+    system2.setNow(1_500L);
+    underTest.flush(project.uuid(), 1_500L);
+    underTest.flush(otherProject.uuid(), 1_900L);
+
+    verify(liveMeasureComputer, times(1)).refresh(any(), anyList());
+    assertThat(underTest.getPendingRefresh(project.uuid())).isEmpty();
+    assertThat(underTest.getPendingRefresh(otherProject.uuid())).isPresent();
+  }
+
+  @Test
+  public void getPendingRefresh_describes_changes_not_refreshed_yet() {
+    LiveMeasureRefreshQueue underTest = newQueue();
+
+    underTest.enqueue(asList(newIssue("I1"), newIssue("I2")), asList(file1, file2));
+    system2.setNow(1_300L);
+    underTest.enqueue(singletonList(newIssue("I3")), singletonList(file1));
+
+    LiveMeasureRefreshQueue.PendingRefresh pending = underTest.getPendingRefresh(project.uuid()).get();
+    assertThat(pending.getCreatedAt()).isEqualTo(1_000L);
+    assertThat(pending.getUpdatedAt()).isEqualTo(1_300L);
+    assertThat(pending.getComponentCount()).isEqualTo(2);
+    assertThat(pending.getIssueCount()).isEqualTo(3);
+    assertThat(underTest.getPendingRefresh(file1.uuid())).isEmpty();
+  }
+
+  @Test
+  public void flush_scheduled_before_latest_change_does_not_reschedule() {
+    LiveMeasureRefreshQueue underTest = newStartedQueue();
+
+    underTest.enqueue(singletonList(newIssue("I1")), singletonList(file1));
+    system2.setNow(1_200L);
+    underTest.enqueue(singletonList(newIssue("I2")), singletonList(file2));
+    List<Runnable> flushes = verifySchedules(2, 500L);
+
+    system2.setNow(1_500L);
+    flushes.get(0).run();
+    verifyZeroInteractions(liveMeasureComputer);
+    verifySchedules(2);
+
+    system2.setNow(1_700L);
+    flushes.get(1).run();
+    verify(liveMeasureComputer).refresh(any(), anyList());
+    verifySchedules(2);
+  }
+
+  @Test
+  public void flush_executed_before_due_date_is_rescheduled_once() {
+    LiveMeasureRefreshQueue underTest = newStartedQueue();
+
+    underTest.enqueue(singletonList(newIssue("I1")), singletonList(file1));
+    Runnable flush = verifySchedules(1, 500L).get(0);
+
+    // clock of scheduler is ahead of System2
+    system2.setNow(1_499L);
+    flush.run();
+    Runnable rescheduledFlush = verifySchedules(2, 1L).get(1);
+    verifyZeroInteractions(liveMeasureComputer);
+
+    system2.setNow(1_500L);
+    rescheduledFlush.run();
+    verify(liveMeasureComputer).refresh(any(), anyList());
+    verifySchedules(2);
+  }
+
+  @Test
+  public void failed_refresh_is_retried_later() {
+    LiveMeasureRefreshQueue underTest = newStartedQueue();
+    List<QGChangeEvent> events = singletonList(mock(QGChangeEvent.class));
+    when(liveMeasureComputer.refresh(any(), anyList()))
+      .thenThrow(new IllegalStateException("BOOM"))
+      .thenReturn(events);
+
+    underTest.enqueue(singletonList(newIssue("I1")), singletonList(file1));
+    system2.setNow(1_500L);
+    verifySchedules(1).get(0).run();
+
+    verifyZeroInteractions(qualityGateListeners);
+    assertThat(underTest.getPendingRefresh(project.uuid())).isPresent();
+    Runnable retry = verifySchedules(2, 500L).get(1);
+
+    system2.setNow(2_000L);
+    retry.run();
+    verify(liveMeasureComputer, times(2)).refresh(any(), anyList());
+    verify(qualityGateListeners).broadcastOnIssueChange(argThat(issues -> issues.size() == 1), eq(events));
+    assertThat(underTest.getPendingRefresh(project.uuid())).isEmpty();
+  }
+
+  @Test
+  public void failed_refresh_is_retried_with_increasing_delay_until_max_attempts() {
+    LiveMeasureRefreshQueue underTest = newStartedQueue();
+    when(liveMeasureComputer.refresh(any(), anyList())).thenThrow(new IllegalStateException("BOOM"));
+
+    underTest.enqueue(singletonList(newIssue("I1")), singletonList(file1));
+    long now = 1_500L;
+    for (int attempt = 1; attempt <= LiveMeasureRefreshQueue.MAX_REFRESH_ATTEMPTS; attempt++) {
+      system2.setNow(now);
+      List<Runnable> flushes = verifySchedules(attempt);
+      flushes.get(attempt - 1).run();
+      now += Math.min(2_000L, 500L << (attempt - 1));
+    }
+
+    verify(liveMeasureComputer, times(LiveMeasureRefreshQueue.MAX_REFRESH_ATTEMPTS)).refresh(any(), anyList());
+    verify(executorService).schedule(any(Runnable.class), eq(1_000L), eq(TimeUnit.MILLISECONDS));
+    verify(executorService, times(2)).schedule(any(Runnable.class), eq(2_000L), eq(TimeUnit.MILLISECONDS));
+    verifySchedules(LiveMeasureRefreshQueue.MAX_REFRESH_ATTEMPTS);
+    verifyZeroInteractions(qualityGateListeners);
+    assertThat(underTest.getPendingRefresh(project.uuid())).isEmpty();
+  }
+
+  @Test
+  public void is_disabled_if_delay_is_zero() {
+    settings.setProperty(LiveMeasureRefreshQueue.DELAY_PROPERTY, 0);
+
+    assertThat(newQueue().isEnabled()).isFalse();
+  }
+
+  @Test
+  public void fail_if_delay_is_negative() {
+    settings.setProperty(LiveMeasureRefreshQueue.DELAY_PROPERTY, -1);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.liveMeasures.refreshDelayInMilliseconds must be >= 0, got -1");
+
+    newQueue();
+  }
+
+  @Test
+  public void fail_if_max_delay_is_lower_than_delay() {
+    settings.setProperty(LiveMeasureRefreshQueue.MAX_DELAY_PROPERTY, 100);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.liveMeasures.refreshMaxDelayInMilliseconds must be >= 500, got 100");
+
+    newQueue();
+  }
+
+  private LiveMeasureRefreshQueue newQueue() {
+    when(dbClient.openSession(false)).thenReturn(mock(DbSession.class));
+    when(dbClient.componentDao()).thenReturn(componentDao);
+    return new LiveMeasureRefreshQueue(dbClient, liveMeasureComputer, qualityGateListeners, settings.asConfig(), system2, () -> executorService);
+  }
+
+  private LiveMeasureRefreshQueue newStartedQueue() {
+    LiveMeasureRefreshQueue underTest = newQueue();
+    underTest.start();
+    return underTest;
+  }
+
+  /**
+   * @return the flushes scheduled so far, the last one being scheduled after {@code lastDelay} milliseconds
+   */
+  private List<Runnable> verifySchedules(int count, long lastDelay) {
+    ArgumentCaptor<Long> delays = ArgumentCaptor.forClass(Long.class);
+    List<Runnable> flushes = verifySchedules(count, delays);
+    assertThat(delays.getValue()).isEqualTo(lastDelay);
+    return flushes;
+  }
+
+  private List<Runnable> verifySchedules(int count) {
+    return verifySchedules(count, ArgumentCaptor.forClass(Long.class));
+  }
+
+  private List<Runnable> verifySchedules(int count, ArgumentCaptor<Long> delays) {
+    ArgumentCaptor<Runnable> flushes = ArgumentCaptor.forClass(Runnable.class);
+    verify(executorService, times(count)).schedule(flushes.capture(), delays.capture(), eq(TimeUnit.MILLISECONDS));
+    return flushes.getAllValues();
+  }
+
+  private DefaultIssue newIssue(String key) {
+    return newIssue(key, project);
+  }
+
+  private static DefaultIssue newIssue(String key, ComponentDto branch) {
+    return new DefaultIssue().setKey(key).setProjectUuid(branch.uuid());
+  }
+}
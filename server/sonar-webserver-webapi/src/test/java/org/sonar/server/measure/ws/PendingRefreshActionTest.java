@@ -0,0 +1,113 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.ws;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.impl.utils.TestSystem2;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.web.UserRole;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.server.component.TestComponentFinder;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.measure.live.LiveMeasureComputer;
+import org.sonar.server.measure.live.LiveMeasureRefreshQueue;
+import org.sonar.server.qualitygate.changeevent.QGChangeEventListeners;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.WsActionTester;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.sonar.api.utils.DateUtils.formatDateTime;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_COMPONENT;
+import static org.sonar.test.JsonAssert.assertJson;
+
+public class PendingRefreshActionTest {
+
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public DbTester db = DbTester.create();
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_500_000_000_000L);
+  private LiveMeasureRefreshQueue refreshQueue = new LiveMeasureRefreshQueue(db.getDbClient(), mock(LiveMeasureComputer.class),
+    mock(QGChangeEventListeners.class), new MapSettings().asConfig(), system2);
+  private WsActionTester ws = new WsActionTester(new PendingRefreshAction(db.getDbClient(), TestComponentFinder.from(db), userSession, refreshQueue));
+
+  @Test
+  public void definition() {
+    WebService.Action definition = ws.getDef();
+
+    assertThat(definition.key()).isEqualTo("pending_refresh");
+    assertThat(definition.isInternal()).isTrue();
+    assertThat(definition.isPost()).isFalse();
+    assertThat(definition.since()).isEqualTo("8.4");
+    assertThat(definition.params()).extracting(WebService.Param::key).containsExactlyInAnyOrder("component", "branch", "pullRequest");
+  }
+
+  @Test
+  public void no_pending_refresh() {
+    ComponentDto project = db.components().insertPrivateProject();
+    userSession.addProjectPermission(UserRole.USER, project);
+
+    String json = ws.newRequest().setParam(PARAM_COMPONENT, project.getKey()).execute().getInput();
+
+    assertJson(json).isSimilarTo("{\"pending\": false}");
+  }
+
+  @Test
+  public void return_pending_refresh_of_project() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    userSession.addProjectPermission(UserRole.USER, project);
+    refreshQueue.enqueue(singletonList(new DefaultIssue().setKey("I1").setProjectUuid(project.uuid())), singletonList(file));
+
+    String json = ws.newRequest().setParam(PARAM_COMPONENT, project.getKey()).execute().getInput();
+
+    assertJson(json).isSimilarTo("{" +
+      "\"pending\": true," +
+      "\"since\": \"" + formatDateTime(system2.now()) + "\"," +
+      "\"components\": 1," +
+      "\"issues\": 1" +
+      "}");
+  }
+
+  @Test
+  public void fail_if_not_allowed_to_browse_project() {
+    ComponentDto project = db.components().insertPrivateProject();
+
+    expectedException.expect(ForbiddenException.class);
+
+    ws.newRequest().setParam(PARAM_COMPONENT, project.getKey()).execute();
+  }
+
+  @Test
+  public void test_example() {
+    assertJson(ws.getDef().responseExampleAsString()).isSimilarTo("{\"pending\": true}");
+  }
+}
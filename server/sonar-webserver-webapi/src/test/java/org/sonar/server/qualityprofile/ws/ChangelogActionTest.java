@@ -43,6 +43,7 @@ import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.qualityprofile.ActiveRuleChange;
 import org.sonar.server.qualityprofile.ActiveRuleInheritance;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.ws.WsActionTester;
 
@@ -70,7 +71,7 @@ public class ChangelogActionTest {
 
   private QProfileWsSupport wsSupport = new QProfileWsSupport(db.getDbClient(), userSession, TestDefaultOrganizationProvider.from(db));
   private WsActionTester ws = new WsActionTester(
-    new ChangelogAction(wsSupport, new Languages(), db.getDbClient()));
+    new ChangelogAction(wsSupport, new Languages(), db.getDbClient(), new RuleDefinitionCache(db.getDbClient())));
 
   @Test
   public void return_change_with_all_fields() {
@@ -48,6 +48,7 @@ import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.language.LanguageTesting;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.qualityprofile.QProfileComparison;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.ws.WsActionTester;
 
@@ -72,7 +73,7 @@ public class CompareActionTest {
 
   private WsActionTester ws = new WsActionTester(
     new CompareAction(db.getDbClient(), new QProfileComparison(db.getDbClient()), new Languages(LanguageTesting.newLanguage("xoo", "Xoo")),
-      new QProfileWsSupport(db.getDbClient(), userSession, TestDefaultOrganizationProvider.from(db))));
+      new QProfileWsSupport(db.getDbClient(), userSession, TestDefaultOrganizationProvider.from(db)), new RuleDefinitionCache(db.getDbClient())));
 
   @Test
   public void compare_nominal() {
@@ -76,7 +76,7 @@ public class RuleCreatorTest {
   private UuidFactory uuidFactory = new SequenceUuidFactory();
 
   private RuleCreator underTest = new RuleCreator(system2, new RuleIndexer(es.client(), dbTester.getDbClient()), dbTester.getDbClient(), newFullTypeValidations(),
-    TestDefaultOrganizationProvider.from(dbTester), uuidFactory);
+    TestDefaultOrganizationProvider.from(dbTester), uuidFactory, new RuleDefinitionCache(dbTester.getDbClient()));
 
   @Test
   public void create_custom_rule() {
@@ -84,7 +84,9 @@ public class RuleUpdaterTest {
   private RuleIndexer ruleIndexer = new RuleIndexer(es.client(), db.getDbClient());
   private DbSession dbSession = db.getSession();
 
-  private RuleUpdater underTest = new RuleUpdater(db.getDbClient(), ruleIndexer, system2);
+  private RuleDefinitionCache ruleDefinitionCache = new RuleDefinitionCache(db.getDbClient());
+
+  private RuleUpdater underTest = new RuleUpdater(db.getDbClient(), ruleIndexer, system2, ruleDefinitionCache);
 
   @Test
   public void do_not_update_rule_with_removed_status() {
@@ -210,6 +212,21 @@ public class RuleUpdaterTest {
     assertThat(tags).containsExactly("bug", "java8", "javadoc");
   }
 
+  @Test
+  public void update_invalidates_cache_of_rule_definitions() {
+    db.rules().insert(RuleTesting.newDto(RULE_KEY, db.getDefaultOrganization()).setSystemTags(Sets.newHashSet("java8")).getDefinition());
+    dbSession.commit();
+    assertThat(ruleDefinitionCache.getByKey(dbSession, RULE_KEY)).isPresent();
+
+    RuleUpdate update = createForPluginRule(RULE_KEY)
+      .setTags(Sets.newHashSet("bug"))
+      .setOrganization(db.getDefaultOrganization());
+    underTest.update(dbSession, update, db.getDefaultOrganization(), userSessionRule);
+
+    assertThat(ruleDefinitionCache.size()).isZero();
+    assertThat(ruleDefinitionCache.getInvalidationCount()).isEqualTo(1);
+  }
+
   @Test
   public void remove_tags() {
     RuleDto ruleDto = RuleTesting.newDto(RULE_KEY, db.getDefaultOrganization())
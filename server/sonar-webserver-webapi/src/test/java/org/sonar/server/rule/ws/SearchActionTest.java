@@ -55,6 +55,7 @@ import org.sonar.server.qualityprofile.QProfileRulesImpl;
 import org.sonar.server.qualityprofile.RuleActivation;
 import org.sonar.server.qualityprofile.RuleActivator;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.rule.index.RuleIndex;
 import org.sonar.server.rule.index.RuleIndexer;
 import org.sonar.server.tester.UserSessionRule;
@@ -116,8 +117,9 @@ public class SearchActionTest {
   private RuleQueryFactory ruleQueryFactory = new RuleQueryFactory(db.getDbClient(), wsSupport);
   private MacroInterpreter macroInterpreter = mock(MacroInterpreter.class);
   private RuleMapper ruleMapper = new RuleMapper(languages, macroInterpreter);
+  private RuleDefinitionCache ruleDefinitionCache = new RuleDefinitionCache(db.getDbClient());
   private SearchAction underTest = new SearchAction(ruleIndex, activeRuleCompleter, ruleQueryFactory, db.getDbClient(), ruleMapper,
-    new RuleWsSupport(db.getDbClient(), userSession, defaultOrganizationProvider));
+    new RuleWsSupport(db.getDbClient(), userSession, defaultOrganizationProvider), ruleDefinitionCache);
   private TypeValidations typeValidations = new TypeValidations(asList(new StringTypeValidation(), new IntegerTypeValidation()));
   private RuleActivator ruleActivator = new RuleActivator(System2.INSTANCE, db.getDbClient(), typeValidations, userSession);
   private QProfileRules qProfileRules = new QProfileRulesImpl(db.getDbClient(), ruleActivator, ruleIndex, activeRuleIndexer);
@@ -628,6 +630,26 @@ public class SearchActionTest {
     assertThat(searchedRule.getTemplateKey()).isEqualTo(templateRule.getRepositoryKey() + ":" + templateRule.getRuleKey());
   }
 
+  @Test
+  public void template_rules_are_read_through_the_cache_of_rule_definitions() {
+    RuleDefinitionDto templateRule = db.rules().insert(r -> r.setLanguage("java")
+      .setIsTemplate(true));
+    db.rules().insert(r -> r.setLanguage("java")
+      .setTemplateUuid(templateRule.getUuid()));
+    indexRules();
+
+    for (int i = 0; i < 2; i++) {
+      SearchResponse result = ws.newRequest()
+        .setParam("f", "templateKey")
+        .setParam("template_key", templateRule.getRepositoryKey() + ":" + templateRule.getRuleKey())
+        .executeProtobuf(SearchResponse.class);
+      assertThat(result.getRules(0).getTemplateKey()).isEqualTo(templateRule.getRepositoryKey() + ":" + templateRule.getRuleKey());
+    }
+
+    assertThat(ruleDefinitionCache.getMissCount()).isEqualTo(1);
+    assertThat(ruleDefinitionCache.getHitCount()).isEqualTo(1);
+  }
+
   @Test
   public void do_not_return_external_rule() {
     db.rules().insert(r -> r.setIsExternal(true));
@@ -40,6 +40,7 @@ import org.sonar.db.rule.RuleParamDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.text.MacroInterpreter;
 import org.sonar.server.ws.WsActionTester;
@@ -83,7 +84,8 @@ public class ShowActionTest {
   private WsActionTester ws = new WsActionTester(
     new ShowAction(db.getDbClient(), new RuleMapper(languages, macroInterpreter),
       new ActiveRuleCompleter(db.getDbClient(), languages),
-      new RuleWsSupport(db.getDbClient(), userSession, TestDefaultOrganizationProvider.from(db))));
+      new RuleWsSupport(db.getDbClient(), userSession, TestDefaultOrganizationProvider.from(db)),
+      new RuleDefinitionCache(db.getDbClient())));
 
   @Before
   public void before() {
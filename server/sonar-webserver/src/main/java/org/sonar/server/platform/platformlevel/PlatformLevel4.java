@@ -168,8 +168,10 @@ import org.sonar.server.qualityprofile.RuleActivator;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
 import org.sonar.server.qualityprofile.ws.QProfilesWsModule;
 import org.sonar.server.root.ws.RootWsModule;
+import org.sonar.server.rule.ClusterRuleDefinitionCacheListener;
 import org.sonar.server.rule.CommonRuleDefinitionsImpl;
 import org.sonar.server.rule.RuleCreator;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.rule.RuleDefinitionsLoader;
 import org.sonar.server.rule.RuleUpdater;
 import org.sonar.server.rule.WebServerRuleFinderImpl;
@@ -240,7 +242,8 @@ public class PlatformLevel4 extends PlatformLevel {
       MetadataIndexImpl.class,
       EsDbCompatibilityImpl.class);
 
-    addIfCluster(NodeHealthModule.class);
+    addIfCluster(NodeHealthModule.class,
+      ClusterRuleDefinitionCacheListener.class);
 
     add(
       ClusterVerification.class,
@@ -295,6 +298,7 @@ public class PlatformLevel4 extends PlatformLevel {
       AnnotationRuleParser.class,
       XMLRuleParser.class,
       WebServerRuleFinderImpl.class,
+      RuleDefinitionCache.class,
       RuleDefinitionsLoader.class,
       CommonRuleDefinitionsImpl.class,
       RulesDefinitionXmlLoader.class,
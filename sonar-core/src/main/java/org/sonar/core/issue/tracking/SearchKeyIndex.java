@@ -0,0 +1,117 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing index of positions by search key hash, backed by primitive arrays.
+ * <p>
+ * Positions having the same hash are chained in the order they are added and can be removed from their chain. The
+ * arrays are sized once for a given number of positions and are reused after {@link #clear()}.
+ */
+final class SearchKeyIndex {
+  static final int NONE = -1;
+
+  private final int mask;
+  private final boolean[] occupiedSlots;
+  private final long[] slotHashes;
+  private final int[] slotFirsts;
+  private final int[] slotLasts;
+  private final int[] slots;
+  private final int[] previous;
+  private final int[] next;
+
+  SearchKeyIndex(int positionCount) {
+    int tableSize = Integer.highestOneBit(Math.max(1, positionCount) * 2 - 1) << 1;
+    this.mask = tableSize - 1;
+    this.occupiedSlots = new boolean[tableSize];
+    this.slotHashes = new long[tableSize];
+    this.slotFirsts = new int[tableSize];
+    this.slotLasts = new int[tableSize];
+    this.slots = new int[positionCount];
+    this.previous = new int[positionCount];
+    this.next = new int[positionCount];
+    clear();
+  }
+
+  void clear() {
+    Arrays.fill(occupiedSlots, false);
+    Arrays.fill(slotFirsts, NONE);
+  }
+
+  void add(long hash, int position) {
+    int slot = slotOf(hash);
+    occupiedSlots[slot] = true;
+    slotHashes[slot] = hash;
+    if (slotFirsts[slot] == NONE) {
+      slotFirsts[slot] = position;
+      previous[position] = NONE;
+    } else {
+      next[slotLasts[slot]] = position;
+      previous[position] = slotLasts[slot];
+    }
+    slotLasts[slot] = position;
+    next[position] = NONE;
+    slots[position] = slot;
+  }
+
+  /**
+   * @return the first position added with the given hash and not removed, or {@link #NONE}
+   */
+  int first(long hash) {
+    return slotFirsts[slotOf(hash)];
+  }
+
+  /**
+   * @return the position following the given one in its chain, or {@link #NONE}
+   */
+  int next(int position) {
+    return next[position];
+  }
+
+  /**
+   * Removes the position from its chain. The slot of an emptied chain stays occupied so that probing of other hashes
+   * is not broken.
+   */
+  void remove(int position) {
+    int slot = slots[position];
+    int before = previous[position];
+    int after = next[position];
+    if (before == NONE) {
+      slotFirsts[slot] = after;
+    } else {
+      next[before] = after;
+    }
+    if (after == NONE) {
+      slotLasts[slot] = before;
+    } else {
+      previous[after] = before;
+    }
+  }
+
+  private int slotOf(long hash) {
+    int slot = (int) hash & mask;
+    while (occupiedSlots[slot] && slotHashes[slot] != hash) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.stream.IntStream;
+import javax.annotation.CheckForNull;
+import org.sonar.core.issue.tracking.AbstractTracker.SearchKey;
+
+import static java.util.Comparator.nullsLast;
+
+/**
+ * Matches the unmatched raw and base issues of a {@link Tracking} which have the same {@link SearchKey}.
+ * <p>
+ * The fields of the issues and the index of base issues are computed on the first call to {@link #match(SearchKey)}
+ * and are reused by the following calls, which are expected to be made with different search keys on the same
+ * tracking.
+ */
+class SearchKeyMatcher<RAW extends Trackable, BASE extends Trackable> {
+  private static final Comparator<Date> MOST_RECENT_FIRST = nullsLast(Comparator.<Date>naturalOrder().reversed());
+
+  private final Tracking<RAW, BASE> tracking;
+
+  @CheckForNull
+  private TrackableSearchKeys<RAW> raws;
+  @CheckForNull
+  private TrackableSearchKeys<BASE> bases;
+  @CheckForNull
+  private int[] basesByUpdateDate;
+  @CheckForNull
+  private SearchKeyIndex baseIndex;
+
+  SearchKeyMatcher(Tracking<RAW, BASE> tracking) {
+    this.tracking = tracking;
+  }
+
+  void match(SearchKey searchKey) {
+    if (tracking.isComplete()) {
+      return;
+    }
+    init();
+
+    baseIndex.clear();
+    for (int basePosition : basesByUpdateDate) {
+      if (tracking.containsUnmatchedBase(bases.get(basePosition))) {
+        baseIndex.add(bases.hash(basePosition, searchKey), basePosition);
+      }
+    }
+
+    for (int rawPosition = 0; rawPosition < raws.size(); rawPosition++) {
+      RAW raw = raws.get(rawPosition);
+      if (tracking.baseFor(raw) == null) {
+        int basePosition = baseIndex.first(raws.hash(rawPosition, searchKey));
+        while (basePosition != SearchKeyIndex.NONE && !bases.sameKey(basePosition, raws, rawPosition, searchKey)) {
+          basePosition = baseIndex.next(basePosition);
+        }
+        if (basePosition != SearchKeyIndex.NONE) {
+          tracking.match(raw, bases.get(basePosition));
+          baseIndex.remove(basePosition);
+        }
+      }
+    }
+  }
+
+  private void init() {
+    if (raws != null) {
+      return;
+    }
+    raws = new TrackableSearchKeys<>(tracking.getRaws());
+    TrackableSearchKeys<BASE> baseKeys = new TrackableSearchKeys<>(tracking.getBases());
+    bases = baseKeys;
+    // Choose the more recently updated issue first to get the latest changes in siblings. Sort is stable so that
+    // issues updated at the same date are chosen in their original order.
+    basesByUpdateDate = IntStream.range(0, baseKeys.size())
+      .boxed()
+      .sorted(Comparator.comparing(position -> baseKeys.get(position).getUpdateDate(), MOST_RECENT_FIRST))
+      .mapToInt(Integer::intValue)
+      .toArray();
+    baseIndex = new SearchKeyIndex(baseKeys.size());
+  }
+}
@@ -29,12 +29,13 @@ public class SimpleTracker<RAW extends Trackable, BASE extends Trackable> extend
 
   public Tracking<RAW, BASE> track(Collection<RAW> rawInput, Collection<BASE> baseInput) {
     Tracking<RAW, BASE> tracking = new Tracking<>(rawInput, baseInput);
+    SearchKeyMatcher<RAW, BASE> matcher = newMatcher(tracking);
 
     // 1. match issues with same rule, same line and same line hash, but not necessarily with same message
-    match(tracking, LineAndLineHashKey::new);
+    matcher.match(SearchKey.LINE_AND_LINE_HASH);
 
     // 2. match issues with same rule, same message and same line hash
-    match(tracking, LineHashAndMessageKey::new);
+    matcher.match(SearchKey.LINE_HASH_AND_MESSAGE);
 
     return tracking;
   }
@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.issue.tracking.AbstractTracker.SearchKey;
+
+/**
+ * The fields of a list of {@link Trackable} which are used by {@link SearchKey}, read once and stored in arrays
+ * indexed by the position of the {@link Trackable} in the list.
+ * <p>
+ * The hash of a search key is packed into a {@code long} from the pre-computed hashes of its fields, so no object is
+ * allocated when searching. Two different keys may have the same hash: {@link #sameKey(int, TrackableSearchKeys, int, SearchKey)}
+ * must be checked before matching.
+ */
+final class TrackableSearchKeys<T extends Trackable> {
+  private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  private final List<T> trackables;
+  private final RuleKey[] ruleKeys;
+  private final Integer[] lines;
+  private final String[] lineHashes;
+  private final String[] messages;
+  private final int[] ruleKeyHashes;
+  private final int[] lineHashHashes;
+  private final int[] messageHashes;
+
+  TrackableSearchKeys(Collection<T> trackables) {
+    this.trackables = new ArrayList<>(trackables);
+    int size = this.trackables.size();
+    this.ruleKeys = new RuleKey[size];
+    this.lines = new Integer[size];
+    this.lineHashes = new String[size];
+    this.messages = new String[size];
+    this.ruleKeyHashes = new int[size];
+    this.lineHashHashes = new int[size];
+    this.messageHashes = new int[size];
+    for (int i = 0; i < size; i++) {
+      T trackable = this.trackables.get(i);
+      ruleKeys[i] = trackable.getRuleKey();
+      lines[i] = trackable.getLine();
+      lineHashes[i] = StringUtils.defaultString(trackable.getLineHash(), "");
+      messages[i] = trackable.getMessage();
+      ruleKeyHashes[i] = ruleKeys[i].hashCode();
+      lineHashHashes[i] = lineHashes[i].hashCode();
+      messageHashes[i] = Objects.hashCode(messages[i]);
+    }
+  }
+
+  int size() {
+    return trackables.size();
+  }
+
+  T get(int position) {
+    return trackables.get(position);
+  }
+
+  long hash(int position, SearchKey searchKey) {
+    long hash = ruleKeyHashes[position];
+    if (searchKey.hasLine()) {
+      Integer line = lines[position];
+      hash = combine(hash, line == null ? 0 : line);
+    }
+    if (searchKey.hasLineHash()) {
+      hash = combine(hash, lineHashHashes[position]);
+    }
+    if (searchKey.hasMessage()) {
+      hash = combine(hash, messageHashes[position]);
+    }
+    return hash ^ (hash >>> 29);
+  }
+
+  boolean sameKey(int position, TrackableSearchKeys<?> other, int otherPosition, SearchKey searchKey) {
+    // start with most discriminant field
+    return (!searchKey.hasLine() || Objects.equals(lines[position], other.lines[otherPosition]))
+      && (!searchKey.hasLineHash() || lineHashes[position].equals(other.lineHashes[otherPosition]))
+      && (!searchKey.hasMessage() || Objects.equals(messages[position], other.messages[otherPosition]))
+      && ruleKeys[position].equals(other.ruleKeys[otherPosition]);
+  }
+
+  private static long combine(long hash, int value) {
+    return (hash ^ value) * MULTIPLIER;
+  }
+}
@@ -73,6 +73,14 @@ public class Tracking<RAW extends Trackable, BASE extends Trackable> {
     return bases.stream().filter(base -> !baseToRaw.containsKey(base));
   }
 
+  Collection<RAW> getRaws() {
+    return raws;
+  }
+
+  Collection<BASE> getBases() {
+    return bases;
+  }
+
   boolean containsUnmatchedBase(BASE base) {
     return !baseToRaw.containsKey(base);
   }
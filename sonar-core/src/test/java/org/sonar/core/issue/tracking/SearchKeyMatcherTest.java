@@ -0,0 +1,223 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.issue.tracking.AbstractTracker.SearchKey;
+
+import static java.util.Comparator.comparing;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchKeyMatcherTest {
+  private static final SearchKey[] TRACKER_SEARCH_KEYS = {
+    SearchKey.LINE_AND_LINE_HASH_AND_MESSAGE,
+    SearchKey.LINE_AND_LINE_HASH,
+    SearchKey.LINE_HASH_AND_MESSAGE,
+    SearchKey.LINE_AND_MESSAGE,
+    SearchKey.LINE_HASH
+  };
+
+  private final Random random = new Random(42);
+
+  @Test
+  public void match_same_issues_as_search_in_multimap() {
+    for (int i = 0; i < 500; i++) {
+      List<FakeTrackable> raws = randomTrackables(random.nextInt(30));
+      List<FakeTrackable> bases = randomTrackables(random.nextInt(30));
+
+      Tracking<FakeTrackable, FakeTrackable> tracking = new Tracking<>(raws, bases);
+      SearchKeyMatcher<FakeTrackable, FakeTrackable> underTest = new SearchKeyMatcher<>(tracking);
+      Tracking<FakeTrackable, FakeTrackable> expected = new Tracking<>(raws, bases);
+      for (SearchKey searchKey : TRACKER_SEARCH_KEYS) {
+        underTest.match(searchKey);
+        matchInMultimap(expected, searchKey);
+      }
+
+      assertThat(tracking.getMatchedRaws()).isEqualTo(expected.getMatchedRaws());
+    }
+  }
+
+  @Test
+  public void match_does_not_change_matches_made_before() {
+    FakeTrackable raw = new FakeTrackable(1, "h1", "msg", 1);
+    FakeTrackable base1 = new FakeTrackable(1, "h1", "msg", 1);
+    FakeTrackable base2 = new FakeTrackable(1, "h1", "msg", 2);
+    Tracking<FakeTrackable, FakeTrackable> tracking = new Tracking<>(Arrays.asList(raw), Arrays.asList(base1, base2));
+    tracking.match(raw, base1);
+
+    new SearchKeyMatcher<>(tracking).match(SearchKey.LINE_AND_LINE_HASH_AND_MESSAGE);
+
+    assertThat(tracking.baseFor(raw)).isSameAs(base1);
+  }
+
+  @Test
+  public void match_the_most_recently_updated_base_first() {
+    FakeTrackable raw1 = new FakeTrackable(1, "h1", "msg", 1);
+    FakeTrackable raw2 = new FakeTrackable(1, "h1", "msg", 1);
+    FakeTrackable base1 = new FakeTrackable(1, "h1", "msg", 1);
+    FakeTrackable base2 = new FakeTrackable(1, "h1", "msg", 2);
+    Tracking<FakeTrackable, FakeTrackable> tracking = new Tracking<>(Arrays.asList(raw1, raw2), Arrays.asList(base1, base2));
+
+    new SearchKeyMatcher<>(tracking).match(SearchKey.LINE_AND_LINE_HASH_AND_MESSAGE);
+
+    assertThat(tracking.baseFor(raw1)).isSameAs(base2);
+    assertThat(tracking.baseFor(raw2)).isSameAs(base1);
+  }
+
+  @Test
+  public void index_chains_positions_having_the_same_hash_in_order() {
+    SearchKeyIndex underTest = new SearchKeyIndex(3);
+    underTest.add(12L, 0);
+    underTest.add(12L, 1);
+    underTest.add(12L, 2);
+
+    underTest.remove(1);
+
+    assertThat(underTest.first(12L)).isZero();
+    assertThat(underTest.next(0)).isEqualTo(2);
+    assertThat(underTest.next(2)).isEqualTo(SearchKeyIndex.NONE);
+    assertThat(underTest.first(13L)).isEqualTo(SearchKeyIndex.NONE);
+  }
+
+  @Test
+  public void index_finds_colliding_hash_after_the_chain_of_another_hash_is_emptied() {
+    SearchKeyIndex underTest = new SearchKeyIndex(2);
+    // table has 4 slots, both hashes start probing at slot 0
+    underTest.add(0L, 0);
+    underTest.add(4L, 1);
+
+    underTest.remove(0);
+
+    assertThat(underTest.first(0L)).isEqualTo(SearchKeyIndex.NONE);
+    assertThat(underTest.first(4L)).isEqualTo(1);
+  }
+
+  @Test
+  public void index_can_be_reused_after_clear() {
+    SearchKeyIndex underTest = new SearchKeyIndex(2);
+    underTest.add(0L, 0);
+    underTest.add(4L, 1);
+
+    underTest.clear();
+    underTest.add(4L, 0);
+
+    assertThat(underTest.first(0L)).isEqualTo(SearchKeyIndex.NONE);
+    assertThat(underTest.first(4L)).isZero();
+    assertThat(underTest.next(0)).isEqualTo(SearchKeyIndex.NONE);
+  }
+
+  /**
+   * Straightforward implementation of the matching, used as a reference.
+   */
+  private static void matchInMultimap(Tracking<FakeTrackable, FakeTrackable> tracking, SearchKey searchKey) {
+    if (tracking.isComplete()) {
+      return;
+    }
+    Multimap<List<Object>, FakeTrackable> baseSearch = ArrayListMultimap.create();
+    tracking.getUnmatchedBases().forEach(base -> baseSearch.put(keyOf(base, searchKey), base));
+    tracking.getUnmatchedRaws().forEach(raw -> {
+      List<Object> rawKey = keyOf(raw, searchKey);
+      baseSearch.get(rawKey).stream()
+        .sorted(comparing(Trackable::getUpdateDate).reversed())
+        .findFirst()
+        .ifPresent(match -> {
+          tracking.match(raw, match);
+          baseSearch.remove(rawKey, match);
+        });
+    });
+  }
+
+  private static List<Object> keyOf(Trackable trackable, SearchKey searchKey) {
+    return Arrays.asList(
+      trackable.getRuleKey(),
+      searchKey.hasLine() ? trackable.getLine() : null,
+      searchKey.hasLineHash() ? StringUtils.defaultString(trackable.getLineHash(), "") : null,
+      searchKey.hasMessage() ? trackable.getMessage() : null);
+  }
+
+  private List<FakeTrackable> randomTrackables(int count) {
+    List<FakeTrackable> trackables = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      FakeTrackable trackable = new FakeTrackable(
+        random.nextInt(4) == 0 ? null : random.nextInt(4),
+        random.nextInt(4) == 0 ? null : ("h" + random.nextInt(3)),
+        "msg" + random.nextInt(3),
+        random.nextInt(3));
+      trackable.ruleKey = RuleKey.of("java", "S" + random.nextInt(2));
+      trackables.add(trackable);
+    }
+    return trackables;
+  }
+
+  private static class FakeTrackable implements Trackable {
+    private final Integer line;
+    private final String lineHash;
+    private final String message;
+    private final Date updateDate;
+    private RuleKey ruleKey = RuleKey.of("java", "S1");
+
+    private FakeTrackable(@Nullable Integer line, @Nullable String lineHash, String message, long updateDate) {
+      this.line = line;
+      this.lineHash = lineHash;
+      this.message = message;
+      this.updateDate = new Date(updateDate);
+    }
+
+    @Override
+    public Integer getLine() {
+      return line;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String getLineHash() {
+      return lineHash;
+    }
+
+    @Override
+    public RuleKey getRuleKey() {
+      return ruleKey;
+    }
+
+    @Override
+    public String getStatus() {
+      return "OPEN";
+    }
+
+    @Override
+    public Date getUpdateDate() {
+      return updateDate;
+    }
+  }
+}
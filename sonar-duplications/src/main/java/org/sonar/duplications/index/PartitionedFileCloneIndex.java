@@ -0,0 +1,560 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+
+/**
+ * Provides an index which keeps blocks on disk, so that the heap used by the detection of duplications does not
+ * depend on the size of the project.
+ * <p>
+ * During insertion, blocks are appended to a log grouped by resource and to a partition selected by the first bits of
+ * their hash. On the first query the partitions are sorted by hash, one at a time, and written back to their files.
+ * From then on the index is read-only: insertion is not allowed anymore, and queries can be executed concurrently.
+ * </p>
+ * <p>
+ * Files are read with positional reads rather than memory-mapped, so that they are released by {@link #close()}
+ * instead of when mappings are garbage collected. Only the identifiers of resources and the hash of the first block
+ * of each page of {@link #PAGE_BLOCKS} blocks of partitions are kept in heap, so that a query reads a single page
+ * in most cases.
+ * </p>
+ * <p>
+ * Threads which query the index must not be interrupted: the channels of the files are shared, and an interrupted
+ * read closes them for all threads.
+ * </p>
+ */
+public class PartitionedFileCloneIndex extends AbstractCloneIndex implements Closeable {
+
+  public static final int DEFAULT_PARTITION_BITS = 6;
+
+  private static final int BLOCK_INTS = 5;
+  private static final int PAGE_BLOCKS = 64;
+  private static final int BUFFER_SIZE = 16 * 1024;
+  private static final String LOG_FILENAME = "blocks";
+  private static final String PARTITION_FILENAME_PREFIX = "partition-";
+
+  private final Path dir;
+  private final int hashInts;
+  private final int partitionBits;
+
+  /**
+   * Number of ints of a block in the log: hash and block fields
+   */
+  private final int logBlockInts;
+
+  /**
+   * Number of ints of a block in a partition: hash, index of resource and block fields
+   */
+  private final int partitionBlockInts;
+
+  private final List<String> resourceIds = new ArrayList<>();
+  private final Map<String, Integer> resourceIndexes = new HashMap<>();
+
+  /**
+   * For each resource, the segments of the log which contain its blocks, as pairs of (first block, number of blocks)
+   */
+  private final List<List<long[]>> resourceSegments = new ArrayList<>();
+  private int lastResourceIndex = -1;
+
+  private DataOutputStream log;
+  private long logSize;
+  private final DataOutputStream[] partitionOutputs;
+  private final long[] partitionSizes;
+
+  private volatile boolean sealed;
+  private FileChannel logChannel;
+  private Partition[] partitions;
+
+  /**
+   * @param dir existing directory in which the files of the index are created
+   */
+  public PartitionedFileCloneIndex(Path dir) {
+    this(dir, 8, DEFAULT_PARTITION_BITS);
+  }
+
+  /**
+   * @param dir existing directory in which the files of the index are created
+   * @param hashBytes size of hash in bytes
+   * @param partitionBits number of bits of the hash used to select a partition, so there are 2^partitionBits partitions
+   */
+  public PartitionedFileCloneIndex(Path dir, int hashBytes, int partitionBits) {
+    if (partitionBits < 0 || partitionBits > 16) {
+      throw new IllegalArgumentException("Number of partition bits must be between 0 and 16, but got " + partitionBits);
+    }
+    this.dir = dir;
+    this.hashInts = hashBytes / 4;
+    this.partitionBits = partitionBits;
+    this.logBlockInts = hashInts + BLOCK_INTS;
+    this.partitionBlockInts = hashInts + 1 + BLOCK_INTS;
+    this.partitionOutputs = new DataOutputStream[1 << partitionBits];
+    this.partitionSizes = new long[1 << partitionBits];
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that blocks can't be inserted once the index has been queried.</strong>
+   * </p>
+   */
+  @Override
+  public void insert(Block block) {
+    if (sealed) {
+      throw new IllegalStateException("Blocks can't be inserted once the index has been queried");
+    }
+    int[] hash = toHash(block.getBlockHash());
+    int resourceIndex = resourceIndex(block.getResourceId());
+    List<long[]> segments = resourceSegments.get(resourceIndex);
+    if (resourceIndex != lastResourceIndex) {
+      segments.add(new long[] {logSize, 0});
+      lastResourceIndex = resourceIndex;
+    }
+    segments.get(segments.size() - 1)[1]++;
+
+    int partition = partition(hash);
+    try {
+      DataOutputStream logOutput = logOutput();
+      writeInts(logOutput, hash);
+      writeBlock(logOutput, block);
+      logSize++;
+
+      DataOutputStream partitionOutput = partitionOutput(partition);
+      writeInts(partitionOutput, hash);
+      partitionOutput.writeInt(resourceIndex);
+      writeBlock(partitionOutput, block);
+      partitionSizes[partition]++;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write block to index " + dir, e);
+    }
+  }
+
+  private int resourceIndex(String resourceId) {
+    Integer index = resourceIndexes.get(resourceId);
+    if (index == null) {
+      index = resourceIds.size();
+      resourceIds.add(resourceId);
+      resourceIndexes.put(resourceId, index);
+      resourceSegments.add(new ArrayList<>(1));
+    }
+    return index;
+  }
+
+  private DataOutputStream logOutput() throws IOException {
+    if (log == null) {
+      log = newOutput(dir.resolve(LOG_FILENAME));
+    }
+    return log;
+  }
+
+  private DataOutputStream partitionOutput(int partition) throws IOException {
+    DataOutputStream output = partitionOutputs[partition];
+    if (output == null) {
+      output = newOutput(partitionFile(partition));
+      partitionOutputs[partition] = output;
+    }
+    return output;
+  }
+
+  private static DataOutputStream newOutput(Path file) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+  }
+
+  private Path partitionFile(int partition) {
+    return dir.resolve(PARTITION_FILENAME_PREFIX + partition);
+  }
+
+  private static void writeInts(DataOutputStream output, int[] ints) throws IOException {
+    for (int i : ints) {
+      output.writeInt(i);
+    }
+  }
+
+  private static void writeBlock(DataOutputStream output, Block block) throws IOException {
+    output.writeInt(block.getIndexInFile());
+    output.writeInt(block.getStartLine());
+    output.writeInt(block.getEndLine());
+    output.writeInt(block.getStartUnit());
+    output.writeInt(block.getEndUnit());
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Blocks are returned in the order of their insertion.
+   * </p>
+   */
+  @Override
+  public Collection<Block> getByResourceId(String resourceId) {
+    ensureSealed();
+    Integer index = resourceIndexes.get(resourceId);
+    if (index == null) {
+      return Collections.emptyList();
+    }
+    return readBlocks(index);
+  }
+
+  private List<Block> readBlocks(int resourceIndex) {
+    String resourceId = resourceIds.get(resourceIndex);
+    Block.Builder builder = Block.builder();
+    List<Block> result = new ArrayList<>();
+    for (long[] segment : resourceSegments.get(resourceIndex)) {
+      IntBuffer ints = readLog(segment[0], (int) segment[1]);
+      for (int i = 0; i < segment[1]; i++) {
+        int offset = i * logBlockInts;
+        int[] hash = new int[hashInts];
+        for (int j = 0; j < hashInts; j++) {
+          hash[j] = ints.get(offset + j);
+        }
+        result.add(createBlock(builder, ints, offset + hashInts, resourceId, new ByteArray(hash)));
+      }
+    }
+    return result;
+  }
+
+  private IntBuffer readLog(long firstBlock, int blocks) {
+    try {
+      return read(logChannel, firstBlock * logBlockInts * 4, blocks * logBlockInts * 4).asIntBuffer();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read blocks from index " + dir, e);
+    }
+  }
+
+  private ByteBuffer read(FileChannel channel, long position, int bytes) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(bytes);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of index " + dir);
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+    ensureSealed();
+    int[] hash = toHash(sequenceHash);
+    Partition partition = partitions[partition(hash)];
+
+    // blocks with this hash start in the last page whose first hash is lower, or in the first page
+    IntBuffer firstHashes = IntBuffer.wrap(partition.firstHashes);
+    int lower = 0;
+    int upper = partition.pages();
+    while (lower < upper) {
+      int mid = (lower + upper) >>> 1;
+      if (compareHash(firstHashes, mid * hashInts, hash) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+
+    Block.Builder builder = Block.builder();
+    List<Block> result = new ArrayList<>();
+    for (int page = Math.max(0, lower - 1); page < partition.pages(); page++) {
+      IntBuffer ints = partition.readPage(page);
+      for (int offset = 0; offset < ints.limit(); offset += partitionBlockInts) {
+        int compare = compareHash(ints, offset, hash);
+        if (compare > 0) {
+          return result;
+        }
+        if (compare == 0) {
+          // extract block (note that there is no need to extract hash)
+          String resourceId = resourceIds.get(ints.get(offset + hashInts));
+          result.add(createBlock(builder, ints, offset + hashInts + 1, resourceId, sequenceHash));
+        }
+      }
+    }
+    return result;
+  }
+
+  private int compareHash(IntBuffer ints, int offset, int[] hash) {
+    for (int k = 0; k < hashInts; k++) {
+      int compare = Integer.compare(ints.get(offset + k), hash[k]);
+      if (compare != 0) {
+        return compare;
+      }
+    }
+    return 0;
+  }
+
+  private static Block createBlock(Block.Builder builder, IntBuffer ints, int offset, String resourceId, ByteArray hash) {
+    return builder
+      .setResourceId(resourceId)
+      .setBlockHash(hash)
+      .setIndexInFile(ints.get(offset))
+      .setLines(ints.get(offset + 1), ints.get(offset + 2))
+      .setUnit(ints.get(offset + 3), ints.get(offset + 4))
+      .build();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Resources are returned in the order of their insertion, and their blocks are read from disk only when
+   * the iterator reaches them.
+   * </p>
+   */
+  @Override
+  public Iterator<ResourceBlocks> iterator() {
+    ensureSealed();
+    return new ResourceIterator();
+  }
+
+  /**
+   * Identifiers of the resources which have blocks, in the order of their insertion.
+   */
+  public List<String> getResourceIds() {
+    return Collections.unmodifiableList(resourceIds);
+  }
+
+  @Override
+  public int noResources() {
+    return resourceIds.size();
+  }
+
+  private int[] toHash(ByteArray byteHash) {
+    int[] hash = byteHash.toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+    return hash;
+  }
+
+  private int partition(int[] hash) {
+    if (partitionBits == 0) {
+      return 0;
+    }
+    return hash[0] >>> (Integer.SIZE - partitionBits);
+  }
+
+  /**
+   * Flushes the files written during insertion, then sorts the partitions, if not already done.
+   */
+  private void ensureSealed() {
+    if (!sealed) {
+      seal();
+    }
+  }
+
+  private synchronized void seal() {
+    if (sealed) {
+      return;
+    }
+    try {
+      if (log != null) {
+        log.close();
+        log = null;
+        logChannel = FileChannel.open(dir.resolve(LOG_FILENAME), StandardOpenOption.READ);
+      }
+      partitions = new Partition[partitionOutputs.length];
+      for (int i = 0; i < partitionOutputs.length; i++) {
+        partitions[i] = sortPartition(i);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to prepare index " + dir, e);
+    }
+    sealed = true;
+  }
+
+  /**
+   * Sorts the blocks of the partition by hash in heap, and writes them back to the file of the partition. Only one
+   * partition is loaded at a time, then the channel is kept open to answer queries.
+   */
+  private Partition sortPartition(int partition) throws IOException {
+    DataOutputStream output = partitionOutputs[partition];
+    if (output == null) {
+      return new Partition(null, 0, new int[0]);
+    }
+    output.close();
+    partitionOutputs[partition] = null;
+
+    int size = (int) partitionSizes[partition];
+    long bytes = partitionSizes[partition] * partitionBlockInts * 4;
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Partition " + partition + " of index " + dir + " is too big, the number of partitions must be increased");
+    }
+    FileChannel channel = FileChannel.open(partitionFile(partition), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      ByteBuffer buffer = read(channel, 0, (int) bytes);
+      IntBuffer ints = buffer.asIntBuffer();
+      DataUtils.sort(new PartitionSortable(ints, size));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, buffer.position());
+      }
+
+      int[] firstHashes = new int[((size + PAGE_BLOCKS - 1) / PAGE_BLOCKS) * hashInts];
+      for (int page = 0; page * PAGE_BLOCKS < size; page++) {
+        for (int k = 0; k < hashInts; k++) {
+          firstHashes[page * hashInts + k] = ints.get(page * PAGE_BLOCKS * partitionBlockInts + k);
+        }
+      }
+      return new Partition(channel, size, firstHashes);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Releases the files of the index. It can't be queried anymore.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (logChannel != null) {
+      logChannel.close();
+      logChannel = null;
+    }
+    if (log != null) {
+      log.close();
+      log = null;
+    }
+    for (int i = 0; i < partitionOutputs.length; i++) {
+      if (partitionOutputs[i] != null) {
+        partitionOutputs[i].close();
+        partitionOutputs[i] = null;
+      }
+    }
+    if (partitions != null) {
+      for (Partition partition : partitions) {
+        if (partition.channel != null) {
+          partition.channel.close();
+        }
+      }
+      partitions = null;
+    }
+  }
+
+  /**
+   * Sorted partition, read by pages of {@link #PAGE_BLOCKS} blocks.
+   */
+  private class Partition {
+    @CheckForNull
+    private final FileChannel channel;
+    private final int size;
+
+    /**
+     * Hash of the first block of each page
+     */
+    private final int[] firstHashes;
+
+    private Partition(@Nullable FileChannel channel, int size, int[] firstHashes) {
+      this.channel = channel;
+      this.size = size;
+      this.firstHashes = firstHashes;
+    }
+
+    private int pages() {
+      return firstHashes.length / hashInts;
+    }
+
+    private IntBuffer readPage(int page) {
+      int firstBlock = page * PAGE_BLOCKS;
+      int blocks = Math.min(PAGE_BLOCKS, size - firstBlock);
+      try {
+        return read(channel, (long) firstBlock * partitionBlockInts * 4, blocks * partitionBlockInts * 4).asIntBuffer();
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read blocks from index " + dir, e);
+      }
+    }
+  }
+
+  private class PartitionSortable implements DataUtils.Sortable {
+    private final IntBuffer ints;
+    private final int size;
+
+    private PartitionSortable(IntBuffer ints, int size) {
+      this.ints = ints;
+      this.size = size;
+    }
+
+    @Override
+    public void swap(int i, int j) {
+      int i2 = i * partitionBlockInts;
+      int j2 = j * partitionBlockInts;
+      for (int k = 0; k < partitionBlockInts; k++, i2++, j2++) {
+        int x = ints.get(i2);
+        ints.put(i2, ints.get(j2));
+        ints.put(j2, x);
+      }
+    }
+
+    @Override
+    public boolean isLess(int i, int j) {
+      int i2 = i * partitionBlockInts;
+      int j2 = j * partitionBlockInts;
+      for (int k = 0; k < hashInts; k++, i2++, j2++) {
+        int compare = Integer.compare(ints.get(i2), ints.get(j2));
+        if (compare != 0) {
+          return compare < 0;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  private class ResourceIterator implements Iterator<ResourceBlocks> {
+    private int index = 0;
+
+    @Override
+    public boolean hasNext() {
+      return index < resourceIds.size();
+    }
+
+    @Override
+    public ResourceBlocks next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ResourceBlocks resourceBlocks = new ResourceBlocks(resourceIds.get(index), readBlocks(index));
+      index++;
+      return resourceBlocks;
+    }
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PartitionedFileCloneIndexTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private PartitionedFileCloneIndex index;
+
+  @Before
+  public void setUp() throws IOException {
+    index = new PartitionedFileCloneIndex(temp.newFolder().toPath());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    index.close();
+  }
+
+  @Test
+  public void test() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("a", 2));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 1));
+    index.insert(newBlock("d", 1));
+    index.insert(newBlock("e", 1));
+    index.insert(newBlock("e", 2));
+    index.insert(newBlock("e", 3));
+
+    assertThat(index.noResources()).isEqualTo(5);
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).hasSize(5);
+    assertThat(index.getBySequenceHash(new ByteArray(2L))).hasSize(2);
+    assertThat(index.getBySequenceHash(new ByteArray(3L))).hasSize(1);
+    assertThat(index.getBySequenceHash(new ByteArray(4L))).isEmpty();
+    assertThat(index.getByResourceId("a")).hasSize(2);
+    assertThat(index.getByResourceId("b")).hasSize(1);
+    assertThat(index.getByResourceId("e")).hasSize(3);
+    assertThat(index.getByResourceId("does not exist")).isEmpty();
+  }
+
+  @Test
+  public void find_blocks_of_all_partitions() {
+    // the first bits of the hashes select different partitions
+    long[] hashes = {0x8000000000000001L, 0x0000000000000002L, 0xF000000000000003L, 0x4000000000000004L, -1L};
+    for (int i = 0; i < hashes.length; i++) {
+      index.insert(newBlock("a", hashes[i], i));
+      index.insert(newBlock("b", hashes[hashes.length - 1 - i], i));
+    }
+
+    for (long hash : hashes) {
+      Collection<Block> blocks = index.getBySequenceHash(new ByteArray(hash));
+      assertThat(blocks).extracting(Block::getResourceId).containsOnly("a", "b");
+      assertThat(blocks).extracting(Block::getBlockHash).containsOnly(new ByteArray(hash));
+    }
+  }
+
+  @Test
+  public void find_blocks_stored_in_several_pages() {
+    // hashes 0 to 199 are inserted in reverse order, each of them in 3 resources
+    for (int i = 199; i >= 0; i--) {
+      index.insert(newBlock("a", i, i));
+      index.insert(newBlock("b", i, i));
+      index.insert(newBlock("c", i, i));
+    }
+    for (int i = 0; i < 100; i++) {
+      index.insert(newBlock("d", 100L, i));
+    }
+
+    for (long hash = 0; hash < 200; hash++) {
+      if (hash != 100L) {
+        assertThat(index.getBySequenceHash(new ByteArray(hash))).extracting(Block::getResourceId).containsOnly("a", "b", "c").hasSize(3);
+      }
+    }
+    assertThat(index.getBySequenceHash(new ByteArray(100L))).hasSize(103);
+    assertThat(index.getBySequenceHash(new ByteArray(200L))).isEmpty();
+    assertThat(index.getBySequenceHash(new ByteArray(-1L))).isEmpty();
+  }
+
+  @Test
+  public void keep_fields_of_blocks() {
+    Block block = Block.builder()
+      .setResourceId("a")
+      .setBlockHash(new ByteArray(42L))
+      .setIndexInFile(3)
+      .setLines(10, 15)
+      .setUnit(100, 150)
+      .build();
+    index.insert(block);
+
+    assertThat(index.getByResourceId("a")).containsExactly(block);
+    Block found = index.getBySequenceHash(new ByteArray(42L)).iterator().next();
+    assertThat(found).isEqualTo(block);
+    assertThat(found.getStartUnit()).isEqualTo(100);
+    assertThat(found.getEndUnit()).isEqualTo(150);
+  }
+
+  /**
+   * When: query by a hash value.
+   * Expected: all blocks should have same hash, which presented in the form of the same object.
+   */
+  @Test
+  public void should_construct_blocks_with_normalized_hash() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 1));
+    ByteArray requestedHash = new ByteArray(1L);
+    Collection<Block> blocks = index.getBySequenceHash(requestedHash);
+    assertThat(blocks).hasSize(3);
+    for (Block block : blocks) {
+      assertThat(block.getBlockHash()).isSameAs(requestedHash);
+    }
+  }
+
+  @Test
+  public void iterate_in_order_of_insertion() {
+    index.insert(newBlock("c", 1));
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 2));
+    index.insert(newBlock("a", 2));
+
+    Iterator<ResourceBlocks> it = index.iterator();
+    List<ResourceBlocks> resourcesBlocks = new ArrayList<>();
+    while (it.hasNext()) {
+      resourcesBlocks.add(it.next());
+    }
+
+    assertThat(resourcesBlocks).extracting(ResourceBlocks::resourceId).containsExactly("c", "a", "b");
+    assertThat(resourcesBlocks.get(0).blocks()).hasSize(2);
+    assertThat(resourcesBlocks.get(1).blocks()).hasSize(2);
+    assertThat(resourcesBlocks.get(2).blocks()).hasSize(1);
+    assertThat(index.getResourceIds()).containsExactly("c", "a", "b");
+  }
+
+  @Test
+  public void query_empty_index() {
+    assertThat(index.noResources()).isZero();
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).isEmpty();
+    assertThat(index.getByResourceId("a")).isEmpty();
+    assertThat(index.iterator().hasNext()).isFalse();
+  }
+
+  @Test
+  public void fail_to_insert_once_queried() {
+    index.insert(newBlock("a", 1));
+    index.getBySequenceHash(new ByteArray(1L));
+
+    assertThatThrownBy(() -> index.insert(newBlock("b", 1)))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Blocks can't be inserted once the index has been queried");
+  }
+
+  /**
+   * Given: index, which accepts blocks with 4-byte hash.
+   * Expected: exception during insertion of block with 8-byte hash.
+   */
+  @Test
+  public void attempt_to_insert_hash_of_incorrect_size() throws IOException {
+    CloneIndex index = new PartitionedFileCloneIndex(temp.newFolder().toPath(), 4, 2);
+
+    assertThatThrownBy(() -> index.insert(newBlock("a", 1)))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  /**
+   * Given: index, which accepts blocks with 4-byte hash.
+   * Expected: exception during search by 8-byte hash.
+   */
+  @Test
+  public void attempt_to_find_hash_of_incorrect_size() throws IOException {
+    CloneIndex index = new PartitionedFileCloneIndex(temp.newFolder().toPath(), 4, 2);
+
+    assertThatThrownBy(() -> index.getBySequenceHash(new ByteArray(1L)))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static Block newBlock(String resourceId, long hash) {
+    return newBlock(resourceId, hash, 1);
+  }
+
+  private static Block newBlock(String resourceId, long hash, int indexInFile) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(indexInFile)
+      .setLines(1, 2)
+      .build();
+  }
+
+}
@@ -19,8 +19,9 @@
  */
 package org.sonar.scanner.cpd;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -37,11 +38,9 @@ import org.sonar.api.batch.fs.internal.DefaultInputComponent;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
-import org.sonar.duplications.block.Block;
 import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.ClonePart;
-import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Duplicate;
@@ -68,11 +67,12 @@ public class CpdExecutor {
   private final ProgressReport progressReport;
   private final CpdSettings settings;
   private final ExecutorService executorService;
+  private final int threads;
   private int count = 0;
   private int total;
 
   public CpdExecutor(CpdSettings settings, SonarCpdBlockIndex index, ReportPublisher publisher, InputComponentStore inputComponentCache) {
-    this(settings, index, publisher, inputComponentCache, Executors.newSingleThreadExecutor());
+    this(settings, index, publisher, inputComponentCache, Executors.newFixedThreadPool(threads(settings)));
   }
 
   public CpdExecutor(CpdSettings settings, SonarCpdBlockIndex index, ReportPublisher publisher, InputComponentStore inputComponentCache,
@@ -83,23 +83,26 @@ public class CpdExecutor {
     this.componentStore = inputComponentCache;
     this.progressReport = new ProgressReport("CPD computation", TimeUnit.SECONDS.toMillis(10));
     this.executorService = executorService;
+    this.threads = threads(settings);
+  }
+
+  private static int threads(CpdSettings settings) {
+    return Math.max(1, settings.getThreads());
   }
 
   public void execute() {
     execute(TIMEOUT);
   }
 
+  /**
+   * Files are analyzed concurrently by the threads of the executor, which share the read-only index. Their blocks are
+   * loaded by the tasks, so that only the blocks of the files being analyzed are in heap. Results are saved
+   * in the order of the files, by the calling thread.
+   */
   void execute(long timeout) {
-    List<FileBlocks> components = new ArrayList<>(index.noResources());
-    Iterator<ResourceBlocks> it = index.iterator();
-
-    while (it.hasNext()) {
-      ResourceBlocks resourceBlocks = it.next();
-      Optional<FileBlocks> fileBlocks = toFileBlocks(resourceBlocks.resourceId(), resourceBlocks.blocks());
-      if (!fileBlocks.isPresent()) {
-        continue;
-      }
-      components.add(fileBlocks.get());
+    List<DefaultInputFile> components = new ArrayList<>(index.noResources());
+    for (String resourceKey : index.getIndexedResourceKeys()) {
+      toInputFile(resourceKey).ifPresent(components::add);
     }
 
     int filesWithoutBlocks = index.noIndexedFiles() - index.noResources();
@@ -110,8 +113,14 @@ public class CpdExecutor {
     total = components.size();
     progressReport.start(String.format("CPD Executor Calculating CPD for %d %s", total, pluralize(total)));
     try {
-      for (FileBlocks fileBlocks : components) {
-        runCpdAnalysis(executorService, fileBlocks.getInputFile(), fileBlocks.getBlocks(), timeout);
+      Deque<CpdTask> tasks = new ArrayDeque<>(threads);
+      Iterator<DefaultInputFile> it = components.iterator();
+      while (it.hasNext() || !tasks.isEmpty()) {
+        // keep the threads busy, but do not queue more files than can be analyzed at the same time
+        while (tasks.size() < threads && it.hasNext()) {
+          tasks.add(submit(it.next(), timeout));
+        }
+        complete(tasks.remove());
         count++;
       }
       progressReport.stopAndLogTotalTime("CPD Executor CPD calculation finished");
@@ -127,17 +136,28 @@ public class CpdExecutor {
     return files == 1 ? "file" : "files";
   }
 
-  void runCpdAnalysis(ExecutorService executorService, DefaultInputFile inputFile, Collection<Block> fileBlocks, long timeout) {
+  private CpdTask submit(DefaultInputFile inputFile, long timeout) {
     LOG.debug("Detection of duplications for {}", inputFile.absolutePath());
+    // the timeout starts when the file is submitted, as there is a free thread to analyze it, unless the detection
+    // of a file which timed out is still running
+    long deadline = System.currentTimeMillis() + timeout;
+    Future<List<CloneGroup>> futureResult = executorService.submit(
+      () -> SuffixTreeCloneDetectionAlgorithm.detect(index, index.getByInputFile(inputFile.key())));
+    return new CpdTask(inputFile, futureResult, deadline);
+  }
+
+  private void complete(CpdTask task) {
+    DefaultInputFile inputFile = task.inputFile;
     progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
 
     List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
     try {
-      duplications = futureResult.get(timeout, TimeUnit.MILLISECONDS);
+      duplications = task.futureResult.get(Math.max(0L, task.deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
     } catch (TimeoutException e) {
       LOG.warn("Timeout during detection of duplications for {}", inputFile.absolutePath());
-      futureResult.cancel(true);
+      // the thread is not interrupted, as an interrupted read closes the files of the index for all threads. The
+      // detection ignores interruptions anyway, so its result is discarded once it completes.
+      task.futureResult.cancel(false);
       return;
     } catch (Exception e) {
       throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
@@ -177,13 +197,13 @@ public class CpdExecutor {
     publisher.getWriter().writeComponentDuplications(component.scannerId(), reportDuplications);
   }
 
-  private Optional<FileBlocks> toFileBlocks(String componentKey, Collection<Block> fileBlocks) {
+  private Optional<DefaultInputFile> toInputFile(String componentKey) {
     DefaultInputFile component = (DefaultInputFile) componentStore.getByKey(componentKey);
     if (component == null) {
       LOG.error("Resource not found in component store: {}. Skipping CPD computation for it", componentKey);
       return Optional.empty();
     }
-    return Optional.of(new FileBlocks(component, fileBlocks));
+    return Optional.of(component);
   }
 
   private Duplication toReportDuplication(InputComponent component, Duplication.Builder dupBuilder, Duplicate.Builder blockBuilder, CloneGroup input) {
@@ -221,21 +241,15 @@ public class CpdExecutor {
     return dupBuilder.build();
   }
 
-  private static class FileBlocks {
+  private static class CpdTask {
     private final DefaultInputFile inputFile;
-    private final Collection<Block> blocks;
+    private final Future<List<CloneGroup>> futureResult;
+    private final long deadline;
 
-    public FileBlocks(DefaultInputFile inputFile, Collection<Block> blocks) {
+    private CpdTask(DefaultInputFile inputFile, Future<List<CloneGroup>> futureResult, long deadline) {
       this.inputFile = inputFile;
-      this.blocks = blocks;
-    }
-
-    public DefaultInputFile getInputFile() {
-      return inputFile;
-    }
-
-    public Collection<Block> getBlocks() {
-      return blocks;
+      this.futureResult = futureResult;
+      this.deadline = deadline;
     }
   }
 }
@@ -24,6 +24,8 @@ import org.sonar.api.config.Configuration;
 import org.sonar.duplications.block.BlockChunker;
 
 public class CpdSettings {
+  static final String THREADS_PROPERTY = "sonar.cpd.threads";
+
   private final Configuration settings;
 
   public CpdSettings(Configuration config) {
@@ -41,4 +43,11 @@ public class CpdSettings {
   int getMinimumTokens(String languageKey) {
     return settings.getInt("sonar.cpd." + languageKey + ".minimumTokens").orElse(100);
   }
+
+  /**
+   * Number of threads detecting duplications. By default, the number of available processors.
+   */
+  int getThreads() {
+    return settings.getInt(THREADS_PROPERTY).orElseGet(() -> Runtime.getRuntime().availableProcessors());
+  }
 }
@@ -19,37 +19,59 @@
  */
 package org.sonar.scanner.cpd.index;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.picocontainer.Startable;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.TempFolder;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.AbstractCloneIndex;
-import org.sonar.duplications.index.CloneIndex;
-import org.sonar.duplications.index.PackedMemoryCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+import org.sonar.duplications.index.PartitionedFileCloneIndex;
 import org.sonar.scanner.cpd.CpdSettings;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.report.ReportPublisher;
 
-public class SonarCpdBlockIndex extends AbstractCloneIndex {
+/**
+ * Blocks of all the files of the project. They are stored in temporary files rather than in heap, and can be
+ * queried concurrently once all the files are indexed.
+ */
+public class SonarCpdBlockIndex extends AbstractCloneIndex implements Startable {
   private static final Logger LOG = Loggers.get(SonarCpdBlockIndex.class);
-  private final CloneIndex mem = new PackedMemoryCloneIndex();
+  private final PartitionedFileCloneIndex mem;
   private final ReportPublisher publisher;
   // Files already tokenized
   private final Set<InputFile> indexedFiles = new HashSet<>();
   private final CpdSettings settings;
 
-  public SonarCpdBlockIndex(ReportPublisher publisher, CpdSettings settings) {
+  public SonarCpdBlockIndex(ReportPublisher publisher, CpdSettings settings, TempFolder tempFolder) {
     this.publisher = publisher;
     this.settings = settings;
+    this.mem = new PartitionedFileCloneIndex(tempFolder.newDir("cpd-index").toPath());
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public void stop() {
+    try {
+      mem.close();
+    } catch (IOException e) {
+      LOG.debug("Fail to close CPD index", e);
+    }
   }
 
   public void insert(InputFile inputFile, Collection<Block> blocks) {
@@ -86,6 +108,13 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
     return indexedFiles.contains(inputFile);
   }
 
+  /**
+   * Keys of the files which have blocks, in the order of their indexation.
+   */
+  public List<String> getIndexedResourceKeys() {
+    return mem.getResourceIds();
+  }
+
   public Collection<Block> getByInputFile(String resourceKey) {
     return mem.getByResourceId(resourceKey);
   }
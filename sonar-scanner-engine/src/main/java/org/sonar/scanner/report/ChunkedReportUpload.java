@@ -0,0 +1,237 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.report;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.scanner.bootstrap.DefaultScannerWsClient;
+import org.sonarqube.ws.Ce;
+import org.sonarqube.ws.MediaTypes;
+import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.PostRequest;
+import org.sonarqube.ws.client.WsResponse;
+
+import static java.lang.String.format;
+
+/**
+ * Splits the report file into chunks while it is being written, and uploads each chunk with api/ce/submit_chunk as soon
+ * as it is complete, so that the beginning of the report is uploaded while its end is still being compressed.
+ * <p>
+ * Chunks are uploaded in order by a single background thread, and a chunk is sent again when its upload fails because
+ * of the network or of the server. When the server does not accept the first chunk, for example because it does not
+ * support chunked uploads, chunks are kept so that they can be concatenated into a single report file.
+ * <p>
+ * The first chunk declares the project of the report: the server only accepts the next chunks, and the submission of
+ * the report, from the same user and for the same project.
+ */
+class ChunkedReportUpload extends OutputStream {
+
+  static final int DEFAULT_CHUNK_SIZE = 10 * 1024 * 1024;
+  private static final Logger LOG = Loggers.get(ChunkedReportUpload.class);
+  private static final int MAX_ATTEMPTS = 3;
+
+  private final DefaultScannerWsClient wsClient;
+  @Nullable
+  private final String organizationKey;
+  private final String projectKey;
+  private final File chunksDir;
+  private final int chunkSize;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "Report upload");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final List<File> chunks = new ArrayList<>();
+  private final List<Future<?>> uploads = new ArrayList<>();
+
+  @CheckForNull
+  private OutputStream chunk;
+  private long chunkWritten;
+  // only modified by the upload thread
+  @CheckForNull
+  private volatile String uploadId;
+  private volatile boolean rejected;
+
+  ChunkedReportUpload(DefaultScannerWsClient wsClient, @Nullable String organizationKey, String projectKey, File chunksDir, int chunkSize) {
+    this.wsClient = wsClient;
+    this.organizationKey = organizationKey;
+    this.projectKey = projectKey;
+    this.chunksDir = chunksDir;
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    int offset = off;
+    int remaining = len;
+    while (remaining > 0) {
+      if (chunk == null) {
+        File file = new File(chunksDir, "chunk-" + chunks.size());
+        chunks.add(file);
+        chunk = new FileOutputStream(file);
+        chunkWritten = 0;
+      }
+      int count = (int) Math.min(remaining, chunkSize - chunkWritten);
+      chunk.write(b, offset, count);
+      chunkWritten += count;
+      offset += count;
+      remaining -= count;
+      if (chunkWritten == chunkSize) {
+        closeChunk();
+      }
+    }
+  }
+
+  /**
+   * Completes the last chunk. No more data can be written.
+   */
+  @Override
+  public void close() throws IOException {
+    if (chunk != null) {
+      closeChunk();
+    }
+    executor.shutdown();
+  }
+
+  private void closeChunk() throws IOException {
+    chunk.close();
+    chunk = null;
+    int index = chunks.size() - 1;
+    File file = chunks.get(index);
+    uploads.add(executor.submit(() -> upload(index, file)));
+  }
+
+  /**
+   * Waits for all the chunks to be uploaded.
+   *
+   * @return the id of the upload, to be submitted with the number of {@link #getChunks() chunks}, or empty if
+   * the server rejected the chunked upload of the report
+   */
+  Optional<String> awaitUploads() {
+    try {
+      for (Future<?> upload : uploads) {
+        upload.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while uploading report", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to upload report", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return rejected ? Optional.empty() : Optional.ofNullable(uploadId);
+  }
+
+  int getChunks() {
+    return chunks.size();
+  }
+
+  /**
+   * Concatenates the chunks, when the chunked upload has been rejected.
+   */
+  void writeTo(File reportFile) {
+    try (OutputStream output = new FileOutputStream(reportFile)) {
+      for (File file : chunks) {
+        Files.copy(file.toPath(), output);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write report file " + reportFile, e);
+    }
+  }
+
+  private void upload(int index, File file) throws IOException {
+    if (rejected) {
+      return;
+    }
+    for (int attempt = 1; ; attempt++) {
+      try {
+        uploadId = send(index, file);
+        Files.delete(file.toPath());
+        return;
+      } catch (HttpException e) {
+        if (index == 0 && e.code() < 500) {
+          reject(e.getMessage());
+          return;
+        }
+        if (e.code() < 500 || attempt == MAX_ATTEMPTS) {
+          throw MessageException.of(format("Failed to upload report - %s", DefaultScannerWsClient.createErrorMessage(e)));
+        }
+      } catch (MessageException e) {
+        if (index == 0) {
+          reject(e.getMessage());
+          return;
+        }
+        throw e;
+      } catch (IllegalStateException e) {
+        // connectivity problem or timeout
+        if (attempt == MAX_ATTEMPTS) {
+          throw e;
+        }
+      }
+      LOG.debug("Failed to upload chunk {} of report, attempt {}/{}", index, attempt, MAX_ATTEMPTS);
+    }
+  }
+
+  private String send(int index, File file) throws IOException {
+    PostRequest post = new PostRequest("api/ce/submit_chunk")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("uploadId", uploadId)
+      .setParam("index", index)
+      .setPart("chunk", new PostRequest.Part(MediaTypes.DEFAULT, file));
+    if (uploadId == null) {
+      post.setParam("organization", organizationKey)
+        .setParam("projectKey", projectKey);
+    }
+    WsResponse response = wsClient.call(post).failIfNotSuccessful();
+    try (InputStream protobuf = response.contentStream()) {
+      return Ce.SubmitChunkResponse.parser().parseFrom(protobuf).getUploadId();
+    }
+  }
+
+  private void reject(String message) {
+    LOG.debug("Report can't be uploaded in chunks, it will be uploaded at once: {}", message);
+    rejected = true;
+  }
+}
@@ -19,9 +19,11 @@
  */
 package org.sonar.scanner.report;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.net.URL;
@@ -30,6 +32,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
 import javax.annotation.Nullable;
 import okhttp3.HttpUrl;
 import org.apache.commons.io.FileUtils;
@@ -37,12 +40,12 @@ import org.picocontainer.Startable;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.bootstrap.DefaultScannerWsClient;
 import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
 import org.sonar.scanner.fs.InputModuleHierarchy;
+import org.sonar.scanner.protocol.output.ScannerReportContainer;
 import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.ScanProperties;
@@ -68,6 +71,7 @@ public class ReportPublisher implements Startable {
   private static final String BRANCH = "branch";
   private static final String ID = "id";
   private static final String RESOLVED = "resolved";
+  private static final int BUFFER_SIZE = 64 * 1024;
 
   private final DefaultScannerWsClient wsClient;
   private final AnalysisContextReportPublisher contextPublisher;
@@ -79,6 +83,7 @@ public class ReportPublisher implements Startable {
   private final BranchConfiguration branchConfiguration;
   private final ScanProperties properties;
   private final CeTaskReportDataHolder ceTaskReportDataHolder;
+  private int chunkSize = ChunkedReportUpload.DEFAULT_CHUNK_SIZE;
 
   private Path reportDir;
   private ScannerReportWriter writer;
@@ -116,11 +121,18 @@ public class ReportPublisher implements Startable {
 
   @Override
   public void stop() {
+    if (writer != null) {
+      writer.flush();
+    }
     if (!properties.shouldKeepReport()) {
       deleteQuietly(reportDir);
     }
   }
 
+  void setChunkSize(int chunkSize) {
+    this.chunkSize = chunkSize;
+  }
+
   public Path getReportDir() {
     return reportDir;
   }
@@ -134,12 +146,14 @@ public class ReportPublisher implements Startable {
   }
 
   public void execute() {
-    File report = generateReportFile();
+    generateReport();
     if (properties.shouldKeepReport()) {
       LOG.info("Analysis report generated in " + reportDir);
     }
-    if (!analysisMode.isMediumTest()) {
-      String taskId = upload(report);
+    if (analysisMode.isMediumTest()) {
+      generateReportFile();
+    } else {
+      String taskId = uploadReport();
       prepareAndDumpMetadata(taskId);
     }
 
@@ -156,24 +170,51 @@ public class ReportPublisher implements Startable {
     }
   }
 
+  private void generateReport() {
+    long startTime = System.currentTimeMillis();
+    for (ReportPublisherStep publisher : publishers) {
+      publisher.publish(writer);
+    }
+    // records appended by sensors and publishers are buffered in files kept open
+    writer.flush();
+    long stopTime = System.currentTimeMillis();
+    LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir.toFile())));
+  }
+
   private File generateReportFile() {
-    try {
-      long startTime = System.currentTimeMillis();
-      for (ReportPublisherStep publisher : publishers) {
-        publisher.publish(writer);
-      }
-      long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir.toFile())));
-
-      startTime = System.currentTimeMillis();
-      File reportZip = temp.newFile("scanner-report", ".zip");
-      ZipUtils.zipDir(reportDir.toFile(), reportZip);
-      stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report compressed in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)));
-      return reportZip;
+    long startTime = System.currentTimeMillis();
+    File reportFile = temp.newFile("scanner-report", ".sqr");
+    ScannerReportContainer.write(reportDir.toFile(), reportFile);
+    long stopTime = System.currentTimeMillis();
+    LOG.info("Analysis report compressed in {}ms, size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportFile)));
+    return reportFile;
+  }
+
+  /**
+   * Compresses the report and uploads it in chunks at the same time, then submits it and returns the generated task id.
+   * Falls back to the upload of the whole report file when the server does not accept chunks.
+   */
+  private String uploadReport() {
+    long startTime = System.currentTimeMillis();
+    ChunkedReportUpload chunkedUpload = new ChunkedReportUpload(wsClient, properties.organizationKey().orElse(null),
+      moduleHierarchy.root().key(), temp.newDir("scanner-report-chunks"), chunkSize);
+    try (OutputStream output = new BufferedOutputStream(chunkedUpload, BUFFER_SIZE)) {
+      ScannerReportContainer.write(reportDir.toFile(), output);
     } catch (IOException e) {
       throw new IllegalStateException("Unable to prepare analysis report", e);
     }
+    Optional<String> uploadId = chunkedUpload.awaitUploads();
+    long stopTime = System.currentTimeMillis();
+    if (uploadId.isPresent()) {
+      LOG.info("Analysis report compressed and uploaded in {}ms, {} chunk(s)", stopTime - startTime, chunkedUpload.getChunks());
+      return submit(newSubmitRequest()
+        .setParam("uploadId", uploadId.get())
+        .setParam("chunks", chunkedUpload.getChunks()), startTime);
+    }
+    File reportFile = temp.newFile("scanner-report", ".sqr");
+    chunkedUpload.writeTo(reportFile);
+    LOG.info("Analysis report compressed in {}ms, size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportFile)));
+    return upload(reportFile);
   }
 
   /**
@@ -182,13 +223,16 @@ public class ReportPublisher implements Startable {
   String upload(File report) {
     LOG.debug("Upload report");
     long startTime = System.currentTimeMillis();
-    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.ZIP, report);
+    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.DEFAULT, report);
+    return submit(newSubmitRequest().setPart("report", filePart), startTime);
+  }
+
+  private PostRequest newSubmitRequest() {
     PostRequest post = new PostRequest("api/ce/submit")
       .setMediaType(MediaTypes.PROTOBUF)
       .setParam("organization", properties.organizationKey().orElse(null))
       .setParam("projectKey", moduleHierarchy.root().key())
-      .setParam("projectName", moduleHierarchy.root().getOriginalName())
-      .setPart("report", filePart);
+      .setParam("projectName", moduleHierarchy.root().getOriginalName());
 
     String branchName = branchConfiguration.branchName();
     if (branchName != null) {
@@ -199,7 +243,10 @@ public class ReportPublisher implements Startable {
         post.setParam(CHARACTERISTIC, "pullRequest=" + branchConfiguration.pullRequestKey());
       }
     }
+    return post;
+  }
 
+  private String submit(PostRequest post, long startTime) {
     WsResponse response;
     try {
       response = wsClient.call(post).failIfNotSuccessful();
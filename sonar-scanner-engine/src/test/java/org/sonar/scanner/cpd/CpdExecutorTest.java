@@ -27,7 +27,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.junit.Before;
@@ -36,6 +39,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentMatchers;
+import org.sonar.api.impl.utils.JUnitTempFolder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.util.CloseableIterator;
@@ -56,7 +60,9 @@ import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -68,6 +74,9 @@ public class CpdExecutorTest {
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
 
+  @Rule
+  public JUnitTempFolder tempFolder = new JUnitTempFolder();
+
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
@@ -75,7 +84,7 @@ public class CpdExecutorTest {
   private ExecutorService executorService = mock(ExecutorService.class);
   private CpdSettings settings = mock(CpdSettings.class);
   private ReportPublisher publisher = mock(ReportPublisher.class);
-  private SonarCpdBlockIndex index = new SonarCpdBlockIndex(publisher, settings);
+  private SonarCpdBlockIndex index;
   private ScannerReportReader reader;
   private DefaultInputFile batchComponent1;
   private DefaultInputFile batchComponent2;
@@ -91,6 +100,7 @@ public class CpdExecutorTest {
 
     DefaultInputProject project = TestInputFileBuilder.newDefaultInputProject("foo", baseDir);
     componentStore = new InputComponentStore(mock(BranchConfiguration.class));
+    index = new SonarCpdBlockIndex(publisher, settings, tempFolder);
     executor = new CpdExecutor(settings, index, publisher, componentStore, executorService);
     reader = new ScannerReportReader(outputDir);
 
@@ -223,6 +233,79 @@ public class CpdExecutorTest {
         "Timeout during detection of duplications for .*Foo.php");
   }
 
+  @Test
+  public void should_detect_duplications_of_files_in_parallel() {
+    index.insert(batchComponent1, Arrays.asList(newBlock(batchComponent1, "AAAABBBBAAAABBBB", 0), newBlock(batchComponent1, "CCCCDDDDCCCCDDDD", 1)));
+    index.insert(batchComponent2, Arrays.asList(newBlock(batchComponent2, "AAAABBBBAAAABBBB", 0), newBlock(batchComponent2, "CCCCDDDDCCCCDDDD", 1)));
+    index.insert(batchComponent3, Collections.singletonList(newBlock(batchComponent3, "EEEEFFFFEEEEFFFF", 0)));
+    when(settings.getThreads()).thenReturn(2);
+    executor = new CpdExecutor(settings, index, publisher, componentStore, Executors.newFixedThreadPool(2));
+
+    executor.execute();
+
+    assertThat(readDuplications(batchComponent1, 1)[0].getDuplicate(0).getOtherFileRef()).isEqualTo(batchComponent2.scannerId());
+    assertThat(readDuplications(batchComponent2, 1)[0].getDuplicate(0).getOtherFileRef()).isEqualTo(batchComponent1.scannerId());
+    readDuplications(batchComponent3, 0);
+  }
+
+  @Test
+  public void analyze_next_files_once_detection_of_a_file_timed_out() {
+    index.insert(batchComponent1, Arrays.asList(newBlock(batchComponent1, "AAAABBBBAAAABBBB", 0), newBlock(batchComponent1, "CCCCDDDDCCCCDDDD", 1)));
+    index.insert(batchComponent2, Arrays.asList(newBlock(batchComponent2, "EEEEFFFFEEEEFFFF", 0), newBlock(batchComponent2, "GGGGHHHHGGGGHHHH", 1)));
+    index.insert(batchComponent3, Arrays.asList(newBlock(batchComponent3, "EEEEFFFFEEEEFFFF", 0), newBlock(batchComponent3, "GGGGHHHHGGGGHHHH", 1)));
+    CountDownLatch timedOut = new CountDownLatch(1);
+    CountDownLatch firstFileRead = new CountDownLatch(1);
+    SonarCpdBlockIndex slowIndex = spy(index);
+    // the detection of the first file ignores interruptions, and reads the index once it timed out
+    doAnswer(invocation -> {
+      awaitIgnoringInterruption(timedOut);
+      try {
+        return invocation.callRealMethod();
+      } finally {
+        firstFileRead.countDown();
+      }
+    }).when(slowIndex).getByInputFile(batchComponent1.key());
+    doAnswer(invocation -> {
+      timedOut.countDown();
+      firstFileRead.await(10, TimeUnit.SECONDS);
+      return invocation.callRealMethod();
+    }).when(slowIndex).getByInputFile(batchComponent2.key());
+    executor = new CpdExecutor(settings, slowIndex, publisher, componentStore, Executors.newFixedThreadPool(2));
+
+    executor.execute(500);
+
+    readDuplications(batchComponent1, 0);
+    assertThat(readDuplications(batchComponent2, 1)[0].getDuplicate(0).getOtherFileRef()).isEqualTo(batchComponent3.scannerId());
+    assertThat(readDuplications(batchComponent3, 1)[0].getDuplicate(0).getOtherFileRef()).isEqualTo(batchComponent2.scannerId());
+    assertThat(logTester.logs(LoggerLevel.WARN))
+      .usingElementComparator((l, r) -> l.matches(r) ? 0 : 1)
+      .containsOnly("Timeout during detection of duplications for .*Foo.php");
+  }
+
+  private static void awaitIgnoringInterruption(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static Block newBlock(DefaultInputFile file, String hash, int indexInFile) {
+    return Block.builder()
+      .setBlockHash(new ByteArray(hash))
+      .setResourceId(file.key())
+      .setIndexInFile(indexInFile)
+      .setLines(indexInFile + 1, indexInFile + 1)
+      .build();
+  }
+
   private DefaultInputFile createComponent(String relativePath, int lines) {
     return createComponent(relativePath, lines, f -> {
     });
@@ -53,4 +53,16 @@ public class CpdSettingsTest {
     assertThat(cpdSettings.getMinimumTokens("java")).isEqualTo(42);
     assertThat(cpdSettings.getMinimumTokens("php")).isEqualTo(33);
   }
+
+  @Test
+  public void defaultThreads() {
+    when(configuration.getInt(anyString())).thenReturn(Optional.empty());
+    assertThat(cpdSettings.getThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test
+  public void threads() {
+    when(configuration.getInt("sonar.cpd.threads")).thenReturn(Optional.of(3));
+    assertThat(cpdSettings.getThreads()).isEqualTo(3);
+  }
 }
@@ -0,0 +1,138 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.MessageException;
+import org.sonar.scanner.bootstrap.DefaultScannerWsClient;
+import org.sonarqube.ws.Ce;
+import org.sonarqube.ws.client.MockWsResponse;
+import org.sonarqube.ws.client.PostRequest;
+import org.sonarqube.ws.client.WsRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ChunkedReportUploadTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private DefaultScannerWsClient wsClient = mock(DefaultScannerWsClient.class);
+  private List<String> sentChunks = new ArrayList<>();
+  private List<String> sentUploadIds = new ArrayList<>();
+  private List<String> sentProjects = new ArrayList<>();
+
+  @Test
+  public void upload_chunks_of_report() throws IOException {
+    when(wsClient.call(any(WsRequest.class))).thenAnswer(invocation -> recordAndRespond(invocation.getArgument(0), ok()));
+    File chunksDir = temp.newFolder();
+    ChunkedReportUpload underTest = new ChunkedReportUpload(wsClient, "my-org", "my_project", chunksDir, 4);
+
+    underTest.write("0123456".getBytes(StandardCharsets.UTF_8));
+    underTest.write('7');
+    underTest.write("89".getBytes(StandardCharsets.UTF_8));
+    underTest.close();
+
+    assertThat(underTest.awaitUploads()).contains("UPLOAD_1");
+    assertThat(underTest.getChunks()).isEqualTo(3);
+    assertThat(sentChunks).containsExactly("0:0123", "1:4567", "2:89");
+    // the first chunk creates the upload
+    assertThat(sentUploadIds).containsExactly(null, "UPLOAD_1", "UPLOAD_1");
+    assertThat(sentProjects).containsExactly("my-org:my_project", "null:null", "null:null");
+    // uploaded chunks are dropped
+    assertThat(chunksDir.list()).isEmpty();
+  }
+
+  @Test
+  public void send_chunk_again_if_server_fails() throws IOException {
+    when(wsClient.call(any(WsRequest.class)))
+      .thenAnswer(invocation -> recordAndRespond(invocation.getArgument(0), ok()))
+      .thenAnswer(invocation -> recordAndRespond(invocation.getArgument(0), new MockWsResponse().setCode(503).setRequestUrl("url").setContent("")))
+      .thenAnswer(invocation -> recordAndRespond(invocation.getArgument(0), ok()));
+    ChunkedReportUpload underTest = new ChunkedReportUpload(wsClient, "my-org", "my_project", temp.newFolder(), 2);
+
+    underTest.write("0123".getBytes(StandardCharsets.UTF_8));
+    underTest.close();
+
+    assertThat(underTest.awaitUploads()).contains("UPLOAD_1");
+    assertThat(sentChunks).containsExactly("0:01", "1:23", "1:23");
+  }
+
+  @Test
+  public void fail_if_chunk_can_not_be_uploaded() throws IOException {
+    when(wsClient.call(any(WsRequest.class)))
+      .thenAnswer(invocation -> recordAndRespond(invocation.getArgument(0), ok()))
+      .thenAnswer(invocation -> recordAndRespond(invocation.getArgument(0), new MockWsResponse().setCode(503).setRequestUrl("url").setContent("")));
+    ChunkedReportUpload underTest = new ChunkedReportUpload(wsClient, "my-org", "my_project", temp.newFolder(), 2);
+    underTest.write("0123".getBytes(StandardCharsets.UTF_8));
+    underTest.close();
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Failed to upload report");
+
+    underTest.awaitUploads();
+  }
+
+  @Test
+  public void keep_chunks_if_server_rejects_chunked_upload() throws IOException {
+    when(wsClient.call(any(WsRequest.class)))
+      .thenAnswer(invocation -> recordAndRespond(invocation.getArgument(0), new MockWsResponse().setCode(404).setRequestUrl("url").setContent("")));
+    ChunkedReportUpload underTest = new ChunkedReportUpload(wsClient, "my-org", "my_project", temp.newFolder(), 4);
+
+    underTest.write("0123456789".getBytes(StandardCharsets.UTF_8));
+    underTest.close();
+
+    assertThat(underTest.awaitUploads()).isEmpty();
+    // next chunks are not sent
+    assertThat(sentChunks).containsExactly("0:0123");
+    File reportFile = temp.newFile();
+    underTest.writeTo(reportFile);
+    assertThat(reportFile).hasContent("0123456789");
+  }
+
+  private MockWsResponse recordAndRespond(WsRequest request, MockWsResponse response) throws IOException {
+    PostRequest post = (PostRequest) request;
+    assertThat(post.getPath()).isEqualTo("api/ce/submit_chunk");
+    String index = post.getParameters().getValue("index");
+    File chunk = post.getParts().get("chunk").getFile();
+    sentChunks.add(index + ":" + FileUtils.readFileToString(chunk, StandardCharsets.UTF_8));
+    sentUploadIds.add(post.getParameters().getValue("uploadId"));
+    sentProjects.add(post.getParameters().getValue("organization") + ":" + post.getParameters().getValue("projectKey"));
+    return response;
+  }
+
+  private static MockWsResponse ok() {
+    return new MockWsResponse().setContent(Ce.SubmitChunkResponse.newBuilder().setUploadId("UPLOAD_1").build().toByteArray());
+  }
+}
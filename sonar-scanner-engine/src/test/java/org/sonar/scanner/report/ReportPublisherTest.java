@@ -48,6 +48,7 @@ import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonarqube.ws.Ce;
 import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.MockWsResponse;
+import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
@@ -55,6 +56,7 @@ import static org.apache.commons.io.FileUtils.readFileToString;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.scanner.scan.branch.BranchType.BRANCH;
@@ -218,6 +220,42 @@ public class ReportPublisherTest {
       .contains("More about the report processing at https://publicserver/sonarqube/api/ce/task?id=TASK-123");
   }
 
+  @Test
+  public void upload_report_in_chunks_then_submit_it() {
+    MockWsResponse chunkResponse = new MockWsResponse().setContent(Ce.SubmitChunkResponse.newBuilder().setUploadId("UPLOAD_1").build().toByteArray());
+    MockWsResponse submitResponse = new MockWsResponse().setContent(Ce.SubmitResponse.newBuilder().setTaskId("task-1234").build().toByteArray());
+    when(wsClient.call(any())).thenReturn(chunkResponse, chunkResponse, submitResponse);
+    // the report of an empty project is 24 bytes long
+    underTest.setChunkSize(16);
+    underTest.start();
+    underTest.execute();
+
+    ArgumentCaptor<WsRequest> requests = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(3)).call(requests.capture());
+    assertThat(requests.getAllValues()).extracting(WsRequest::getPath).containsExactly("api/ce/submit_chunk", "api/ce/submit_chunk", "api/ce/submit");
+    PostRequest submit = (PostRequest) requests.getAllValues().get(2);
+    assertThat(submit.getParameters().getValue("uploadId")).isEqualTo("UPLOAD_1");
+    assertThat(submit.getParameters().getValue("chunks")).isEqualTo("2");
+    assertThat(submit.getParts()).isEmpty();
+  }
+
+  @Test
+  public void upload_whole_report_if_server_rejects_chunks() {
+    MockWsResponse chunkResponse = new MockWsResponse().setCode(404).setRequestUrl("url").setContent("");
+    MockWsResponse submitResponse = new MockWsResponse().setContent(Ce.SubmitResponse.newBuilder().setTaskId("task-1234").build().toByteArray());
+    when(wsClient.call(any())).thenReturn(chunkResponse, submitResponse);
+    underTest.setChunkSize(10);
+    underTest.start();
+    underTest.execute();
+
+    ArgumentCaptor<WsRequest> requests = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(2)).call(requests.capture());
+    assertThat(requests.getAllValues()).extracting(WsRequest::getPath).containsExactly("api/ce/submit_chunk", "api/ce/submit");
+    PostRequest submit = (PostRequest) requests.getAllValues().get(1);
+    assertThat(submit.getParts()).containsOnlyKeys("report");
+    assertThat(submit.getParameters().getValue("uploadId")).isNull();
+  }
+
   @Test
   public void dump_information_to_custom_path() {
     underTest.prepareAndDumpMetadata("TASK-123");
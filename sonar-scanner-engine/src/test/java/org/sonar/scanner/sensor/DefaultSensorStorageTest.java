@@ -217,6 +217,7 @@ public class DefaultSensorStorageTest {
       .forMetric(CoreMetrics.NCLOC)
       .withValue(10));
 
+    reportWriter.flush();
     ScannerReport.Measure m = reportReader.readComponentMeasures(file.scannerId()).next();
     assertThat(m.getIntValue().getValue()).isEqualTo(10);
     assertThat(m.getMetricKey()).isEqualTo(CoreMetrics.NCLOC_KEY);
@@ -232,6 +233,7 @@ public class DefaultSensorStorageTest {
       .forMetric(CoreMetrics.NCLOC)
       .withValue(10));
 
+    reportWriter.flush();
     ScannerReport.Measure m = reportReader.readComponentMeasures(file.scannerId()).next();
     assertThat(m.getIntValue().getValue()).isEqualTo(10);
     assertThat(m.getMetricKey()).isEqualTo(CoreMetrics.NCLOC_KEY);
@@ -274,6 +276,7 @@ public class DefaultSensorStorageTest {
       .forMetric(CoreMetrics.NCLOC)
       .withValue(10));
 
+    reportWriter.flush();
     ScannerReport.Measure m = reportReader.readComponentMeasures(module.scannerId()).next();
     assertThat(m.getIntValue().getValue()).isEqualTo(10);
     assertThat(m.getMetricKey()).isEqualTo(CoreMetrics.NCLOC_KEY);
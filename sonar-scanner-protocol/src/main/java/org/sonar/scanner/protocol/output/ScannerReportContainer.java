@@ -0,0 +1,159 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+
+/**
+ * Single file format of the scanner report, which can be written sequentially and read without being extracted.
+ * <p>
+ * Layout:
+ * <pre>
+ *   header   MAGIC, int version
+ *   segments for each file of the report directory, its content compressed with deflate
+ *   index    int number of segments, then for each segment: UTF name, long offset, long length
+ *   footer   long offset of the index, MAGIC
+ * </pre>
+ * Segments are named after the files of the report directory, see {@link FileStructure}.
+ *
+ * @see ScannerReportContainerReader
+ */
+public final class ScannerReportContainer {
+  /**
+   * Name of the container file when it is stored in a directory to be read by {@link ScannerReportReader}.
+   */
+  public static final String FILENAME = "scanner-report.sqr";
+
+  static final byte[] MAGIC = {'S', 'Q', 'R', 'C'};
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+  static final int FOOTER_SIZE = Long.BYTES + MAGIC.length;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private ScannerReportContainer() {
+    // only statics
+  }
+
+  /**
+   * Returns whether the stream starts with the header of a container. The stream is reset to its current position.
+   *
+   * @throws IllegalArgumentException if the stream does not support mark and reset
+   */
+  public static boolean isContainer(InputStream input) throws IOException {
+    if (!input.markSupported()) {
+      throw new IllegalArgumentException("Stream must support mark and reset");
+    }
+    input.mark(MAGIC.length);
+    try {
+      byte[] header = new byte[MAGIC.length];
+      int read = 0;
+      while (read < header.length) {
+        int count = input.read(header, read, header.length - read);
+        if (count < 0) {
+          return false;
+        }
+        read += count;
+      }
+      return Arrays.equals(MAGIC, header);
+    } finally {
+      input.reset();
+    }
+  }
+
+  public static void write(File reportDir, File toFile) {
+    try (OutputStream output = new BufferedOutputStream(new FileOutputStream(toFile), BUFFER_SIZE)) {
+      write(reportDir, output);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write scanner report container " + toFile, e);
+    }
+  }
+
+  /**
+   * Writes the files of {@code reportDir} to {@code output}, which is not closed.
+   */
+  public static void write(File reportDir, OutputStream output) throws IOException {
+    File[] files = reportDir.listFiles(f -> f.isFile() && !FILENAME.equals(f.getName()));
+    if (files == null) {
+      throw new IllegalStateException("Unable to list files of directory " + reportDir);
+    }
+    Arrays.sort(files, Comparator.comparing(File::getName));
+
+    CountingOutputStream counting = new CountingOutputStream(output);
+    DataOutputStream data = new DataOutputStream(counting);
+    data.write(MAGIC);
+    data.writeInt(VERSION);
+
+    List<Segment> segments = new ArrayList<>(files.length);
+    for (File file : files) {
+      long offset = counting.getByteCount();
+      writeSegment(file, counting);
+      segments.add(new Segment(file.getName(), offset, counting.getByteCount() - offset));
+    }
+
+    long indexOffset = counting.getByteCount();
+    data.writeInt(segments.size());
+    for (Segment segment : segments) {
+      data.writeUTF(segment.name);
+      data.writeLong(segment.offset);
+      data.writeLong(segment.length);
+    }
+    data.writeLong(indexOffset);
+    data.write(MAGIC);
+    data.flush();
+  }
+
+  private static void writeSegment(File file, OutputStream output) throws IOException {
+    Deflater deflater = new Deflater();
+    try {
+      DeflaterOutputStream deflating = new DeflaterOutputStream(output, deflater, BUFFER_SIZE);
+      Files.copy(file.toPath(), deflating);
+      deflating.finish();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static class Segment {
+    private final String name;
+    private final long offset;
+    private final long length;
+
+    private Segment(String name, long offset, long length) {
+      this.name = name;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.IOUtils;
+
+import static org.sonar.scanner.protocol.output.ScannerReportContainer.FOOTER_SIZE;
+import static org.sonar.scanner.protocol.output.ScannerReportContainer.HEADER_SIZE;
+import static org.sonar.scanner.protocol.output.ScannerReportContainer.MAGIC;
+import static org.sonar.scanner.protocol.output.ScannerReportContainer.VERSION;
+
+/**
+ * Reads the segments of a file written by {@link ScannerReportContainer} in place. Segments are read with positional
+ * reads of a single {@link FileChannel}, so that several segments can be read at the same time, and are decompressed
+ * while being read.
+ * <p>
+ * The file is not memory-mapped: a mapping is only released when its buffer is garbage-collected, hence the file
+ * would stay mapped after {@link #close()}, and could not be deleted on Windows.
+ */
+public class ScannerReportContainerReader implements Closeable {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File file;
+  private final Map<String, long[]> segmentsByName;
+  private final FileChannel channel;
+
+  private ScannerReportContainerReader(File file, Map<String, long[]> segmentsByName, FileChannel channel) {
+    this.file = file;
+    this.segmentsByName = segmentsByName;
+    this.channel = channel;
+  }
+
+  public static ScannerReportContainerReader open(File file) {
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      long size = channel.size();
+      if (size < HEADER_SIZE + Integer.BYTES + FOOTER_SIZE) {
+        throw new IllegalStateException("Not a scanner report container: " + file);
+      }
+      ByteBuffer header = read(channel, 0, HEADER_SIZE);
+      ByteBuffer footer = read(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+      long indexOffset = footer.getLong();
+      if (!hasMagic(header) || !hasMagic(footer) || indexOffset < HEADER_SIZE || indexOffset > size - FOOTER_SIZE) {
+        throw new IllegalStateException("Not a scanner report container: " + file);
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IllegalStateException("Unsupported version " + version + " of scanner report container: " + file);
+      }
+      Map<String, long[]> segmentsByName = readIndex(read(channel, indexOffset, (int) (size - FOOTER_SIZE - indexOffset)), indexOffset);
+      return new ScannerReportContainerReader(file, segmentsByName, channel);
+    } catch (IOException e) {
+      IOUtils.closeQuietly(channel);
+      throw new IllegalStateException("Unable to open scanner report container " + file, e);
+    } catch (RuntimeException e) {
+      IOUtils.closeQuietly(channel);
+      throw e;
+    }
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public boolean has(String name) {
+    return segmentsByName.containsKey(name);
+  }
+
+  /**
+   * Opens the decompressed content of the segment with the specified name, or returns {@code null} if there is none.
+   */
+  @CheckForNull
+  public InputStream open(String name) {
+    long[] segment = segmentsByName.get(name);
+    if (segment == null) {
+      return null;
+    }
+    return new InflaterInputStream(new SegmentInputStream(channel, segment[0], segment[0] + segment[1]), new Inflater(), BUFFER_SIZE) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          inf.end();
+        }
+      }
+    };
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private static Map<String, long[]> readIndex(ByteBuffer index, long indexOffset) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(index.array()));
+    int count = input.readInt();
+    Map<String, long[]> segmentsByName = new HashMap<>(count * 2);
+    for (int i = 0; i < count; i++) {
+      String name = input.readUTF();
+      long offset = input.readLong();
+      long length = input.readLong();
+      if (offset < HEADER_SIZE || length < 0 || offset + length > indexOffset) {
+        throw new IllegalStateException("Invalid segment " + name + " in scanner report container");
+      }
+      segmentsByName.put(name, new long[] {offset, length});
+    }
+    return segmentsByName;
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static boolean hasMagic(ByteBuffer buffer) {
+    byte[] magic = new byte[MAGIC.length];
+    buffer.get(magic);
+    return Arrays.equals(MAGIC, magic);
+  }
+
+  /**
+   * Reads a segment of the file without changing the position of the channel, which is shared by all the segments.
+   */
+  private static class SegmentInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    private SegmentInputStream(FileChannel channel, long start, long end) {
+      this.channel = channel;
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int count = read(b, 0, 1);
+      return count < 0 ? -1 : (b[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (position >= end) {
+        return -1;
+      }
+      int count = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position)), position);
+      if (count < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+  }
+}
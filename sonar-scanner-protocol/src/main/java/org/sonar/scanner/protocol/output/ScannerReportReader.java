@@ -19,49 +19,75 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.Protobuf;
 
 import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
 
+/**
+ * Reads a scanner report either from the directory it was written to by {@link ScannerReportWriter} or from a
+ * {@link ScannerReportContainer}.
+ */
 public class ScannerReportReader {
 
   private final FileStructure fileStructure;
+  @CheckForNull
+  private final ScannerReportContainerReader container;
 
   public ScannerReportReader(File dir) {
-    this.fileStructure = new FileStructure(dir);
+    this(new FileStructure(dir), null);
+  }
+
+  /**
+   * Segments of the container are looked up by the names of the files of {@link #getFileStructure()}, which is
+   * rooted in the directory of the container file.
+   */
+  public ScannerReportReader(ScannerReportContainerReader container) {
+    this(new FileStructure(container.getFile().getAbsoluteFile().getParentFile()), container);
+  }
+
+  private ScannerReportReader(FileStructure fileStructure, @Nullable ScannerReportContainerReader container) {
+    this.fileStructure = fileStructure;
+    this.container = container;
   }
 
   public ScannerReport.Metadata readMetadata() {
     File file = fileStructure.metadataFile();
-    if (!fileExists(file)) {
+    if (!exists(file)) {
       throw new IllegalStateException("Metadata file is missing in analysis report: " + file);
     }
-    return Protobuf.read(file, ScannerReport.Metadata.parser());
+    return read(file, ScannerReport.Metadata.parser());
   }
 
   public CloseableIterator<ScannerReport.ActiveRule> readActiveRules() {
     File file = fileStructure.activeRules();
-    if (!fileExists(file)) {
+    if (!exists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.ActiveRule.parser());
+    return readStream(file, ScannerReport.ActiveRule.parser());
   }
 
   public CloseableIterator<ScannerReport.AdHocRule> readAdHocRules() {
     File file = fileStructure.adHocRules();
-    if (!fileExists(file)) {
+    if (!exists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.AdHocRule.parser());
+    return readStream(file, ScannerReport.AdHocRule.parser());
   }
 
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Measure.parser());
+    if (exists(file)) {
+      return readStream(file, ScannerReport.Measure.parser());
     }
     return emptyCloseableIterator();
   }
@@ -69,70 +95,70 @@ public class ScannerReportReader {
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.Changesets.parser());
+    if (exists(file)) {
+      return read(file, ScannerReport.Changesets.parser());
     }
     return null;
   }
 
   public ScannerReport.Component readComponent(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef);
-    if (!fileExists(file)) {
+    if (!exists(file)) {
       throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
     }
-    return Protobuf.read(file, ScannerReport.Component.parser());
+    return read(file, ScannerReport.Component.parser());
   }
 
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Issue.parser());
+    if (exists(file)) {
+      return readStream(file, ScannerReport.Issue.parser());
     }
     return emptyCloseableIterator();
   }
 
   public CloseableIterator<ScannerReport.ExternalIssue> readComponentExternalIssues(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.EXTERNAL_ISSUES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.ExternalIssue.parser());
+    if (exists(file)) {
+      return readStream(file, ScannerReport.ExternalIssue.parser());
     }
     return emptyCloseableIterator();
   }
 
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Duplication.parser());
+    if (exists(file)) {
+      return readStream(file, ScannerReport.Duplication.parser());
     }
     return emptyCloseableIterator();
   }
 
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser());
+    if (exists(file)) {
+      return readStream(file, ScannerReport.CpdTextBlock.parser());
     }
     return emptyCloseableIterator();
   }
 
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Symbol.parser());
+    if (exists(file)) {
+      return readStream(file, ScannerReport.Symbol.parser());
     }
     return emptyCloseableIterator();
   }
 
   public boolean hasSyntaxHighlighting(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    return file.exists();
+    return exists(file);
   }
 
   @CheckForNull
   public CloseableIterator<ScannerReport.LineSgnificantCode> readComponentSignificantCode(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SGNIFICANT_CODE, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineSgnificantCode.parser());
+    if (exists(file)) {
+      return readStream(file, ScannerReport.LineSgnificantCode.parser());
     }
     return null;
   }
@@ -140,67 +166,121 @@ public class ScannerReportReader {
   @CheckForNull
   public ScannerReport.ChangedLines readComponentChangedLines(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.CHANGED_LINES, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.ChangedLines.parser());
+    if (exists(file)) {
+      return read(file, ScannerReport.ChangedLines.parser());
     }
     return null;
   }
 
   public boolean hasSignificantCode(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SGNIFICANT_CODE, fileRef);
-    return fileExists(file);
+    return exists(file);
   }
 
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
+    if (exists(file)) {
+      return readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
     }
     return emptyCloseableIterator();
   }
 
   public boolean hasCoverage(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    return file.exists();
+    return exists(file);
   }
 
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineCoverage.parser());
+    if (exists(file)) {
+      return readStream(file, ScannerReport.LineCoverage.parser());
     }
     return emptyCloseableIterator();
   }
 
+  /**
+   * @throws IllegalStateException if the report is read from a container, see {@link #openFileSource(int)}
+   */
   @CheckForNull
   public File readFileSource(int fileRef) {
+    if (container != null) {
+      throw new IllegalStateException("Sources of a report read from a container are not available as files");
+    }
     File file = fileStructure.fileFor(FileStructure.Domain.SOURCE, fileRef);
-    if (fileExists(file)) {
+    if (exists(file)) {
       return file;
     }
     return null;
   }
 
+  /**
+   * Opens the UTF-8 source of the specified file, or returns {@code null} if the report does not contain it.
+   */
+  @CheckForNull
+  public InputStream openFileSource(int fileRef) {
+    return open(fileStructure.fileFor(FileStructure.Domain.SOURCE, fileRef));
+  }
+
+  /**
+   * Opens the UTF-8 analysis log, or returns {@code null} if the report does not contain it.
+   */
+  @CheckForNull
+  public InputStream openAnalysisLog() {
+    return open(fileStructure.analysisLog());
+  }
+
   public CloseableIterator<ScannerReport.ContextProperty> readContextProperties() {
     File file = fileStructure.contextProperties();
-    if (!fileExists(file)) {
+    if (!exists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.ContextProperty.parser());
+    return readStream(file, ScannerReport.ContextProperty.parser());
   }
 
   public CloseableIterator<ScannerReport.AnalysisWarning> readAnalysisWarnings() {
     File file = fileStructure.analysisWarnings();
-    if (!fileExists(file)) {
+    if (!exists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.AnalysisWarning.parser());
+    return readStream(file, ScannerReport.AnalysisWarning.parser());
   }
 
-  private static boolean fileExists(File file) {
+  private boolean exists(File file) {
+    if (container != null) {
+      return container.has(file.getName());
+    }
     return file.exists() && file.isFile();
   }
 
+  @CheckForNull
+  private InputStream open(File file) {
+    if (!exists(file)) {
+      return null;
+    }
+    if (container != null) {
+      return container.open(file.getName());
+    }
+    try {
+      return new BufferedInputStream(new FileInputStream(file));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open file " + file, e);
+    }
+  }
+
+  private <MSG extends Message> MSG read(File file, Parser<MSG> parser) {
+    if (container != null) {
+      return Protobuf.read(container.open(file.getName()), parser);
+    }
+    return Protobuf.read(file, parser);
+  }
+
+  private <MSG extends Message> CloseableIterator<MSG> readStream(File file, Parser<MSG> parser) {
+    if (container != null) {
+      return Protobuf.readStream(container.open(file.getName()), parser);
+    }
+    return Protobuf.readStream(file, parser);
+  }
+
   public FileStructure getFileStructure() {
     return fileStructure;
   }
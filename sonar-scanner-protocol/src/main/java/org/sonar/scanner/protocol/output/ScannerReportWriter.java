@@ -19,24 +19,44 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
-import javax.annotation.concurrent.Immutable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.sonar.core.util.ContextException;
 import org.sonar.core.util.Protobuf;
 
-@Immutable
+/**
+ * Writes the files of the scanner report.
+ * <p>
+ * Files written with the {@code append*} methods are kept open, so that the many records emitted by sensors are not
+ * written with one open and close of the file each. At most {@code maxOpenAppenders} files are kept open at the same
+ * time, the least recently used one being closed when the limit is reached. {@link #flush()} must be called before
+ * these files are read.
+ */
 public class ScannerReportWriter {
+  public static final int DEFAULT_MAX_OPEN_APPENDERS = 64;
 
   private final FileStructure fileStructure;
+  private final Appenders appenders;
 
   public ScannerReportWriter(File dir) {
+    this(dir, DEFAULT_MAX_OPEN_APPENDERS);
+  }
+
+  public ScannerReportWriter(File dir, int maxOpenAppenders) {
+    if (maxOpenAppenders < 1) {
+      throw new IllegalArgumentException("Maximum number of open appenders must be >= 1, got " + maxOpenAppenders);
+    }
     if (!dir.exists() && !dir.mkdirs()) {
       throw new IllegalStateException("Unable to create directory: " + dir);
     }
     this.fileStructure = new FileStructure(dir);
+    this.appenders = new Appenders(maxOpenAppenders);
   }
 
   public FileStructure getFileStructure() {
@@ -69,6 +89,7 @@ public class ScannerReportWriter {
 
   public File writeComponentIssues(int componentRef, Iterable<ScannerReport.Issue> issues) {
     File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
+    closeAppender(file);
     Protobuf.writeStream(issues, file, false);
     return file;
   }
@@ -80,12 +101,7 @@ public class ScannerReportWriter {
   }
 
   public void appendComponentIssue(int componentRef, ScannerReport.Issue issue) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
-      issue.writeDelimitedTo(out);
-    } catch (Exception e) {
-      throw ContextException.of("Unable to write issue", e).addContext("file", file);
-    }
+    append(fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef), issue, "Unable to write issue");
   }
 
   public File writeComponentChangedLines(int componentRef, ScannerReport.ChangedLines changedLines) {
@@ -95,30 +111,15 @@ public class ScannerReportWriter {
   }
 
   public void appendComponentExternalIssue(int componentRef, ScannerReport.ExternalIssue issue) {
-    File file = fileStructure.fileFor(FileStructure.Domain.EXTERNAL_ISSUES, componentRef);
-    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
-      issue.writeDelimitedTo(out);
-    } catch (Exception e) {
-      throw ContextException.of("Unable to write external issue", e).addContext("file", file);
-    }
+    append(fileStructure.fileFor(FileStructure.Domain.EXTERNAL_ISSUES, componentRef), issue, "Unable to write external issue");
   }
 
   public void appendAdHocRule(ScannerReport.AdHocRule adHocRule) {
-    File file = fileStructure.adHocRules();
-    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
-      adHocRule.writeDelimitedTo(out);
-    } catch (Exception e) {
-      throw ContextException.of("Unable to write ad hoc rule", e).addContext("file", file);
-    }
+    append(fileStructure.adHocRules(), adHocRule, "Unable to write ad hoc rule");
   }
 
   public void appendComponentMeasure(int componentRef, ScannerReport.Measure measure) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
-      measure.writeDelimitedTo(out);
-    } catch (Exception e) {
-      throw ContextException.of("Unable to write measure", e).addContext("file", file);
-    }
+    append(fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef), measure, "Unable to write measure");
   }
 
   public File writeComponentChangesets(ScannerReport.Changesets changesets) {
@@ -173,4 +174,81 @@ public class ScannerReportWriter {
     return fileStructure.fileFor(FileStructure.Domain.SOURCE, componentRef);
   }
 
+  /**
+   * Writes to disk and closes the files kept open by the {@code append*} methods. They can still be appended to
+   * afterwards.
+   */
+  public void flush() {
+    synchronized (appenders) {
+      RuntimeException failure = null;
+      for (Map.Entry<File, OutputStream> entry : appenders.entrySet()) {
+        try {
+          close(entry.getKey(), entry.getValue());
+        } catch (RuntimeException e) {
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e);
+          }
+        }
+      }
+      appenders.clear();
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+
+  private void append(File file, Message message, String errorMessage) {
+    synchronized (appenders) {
+      try {
+        OutputStream out = appenders.get(file);
+        if (out == null) {
+          out = new BufferedOutputStream(new FileOutputStream(file, true));
+          appenders.put(file, out);
+        }
+        message.writeDelimitedTo(out);
+      } catch (Exception e) {
+        throw ContextException.of(errorMessage, e).addContext("file", file);
+      }
+    }
+  }
+
+  private void closeAppender(File file) {
+    synchronized (appenders) {
+      OutputStream out = appenders.remove(file);
+      if (out != null) {
+        close(file, out);
+      }
+    }
+  }
+
+  private static void close(File file, OutputStream out) {
+    try {
+      out.close();
+    } catch (IOException e) {
+      throw ContextException.of("Unable to close file", e).addContext("file", file);
+    }
+  }
+
+  /**
+   * The open files, in access order, the least recently used one being closed when there are more than the maximum.
+   */
+  private static class Appenders extends LinkedHashMap<File, OutputStream> {
+    private final int maxOpenAppenders;
+
+    private Appenders(int maxOpenAppenders) {
+      super(16, 0.75F, true);
+      this.maxOpenAppenders = maxOpenAppenders;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<File, OutputStream> eldest) {
+      if (size() > maxOpenAppenders) {
+        close(eldest.getKey(), eldest.getValue());
+        return true;
+      }
+      return false;
+    }
+  }
 }
@@ -0,0 +1,169 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.core.util.CloseableIterator;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScannerReportContainerTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void read_segments_written_in_container() throws IOException {
+    File dir = temp.newFolder();
+    FileUtils.write(new File(dir, "a.txt"), "foo", UTF_8);
+    FileUtils.write(new File(dir, "empty.txt"), "", UTF_8);
+    File container = new File(temp.newFolder(), ScannerReportContainer.FILENAME);
+
+    ScannerReportContainer.write(dir, container);
+
+    try (ScannerReportContainerReader reader = ScannerReportContainerReader.open(container)) {
+      assertThat(reader.has("a.txt")).isTrue();
+      assertThat(reader.has("empty.txt")).isTrue();
+      assertThat(reader.has("missing.txt")).isFalse();
+      assertThat(reader.open("missing.txt")).isNull();
+      try (InputStream input = reader.open("a.txt")) {
+        assertThat(IOUtils.toString(input, UTF_8)).isEqualTo("foo");
+      }
+      try (InputStream input = reader.open("empty.txt")) {
+        assertThat(input.read()).isEqualTo(-1);
+      }
+    }
+  }
+
+  @Test
+  public void read_several_segments_at_the_same_time() throws IOException {
+    File dir = temp.newFolder();
+    String a = StringUtils.repeat("a", 200_000);
+    String b = StringUtils.repeat("b", 200_000);
+    FileUtils.write(new File(dir, "a.txt"), a, UTF_8);
+    FileUtils.write(new File(dir, "b.txt"), b, UTF_8);
+    File container = new File(temp.newFolder(), ScannerReportContainer.FILENAME);
+    ScannerReportContainer.write(dir, container);
+
+    try (ScannerReportContainerReader reader = ScannerReportContainerReader.open(container);
+      InputStream inputA = reader.open("a.txt");
+      InputStream inputB = reader.open("b.txt")) {
+      StringBuilder readA = new StringBuilder();
+      StringBuilder readB = new StringBuilder();
+      byte[] buffer = new byte[1_000];
+      int count;
+      while ((count = inputA.read(buffer)) >= 0) {
+        readA.append(new String(buffer, 0, count, UTF_8));
+        int countB = inputB.read(buffer);
+        if (countB >= 0) {
+          readB.append(new String(buffer, 0, countB, UTF_8));
+        }
+      }
+      readB.append(IOUtils.toString(inputB, UTF_8));
+
+      assertThat(readA.toString()).isEqualTo(a);
+      assertThat(readB.toString()).isEqualTo(b);
+    }
+  }
+
+  @Test
+  public void fail_to_read_segment_once_closed() throws IOException {
+    File dir = temp.newFolder();
+    FileUtils.write(new File(dir, "a.txt"), "foo", UTF_8);
+    File container = new File(temp.newFolder(), ScannerReportContainer.FILENAME);
+    ScannerReportContainer.write(dir, container);
+    ScannerReportContainerReader reader = ScannerReportContainerReader.open(container);
+    InputStream input = reader.open("a.txt");
+
+    reader.close();
+
+    expectedException.expect(IOException.class);
+    input.read();
+  }
+
+  @Test
+  public void read_report_from_container() throws IOException {
+    File dir = temp.newFolder();
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("PROJECT_A").build());
+    writer.appendComponentExternalIssue(1, ScannerReport.ExternalIssue.newBuilder().setMsg("msg").build());
+    writer.flush();
+    FileUtils.write(writer.getSourceFile(1), "line1\nline2", UTF_8);
+    File container = new File(temp.newFolder(), ScannerReportContainer.FILENAME);
+    ScannerReportContainer.write(dir, container);
+
+    try (ScannerReportContainerReader containerReader = ScannerReportContainerReader.open(container)) {
+      ScannerReportReader underTest = new ScannerReportReader(containerReader);
+
+      assertThat(underTest.readMetadata().getProjectKey()).isEqualTo("PROJECT_A");
+      try (CloseableIterator<ScannerReport.ExternalIssue> issues = underTest.readComponentExternalIssues(1)) {
+        assertThat(issues.next().getMsg()).isEqualTo("msg");
+        assertThat(issues.hasNext()).isFalse();
+      }
+      assertThat(underTest.readComponentIssues(1).hasNext()).isFalse();
+      assertThat(underTest.hasCoverage(1)).isFalse();
+      try (InputStream source = underTest.openFileSource(1)) {
+        assertThat(IOUtils.readLines(source, UTF_8)).containsExactly("line1", "line2");
+      }
+      assertThat(underTest.openFileSource(2)).isNull();
+      assertThat(underTest.openAnalysisLog()).isNull();
+    }
+  }
+
+  @Test
+  public void detect_container_without_consuming_stream() throws IOException {
+    File dir = temp.newFolder();
+    FileUtils.write(new File(dir, "a.txt"), "foo", UTF_8);
+    File container = temp.newFile();
+    ScannerReportContainer.write(dir, container);
+
+    try (InputStream input = new BufferedInputStream(FileUtils.openInputStream(container))) {
+      assertThat(ScannerReportContainer.isContainer(input)).isTrue();
+      assertThat(IOUtils.toByteArray(input)).isEqualTo(FileUtils.readFileToByteArray(container));
+    }
+    assertThat(ScannerReportContainer.isContainer(new ByteArrayInputStream("PK\u0003\u0004".getBytes(UTF_8)))).isFalse();
+    assertThat(ScannerReportContainer.isContainer(new ByteArrayInputStream(new byte[0]))).isFalse();
+  }
+
+  @Test
+  public void fail_to_open_file_which_is_not_a_container() throws IOException {
+    File file = temp.newFile();
+    FileUtils.write(file, "this is not a scanner report container", UTF_8);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Not a scanner report container");
+
+    ScannerReportContainerReader.open(file);
+  }
+}
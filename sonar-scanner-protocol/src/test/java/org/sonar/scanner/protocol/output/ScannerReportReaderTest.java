@@ -109,6 +109,7 @@ public class ScannerReportReaderTest {
     ScannerReport.ExternalIssue issue = ScannerReport.ExternalIssue.newBuilder()
       .build();
     writer.appendComponentExternalIssue(1, issue);
+    writer.flush();
 
     assertThat(underTest.readComponentExternalIssues(1)).toIterable().hasSize(1);
     assertThat(underTest.readComponentExternalIssues(200)).toIterable().isEmpty();
@@ -125,6 +126,7 @@ public class ScannerReportReaderTest {
     ScannerReport.Measure.Builder measure = ScannerReport.Measure.newBuilder()
       .setStringValue(StringValue.newBuilder().setValue("value_a"));
     writer.appendComponentMeasure(1, measure.build());
+    writer.flush();
 
     assertThat(underTest.readComponentMeasures(1)).toIterable().hasSize(1);
   }
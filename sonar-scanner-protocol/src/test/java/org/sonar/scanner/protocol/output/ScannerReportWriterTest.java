@@ -21,6 +21,7 @@ package org.sonar.scanner.protocol.output;
 
 import com.google.common.collect.Iterators;
 import java.io.File;
+import java.util.stream.IntStream;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
@@ -128,6 +129,7 @@ public class ScannerReportWriterTest {
       .build();
 
     underTest.appendComponentExternalIssue(1, issue);
+    underTest.flush();
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.EXTERNAL_ISSUES, 1)).isTrue();
     File file = underTest.getFileStructure().fileFor(FileStructure.Domain.EXTERNAL_ISSUES, 1);
@@ -150,6 +152,7 @@ public class ScannerReportWriterTest {
       .setType(ScannerReport.IssueType.BUG)
       .build();
     underTest.appendAdHocRule(rule);
+    underTest.flush();
 
     File file = underTest.getFileStructure().adHocRules();
     assertThat(file).exists().isFile();
@@ -184,6 +187,7 @@ public class ScannerReportWriterTest {
       .build();
 
     underTest.appendComponentMeasure(1, measure);
+    underTest.flush();
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.MEASURES, 1)).isTrue();
     File file = underTest.getFileStructure().fileFor(FileStructure.Domain.MEASURES, 1);
@@ -353,4 +357,62 @@ public class ScannerReportWriterTest {
     assertThat(underTest.hasComponentData(FileStructure.Domain.COVERAGES, 1)).isTrue();
   }
 
+  @Test
+  public void appended_records_of_files_closed_to_respect_the_limit_of_open_files_are_kept() {
+    underTest = new ScannerReportWriter(dir, 2);
+
+    for (int i = 0; i < 10; i++) {
+      for (int ref = 1; ref <= 3; ref++) {
+        underTest.appendComponentMeasure(ref, ScannerReport.Measure.newBuilder().setMetricKey(ref + "-" + i).build());
+      }
+    }
+    underTest.flush();
+
+    for (int ref = 1; ref <= 3; ref++) {
+      File file = underTest.getFileStructure().fileFor(FileStructure.Domain.MEASURES, ref);
+      try (CloseableIterator<ScannerReport.Measure> read = Protobuf.readStream(file, ScannerReport.Measure.parser())) {
+        int expectedRef = ref;
+        assertThat(read).toIterable()
+          .extracting(ScannerReport.Measure::getMetricKey)
+          .containsExactly(IntStream.range(0, 10).mapToObj(i -> expectedRef + "-" + i).toArray(String[]::new));
+      }
+    }
+  }
+
+  @Test
+  public void records_can_be_appended_after_flush() {
+    ScannerReport.Issue issue1 = ScannerReport.Issue.newBuilder().setMsg("first").build();
+    ScannerReport.Issue issue2 = ScannerReport.Issue.newBuilder().setMsg("second").build();
+
+    underTest.appendComponentIssue(1, issue1);
+    underTest.flush();
+    underTest.appendComponentIssue(1, issue2);
+    underTest.flush();
+
+    File file = underTest.getFileStructure().fileFor(FileStructure.Domain.ISSUES, 1);
+    try (CloseableIterator<ScannerReport.Issue> read = Protobuf.readStream(file, ScannerReport.Issue.parser())) {
+      assertThat(read).toIterable().containsExactly(issue1, issue2);
+    }
+  }
+
+  @Test
+  public void write_issues_replaces_appended_issues() {
+    ScannerReport.Issue appended = ScannerReport.Issue.newBuilder().setMsg("appended").build();
+    ScannerReport.Issue written = ScannerReport.Issue.newBuilder().setMsg("written").build();
+
+    underTest.appendComponentIssue(1, appended);
+    underTest.writeComponentIssues(1, asList(written));
+    underTest.flush();
+
+    File file = underTest.getFileStructure().fileFor(FileStructure.Domain.ISSUES, 1);
+    try (CloseableIterator<ScannerReport.Issue> read = Protobuf.readStream(file, ScannerReport.Issue.parser())) {
+      assertThat(read).toIterable().containsExactly(written);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_max_open_appenders_is_less_than_1() {
+    new ScannerReportWriter(dir, 0);
+  }
+
 }